@@ -0,0 +1,126 @@
+package net.luffy.handler;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.luffy.model.Pocket48RoomInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 口袋48消息列表和房间信息解码基准
+ * legacy* 复现原来的 Hutool parseObj -> toString() -> parseObj 路径（包括排序比较器中的反复解析），
+ * stream* 为Pocket48ResponseDecoder的单次流式解码
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Pocket48ResponseDecoderBenchmark {
+
+    private static final int PAGE_SIZE = 30;
+
+    private Pocket48ResponseDecoder decoder;
+    private String messagePage;
+    private byte[] messagePageBytes;
+    private String roomInfo;
+
+    @Setup
+    public void setup() {
+        decoder = new Pocket48ResponseDecoder(new ObjectMapper());
+        messagePage = buildMessagePage(PAGE_SIZE);
+        messagePageBytes = messagePage.getBytes(StandardCharsets.UTF_8);
+        roomInfo = "{\"status\":200,\"success\":true,\"message\":\"OK\",\"content\":{\"channelInfo\":"
+                + "{\"channelId\":1234567,\"channelName\":\"测试房间\",\"ownerName\":\"测试成员\","
+                + "\"serverId\":7654321,\"bgImg\":\"/mediasource/channel/bg.jpg\",\"channelType\":\"TEAM_HOME\"}}}";
+    }
+
+    /**
+     * 构造一页消息（msgTime乱序，extInfo为JSON字符串，与接口实际返回一致）
+     */
+    static String buildMessagePage(int size) {
+        StringBuilder sb = new StringBuilder("{\"status\":200,\"success\":true,\"message\":\"OK\",\"content\":{\"message\":[");
+        long base = 1_700_000_000_000L;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            long time = base + ((i * 7L) % size) * 1000;
+            String ext = "{\"user\":{\"userId\":" + (10000 + i) + ",\"nickName\":\"成员" + i
+                    + "\",\"avatar\":\"/avatar/" + i + ".jpg\",\"level\":5,\"roleId\":3,\"vip\":false},"
+                    + "\"messageType\":\"TEXT\",\"sessionRole\":2}";
+            sb.append("{\"msgIdServer\":\"").append(1000000 + i).append("\",\"msgIdClient\":\"c").append(i)
+                    .append("\",\"msgTime\":").append(time)
+                    .append(",\"msgType\":\"TEXT\",\"bodys\":\"第").append(i).append("条消息内容，带一些文字\"")
+                    .append(",\"extInfo\":").append(JSONUtil.quote(ext, true))
+                    .append(",\"privacy\":false}");
+        }
+        sb.append("],\"nextTime\":").append(base - 1).append("}}");
+        return sb.toString();
+    }
+
+    @Benchmark
+    public void legacyMessagePage(Blackhole bh) {
+        JSONObject object = JSONUtil.parseObj(messagePage);
+        if (object.getInt("status") == 200) {
+            JSONObject content = JSONUtil.parseObj(object.getObj("content").toString());
+            List<Object> out = content.getBeanList("message", Object.class);
+            out.sort((a, b) -> {
+                long timeA = JSONUtil.parseObj(a.toString()).getLong("msgTime");
+                long timeB = JSONUtil.parseObj(b.toString()).getLong("msgTime");
+                return Long.compare(timeB, timeA);
+            });
+            for (Object message : out) {
+                JSONObject m = JSONUtil.parseObj(message.toString());
+                JSONObject extInfo = JSONUtil.parseObj(m.getObj("extInfo").toString());
+                JSONObject user = JSONUtil.parseObj(extInfo.getObj("user").toString());
+                bh.consume(user.getInt("userId"));
+                bh.consume(user.getStr("nickName"));
+                bh.consume(m.getStr("msgType"));
+                bh.consume(m.getStr("bodys"));
+                bh.consume(m.getLong("msgTime"));
+            }
+        }
+    }
+
+    @Benchmark
+    public Pocket48ResponseDecoder.MessagePage streamMessagePage() throws Exception {
+        return decoder.decodeMessagePage(messagePage);
+    }
+
+    @Benchmark
+    public Pocket48ResponseDecoder.MessagePage streamMessagePageFromBytes() throws Exception {
+        return decoder.decodeMessagePage(new ByteArrayInputStream(messagePageBytes), Long.MIN_VALUE);
+    }
+
+    @Benchmark
+    public Pocket48RoomInfo legacyRoomInfo() {
+        JSONObject object = JSONUtil.parseObj(roomInfo);
+        if (object.getInt("status") == 200) {
+            JSONObject content = JSONUtil.parseObj(object.getObj("content").toString());
+            return new Pocket48RoomInfo(JSONUtil.parseObj(content.getObj("channelInfo").toString()));
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Pocket48RoomInfo streamRoomInfo() throws Exception {
+        return decoder.decodeRoomInfo(roomInfo, 1234567L);
+    }
+}
@@ -0,0 +1,166 @@
+package net.luffy.model;
+
+import cn.hutool.json.JSONObject;
+import net.luffy.util.UnifiedJsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 口袋48消息体访问基准
+ * 按Pocket48Sender向每个群发送时的访问方式读取一批消息（图片、语音、视频、表情、回复、礼物）：
+ * legacy* 复现原来每个访问方法都重新 parseObj(body)、嵌套对象再 toString() -> parseObj 的路径，
+ * 每条消息每个群解析 2~8 次；decodeOnce* 为Pocket48MessagePayload，每条消息只解码一次，各群共用。
+ * 分配量可通过 ./gradlew jmh --args="Pocket48MessagePayloadBenchmark -prof gc" 查看
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Pocket48MessagePayloadBenchmark {
+
+    @Param({"1", "5"})
+    public int groups;
+
+    private UnifiedJsonParser jsonParser;
+    private Pocket48RoomInfo room;
+    private String[] types;
+    private String[] bodies;
+
+    @Setup
+    public void setup() {
+        jsonParser = UnifiedJsonParser.getInstance();
+        room = new Pocket48RoomInfo("测试房间", "测试成员", 7654321L, 1234567L);
+        types = new String[]{"IMAGE", "AUDIO", "VIDEO", "EXPRESSIMAGE", "REPLY", "GIFT_TEXT"};
+        bodies = new String[]{
+                "{\"url\":\"https://nim.nosdn.127.net/image.jpg\",\"ext\":\"jpg\",\"w\":1080,\"h\":1920,\"size\":204800,\"md5\":\"0123456789abcdef\"}",
+                "{\"url\":\"https://nim.nosdn.127.net/audio.aac\",\"ext\":\"aac\",\"dur\":12000,\"size\":96000,\"md5\":\"0123456789abcdef\"}",
+                "{\"url\":\"https://nim.nosdn.127.net/video.mp4\",\"ext\":\"mp4\",\"dur\":30000,\"w\":720,\"h\":1280,\"size\":4096000}",
+                "{\"expressImgInfo\":{\"emotionRemote\":\"https://source.48.cn/express/1.gif\",\"width\":200,\"height\":200},\"name\":\"比心\"}",
+                "{\"replyInfo\":{\"replyName\":\"粉丝\",\"replyText\":\"今天的公演好棒\",\"text\":\"谢谢大家\"}}",
+                "{\"giftInfo\":{\"userName\":\"测试成员\",\"giftNum\":3,\"giftName\":\"鲜花\",\"giftId\":10}}"
+        };
+    }
+
+    @Benchmark
+    public void legacyRepeatedParse(Blackhole bh) {
+        for (int i = 0; i < types.length; i++) {
+            Pocket48MessageType type = Pocket48MessageType.valueOf(types[i]);
+            for (int g = 0; g < groups; g++) {
+                switch (type) {
+                    case IMAGE:
+                        bh.consume(legacyResLoc(type, bodies[i]));
+                        bh.consume(legacyResLoc(type, bodies[i]));
+                        break;
+                    case AUDIO:
+                        bh.consume(legacyResLoc(type, bodies[i]));
+                        bh.consume(legacyExt(bodies[i]));
+                        bh.consume(legacyExt(bodies[i]));
+                        break;
+                    case VIDEO:
+                        bh.consume(legacyResLoc(type, bodies[i]));
+                        bh.consume(legacyExt(bodies[i]));
+                        bh.consume(legacyExt(bodies[i]));
+                        bh.consume(legacyExt(bodies[i]));
+                        break;
+                    case EXPRESSIMAGE:
+                        // 原来的表情名称由正则从body中提取，不计入
+                        bh.consume(legacyResLoc(type, bodies[i]));
+                        break;
+                    case REPLY:
+                        for (int k = 0; k < 4; k++) {
+                            bh.consume(legacyReply(bodies[i]));
+                        }
+                        break;
+                    case GIFT_TEXT:
+                        bh.consume(legacyGiftText(bodies[i]));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeOnce(Blackhole bh) {
+        for (int i = 0; i < types.length; i++) {
+            // 每个周期拉取到的消息都是新对象，解码开销计入本次
+            Pocket48Message message = new Pocket48Message(room, "成员", types[i], bodies[i], 0L);
+            for (int g = 0; g < groups; g++) {
+                switch (message.getType()) {
+                    case IMAGE:
+                        bh.consume(message.getResLoc());
+                        bh.consume(message.getResLoc());
+                        break;
+                    case AUDIO:
+                        bh.consume(message.getResLoc());
+                        bh.consume(message.getExt());
+                        bh.consume(message.getExt());
+                        break;
+                    case VIDEO:
+                        bh.consume(message.getResLoc());
+                        bh.consume(message.getExt());
+                        bh.consume(message.getExt());
+                        bh.consume(message.getExt());
+                        break;
+                    case EXPRESSIMAGE:
+                        bh.consume(message.getResLoc());
+                        bh.consume(message.getEmotionName());
+                        break;
+                    case REPLY:
+                        for (int k = 0; k < 4; k++) {
+                            bh.consume(message.getReply());
+                        }
+                        break;
+                    case GIFT_TEXT:
+                        bh.consume(message.getText());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    // ==================== 原来的访问方法 ====================
+
+    private String legacyResLoc(Pocket48MessageType type, String body) {
+        if (type == Pocket48MessageType.EXPRESSIMAGE) {
+            return jsonParser.parseObj(jsonParser.parseObj(body).getObj("expressImgInfo").toString()).getStr("emotionRemote");
+        }
+        return jsonParser.parseObj(body).getStr("url");
+    }
+
+    private String legacyExt(String body) {
+        return jsonParser.parseObj(body).getStr("ext");
+    }
+
+    private Pocket48Reply legacyReply(String body) {
+        JSONObject object = jsonParser.parseObj(body);
+        JSONObject content = jsonParser.parseObj(object.getObj("replyInfo").toString());
+        return new Pocket48Reply(
+                content.getStr("replyName"),
+                content.getStr("replyText"),
+                content.getStr("text"),
+                false);
+    }
+
+    private String legacyGiftText(String body) {
+        JSONObject info = jsonParser.parseObj(jsonParser.parseObj(body).getObj("giftInfo").toString());
+        return "送给 " + info.getStr("userName") + " " + info.getInt("giftNum") + "个" + info.getStr("giftName");
+    }
+}
@@ -1,5 +1,7 @@
 package net.luffy;
 
+import net.luffy.util.AsyncOnlineStatusMonitor;
+import net.luffy.util.CommandExecutor;
 import net.luffy.util.CommandOperator;
 import net.luffy.command.CustomPrefixCommand;
 import net.mamoe.mirai.contact.Group;
@@ -8,16 +10,18 @@ import net.mamoe.mirai.contact.User;
 import net.mamoe.mirai.event.EventHandler;
 import net.mamoe.mirai.event.ListeningStatus;
 import net.mamoe.mirai.event.SimpleListenerHost;
+import net.mamoe.mirai.event.events.BotLeaveEvent;
 import net.mamoe.mirai.event.events.GroupMessageEvent;
 import net.mamoe.mirai.event.events.MemberJoinEvent;
 import net.mamoe.mirai.event.events.UserMessageEvent;
 import net.mamoe.mirai.message.data.At;
-import net.mamoe.mirai.message.data.Message;
 
 public class Listener extends SimpleListenerHost {
 
     public CommandOperator operator = new CommandOperator();
 
+    // 命令在CommandExecutor的线程池上执行，事件线程只负责识别和提交
+    // 只有识别出的命令才会占用名额，普通聊天（如"#话题"）不会收到繁忙提示
     @EventHandler()
     public ListeningStatus onGroupMessage(GroupMessageEvent event) {
         Member sender = event.getSender();
@@ -26,11 +30,12 @@ public class Listener extends SimpleListenerHost {
 
         // 处理自定义前缀命令 (! 或 #)
         if (message.startsWith("!") || message.startsWith("#")) {
-            Message customResponse = CustomPrefixCommand.handleGroupCommand(message, group, sender.getId());
-            if (customResponse != null) {
-                group.sendMessage(customResponse);
-                return ListeningStatus.LISTENING;
+            if (CustomPrefixCommand.isGroupCommand(message)) {
+                CommandExecutor.getInstance().submit(commandName(message), group.getId(), sender.getId(),
+                        () -> CustomPrefixCommand.handleGroupCommand(message, group, sender.getId()),
+                        group::sendMessage);
             }
+            return ListeningStatus.LISTENING;
         }
         
 
@@ -46,9 +51,12 @@ public class Listener extends SimpleListenerHost {
             }
             
             String[] args = message.split(" ");
-            Message m = operator.executePublic(args, group, sender.getId());
-            if (m != null)
-                group.sendMessage(m);
+            if (!CommandOperator.isPublicCommand(args[0])) {
+                return ListeningStatus.LISTENING;
+            }
+            CommandExecutor.getInstance().submit(args[0], group.getId(), sender.getId(),
+                    () -> operator.executePublic(args, group, sender.getId()),
+                    group::sendMessage);
         }
 
         return ListeningStatus.LISTENING;
@@ -61,15 +69,12 @@ public class Listener extends SimpleListenerHost {
 
         // 处理自定义前缀命令 (! 或 #)
         if (message.startsWith("!") || message.startsWith("#")) {
-            Message customResponse = CustomPrefixCommand.handlePrivateCommand(message, sender);
-            if (customResponse != null) {
-                try {
-                    sender.sendMessage(customResponse);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return ListeningStatus.LISTENING;
+            if (CustomPrefixCommand.isPrivateCommand(message)) {
+                CommandExecutor.getInstance().submit(commandName(message), 0, sender.getId(),
+                        () -> CustomPrefixCommand.handlePrivateCommand(message, sender),
+                        sender::sendMessage);
             }
+            return ListeningStatus.LISTENING;
         }
         
         if (message.startsWith("/")) {
@@ -82,19 +87,28 @@ public class Listener extends SimpleListenerHost {
                 return ListeningStatus.LISTENING;
             }
             
-            try {
-                Message m = operator.executePrivate(message, event);
-                if (m != null) {
-                    sender.sendMessage(m);
-                }
-            } catch (Exception e) {
-                // 静默处理错误，不向用户发送错误消息
-                e.printStackTrace();
+            if (!CommandOperator.isPrivateCommand(message.trim().split("\\s+")[0])) {
+                return ListeningStatus.LISTENING;
             }
+            CommandExecutor.getInstance().submit(parts[0], 0, sender.getId(),
+                    () -> operator.executePrivate(message, event),
+                    sender::sendMessage);
         }
 
         return ListeningStatus.LISTENING;
     }
 
+    // 机器人退出或被移出群后，该群的在线状态订阅不再有接收方
+    @EventHandler()
+    public ListeningStatus onBotLeave(BotLeaveEvent event) {
+        AsyncOnlineStatusMonitor.INSTANCE.removeSubscriptionConfig(event.getGroup().getId());
+        return ListeningStatus.LISTENING;
+    }
+
+    private static String commandName(String message) {
+        int space = message.indexOf(' ');
+        return space < 0 ? message : message.substring(0, space);
+    }
+
     // 进群欢迎功能已移除
 }
@@ -13,13 +13,17 @@ import net.luffy.handler.Xox48Handler;
 import net.luffy.util.AsyncOnlineStatusMonitor;
 
 import net.luffy.model.EndTime;
-import net.luffy.model.Pocket48SenderCache;
 import net.luffy.model.WeidianCookie;
 import net.luffy.model.WeidianOrder;
+import net.luffy.util.CommandExecutor;
 import net.luffy.util.ConfigOperator;
 import net.luffy.util.Properties;
 import net.luffy.util.PropertiesCommon;
+import net.luffy.util.sender.Pocket48ResourceCache;
+import net.luffy.util.sender.Pocket48RoomFetchCoordinator;
 import net.luffy.util.sender.Pocket48Sender;
+import net.luffy.util.sender.SenderExecutor;
+import net.luffy.util.sender.WeidianBroadcastAssembler;
 import net.luffy.util.sender.WeidianItemSender;
 import net.luffy.util.sender.WeidianOrderSender;
 
@@ -28,6 +32,10 @@ import net.luffy.util.PerformanceMonitor;
 import net.luffy.util.AdaptiveThreadPoolManager;
 import net.luffy.util.CpuLoadBalancer;
 import net.luffy.util.EventBusManager;
+import net.luffy.util.MediaUploadCache;
+import net.luffy.util.PollCursorStore;
+import net.luffy.util.Pocket48RoomInfoCache;
+import net.luffy.util.WeidianItemLeaderboard;
 import net.mamoe.mirai.Bot;
 import net.mamoe.mirai.console.command.CommandManager;
 import net.mamoe.mirai.console.permission.AbstractPermitteeId;
@@ -37,10 +45,14 @@ import net.mamoe.mirai.console.plugin.jvm.JavaPlugin;
 import net.mamoe.mirai.console.plugin.jvm.JvmPluginDescriptionBuilder;
 import net.mamoe.mirai.event.GlobalEventChannel;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Newboy extends JavaPlugin {
     public static final String ID = "net.luffy.newboy";
@@ -58,6 +70,9 @@ public final class Newboy extends JavaPlugin {
 
     // 传统在线状态监控器已移除，使用AsyncOnlineStatusMonitor替代
     private Scheduler scheduler;
+    // endTime: 各群已发送房间消息的最晚时间；status: 各群上次检测的语音状态
+    private volatile Map<Long, Map<Long, Long>> pocket48RoomEndTime = new ConcurrentHashMap<>();
+    private volatile Map<Long, Map<Long, List<Long>>> pocket48VoiceStatus = new ConcurrentHashMap<>();
 
 
     private Newboy() {
@@ -259,6 +274,19 @@ public final class Newboy extends JavaPlugin {
             // 停止所有定时任务
             stopAllScheduledTasks();
             
+            // 停止聊天命令执行
+            CommandExecutor.getInstance().shutdown();
+
+            // 等待进行中的发送任务完成
+            SenderExecutor.getInstance().shutdown(10000);
+
+            // 保存媒体上传缓存、媒体存储索引、房间信息缓存、轮询游标和微店排行
+            MediaUploadCache.getInstance().shutdown();
+            Pocket48ResourceCache.getInstance().shutdown();
+            Pocket48RoomInfoCache.getInstance().shutdown();
+            PollCursorStore.getInstance().shutdown();
+            WeidianItemLeaderboard.getInstance().shutdown();
+            WeidianBroadcastAssembler.getInstance().shutdown();
 
             
             // 停止定期性能报告
@@ -321,14 +349,30 @@ public final class Newboy extends JavaPlugin {
         // 命令注册已移除
     }
 
+    /**
+     * 清除群在房间上的发送进度，取消订阅后在同一次运行中重新订阅时从当前时间开始
+     */
+    public void clearPocket48RoomProgress(long group, long roomId) {
+        Map<Long, Long> endTime = pocket48RoomEndTime.get(group);
+        if (endTime != null) {
+            endTime.remove(roomId);
+        }
+        Map<Long, List<Long>> voiceStatus = pocket48VoiceStatus.get(group);
+        if (voiceStatus != null) {
+            voiceStatus.remove(roomId);
+        }
+    }
+
     private void listenBroadcast(boolean pocket48_has_login, boolean weibo_has_login) {
 
         // endTime: 已发送房间消息的最晚时间
-        HashMap<Long, HashMap<Long, Long>> pocket48RoomEndTime = new HashMap<>();
+        Map<Long, Map<Long, Long>> pocket48RoomEndTime = new ConcurrentHashMap<>();
+        this.pocket48RoomEndTime = pocket48RoomEndTime;
         // 微博相关的endTime已移除，新的微博监控服务会自动管理状态
         HashMap<Long, EndTime> weidianEndTime = new HashMap<>();
         // status: 上次检测的开播状态
-        HashMap<Long, HashMap<Long, List<Long>>> pocket48VoiceStatus = new HashMap<>();
+        Map<Long, Map<Long, List<Long>>> pocket48VoiceStatus = new ConcurrentHashMap<>();
+        this.pocket48VoiceStatus = pocket48VoiceStatus;
 
         // 停止旧的调度器
         if (scheduler != null) {
@@ -343,7 +387,14 @@ public final class Newboy extends JavaPlugin {
                 @Override
                 public void run() {
                     if (getHandlerPocket48().isLogin()) {
-                        HashMap<Long, Pocket48SenderCache> cache = new HashMap<>();
+                        if (!SenderExecutor.getInstance().beginTick(SenderExecutor.POCKET48))
+                            return;
+
+                        // 本周期共享的房间拉取协调器：同一房间只拉取一次
+                        Pocket48RoomFetchCoordinator coordinator = new Pocket48RoomFetchCoordinator();
+                        // 先创建所有群的发送器（创建时登记各群的房间游标）再提交，
+                        // 保证任何房间开始拉取时，拉取起点已覆盖本周期的每个群
+                        List<Pocket48Sender> senders = new ArrayList<>();
 
                         for (Bot b : Bot.getInstances()) {
                             for (long group : properties.pocket48_subscribe.keySet()) {
@@ -352,15 +403,18 @@ public final class Newboy extends JavaPlugin {
 
                                 if (!pocket48RoomEndTime.containsKey(group))// 放到Runnable里面是因为可能实时更新新的群
                                 {
-                                    pocket48RoomEndTime.put(group, new HashMap<>());
-                                    pocket48VoiceStatus.put(group, new HashMap<>());
+                                    pocket48RoomEndTime.put(group, new ConcurrentHashMap<>());
+                                    pocket48VoiceStatus.put(group, new ConcurrentHashMap<>());
                                 }
 
-                                new Thread(new Pocket48Sender(b, group, pocket48RoomEndTime.get(group),
-                                        pocket48VoiceStatus.get(group), cache)).start();
+                                senders.add(new Pocket48Sender(b, group, pocket48RoomEndTime.get(group),
+                                        pocket48VoiceStatus.get(group), coordinator));
 
                             }
                         }
+                        for (Pocket48Sender sender : senders) {
+                            SenderExecutor.getInstance().submit(SenderExecutor.POCKET48, sender);
+                        }
                     } else {
                         getLogger()
                                 .warning("口袋48已退出登录，请在控制台使用指令\"/newboy login <token>\"或\"/newboy login <账号> <密码>\"登录");
@@ -378,8 +432,11 @@ public final class Newboy extends JavaPlugin {
         scheduler.schedule(properties.weidian_pattern_order, new Runnable() {
             @Override
             public void run() {
+                if (!SenderExecutor.getInstance().beginTick(SenderExecutor.WEIDIAN_ORDER))
+                    return;
 
-                HashMap<WeidianCookie, WeidianOrder[]> cache = new HashMap<>();
+                // 本周期各群共享的订单拉取结果，发送器在多个线程上并发读写
+                ConcurrentHashMap<WeidianCookie, CompletableFuture<WeidianOrder[]>> cache = new ConcurrentHashMap<>();
                 Set<Long> processedGroups = new HashSet<>();
 
                 for (Bot b : Bot.getInstances()) {
@@ -388,19 +445,22 @@ public final class Newboy extends JavaPlugin {
                         if (cookie == null)
                             continue;
 
-                        if (!weidianEndTime.containsKey(group))
-                            weidianEndTime.put(group, new EndTime());
+                        if (!weidianEndTime.containsKey(group)) {
+                            // 重启后从上次停机前的订单时间继续，已错过的订单在追补窗口内补发和自动发货
+                            Long restored = PollCursorStore.getInstance().restoreTime(WeidianOrderSender.cursorKey(group));
+                            weidianEndTime.put(group, restored != null ? new EndTime(restored) : new EndTime());
+                        }
 
                         // 如果需要播报且机器人在群中
                         if (cookie.doBroadcast && b.getGroup(group) != null) {
-                            new Thread(new WeidianOrderSender(b, group, weidianEndTime.get(group), handlerWeidianSender, cache))
-                                    .start();
+                            SenderExecutor.getInstance().submit(SenderExecutor.WEIDIAN_ORDER,
+                                    new WeidianOrderSender(b, group, weidianEndTime.get(group), handlerWeidianSender, cache));
                             processedGroups.add(group);
                         }
                         // 如果只需要自动发货且还未处理过
                         else if (cookie.autoDeliver && !processedGroups.contains(group)) {
-                            new Thread(new WeidianOrderSender(null, group, weidianEndTime.get(group), handlerWeidianSender, cache))
-                                    .start();
+                            SenderExecutor.getInstance().submit(SenderExecutor.WEIDIAN_ORDER,
+                                    new WeidianOrderSender(null, group, weidianEndTime.get(group), handlerWeidianSender, cache));
                             processedGroups.add(group);
                         }
                     }
@@ -412,13 +472,17 @@ public final class Newboy extends JavaPlugin {
         handlerWeidian.setCronScheduleID(scheduler.schedule(properties.weidian_pattern_item, new Runnable() {
             @Override
             public void run() {
+                if (!SenderExecutor.getInstance().beginTick(SenderExecutor.WEIDIAN_ITEM))
+                    return;
+
                 for (Bot b : Bot.getInstances()) {
                     for (long group : properties.weidian_cookie.keySet()) {
                         WeidianCookie cookie = properties.weidian_cookie.get(group);
                         if (cookie == null || b.getGroup(group) == null)
                             continue;
 
-                        new Thread(new WeidianItemSender(b, group, handlerWeidianSender)).start();
+                        SenderExecutor.getInstance().submit(SenderExecutor.WEIDIAN_ITEM,
+                                new WeidianItemSender(b, group, handlerWeidianSender));
                     }
                 }
             }
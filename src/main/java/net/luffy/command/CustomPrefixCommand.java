@@ -1,6 +1,7 @@
 package net.luffy.command;
 
 import net.luffy.Newboy;
+import net.luffy.util.CommandExecutor;
 import net.luffy.util.CommandOperator;
 import net.mamoe.mirai.contact.Group;
 import net.mamoe.mirai.contact.Member;
@@ -40,6 +41,30 @@ import java.time.format.DateTimeFormatter;
  */
 public class CustomPrefixCommand {
     
+    /**
+     * 判断群聊消息是否为支持的自定义前缀命令，普通的 # 话题等消息返回false
+     */
+    public static boolean isGroupCommand(String message) {
+        String command = prefixCommandName(message);
+        return "newboy".equals(command) || "nb".equals(command) || "抖音".equals(command) || "douyin".equals(command);
+    }
+
+    /**
+     * 判断私聊消息是否为支持的自定义前缀命令
+     */
+    public static boolean isPrivateCommand(String message) {
+        String command = prefixCommandName(message);
+        return "newboy".equals(command) || "nb".equals(command);
+    }
+
+    private static String prefixCommandName(String message) {
+        if (!message.startsWith("!") && !message.startsWith("#")) {
+            return null;
+        }
+        String[] parts = message.substring(1).split(" ");
+        return parts.length == 0 ? null : parts[0].toLowerCase();
+    }
+
     /**
      * 处理群聊中的自定义前缀命令
      * @param message 消息内容
@@ -418,17 +443,18 @@ public class CustomPrefixCommand {
                     // 显示房间详情
                     if (roomCount > 0) {
                         subscribeInfo.append("    - 订阅房间:\n");
-                        for (Long roomId : subscribe.getRoomIDs()) {
-                            try {
-                                net.luffy.model.Pocket48RoomInfo roomInfo = instance.getHandlerPocket48().getRoomInfoByChannelID(roomId);
-                                if (roomInfo != null) {
-                                    subscribeInfo.append(String.format("      • %s (%s) - ID: %d\n", 
-                                        roomInfo.getRoomName(), roomInfo.getOwnerName(), roomId));
-                                } else {
-                                    subscribeInfo.append(String.format("      • 未知房间 - ID: %d\n", roomId));
-                                }
-                            } catch (Exception e) {
-                                subscribeInfo.append(String.format("      • 获取失败 - ID: %d\n", roomId));
+                        // 并行查询各房间信息，按订阅顺序输出
+                        List<Long> roomIds = subscribe.getRoomIDs();
+                        List<CommandExecutor.LookupResult<net.luffy.model.Pocket48RoomInfo>> roomInfos = CommandExecutor.getInstance().fanOut(roomIds,
+                                id -> instance.getHandlerPocket48().getRoomInfoByChannelID(id));
+                        for (int i = 0; i < roomIds.size(); i++) {
+                            net.luffy.model.Pocket48RoomInfo roomInfo = roomInfos.get(i).get();
+                            if (roomInfo != null) {
+                                subscribeInfo.append(String.format("      • %s (%s) - ID: %d\n", 
+                                    roomInfo.getRoomName(), roomInfo.getOwnerName(), roomIds.get(i)));
+                            } else {
+                                subscribeInfo.append(String.format("      • %s - ID: %d\n",
+                                    roomInfos.get(i).isFailed() ? "获取失败" : "未知房间", roomIds.get(i)));
                             }
                         }
                     }
@@ -809,11 +835,29 @@ public class CustomPrefixCommand {
                 String httpStats = httpClient.getPerformanceStats();
                 report.append("  ").append(httpStats).append("\n");
                 
+                // 各平台HTTP通道统计
+                for (String line : httpClient.getLaneStats().split("\n")) {
+                    report.append("  ").append(line).append("\n");
+                }
+                
                 // 异步Web处理器性能统计
                 net.luffy.handler.AsyncWebHandler asyncWebHandler = net.luffy.handler.AsyncWebHandler.getInstance();
                 String asyncWebStats = asyncWebHandler.getPerformanceStats();
                 report.append("  ").append(asyncWebStats).append("\n");
                 
+                // JSON解析缓存各调用点命中率
+                for (String line : net.luffy.util.UnifiedJsonParser.getInstance().getCallSiteStats().split("\n")) {
+                    report.append("  ").append(line).append("\n");
+                }
+                
+                // 媒体上传缓存统计
+                report.append("  ").append(net.luffy.util.MediaUploadCache.getInstance().getStats()).append("\n");
+                report.append("  ").append(net.luffy.util.Pocket48RoomInfoCache.getInstance().getStats()).append("\n");
+                report.append("  ").append(net.luffy.util.PollCursorStore.getInstance().getStats()).append("\n");
+                report.append("  ").append(net.luffy.util.WeidianItemLeaderboard.getInstance().getStats()).append("\n");
+                report.append("  ").append(net.luffy.util.sender.WeidianBroadcastAssembler.getInstance().getStats()).append("\n");
+                report.append("  ").append(CommandExecutor.getInstance().getStats()).append("\n");
+                
                 // 迁移助手已删除，HTTP客户端已完全统一
             } catch (Exception e) {
                 report.append("  ❌ 无法获取HTTP性能数据: ").append(e.getMessage()).append("\n");
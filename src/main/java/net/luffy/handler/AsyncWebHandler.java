@@ -18,6 +18,9 @@ public class AsyncWebHandler {
     
     private static volatile AsyncWebHandler instance;
     
+    // Xox48在线状态请求的新鲜窗口：窗口内相同成员的查询直接复用上一次结果
+    private static final long XOX48_FRESH_MS = 2000;
+    
     private final UnifiedHttpClient unifiedClient;
     private final UnifiedJsonParser jsonParser;
     // OkHttpClient已迁移到UnifiedHttpClient，不再需要直接实例
@@ -89,7 +92,8 @@ public class AsyncWebHandler {
         // 统计由UnifiedHttpClient处理，避免重复计数
         lastRequestTime = System.currentTimeMillis();
         
-        return unifiedClient.postAsync(url, formBody, getXox48Headers())
+        // 监控器与命令可能同时查询同一成员，合并并发请求并在短窗口内复用结果
+        return unifiedClient.postAsyncShared(url, formBody, getXox48Headers(), XOX48_FRESH_MS)
                 .whenComplete((result, throwable) -> {
                     // 记录到全局性能监控器
                     try {
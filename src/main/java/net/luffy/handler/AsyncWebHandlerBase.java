@@ -12,6 +12,7 @@ import java.util.HashMap;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -66,15 +67,23 @@ public class AsyncWebHandlerBase {
      * 同步POST请求（兼容旧接口）- 带重试机制
      */
     protected String post(String url, String body) {
+        return withRetry("POST", () -> UnifiedHttpClient.getInstance().post(url, body));
+    }
+    
+    /**
+     * 带重试执行同步请求：最多3次，指数退避
+     * @param method 请求方法，用于异常信息
+     */
+    protected <T> T withRetry(String method, Callable<T> call) {
         int maxRetries = 3;
         long baseDelay = 1000; // 1秒基础延迟
         
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
-                return UnifiedHttpClient.getInstance().post(url, body);
+                return call.call();
             } catch (Exception e) {
                 if (attempt == maxRetries) {
-                    throw new RuntimeException("POST请求失败（已重试" + maxRetries + "次）: " + e.getMessage(), e);
+                    throw new RuntimeException(method + "请求失败（已重试" + maxRetries + "次）: " + e.getMessage(), e);
                 }
                 
                 // 指数退避重试
@@ -83,7 +92,7 @@ public class AsyncWebHandlerBase {
                     Thread.sleep(Math.min(delay, 10000)); // 最大延迟10秒
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
-                    throw new RuntimeException("POST请求被中断: " + e.getMessage(), e);
+                    throw new RuntimeException(method + "请求被中断: " + e.getMessage(), e);
                 }
             }
         }
@@ -101,6 +110,41 @@ public class AsyncWebHandlerBase {
         }
     }
     
+    /**
+     * 带Map Headers的同步POST请求，响应体直接交给处理器流式解码
+     */
+    protected <T> T post(String url, String body, Map<String, String> headers, UnifiedHttpClient.BodyHandler<T> handler) {
+        try {
+            return UnifiedHttpClient.getInstance().post(url, body, headers, handler);
+        } catch (Exception e) {
+            throw new RuntimeException("POST请求失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 合并的同步POST请求：相同URL和请求体的并发调用只发出一次
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求
+     */
+    protected String postShared(String url, String body, Map<String, String> headers, long freshMs) {
+        try {
+            return UnifiedHttpClient.getInstance().postShared(url, body, headers, freshMs);
+        } catch (Exception e) {
+            throw new RuntimeException("POST请求失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 合并的同步GET请求（带重试），相同URL的并发调用共享同一次请求及其重试
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求
+     */
+    protected String getShared(String url, Map<String, String> headers, long freshMs) {
+        try {
+            return UnifiedHttpClient.getInstance().singleFlight("GET", url, null, freshMs, () -> get(url, headers));
+        } catch (Exception e) {
+            throw new RuntimeException("GET请求失败: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * 带Headers的同步POST请求（兼容旧接口）
      */
@@ -122,28 +166,7 @@ public class AsyncWebHandlerBase {
      * 同步GET请求（兼容旧接口）- 带重试机制
      */
     protected String get(String url) {
-        int maxRetries = 3;
-        long baseDelay = 1000; // 1秒基础延迟
-        
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                return UnifiedHttpClient.getInstance().get(url);
-            } catch (Exception e) {
-                if (attempt == maxRetries) {
-                    throw new RuntimeException("GET请求失败（已重试" + maxRetries + "次）: " + e.getMessage(), e);
-                }
-                
-                // 指数退避重试
-                try {
-                    long delay = baseDelay * (1L << (attempt - 1));
-                    Thread.sleep(Math.min(delay, 10000)); // 最大延迟10秒
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("GET请求被中断: " + e.getMessage(), e);
-                }
-            }
-        }
-        return null; // 不会到达这里
+        return withRetry("GET", () -> UnifiedHttpClient.getInstance().get(url));
     }
     
     /**
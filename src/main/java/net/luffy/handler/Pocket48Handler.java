@@ -4,14 +4,20 @@ import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import net.luffy.Newboy;
+import net.luffy.util.PollCursorStore;
+import net.luffy.util.Pocket48RoomInfoCache;
+import net.luffy.util.UnifiedHttpClient;
 import net.luffy.util.UnifiedJsonParser;
 // OkHttp imports removed - migrated to UnifiedHttpClient
 import net.luffy.model.Pocket48Message;
 import net.luffy.model.Pocket48RoomInfo;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Pocket48Handler extends AsyncWebHandlerBase {
 
@@ -31,9 +37,18 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
     private static final String APIUserArchives = ROOT + "/user/api/v1/user/star/archives";
     private static final String APILiveList = ROOT + "/live/api/v1/live/getLiveList";
     private static final String APIRoomVoice = ROOT + "/im/api/v1/team/voice/operate";
+    private static final int INCREMENTAL_FIRST_PAGE_LIMIT = 10; // 有游标时首页只取10条，安静的房间一页即可
+    private static final int INCREMENTAL_PAGE_LIMIT = 30;       // 向前翻页时每页条数
+    private static final int INCREMENTAL_MAX_PAGES = 5;         // 单次最多翻页数，防止游标过旧时无限翻页
+    private static final int BACKFILL_MAX_PAGES = 20;           // 翻页达到上限后跨周期补齐的总页数上限
     private final Pocket48HandlerHeader header;
-    private final HashMap<Long, String> name = new HashMap<>();
+    // 增量拉取游标：每个（房间，群）已成功发送到的最晚消息时间
+    private final Pocket48RoomCursors roomCursors =
+            new Pocket48RoomCursors(PollCursorStore.CATCH_UP_WINDOW_MS, BACKFILL_MAX_PAGES);
+    // 房间第一页上次确认时的最新消息时间：拉取起点不早于它时，第一页未变化才表示没有新消息
+    private final ConcurrentHashMap<Long, Long> polledLatest = new ConcurrentHashMap<>();
     private final UnifiedJsonParser jsonParser = UnifiedJsonParser.getInstance();
+    private final Pocket48ResponseDecoder decoder = new Pocket48ResponseDecoder(jsonParser.getObjectMapper());
 
     public Pocket48Handler() {
         super();
@@ -164,20 +179,6 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         }
     }
 
-    public String getStarNameByStarID(long starID) {
-        if (name.containsKey(starID))
-            return name.get(starID);
-
-        JSONObject info = getUserInfo(starID);
-        if (info == null)
-            return null;
-
-        Object starName = info.getObj("starName");
-        String starName_ = starName == null ? "" : (String) starName;
-        name.put(starID, starName_);
-        return starName_;
-    }
-
     public JSONObject getUserInfo(long starID) {
         String s = post(APIUserInfo, String.format("{\"userId\":%d}", starID), getPocket48Headers());
         JSONObject object = jsonParser.parseObj(s);
@@ -260,10 +261,11 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
 
     public Long[] getChannelIDBySeverID(long serverID) {
         String s = post(APIServer2Channel, String.format("{\"serverId\":\"%d\"}", serverID), getPocket48Headers());
-        JSONObject object = jsonParser.parseObj(s);
+        // 同一Server的房间列表很少变化，命令和订阅检查会反复查询，启用解析缓存
+        JSONObject object = jsonParser.parseObjCached("pocket48.server2channel", s);
 
         if (object.getInt("status") == 200) {
-            JSONObject content = jsonParser.parseObj(object.getObj("content").toString());
+            JSONObject content = object.getJSONObject("content");
             List<Long> rs = new ArrayList<>();
             for (Object room : content.getBeanList("lastMsgList", Object.class)) {
                 rs.add(jsonParser.parseObj(room.toString()).getLong("channelId"));
@@ -277,29 +279,17 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
     }
 
     public Pocket48RoomInfo getRoomInfoByChannelID(long roomID) {
-        try {
-            String requestBody = String.format("{\"channelId\":\"%d\"}", roomID);
-            String response = post(APIChannel2Server, requestBody, getPocket48Headers());
-            JSONObject object = jsonParser.parseObj(response);
-            if (object.getInt("status") == 200) {
-                JSONObject content = jsonParser.parseObj(object.getObj("content").toString());
-                JSONObject roomInfo = jsonParser.parseObj(content.getObj("channelInfo").toString());
-                return new Pocket48RoomInfo(roomInfo);
-
-            } else if (object.getInt("status") == 2001
-                    && object.getStr("message").indexOf("question") != -1) {
-                // 对于加密房间，解析question信息并返回LockedRoomInfo
-                JSONObject message = jsonParser.parseObj(object.getObj("message").toString());
-                String question = message.getStr("question");
-                return new Pocket48RoomInfo.LockedRoomInfo(question + "？",
-                        null, roomID);
-            } else {
-                // 静默处理API错误，避免控制台噪音
-            }
-        } catch (Exception e) {
-            // 静默处理网络异常，避免控制台噪音
-        }
-        return null;
+        // 房间信息按TTL缓存，加密房间和不存在的房间也会缓存，网络异常时返回旧值或null
+        return Pocket48RoomInfoCache.getInstance().get(roomID, this::fetchRoomInfo);
+    }
+
+    private Pocket48RoomInfo fetchRoomInfo(long roomID) throws IOException {
+        String requestBody = String.format("{\"channelId\":\"%d\"}", roomID);
+        // 多个群的发送线程可能同时查询同一房间，合并为一次请求
+        String response = postShared(APIChannel2Server, requestBody, getPocket48Headers(), 0);
+        // 对于加密房间，解码器解析question信息并返回LockedRoomInfo；房间不存在返回null
+        // 其他API错误抛出异常，由缓存静默处理并保留旧值
+        return decoder.decodeRoomInfo(response, roomID);
     }
 
     public Object[] search(String content_) {
@@ -342,13 +332,12 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         if (!endTime.containsKey(roomID))
             return null;
 
-        List<Object> msgs = getOriMessages(roomID, roomInfo.getSeverId());
+        List<Pocket48ResponseDecoder.MessageEntry> msgs = getOriMessages(roomID, roomInfo.getSeverId());
         if (msgs != null) {
-            List<Pocket48Message> rs = new ArrayList<>();
+            List<Pocket48ResponseDecoder.MessageEntry> fresh = new ArrayList<>();
             long latest = 0;
-            for (Object message : msgs) {
-                JSONObject m = jsonParser.parseObj(message.toString());
-                long time = m.getLong("msgTime");
+            for (Pocket48ResponseDecoder.MessageEntry m : msgs) {
+                long time = m.msgTime;
 
                 if (endTime.get(roomID) >= time)
                     break; //api有时间次序，修复：改为大于等于，避免重复推送最新的一条信息
@@ -357,14 +346,11 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
                     latest = time;
                 }
 
-                rs.add(Pocket48Message.construct(
-                        roomInfo,
-                        m
-                ));
+                fresh.add(m);
             }
             if (latest != 0)
                 endTime.put(roomID, latest);
-            return rs.toArray(new Pocket48Message[0]);
+            return toMessages(roomInfo, fresh);
         }
         return new Pocket48Message[0];
     }
@@ -380,16 +366,9 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
     //获取全部消息并整理成Pocket48Message[]
     public Pocket48Message[] getMessages(Pocket48RoomInfo roomInfo) {
         long roomID = roomInfo.getRoomId();
-        List<Object> msgs = getOriMessages(roomID, roomInfo.getSeverId());
+        List<Pocket48ResponseDecoder.MessageEntry> msgs = getOriMessages(roomID, roomInfo.getSeverId());
         if (msgs != null) {
-            List<Pocket48Message> rs = new ArrayList<>();
-            for (Object message : msgs) {
-                rs.add(Pocket48Message.construct(
-                        roomInfo,
-                        jsonParser.parseObj(message.toString())
-                ));
-            }
-            return rs.toArray(new Pocket48Message[0]);
+            return toMessages(roomInfo, msgs);
         }
 
         return new Pocket48Message[0];
@@ -404,6 +383,87 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         return new Pocket48Message[0];
     }
 
+    /**
+     * 增量获取房间新消息（按时间倒序）
+     * 拉取起点为订阅该房间的所有群中最早的游标（各群通过{@link #seedRoomCursor}登记、
+     * 发送成功后通过{@link #ackRoomCursor}推进），只返回比起点更新的消息，
+     * 一页不足以覆盖时自动向前翻页，到达起点即停止；
+     * 翻页达到上限时暂不返回，下个周期从最后一页继续补齐，补齐后按顺序一起返回
+     *
+     * @param roomInfo 房间信息
+     * @return 新消息，拉取失败或补齐未完成时返回空数组
+     */
+    public Pocket48Message[] getNewMessages(Pocket48RoomInfo roomInfo) {
+        long roomID = roomInfo.getRoomId();
+        Long floor = roomCursors.floor(roomID, System.currentTimeMillis());
+        if (floor == null) {
+            // 还没有群登记游标：返回最新一页，由各群按自己的游标过滤
+            List<Pocket48ResponseDecoder.MessageEntry> msgs = getOriMessages(roomID, roomInfo.getSeverId());
+            return msgs == null ? new Pocket48Message[0] : toMessages(roomInfo, msgs);
+        }
+
+        Pocket48RoomCursors.Backfill backfill = roomCursors.backfill(roomID);
+        IncrementalFetch fetch;
+        if (backfill == null) {
+            fetch = getOriMessagesSince(roomID, roomInfo.getSeverId(), floor, 0);
+            if (fetch == null) {
+                return new Pocket48Message[0];
+            }
+            if (fetch.complete) {
+                return toMessages(roomInfo, fetch.messages);
+            }
+            backfill = roomCursors.startBackfill(roomID, floor, fetch.messages, fetch.nextTime, fetch.pages);
+            logInfo("口袋48房间 " + roomID + " 新消息超过 " + fetch.pages + " 页，将在后续周期继续向前补齐");
+        } else {
+            fetch = getOriMessagesSince(roomID, roomInfo.getSeverId(), backfill.floor, backfill.nextTime());
+            if (fetch == null) {
+                // 补齐进度保留，下个周期重试
+                return new Pocket48Message[0];
+            }
+            backfill.append(fetch.messages, fetch.nextTime, fetch.pages);
+        }
+
+        if (!fetch.complete) {
+            if (!backfill.exhausted()) {
+                return new Pocket48Message[0];
+            }
+            logWarning("口袋48房间 " + roomID + " 补齐已达 " + backfill.pages() + " 页上限，放弃 "
+                    + backfill.floor + " 至 " + backfill.oldestTime() + " 之间的消息");
+        }
+        roomCursors.finishBackfill(roomID);
+        return toMessages(roomInfo, backfill.messages());
+    }
+
+    /**
+     * 登记群在房间上的初始游标（通常为重启前保存的endTime），已登记时不覆盖
+     * 应在本周期任何群拉取该房间之前调用，使拉取起点覆盖该群
+     */
+    public void seedRoomCursor(long roomID, long groupId, long time) {
+        roomCursors.seed(roomID, groupId, time);
+    }
+
+    /**
+     * 群成功发送房间消息后推进其游标
+     */
+    public void ackRoomCursor(long roomID, long groupId, long time) {
+        roomCursors.ack(roomID, groupId, time);
+    }
+
+    /**
+     * 群取消订阅房间时移除其游标
+     */
+    public void resetRoomCursor(long roomID, long groupId) {
+        roomCursors.remove(roomID, groupId);
+        if (roomCursors.floor(roomID, System.currentTimeMillis()) == null) {
+            polledLatest.remove(roomID);
+            UnifiedHttpClient.getInstance().resetPoll(messagePollKey(roomID));
+        }
+    }
+
+    private static String messagePollKey(long roomID) {
+        return "pocket48:messages:" + roomID;
+    }
+
     /**
      * 获取房间最新消息的时间戳，用于正确初始化endTime
      * @param roomID 房间ID
@@ -411,11 +471,27 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
      * @return 最新消息时间戳，如果没有消息则返回当前时间戳
      */
     public long getLatestMessageTime(long roomID, long serverID) {
-        List<Object> msgs = getOriMessages(roomID, serverID);
-        if (msgs != null && !msgs.isEmpty()) {
-            // 获取第一条消息（已按时间倒序排列）
-            JSONObject firstMsg = jsonParser.parseObj(msgs.get(0).toString());
-            return firstMsg.getLong("msgTime");
+        // 对于加密房间（serverId为0或负数），尝试从配置中获取serverId
+        if (serverID <= 0) {
+            if (!properties.pocket48_serverID.containsKey(roomID)) {
+                return System.currentTimeMillis();
+            }
+            serverID = properties.pocket48_serverID.get(roomID);
+        }
+
+        try {
+            String requestBody = String.format(
+                "{\"nextTime\":0,\"serverId\":%d,\"channelId\":%d,\"limit\":30,\"order\":1,\"needTop\":false}",
+                serverID, roomID
+            );
+            // 只需要最新时间：流式读取响应，不构造任何消息条目
+            Pocket48ResponseDecoder.MessagePage page = post(APIMsgOwner, requestBody, getPocket48Headers(),
+                    in -> decoder.decodeMessagePage(in, Long.MAX_VALUE));
+            if (page.isSuccess() && page.total > 0) {
+                return page.latestTime;
+            }
+        } catch (Exception e) {
+            // 静默处理网络异常，避免控制台噪音
         }
         // 如果没有消息，返回当前时间戳
         return System.currentTimeMillis();
@@ -434,8 +510,18 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         return System.currentTimeMillis();
     }
 
-    //获取未整理的消息（优化版）
-    private List<Object> getOriMessages(long roomID, long serverID) {
+    //由解码后的消息条目构造Pocket48Message，构造时不访问网络
+    private Pocket48Message[] toMessages(Pocket48RoomInfo roomInfo, List<Pocket48ResponseDecoder.MessageEntry> msgs) {
+        Pocket48Message[] rs = new Pocket48Message[msgs.size()];
+        for (int i = 0; i < rs.length; i++) {
+            Pocket48ResponseDecoder.MessageEntry m = msgs.get(i);
+            rs[i] = Pocket48Message.construct(roomInfo, m.starId, m.nickName, m.msgType, m.body, m.msgTime);
+        }
+        return rs;
+    }
+
+    //获取未整理的消息（优化版，按时间倒序）
+    private List<Pocket48ResponseDecoder.MessageEntry> getOriMessages(long roomID, long serverID) {
         // 对于加密房间（serverId为0或负数），尝试从配置中获取serverId
         if (serverID <= 0) {
             if (properties.pocket48_serverID.containsKey(roomID)) {
@@ -454,18 +540,11 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
             );
             
             String s = post(APIMsgOwner, requestBody, getPocket48Headers());
-            JSONObject object = jsonParser.parseObj(s);
+            // 单次流式解码，解码器已按时间倒序排列
+            Pocket48ResponseDecoder.MessagePage page = decoder.decodeMessagePage(s);
 
-            if (object.getInt("status") == 200) {
-                JSONObject content = jsonParser.parseObj(object.getObj("content").toString());
-                List<Object> out = content.getBeanList("message", Object.class);
-                // 优化：使用更高效的排序方式
-                out.sort((a, b) -> {
-                    long timeA = jsonParser.parseObj(a.toString()).getLong("msgTime");
-                    long timeB = jsonParser.parseObj(b.toString()).getLong("msgTime");
-                    return Long.compare(timeB, timeA);
-                });
-                return out;
+            if (page.isSuccess()) {
+                return page.messages;
 
             } else {
                 // 静默处理API错误，避免控制台噪音
@@ -476,6 +555,101 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         return null;
     }
 
+    //增量拉取结果：晚于起点的消息（按时间倒序）；未到达起点时complete为false，nextTime为继续翻页的位置
+    private static class IncrementalFetch {
+        final List<Pocket48ResponseDecoder.MessageEntry> messages = new ArrayList<>();
+        boolean complete = true;
+        long nextTime;
+        int pages;
+    }
+
+    //从startNextTime（0表示最新）向前增量拉取，直到到达floor或达到单次翻页上限
+    //任何一页失败都返回null，调用方不推进任何游标
+    private IncrementalFetch getOriMessagesSince(long roomID, long serverID, long floor, long startNextTime) {
+        // 对于加密房间（serverId为0或负数），尝试从配置中获取serverId
+        if (serverID <= 0) {
+            if (properties.pocket48_serverID.containsKey(roomID)) {
+                serverID = properties.pocket48_serverID.get(roomID);
+            } else {
+                return new IncrementalFetch();
+            }
+        }
+
+        IncrementalFetch out = new IncrementalFetch();
+        long nextTime = startNextTime;
+        int limit = startNextTime == 0 ? INCREMENTAL_FIRST_PAGE_LIMIT : INCREMENTAL_PAGE_LIMIT;
+        UnifiedHttpClient.PollResult firstPage = null;
+        long firstPageLatest = 0;
+
+        try {
+            while (true) {
+                String requestBody = String.format(
+                    "{\"nextTime\":%d,\"serverId\":%d,\"channelId\":%d,\"limit\":%d,\"order\":1,\"needTop\":false}",
+                    nextTime, serverID, roomID, limit
+                );
+
+                Pocket48ResponseDecoder.MessagePage result;
+                if (out.pages == 0 && startNextTime == 0) {
+                    firstPage = UnifiedHttpClient.getInstance().pollPost(
+                            messagePollKey(roomID), APIMsgOwner, requestBody, getPocket48Headers());
+                    // 第一页与上次确认的响应相同，且其中的消息所有群都已发送：没有新消息，跳过解码
+                    if (!firstPage.isChanged() && floor >= polledLatest.getOrDefault(roomID, Long.MAX_VALUE)) {
+                        return out;
+                    }
+                    byte[] body = firstPage.isChanged() ? firstPage.body() : null;
+                    if (body == null) {
+                        // 响应未变化但有群尚未发送其中的消息，重新完整拉取
+                        result = post(APIMsgOwner, requestBody, getPocket48Headers(),
+                                in -> decoder.decodeMessagePage(in, floor));
+                    } else {
+                        result = decoder.decodeMessagePage(new ByteArrayInputStream(body), floor);
+                    }
+                    firstPageLatest = result.latestTime;
+                } else {
+                    // 直接从响应字节流解码，不先转成String；不晚于起点的消息直接跳过，不解析extInfo
+                    result = post(APIMsgOwner, requestBody, getPocket48Headers(),
+                            in -> decoder.decodeMessagePage(in, floor));
+                }
+                if (!result.isSuccess()) {
+                    return null;
+                }
+                out.pages++;
+
+                if (result.total == 0) {
+                    break;
+                }
+                out.messages.addAll(result.messages);
+
+                // 本页有消息被起点过滤，说明已到达已知窗口，停止
+                if (result.messages.size() < result.total || result.total < limit) {
+                    break;
+                }
+
+                // 向前翻页：优先使用接口返回的nextTime，否则使用本页最早消息时间
+                nextTime = result.nextTime > 0 ? result.nextTime : result.oldestTime;
+                limit = INCREMENTAL_PAGE_LIMIT;
+
+                // 达到单次翻页上限，或重启追补阶段的翻页额度用尽：记录位置，下个周期继续
+                PollCursorStore cursors = PollCursorStore.getInstance();
+                if (out.pages >= INCREMENTAL_MAX_PAGES
+                        || (cursors.inCatchUp() && !cursors.tryAcquireCatchUpPage())) {
+                    out.complete = false;
+                    out.nextTime = nextTime;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // 静默处理网络异常，游标保持不变，下个周期重试
+            return null;
+        }
+        // 所有页都成功后才确认第一页，失败的周期下次仍会完整解码
+        if (firstPage != null) {
+            firstPage.commit();
+            polledLatest.put(roomID, firstPageLatest);
+        }
+        return out;
+    }
+
     public List<Long> getRoomVoiceList(long roomID, long serverID) {
         // 对于加密房间（serverId为0或负数），尝试从配置中获取serverId
         if (serverID <= 0) {
@@ -490,10 +664,11 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
         try {
             String requestBody = String.format("{\"channelId\":%d,\"serverId\":%d,\"operateCode\":2}", roomID, serverID);
             String s = post(APIRoomVoice, requestBody, getPocket48Headers());
-            JSONObject object = jsonParser.parseObj(s);
+            // 每个周期每个房间都会查询，响应大多与上次相同（通常无人上麦），启用解析缓存
+            JSONObject object = jsonParser.parseObjCached("pocket48.voiceList", s);
             
             if (object.getInt("status") == 200) {
-                JSONObject content = jsonParser.parseObj(object.getObj("content").toString());
+                JSONObject content = object.getJSONObject("content");
                 JSONArray a = content.getJSONArray("voiceUserList");
                 List<Long> l = new ArrayList<>();
                 if (a.size() > 0) {
@@ -501,11 +676,6 @@ public class Pocket48Handler extends AsyncWebHandlerBase {
                         JSONObject star = jsonParser.parseObj(star_.toString());
                         long starID = star.getLong("userId");
                         l.add(starID);
-
-                        //优化：names的另一种添加途径
-                        if (!name.containsKey(starID)) {
-                            name.put(starID, star.getStr("nickname"));
-                        }
                     }
                     return l;
                 }
@@ -0,0 +1,270 @@
+package net.luffy.handler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.luffy.model.Pocket48RoomInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 口袋48响应解码器
+ * 使用Jackson流式解析，一次遍历把HTTP响应体直接解码为消息条目和房间信息，
+ * 替代 Hutool JSONObject -> toString() -> parseObj 的反复序列化与解析
+ * 
+ * 消息列表可以直接从响应字节流解码，并给出时间下限：不晚于下限的消息只读取msgTime，
+ * 不解析extInfo、不构造条目
+ */
+public class Pocket48ResponseDecoder {
+
+    private final ObjectMapper mapper;
+
+    public Pocket48ResponseDecoder(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * 消息条目：构造Pocket48Message所需的全部字段
+     */
+    public static class MessageEntry {
+        public final long msgTime;
+        public final String msgType;
+        public final String body;
+        public final long starId;
+        public final String nickName;
+
+        MessageEntry(long msgTime, String msgType, String body, long starId, String nickName) {
+            this.msgTime = msgTime;
+            this.msgType = msgType;
+            this.body = body;
+            this.starId = starId;
+            this.nickName = nickName;
+        }
+    }
+
+    /**
+     * 一页消息列表响应
+     */
+    public static class MessagePage {
+        public final int status;
+        public final String message;
+        public final long nextTime;
+        public final List<MessageEntry> messages; // 按时间倒序，只包含晚于时间下限的消息
+        public final int total;       // 本页消息总数（含被时间下限过滤的）
+        public final long latestTime; // 本页最新消息时间，无消息时为0
+        public final long oldestTime; // 本页最早消息时间，无消息时为0
+
+        MessagePage(int status, String message, long nextTime, List<MessageEntry> messages,
+                    int total, long latestTime, long oldestTime) {
+            this.status = status;
+            this.message = message;
+            this.nextTime = nextTime;
+            this.messages = messages;
+            this.total = total;
+            this.latestTime = latestTime;
+            this.oldestTime = oldestTime;
+        }
+
+        public boolean isSuccess() {
+            return status == 200;
+        }
+    }
+
+    /**
+     * 解码消息列表响应（APIMsgOwner / APIMsgAll）
+     * 顶层、content和单条消息都逐字段流式读取
+     */
+    public MessagePage decodeMessagePage(String body) throws IOException {
+        try (JsonParser p = mapper.createParser(body)) {
+            return decodeMessagePage(p, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * 直接从响应字节流解码消息列表，不先把响应体转成String
+     *
+     * @param body 响应体字节流
+     * @param after 时间下限，只构造msgTime晚于它的消息；传Long.MAX_VALUE时只统计时间不构造任何消息
+     */
+    public MessagePage decodeMessagePage(InputStream body, long after) throws IOException {
+        try (JsonParser p = mapper.createParser(body)) {
+            return decodeMessagePage(p, after);
+        }
+    }
+
+    private MessagePage decodeMessagePage(JsonParser p, long after) throws IOException {
+        int status = 0;
+        String message = null;
+        PageState page = new PageState();
+
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("口袋48响应不是JSON对象");
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "status":
+                    status = p.getValueAsInt();
+                    break;
+                case "message":
+                    message = readAsText(p, token);
+                    break;
+                case "content":
+                    if (token == JsonToken.START_OBJECT) {
+                        readMessageContent(p, after, page);
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        page.messages.sort((a, b) -> Long.compare(b.msgTime, a.msgTime));
+        return new MessagePage(status, message, page.nextTime, page.messages,
+                page.total, page.latestTime, page.oldestTime);
+    }
+
+    /**
+     * 解码房间信息响应（APIChannel2Server）
+     * 加密房间返回LockedRoomInfo，房间不存在返回null，其他接口错误抛出IOException
+     */
+    public Pocket48RoomInfo decodeRoomInfo(String body, long roomID) throws IOException {
+        JsonNode root = mapper.readTree(body);
+        int status = root.path("status").asInt();
+
+        if (status == 200) {
+            JsonNode info = root.path("content").path("channelInfo");
+            if (!info.isObject()) {
+                return null;
+            }
+            return new Pocket48RoomInfo(
+                    text(info, "channelName"),
+                    text(info, "ownerName"),
+                    info.path("serverId").asLong(),
+                    info.path("channelId").asLong());
+        }
+
+        String message = text(root, "message");
+        if (status == 2001 && message != null && message.contains("question")) {
+            // 对于加密房间，message是包含question的JSON字符串
+            JsonNode question = mapper.readTree(message).get("question");
+            return new Pocket48RoomInfo.LockedRoomInfo(
+                    (question == null ? null : question.asText()) + "？", null, roomID);
+        }
+        if (message != null && message.contains("不存在")) {
+            return null;
+        }
+        // 鉴权失败、限流等错误不代表房间不存在，交给调用方保留旧值
+        throw new IOException("房间信息查询失败: " + status + " " + message);
+    }
+
+    private void readMessageContent(JsonParser p, long after, PageState page) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            if ("nextTime".equals(field)) {
+                page.nextTime = p.getValueAsLong();
+            } else if ("message".equals(field) && token == JsonToken.START_ARRAY) {
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (p.currentToken() == JsonToken.START_OBJECT) {
+                        readEntry(p, after, page);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    private void readEntry(JsonParser p, long after, PageState page) throws IOException {
+        long msgTime = 0;
+        String msgType = null;
+        String body = null;
+        String extText = null;
+        JsonNode ext = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "msgTime":
+                    msgTime = p.getValueAsLong();
+                    break;
+                case "msgType":
+                    msgType = readAsText(p, token);
+                    break;
+                case "bodys":
+                    body = readAsText(p, token);
+                    break;
+                case "extInfo":
+                    // extInfo可能是JSON字符串，也可能已经是对象
+                    if (token == JsonToken.VALUE_STRING) {
+                        extText = p.getText();
+                    } else if (token == JsonToken.START_OBJECT) {
+                        ext = mapper.readTree(p);
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+
+        page.total++;
+        page.latestTime = page.total == 1 ? msgTime : Math.max(page.latestTime, msgTime);
+        page.oldestTime = page.total == 1 ? msgTime : Math.min(page.oldestTime, msgTime);
+        if (msgTime <= after) {
+            return;
+        }
+
+        if (ext == null && extText != null) {
+            ext = mapper.readTree(extText);
+        }
+        JsonNode user = ext == null ? null : ext.get("user");
+        page.messages.add(new MessageEntry(
+                msgTime,
+                msgType,
+                body,
+                user == null ? 0 : user.path("userId").asLong(),
+                user == null ? null : text(user, "nickName")));
+    }
+
+    /**
+     * 解码一页消息时的累计状态
+     */
+    private static class PageState {
+        long nextTime;
+        int total;
+        long latestTime;
+        long oldestTime;
+        final List<MessageEntry> messages = new ArrayList<>();
+    }
+
+    private String readAsText(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return p.getValueAsString();
+        }
+        return mapper.readTree(p).toString();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+}
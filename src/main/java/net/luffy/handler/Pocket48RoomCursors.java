@@ -0,0 +1,160 @@
+package net.luffy.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 口袋48房间增量拉取游标
+ * 每个（房间，群）记录该群已成功发送到的最晚消息时间，房间的拉取起点取所有订阅群中最早的游标：
+ * 某个群跳过一个周期或发送失败时，下次拉取仍会包含它尚未发送的消息
+ *
+ * 一次拉取翻页达到上限时，已拉取的部分暂存为补齐进度，下个周期从最后一页继续向前翻页，
+ * 补齐到游标后再一起交给各群，不会越过中间的消息
+ */
+class Pocket48RoomCursors {
+
+    private final long maxLagMs;
+    private final int maxBackfillPages;
+
+    // 房间 -> (群 -> 已发送到的最晚消息时间)
+    private final Map<Long, Map<Long, Long>> cursors = new ConcurrentHashMap<>();
+    // 房间 -> 未完成的补齐
+    private final Map<Long, Backfill> backfills = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxLagMs         拉取起点最多回退的时间，避免长期不发送的群让房间一直从很早的位置翻页
+     * @param maxBackfillPages 一次补齐最多翻页数，超过后放弃剩余部分
+     */
+    Pocket48RoomCursors(long maxLagMs, int maxBackfillPages) {
+        this.maxLagMs = maxLagMs;
+        this.maxBackfillPages = maxBackfillPages;
+    }
+
+    /**
+     * 登记群的初始游标，已登记时不覆盖
+     */
+    void seed(long roomID, long groupId, long time) {
+        cursors.computeIfAbsent(roomID, k -> new ConcurrentHashMap<>()).putIfAbsent(groupId, time);
+    }
+
+    /**
+     * 群成功发送后推进游标，游标只前进不后退
+     */
+    void ack(long roomID, long groupId, long time) {
+        cursors.computeIfAbsent(roomID, k -> new ConcurrentHashMap<>()).merge(groupId, time, Math::max);
+    }
+
+    /**
+     * 群取消订阅房间后移除其游标，不再拖住房间的拉取起点
+     */
+    void remove(long roomID, long groupId) {
+        Map<Long, Long> groups = cursors.get(roomID);
+        if (groups == null) {
+            return;
+        }
+        groups.remove(groupId);
+        if (groups.isEmpty()) {
+            cursors.remove(roomID, groups);
+            backfills.remove(roomID);
+        }
+    }
+
+    /**
+     * 房间的拉取起点：所有群中最早的游标，最多回退maxLagMs
+     *
+     * @return 拉取起点，还没有任何群登记时返回null
+     */
+    Long floor(long roomID, long now) {
+        Map<Long, Long> groups = cursors.get(roomID);
+        if (groups == null || groups.isEmpty()) {
+            return null;
+        }
+        long min = Long.MAX_VALUE;
+        for (long time : groups.values()) {
+            min = Math.min(min, time);
+        }
+        return Math.max(min, now - maxLagMs);
+    }
+
+    Long cursor(long roomID, long groupId) {
+        Map<Long, Long> groups = cursors.get(roomID);
+        return groups == null ? null : groups.get(groupId);
+    }
+
+    Backfill backfill(long roomID) {
+        return backfills.get(roomID);
+    }
+
+    /**
+     * 翻页达到上限，开始补齐
+     *
+     * @param floor    需要补齐到的拉取起点
+     * @param messages 已拉取的消息（按时间倒序）
+     * @param nextTime 下次继续翻页的位置
+     * @param pages    已翻页数
+     */
+    Backfill startBackfill(long roomID, long floor, List<Pocket48ResponseDecoder.MessageEntry> messages,
+                           long nextTime, int pages) {
+        Backfill backfill = new Backfill(floor, maxBackfillPages);
+        backfill.append(messages, nextTime, pages);
+        backfills.put(roomID, backfill);
+        return backfill;
+    }
+
+    void finishBackfill(long roomID) {
+        backfills.remove(roomID);
+    }
+
+    /**
+     * 未完成的补齐：已拉取的较新部分和继续向前翻页的位置
+     */
+    static class Backfill {
+        final long floor;
+        private final int maxPages;
+        private final List<Pocket48ResponseDecoder.MessageEntry> messages = new ArrayList<>();
+        private long nextTime;
+        private int pages;
+
+        private Backfill(long floor, int maxPages) {
+            this.floor = floor;
+            this.maxPages = maxPages;
+        }
+
+        /**
+         * 追加更早的一段消息（调用方按时间从新到旧依次追加）
+         */
+        void append(List<Pocket48ResponseDecoder.MessageEntry> older, long nextTime, int pages) {
+            this.messages.addAll(older);
+            this.nextTime = nextTime;
+            this.pages += pages;
+        }
+
+        long nextTime() {
+            return nextTime;
+        }
+
+        int pages() {
+            return pages;
+        }
+
+        boolean exhausted() {
+            return pages >= maxPages;
+        }
+
+        /**
+         * 已拉取的消息（按时间倒序）
+         */
+        List<Pocket48ResponseDecoder.MessageEntry> messages() {
+            return messages;
+        }
+
+        /**
+         * 已拉取部分中最早的消息时间，无消息时为0
+         */
+        long oldestTime() {
+            return messages.isEmpty() ? 0 : messages.get(messages.size() - 1).msgTime;
+        }
+    }
+}
@@ -6,8 +6,13 @@ import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import net.luffy.model.*;
+import net.luffy.model.ApiPayloads.WeidianOrderItemNode;
+import net.luffy.model.ApiPayloads.WeidianOrderListResult;
+import net.luffy.model.ApiPayloads.WeidianOrderListResponse;
+import net.luffy.model.ApiPayloads.WeidianOrderNode;
+import net.luffy.util.UnifiedJsonParser;
+import net.luffy.util.WeidianItemLeaderboard;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,7 +56,7 @@ public class WeidianHandler extends SyncWebHandler {
         return setHeader(HttpRequest.get(url)).execute().body();
     }
 
-    private JSONArray getOriOrderList(WeidianCookie cookie) {
+    private List<WeidianOrderNode> getOriOrderList(WeidianCookie cookie) {
         //获取【待发货】列表中的订单
         String s = post(APIOrderList, "param={\"listType\":0,\"pageNum\":0,\"pageSize\":40,\"statusList\":[\"paid\"],\"refundStatusList\":[],\"channel\":\"pc\",\"shipRole\":0,\"orderIdList\":\"\",\"itemTitle\":\"\",\"buyerName\":\"\",\"timeSearch\":{},\"orderBizType\":\"\",\"promotionType\":\"\",\"shipType\":\"\",\"newGhSearchSellerRole\":7,\"memberLevel\":\"all\",\"repayStatus\":2,\"bSellerId\":\"\",\"itemSource\":\"\",\"shipper\":\"\",\"nSellerName\":\"\",\"partnerName\":\"\",\"noteSearchCondition\":{\"buyerNote\":\"\"},\"specialOrderSearchCondition\":{\"notShowGroupUnsuccess\":0,\"notShowFxOrder\":0,\"notShowUnRepayOrder\":0,\"notShowBuyerRepayOrder\":0,\"showAllPeriodOrder\":0,\"notShowTencentShopOrder\":0,\"notShowWithoutTimelinessOrder\":0},\"orderType\":4}&wdtoken=" + cookie.wdtoken, cookie);
         
@@ -71,24 +76,27 @@ public class WeidianHandler extends SyncWebHandler {
             return null;
         }
         
-        JSONObject object = JSONUtil.parseObj(s);
+        // 直接解码为订单结构，不再构建完整的JSONObject
+        WeidianOrderListResponse response = UnifiedJsonParser.getInstance().decode(s, WeidianOrderListResponse.class);
+        if (response == null) {
+            logInfo("订单列表API响应解析失败");
+            return null;
+        }
         
-        JSONObject status = object.getJSONObject("status");
-        if (status == null) {
+        if (response.status == null) {
             logInfo("订单列表API响应缺少status字段");
             return null;
         }
         
-        int code = status.getInt("code");
-        String message = status.getStr("message");
+        int code = response.status.code;
+        String message = response.status.message;
         
         if (code == 0) {
-            JSONObject result = object.getJSONObject("result");
-            if (result == null) {
+            if (response.result == null) {
                 logInfo("订单列表API响应缺少result字段");
                 return null;
             }
-            return result.getJSONArray("orderList");
+            return response.result.orderList == null ? new ArrayList<>() : response.result.orderList;
         } else {
             logInfo("获取订单列表失败，code: " + code + ", message: " + message + "，可能是cookie失效");
             return null;
@@ -99,36 +107,31 @@ public class WeidianHandler extends SyncWebHandler {
         if (cookie == null)
             return null;
 
-        JSONArray objectList = getOriOrderList(cookie);
+        List<WeidianOrderNode> objectList = getOriOrderList(cookie);
         if (objectList == null)
             return null;
 
         List<WeidianOrder> orders = new ArrayList<>();
-        for (Object object : objectList.toArray(new Object[0])) {
-            JSONObject order = JSONUtil.parseObj(object);
-            String payTime = order.getStr("payTime");
+        for (WeidianOrderNode order : objectList) {
+            String payTime = order.payTime;
 
-            JSONObject receiver = order.getJSONObject("receiver");
-            long buyerID = receiver.getLong("buyerId");
-            String buyerName = receiver.getStr("buyerName");
+            long buyerID = order.receiver.buyerId;
+            String buyerName = order.receiver.buyerName;
 
-            JSONArray itemList = order.getJSONArray("itemList");
             boolean contains_shielded_item = false;
-            for (Object itemObject : itemList.toArray(new Object[0])) {
-                JSONObject item = JSONUtil.parseObj(itemObject);
-                long itemId = item.getLong("itemId");
+            for (WeidianOrderItemNode item : order.itemList) {
+                long itemId = item.itemId;
                 if (cookie.shieldedItem.contains(itemId)) {
                     contains_shielded_item = true;
                 }
-                String itemName = item.getStr("itemName");
-                int price = item.getInt("totalPrice");
+                int price = (int) Double.parseDouble(item.totalPrice);
 
-                orders.add(new WeidianOrder(itemId, itemName, buyerID, buyerName, price, payTime));
+                orders.add(new WeidianOrder(itemId, item.itemName, buyerID, buyerName, price, payTime));
             }
 
             if (cookie.autoDeliver && !contains_shielded_item) {
                 try {
-                    if (!deliver(order.getStr("orderId"), cookie)) {
+                    if (!deliver(order.orderId, cookie)) {
                         logInfo(buyerName + "的订单发货失败");
                     }
                 } catch (RuntimeException e) {
@@ -145,7 +148,7 @@ public class WeidianHandler extends SyncWebHandler {
         if (cookie == null)
             return null;
 
-        JSONArray objectList = getOriOrderList(cookie);
+        List<WeidianOrderNode> objectList = getOriOrderList(cookie);
         if (objectList == null) {
             logInfo("获取原始订单列表失败");
             return null;
@@ -156,9 +159,8 @@ public class WeidianHandler extends SyncWebHandler {
         // logInfo("开始检查订单，当前时间戳: " + lastTime + ", 获取到 " + objectList.size() + " 个订单");
         //复合订单
         int newOrderCount = 0;
-        for (Object object : objectList.toArray(new Object[0])) {
-            JSONObject order = JSONUtil.parseObj(object);
-            String payTime = order.getStr("payTime");
+        for (WeidianOrderNode order : objectList) {
+            String payTime = order.payTime;
             long time = DateUtil.parse(payTime).getTime();
             if (time <= endTime.time) {
                 logInfo("订单时间戳 " + time + " <= 上次检查时间 " + endTime.time + "，停止检查");
@@ -169,26 +171,22 @@ public class WeidianHandler extends SyncWebHandler {
             if (time > lastTime)
                 lastTime = time;
 
-            JSONObject receiver = order.getJSONObject("receiver");
-            long buyerID = receiver.getLong("buyerId");
-            String buyerName = receiver.getStr("buyerName");
+            long buyerID = order.receiver.buyerId;
+            String buyerName = order.receiver.buyerName;
 
             boolean contains_shielded_item = false;
-            JSONArray itemList = order.getJSONArray("itemList");
-            for (Object itemObject : itemList.toArray(new Object[0])) {
-                JSONObject item = JSONUtil.parseObj(itemObject);
-                long itemId = item.getLong("itemId");
+            for (WeidianOrderItemNode item : order.itemList) {
+                long itemId = item.itemId;
                 if (cookie.shieldedItem.contains(itemId)) {
                     contains_shielded_item = true;
                 }
-                String itemName = item.getStr("itemName");
-                double price = Double.valueOf(item.getStr("totalPrice"));
-                orders.add(new WeidianOrder(itemId, itemName, buyerID, buyerName, price, payTime));
+                double price = Double.valueOf(item.totalPrice);
+                orders.add(new WeidianOrder(itemId, item.itemName, buyerID, buyerName, price, payTime));
             }
 
             if (cookie.autoDeliver && !contains_shielded_item) {
                 try {
-                    if (!deliver(order.getStr("orderId"), cookie)) {
+                    if (!deliver(order.orderId, cookie)) {
                         logInfo(buyerName + "的订单发货失败");
                     }
                 } catch (RuntimeException e) {
@@ -213,75 +211,39 @@ public class WeidianHandler extends SyncWebHandler {
         throw new RuntimeException(object.getJSONObject("status").getStr("message"));
     }
 
-    private JSONArray getItemOriOrderList(WeidianCookie cookie, long itemId) {
-        //获取【全部】列表中单个商品的订单（不保证付款）
-        String s = post(APIOrderList, "param={\"listType\":0,\"pageNum\":0,\"pageSize\":20,\"statusList\":[\"all\"],\"refundStatusList\":[],\"channel\":\"pc\",\"shipRole\":0,\"orderIdList\":\"\",\"itemId\":\"" + itemId + "\",\"buyerName\":\"\",\"timeSearch\":{},\"orderBizType\":\"\",\"promotionType\":\"\",\"shipType\":\"\",\"newGhSearchSellerRole\":7,\"memberLevel\":\"all\",\"repayStatus\":2,\"bSellerId\":\"\",\"itemSource\":\"\",\"shipper\":\"\",\"nSellerName\":\"\",\"partnerName\":\"\",\"noteSearchCondition\":{\"buyerNote\":\"\"},\"specialOrderSearchCondition\":{\"notShowGroupUnsuccess\":0,\"notShowFxOrder\":0,\"notShowUnRepayOrder\":0,\"notShowBuyerRepayOrder\":0,\"showAllPeriodOrder\":0,\"notShowTencentShopOrder\":0,\"notShowWithoutTimelinessOrder\":0},\"orderType\":2}&wdtoken=" + cookie.wdtoken, cookie);
-        JSONObject object = JSONUtil.parseObj(s);
-        if (object.getJSONObject("status").getInt("code") == 0) {
-            JSONObject result = object.getJSONObject("result");
-            int totalNum = result.getInt("total");
-            int pageN = (totalNum + 19) / 20;
-            if (pageN < 2) {
-                return result.getJSONArray("orderList");
-            } else {
-                String page0 = result.getJSONArray("orderList").toString();
-                page0 = page0.substring(0, page0.length() - 1);
-
-                for (int i = 1; i < pageN; i++) {
-                    String pagei = getItemOriOrderList(cookie, itemId, i).toString();
-                    pagei = pagei.substring(1, pagei.length() - 1);
-                    page0 += "," + pagei;
-                }
-                return JSONUtil.parseArray(page0 + "]");
-            }
-        }
-        return null;
-    }
-
-    private JSONArray getItemOriOrderList(WeidianCookie cookie, long itemId, int page) {
+    private WeidianOrderListResult getItemOrderPage(WeidianCookie cookie, long itemId, int page) {
+        //获取【全部】列表中单个商品的一页订单（不保证付款），按时间倒序
         String s = post(APIOrderList, "param={\"listType\":0,\"pageNum\":" + page + ",\"pageSize\":20,\"statusList\":[\"all\"],\"refundStatusList\":[],\"channel\":\"pc\",\"shipRole\":0,\"orderIdList\":\"\",\"itemId\":\"" + itemId + "\",\"buyerName\":\"\",\"timeSearch\":{},\"orderBizType\":\"\",\"promotionType\":\"\",\"shipType\":\"\",\"newGhSearchSellerRole\":7,\"memberLevel\":\"all\",\"repayStatus\":2,\"bSellerId\":\"\",\"itemSource\":\"\",\"shipper\":\"\",\"nSellerName\":\"\",\"partnerName\":\"\",\"noteSearchCondition\":{\"buyerNote\":\"\"},\"specialOrderSearchCondition\":{\"notShowGroupUnsuccess\":0,\"notShowFxOrder\":0,\"notShowUnRepayOrder\":0,\"notShowBuyerRepayOrder\":0,\"showAllPeriodOrder\":0,\"notShowTencentShopOrder\":0,\"notShowWithoutTimelinessOrder\":0},\"orderType\":2}&wdtoken=" + cookie.wdtoken, cookie);
-        JSONObject object = JSONUtil.parseObj(s);
-        if (object.getJSONObject("status").getInt("code") == 0) {
-            JSONObject result = object.getJSONObject("result");
-            return result.getJSONArray("orderList");
+        if (s == null || !s.trim().startsWith("{")) {
+            return null;
         }
-        return null;
+        WeidianOrderListResponse response = UnifiedJsonParser.getInstance().decode(s, WeidianOrderListResponse.class);
+        if (response == null || response.status == null || response.status.code != 0 || response.result == null) {
+            return null;
+        }
+        return response.result;
     }
 
-    public WeidianBuyer[] getItemBuyer(WeidianCookie cookie, long itemId) {
+    /**
+     * 刷新商品的集资排行，翻页和关闭/退款重新确认的策略见WeidianItemLeaderboard.refresh
+     *
+     * @return 排行，拉取失败时返回null
+     */
+    public WeidianItemLeaderboard.Board refreshItemLeaderboard(WeidianCookie cookie, long itemId) {
         if (cookie == null)
             return null;
 
-        JSONArray objectList = getItemOriOrderList(cookie, itemId);
-        if (objectList == null)
-            return null;
-
-        List<WeidianBuyer> buyers = new ArrayList<>();
-        for (Object object : objectList.toArray(new Object[0])) {
-            JSONObject order = JSONUtil.parseObj(object);
-            if (order.getStr("statusDesc").equals("已关闭")
-                    || order.getStr("statusDesc").equals("待付款"))
-                continue;
-
-            JSONObject receiver = order.getJSONObject("receiver");
-            addOrderToBuyer(receiver.getLong("buyerId"),
-                    receiver.getStr("buyerName"),
-                    new BigDecimal(order.getStr("totalPrice")).multiply(new BigDecimal(100)).intValue(),
-                    buyers);
-        }
-
-        buyers.sort((a, b) -> b.contribution - a.contribution);
-        return buyers.toArray(new WeidianBuyer[0]);
+        return WeidianItemLeaderboard.getInstance().refresh(itemId, page -> getItemOrderPage(cookie, itemId, page));
     }
 
-    private void addOrderToBuyer(long buyerID, String buyerName, int contribution, List<WeidianBuyer> buyers) {
-        for (WeidianBuyer buyer : buyers) {
-            if (buyer.id == buyerID) {
-                buyer.add(contribution);
-                return;
-            }
+    public WeidianBuyer[] getItemBuyer(WeidianCookie cookie, long itemId) {
+        WeidianItemLeaderboard.Board board = refreshItemLeaderboard(cookie, itemId);
+        if (board == null)
+            return null;
+
+        synchronized (board) {
+            return board.ranking();
         }
-        buyers.add(new WeidianBuyer(buyerID, buyerName, contribution));
     }
 
     public WeidianItem getItemWithSkus(long itemId) {
@@ -2,7 +2,10 @@ package net.luffy.handler;
 
 import net.luffy.Newboy;
 import net.luffy.model.*;
+import net.luffy.util.MediaUploadCache;
 import net.luffy.util.UnifiedHttpClient;
+import net.luffy.util.WeidianItemLeaderboard;
+import net.luffy.util.sender.WeidianBroadcastAssembler;
 import net.mamoe.mirai.contact.Group;
 import net.mamoe.mirai.message.data.Image;
 import net.mamoe.mirai.utils.ExternalResource;
@@ -30,21 +33,39 @@ public class WeidianSenderHandler {
     public WeidianItemMessage executeItemMessages(WeidianItem item, Group group, int pickAmount) {
         WeidianHandler weidian = Newboy.INSTANCE.getHandlerWeidian();
         WeidianCookie cookie = Newboy.INSTANCE.getProperties().weidian_cookie.get(group.getId());
+        return this.executeItemMessages(item, group, pickAmount, weidian.refreshItemLeaderboard(cookie, item.id));
+    }
 
-        //统计总值
-        long id = item.id;
-        WeidianBuyer[] buyers = weidian.getItemBuyer(cookie, id);
+    /**
+     * 使用已刷新的排行构建商品播报，不再访问订单接口
+     *
+     * @param board 商品排行，刷新失败时为null
+     */
+    public WeidianItemMessage executeItemMessages(WeidianItem item, Group group, int pickAmount, WeidianItemLeaderboard.Board board) {
+        //统计总值，只取出播报需要的前几名
+        WeidianBuyer[] topBuyers = null;
+        int number = 0;
+        long total = 0;
+        if (board != null) {
+            synchronized (board) {
+                topBuyers = board.topBuyers(pickAmount);
+                number = board.buyerCount();
+                total = board.total();
+            }
+        }
 
         Image image = null;
-        if (!item.pic.equals("")) {
-            try (ExternalResource imageResource = ExternalResource.create(getRes(item.pic))) {
-                image = group.uploadImage(imageResource);
+        byte[] picture = WeidianBroadcastAssembler.getInstance().getItemImage(item);
+        if (picture != null) {
+            try (ExternalResource imageResource = ExternalResource.create(picture)) {
+                // 同一商品图片每次播报内容相同，复用已上传的图片
+                image = MediaUploadCache.getInstance().uploadImage(group, imageResource);
             } catch (Exception e) {
                 // 忽略图片上传失败
             }
         }
 
-        return WeidianItemMessage.construct(item.id, item.name, image, buyers, pickAmount);
+        return WeidianItemMessage.construct(item.id, item.name, image, topBuyers, number, total, pickAmount);
     }
 
     public WeidianOrderMessage executeOrderMessage(WeidianOrder order, Group group) {
@@ -3,6 +3,7 @@ package net.luffy.handler;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import net.luffy.Newboy;
+import net.luffy.model.ApiPayloads;
 import net.luffy.util.AsyncOnlineStatusMonitor;
 import net.luffy.util.UnifiedJsonParser;
 // okhttp3导入已移除，已迁移到统一HTTP客户端
@@ -51,6 +52,7 @@ public class Xox48Handler extends AsyncWebHandlerBase {
     
     // 自动清理计数器（优化：减少清理频率）
     private final AtomicLong queryCounter = new AtomicLong(0);
+    private volatile double recentFailureRate = 0;
     private static final long CLEANUP_THRESHOLD = 200; // 每200次查询清理一次，减少频率
     
     // 统一JSON解析器
@@ -123,8 +125,7 @@ public class Xox48Handler extends AsyncWebHandlerBase {
                     if (batchResult.isSuccess()) {
                         try {
                             // 解析批量查询结果为OnlineStatusResult
-                            JSONObject jsonResponse = jsonParser.parseObj(batchResult.getRawResponse());
-                            return parseOnlineStatusResponse(jsonResponse, normalizedName);
+                            return parseOnlineStatusResponse(batchResult.getRawResponse(), normalizedName);
                         } catch (Exception e) {
                             return new OnlineStatusResult(false, "解析响应失败: " + e.getMessage(), 
                                 normalizedName, -1, null, null, null);
@@ -192,8 +193,7 @@ public class Xox48Handler extends AsyncWebHandlerBase {
                             .map(batchResult -> {
                                 if (batchResult.isSuccess()) {
                                     try {
-                                        JSONObject jsonResponse = jsonParser.parseObj(batchResult.getRawResponse());
-                                        return parseOnlineStatusResponse(jsonResponse, batchResult.getMemberName());
+                                        return parseOnlineStatusResponse(batchResult.getRawResponse(), batchResult.getMemberName());
                                     } catch (Exception e) {
                                         return new OnlineStatusResult(false, "解析响应失败: " + e.getMessage(), 
                                             batchResult.getMemberName(), -1, null, null, null);
@@ -249,6 +249,49 @@ public class Xox48Handler extends AsyncWebHandlerBase {
         }
     }
 
+    /**
+     * 解析API原始响应
+     * 直接解码为类型化结构，解码失败（如字段类型不符）时回退到JSONObject解析
+     */
+    private OnlineStatusResult parseOnlineStatusResponse(String rawResponse, String queryName) {
+        ApiPayloads.Xox48StatusResponse response = jsonParser.decode(rawResponse, ApiPayloads.Xox48StatusResponse.class);
+        if (response == null) {
+            return parseOnlineStatusResponse(jsonParser.parseObj(rawResponse), queryName);
+        }
+        
+        if (!response.success()) {
+            String errorMsg = response.msg != null ? response.msg
+                    : (response.error != null ? "错误码异常: " + response.error : "API响应失败");
+            return new OnlineStatusResult(false, errorMsg, queryName, -1, null, null, null);
+        }
+        
+        ApiPayloads.Xox48StatusData data = response.data == null ? null : response.data.data;
+        if (data == null) {
+            return new OnlineStatusResult(false, "响应数据格式异常", queryName, -1, null, null, null);
+        }
+        if (data.isOnline == null) {
+            return new OnlineStatusResult(false, "无法获取在线状态", queryName, -1, null, null, null);
+        }
+        
+        int isOnline = data.isOnline;
+        String userName = data.userName;
+        if (userName == null || userName.isEmpty()) {
+            userName = queryName;
+        }
+        
+        String timeInfo = null;
+        String lastActiveTime = null;
+        if ((isOnline & 1) == 1) { // isOnline == 1
+            timeInfo = data.zx;
+            lastActiveTime = data.sxTime;
+        } else if ((isOnline & 2) == 2) { // isOnline == 2
+            timeInfo = data.line;
+            lastActiveTime = data.xxTime;
+        }
+        
+        return new OnlineStatusResult(true, "查询成功", userName, isOnline, null, null, lastActiveTime, null, timeInfo);
+    }
+
     /**
      * 解析API响应 - 高性能优化版本
      * 使用流式解析和快速字段提取
@@ -483,6 +526,40 @@ public class Xox48Handler extends AsyncWebHandlerBase {
         });
     }
     
+    /**
+     * 记录一次成员状态查询的结果，供失败冷却和轮询预算使用
+     */
+    public void recordQueryOutcome(String memberName, boolean success) {
+        long currentTime = System.currentTimeMillis();
+        if (success) {
+            FailureStats stats = failureStats.get(memberName);
+            if (stats != null) {
+                stats.reset();
+            }
+        } else {
+            updateFailureStats(memberName, currentTime);
+        }
+        synchronized (this) {
+            // 指数滑动平均，约最近20次查询
+            recentFailureRate = recentFailureRate * 0.95 + (success ? 0 : 0.05);
+        }
+    }
+    
+    /**
+     * 成员是否处于连续失败后的冷却期
+     */
+    public boolean isInCooldown(String memberName) {
+        FailureStats stats = failureStats.get(memberName);
+        return stats != null && stats.isInCooldown(System.currentTimeMillis());
+    }
+    
+    /**
+     * 近期查询失败率（0~1）
+     */
+    public double getRecentFailureRate() {
+        return recentFailureRate;
+    }
+    
     /**
      * 清理过期的缓存和失败统计
      */
@@ -523,8 +600,8 @@ public class Xox48Handler extends AsyncWebHandlerBase {
             .filter(stats -> stats.isInCooldown(currentTime))
             .count();
         
-        return String.format("缓存统计: 有效 %d, 过期 %d, 冷却中 %d, 失败统计 %d",
-            validCacheCount, expiredCacheCount, cooldownCount, failureStats.size());
+        return String.format("缓存统计: 有效 %d, 过期 %d, 冷却中 %d, 失败统计 %d, 近期失败率 %.1f%%",
+            validCacheCount, expiredCacheCount, cooldownCount, failureStats.size(), recentFailureRate * 100);
     }
     
     /**
@@ -533,6 +610,7 @@ public class Xox48Handler extends AsyncWebHandlerBase {
     public void resetCache() {
         resultCache.clear();
         failureStats.clear();
+        recentFailureRate = 0;
         resetStats();
         asyncMonitor.resetAsyncStats();
         // 已禁用控制台输出
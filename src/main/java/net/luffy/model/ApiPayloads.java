@@ -0,0 +1,223 @@
+package net.luffy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * 高频接口响应的类型化结构
+ * 由UnifiedJsonParser.decode直接从响应体解码，只声明实际用到的字段，其余字段在解码时跳过
+ */
+public class ApiPayloads {
+
+    // ==================== 抖音 ====================
+
+    /**
+     * 抖音用户作品列表响应（aweme/post）
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DouyinAwemePage {
+        @JsonProperty("status_code")
+        public int statusCode = -1;
+        @JsonProperty("status_msg")
+        public String statusMsg;
+        @JsonProperty("aweme_list")
+        public List<DouyinAweme> awemeList;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DouyinAweme {
+        @JsonProperty("aweme_id")
+        public String awemeId;
+        public String desc;
+        @JsonProperty("create_time")
+        public long createTime; // 秒
+        public DouyinAuthor author;
+        public DouyinStatistics statistics;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DouyinAuthor {
+        public String nickname;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class DouyinStatistics {
+        @JsonProperty("digg_count")
+        public int diggCount;
+        @JsonProperty("comment_count")
+        public int commentCount;
+        @JsonProperty("share_count")
+        public int shareCount;
+    }
+
+    // ==================== Xox48 ====================
+
+    /**
+     * Xox48成员在线状态响应，有效数据位于data.data
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Xox48StatusResponse {
+        public String msg;
+        public String error;
+        public Integer status;
+        public Xox48StatusOuter data;
+
+        public boolean success() {
+            return "success".equals(msg) || (status != null && status == 200) || "0".equals(error);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Xox48StatusOuter {
+        public Xox48StatusData data;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Xox48StatusData {
+        @JsonProperty("is_online")
+        public Integer isOnline;
+        @JsonProperty("user_name")
+        public String userName;
+        public String zx;
+        @JsonProperty("sx_time")
+        public String sxTime;
+        public String line;
+        @JsonProperty("xx_time")
+        public String xxTime;
+    }
+
+    // ==================== 微博 ====================
+
+    /**
+     * 微博容器接口响应（container/getIndex?containerid=）
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboContainerResponse {
+        public int ok;
+        public WeiboContainerData data;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboContainerData {
+        public List<WeiboCardNode> cards;
+        public WeiboPageInfo pageInfo;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboPageInfo {
+        public String nick;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboCardNode {
+        @JsonProperty("card_type")
+        public int cardType;
+        @JsonProperty("show_type")
+        public int showType;
+        public String scheme;
+        public WeiboMBlogNode mblog;
+        @JsonProperty("card_group")
+        public List<WeiboCardNode> cardGroup;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboMBlogNode {
+        public String id;
+        public String text;
+        @JsonProperty("created_at")
+        public String createdAt;
+        // 置顶标识在不同接口中可能是布尔值、0/1或其字符串形式，保留原始节点
+        @JsonProperty("isTop")
+        public JsonNode isTop;
+        public JsonNode pinned;
+        public JsonNode top;
+        public String mblogtype;
+        public WeiboUserNode user;
+        public List<WeiboPicNode> pics;
+        @JsonProperty("retweeted_status")
+        public WeiboMBlogNode retweetedStatus;
+
+        /**
+         * 是否为置顶微博
+         */
+        public boolean topPost() {
+            return flag(isTop) || flag(pinned) || flag(top) || "置顶".equals(mblogtype);
+        }
+
+        private static boolean flag(JsonNode node) {
+            if (node == null || node.isNull()) {
+                return false;
+            }
+            if (node.isBoolean()) {
+                return node.booleanValue();
+            }
+            if (node.isTextual()) {
+                // 部分接口以字符串返回，如"true"、"1"
+                String text = node.textValue().trim();
+                return "true".equalsIgnoreCase(text) || "1".equals(text);
+            }
+            return node.asInt(0) == 1;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboUserNode {
+        @JsonProperty("screen_name")
+        public String screenName;
+        public String id;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeiboPicNode {
+        public String url;
+    }
+
+    // ==================== 微店 ====================
+
+    /**
+     * 微店卖家订单列表响应（seller.getOrderListForPC）
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianOrderListResponse {
+        public WeidianStatus status;
+        public WeidianOrderListResult result;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianStatus {
+        public int code;
+        public String message;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianOrderListResult {
+        public int total;
+        public List<WeidianOrderNode> orderList;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianOrderNode {
+        public String orderId;
+        public String payTime;
+        public String statusDesc;
+        public String totalPrice;
+        public WeidianReceiverNode receiver;
+        public List<WeidianOrderItemNode> itemList;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianReceiverNode {
+        public long buyerId;
+        public String buyerName;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class WeidianOrderItemNode {
+        public long itemId;
+        public String itemName;
+        public String totalPrice; // 接口中可能是数字或字符串
+    }
+}
@@ -1,7 +1,6 @@
 package net.luffy.model;
 
-import cn.hutool.json.JSONUtil;
-import net.luffy.util.UnifiedJsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 
 public class Pocket48Answer {
     private final static String ROOT = "https://mp4.48.cn";
@@ -11,13 +10,40 @@ public class Pocket48Answer {
     private final String answerID;
     private final String questionID;
     private final Pocket48MessageType type;
+    //语音、视频翻牌的资源信息，构造时解码一次
+    private final String resInfo;
+    private final long duration;
+    private final String previewImg;
 
     public Pocket48Answer(String msgTo, String bodyFrom, String answerID, String questionID, Pocket48MessageType type) {
+        this(msgTo, bodyFrom, answerID, questionID, type, null, 0, null);
+    }
+
+    private Pocket48Answer(String msgTo, String bodyFrom, String answerID, String questionID, Pocket48MessageType type,
+                           String resInfo, long duration, String previewImg) {
         this.msgTo = msgTo;
         this.bodyFrom = bodyFrom;
         this.answerID = answerID;
         this.questionID = questionID;
         this.type = type;
+        this.resInfo = resInfo;
+        this.duration = duration;
+        this.previewImg = previewImg;
+    }
+
+    //语音、视频翻牌的answer是包含资源信息的JSON，在此解码
+    static Pocket48Answer decode(String msgTo, String bodyFrom, String answerID, String questionID,
+                                 Pocket48MessageType type) throws Exception {
+        if (bodyFrom == null || (type != Pocket48MessageType.FLIPCARD_AUDIO && type != Pocket48MessageType.FLIPCARD_VIDEO))
+            return new Pocket48Answer(msgTo, bodyFrom, answerID, questionID, type);
+
+        JsonNode info = Pocket48MessagePayload.mapper().readTree(bodyFrom);
+        String url = Pocket48MessagePayload.text(info, "url");
+        String preview = type == Pocket48MessageType.FLIPCARD_VIDEO ? Pocket48MessagePayload.text(info, "previewImg") : null;
+        return new Pocket48Answer(msgTo, bodyFrom, answerID, questionID, type,
+                url == null ? null : ROOT + url,
+                info.path("duration").asLong(0),
+                preview == null ? null : ROOT_SOURCE + preview);
     }
 
     public String getMsgTo() {
@@ -33,26 +59,20 @@ public class Pocket48Answer {
     }
 
     public String getResInfo() {
-        if (type == Pocket48MessageType.FLIPCARD_AUDIO || type == Pocket48MessageType.FLIPCARD_VIDEO)
-            return ROOT + UnifiedJsonParser.getInstance().parseObj(getBodyFrom()).getStr("url");
-        return null;
+        return resInfo;
     }
 
     public String getExt() {
         String rec = getResInfo();
-        return rec.substring(rec.lastIndexOf(".") + 1);
+        return rec == null ? null : rec.substring(rec.lastIndexOf(".") + 1);
     }
 
     public long getDuration() {
-        if (type == Pocket48MessageType.FLIPCARD_AUDIO || type == Pocket48MessageType.FLIPCARD_VIDEO)
-            UnifiedJsonParser.getInstance().parseObj(getBodyFrom()).getLong("duration");
-        return 0;
+        return duration;
     }
 
     public String getPreviewImg() {
-        if (type == Pocket48MessageType.FLIPCARD_VIDEO)
-            return ROOT_SOURCE + UnifiedJsonParser.getInstance().parseObj(getBodyFrom()).getStr("previewImg");
-        return null;
+        return previewImg;
     }
 
     public String getQuestionID() {
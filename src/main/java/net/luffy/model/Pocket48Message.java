@@ -1,18 +1,16 @@
 package net.luffy.model;
 
 import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
-import net.luffy.Newboy;
 import net.luffy.handler.Pocket48Handler;
 import net.luffy.util.UnifiedJsonParser;
 
 public class Pocket48Message {
     private final Pocket48RoomInfo room;
     private final String nickName;
-    private final String starName;
     private final Pocket48MessageType type;
     private final String body;
     private final long time;
+    private volatile Pocket48MessagePayload payload;
     private static UnifiedJsonParser jsonParser;
 
     private static UnifiedJsonParser getJsonParser() {
@@ -22,27 +20,39 @@ public class Pocket48Message {
         return jsonParser;
     }
 
-    public Pocket48Message(Pocket48RoomInfo room, String nickName, String starName, String type, String body, long time) {
+    public Pocket48Message(Pocket48RoomInfo room, String nickName, String type, String body, long time) {
         this.room = room;
         this.nickName = nickName;
-        this.starName = starName;
         this.type = Pocket48MessageType.valueOf(type);
         this.body = body;
         this.time = time;
     }
 
     public static final Pocket48Message construct(Pocket48RoomInfo roomInfo, JSONObject m) {
-        JSONObject extInfo = getJsonParser().parseObj(m.getObj("extInfo").toString());
-        JSONObject user = getJsonParser().parseObj(extInfo.getObj("user").toString());
-        return new Pocket48Message(
-                roomInfo.setStarId(user.getInt("userId")),
+        //extInfo可能是JSON字符串，也可能已经是对象
+        Object ext = m.getObj("extInfo");
+        JSONObject extInfo = ext instanceof JSONObject ? (JSONObject) ext : getJsonParser().parseObj(ext.toString());
+        JSONObject user = extInfo.getJSONObject("user");
+        return construct(
+                roomInfo,
+                user.getInt("userId"),
                 user.getStr("nickName"),
-                Newboy.INSTANCE.getHandlerPocket48().getStarNameByStarID(user.getInt("userId")),
                 m.getStr("msgType"),
                 m.getStr("bodys"),
                 m.getLong("msgTime"));
     }
 
+    //由已解码的字段直接构造，无需再解析JSON
+    public static final Pocket48Message construct(Pocket48RoomInfo roomInfo, long starId, String nickName,
+                                                  String msgType, String body, long time) {
+        return new Pocket48Message(
+                roomInfo.setStarId(starId),
+                nickName,
+                msgType,
+                body,
+                time);
+    }
+
     public Pocket48RoomInfo getRoom() {
         return room;
     }
@@ -55,18 +65,29 @@ public class Pocket48Message {
         return nickName;
     }
 
-    public String getStarName() {
-        return starName;
-    }
-
     public String getBody() {
         return body;
     }
 
+    //消息体只解码一次，之后各访问方法和各个群共用
+    private Pocket48MessagePayload payload() {
+        Pocket48MessagePayload p = payload;
+        if (p == null) {
+            synchronized (this) {
+                p = payload;
+                if (p == null) {
+                    p = Pocket48MessagePayload.decode(type, body);
+                    payload = p;
+                }
+            }
+        }
+        return p;
+    }
+
     public String getText() {
         if (getType() == Pocket48MessageType.GIFT_TEXT) {
-            JSONObject info = getJsonParser().parseObj(getJsonParser().parseObj(getBody()).getObj("giftInfo").toString());
-            return "送给 " + info.getStr("userName") + " " + info.getInt("giftNum") + "个" + info.getStr("giftName");
+            Pocket48MessagePayload p = payload();
+            return p instanceof Pocket48MessagePayload.Gift ? ((Pocket48MessagePayload.Gift) p).text : getBody();
         }
         return getBody();
     }
@@ -81,80 +102,50 @@ public class Pocket48Message {
 
     //IMAGE,EXPRESSIMAGE,AUDIO,VIDEO
     public String getResLoc() {
-        if (getType() == Pocket48MessageType.EXPRESSIMAGE) {
-            return jsonParser.parseObj(jsonParser.parseObj(getBody()).getObj("expressImgInfo").toString()).getStr("emotionRemote");
+        Pocket48MessagePayload p = payload();
+        if (p instanceof Pocket48MessagePayload.Express) {
+            return ((Pocket48MessagePayload.Express) p).emotionRemote;
         }
-        if (getType() == Pocket48MessageType.IMAGE || getType() == Pocket48MessageType.AUDIO
-                || getType() == Pocket48MessageType.VIDEO) {
-            return jsonParser.parseObj(getBody()).getStr("url");
+        if (p instanceof Pocket48MessagePayload.Media) {
+            return ((Pocket48MessagePayload.Media) p).url;
         }
-
         return null;
     }
 
     //网易资源有ext IMAGE,AUDIO,VIDEO
     public String getExt() {
-        if (getType() == Pocket48MessageType.IMAGE || getType() == Pocket48MessageType.AUDIO
-                || getType() == Pocket48MessageType.VIDEO) {
-            return jsonParser.parseObj(getBody()).getStr("ext");
-        }
-        return null;
+        Pocket48MessagePayload p = payload();
+        return p instanceof Pocket48MessagePayload.Media ? ((Pocket48MessagePayload.Media) p).ext : null;
     }
 
     public long getDuration() {
         if (getType() == Pocket48MessageType.AUDIO
                 || getType() == Pocket48MessageType.VIDEO) {
-            return jsonParser.parseObj(getBody()).getLong("dur");
+            Pocket48MessagePayload p = payload();
+            return p instanceof Pocket48MessagePayload.Media ? ((Pocket48MessagePayload.Media) p).duration : 0;
         }
         return 0;
     }
 
+    //EXPRESSIMAGE，表情名称不含方括号，没有时返回null
+    public String getEmotionName() {
+        Pocket48MessagePayload p = payload();
+        return p instanceof Pocket48MessagePayload.Express ? ((Pocket48MessagePayload.Express) p).emotionName : null;
+    }
+
     //REPLY,GIFTREPLY
     public Pocket48Reply getReply() {
-        boolean isGift = getType() == Pocket48MessageType.GIFTREPLY;
-        if (!isGift && getType() != Pocket48MessageType.REPLY)//非回复消息
-            return null;
-
-        JSONObject object = jsonParser.parseObj(getBody());
-        JSONObject content = jsonParser.parseObj(object.getObj(
-                isGift ? "giftReplyInfo" : "replyInfo").toString());
-        return new Pocket48Reply(
-                content.getStr("replyName"),
-                content.getStr("replyText"),
-                content.getStr("text"),
-                isGift
-        );
+        Pocket48MessagePayload p = payload();
+        return p instanceof Pocket48MessagePayload.Reply ? ((Pocket48MessagePayload.Reply) p).reply : null;
     }
 
     public Pocket48LivePush getLivePush() {
-        if (getType() != Pocket48MessageType.LIVEPUSH)
-            return null;
-
-        JSONObject object = jsonParser.parseObj(getBody());
-        JSONObject content = jsonParser.parseObj(object.getObj(
-                "livePushInfo").toString());
-        return new Pocket48LivePush(
-                Pocket48Handler.SOURCEROOT + content.getStr("liveCover").substring(1),
-                content.getStr("liveTitle"),
-                content.getStr("liveId")
-        );
+        Pocket48MessagePayload p = payload();
+        return p instanceof Pocket48MessagePayload.LivePush ? ((Pocket48MessagePayload.LivePush) p).livePush : null;
     }
 
     public Pocket48Answer getAnswer() {
-        if (getType() != Pocket48MessageType.FLIPCARD
-                && getType() != Pocket48MessageType.FLIPCARD_AUDIO
-                && getType() != Pocket48MessageType.FLIPCARD_VIDEO)
-            return null;
-
-        JSONObject object = jsonParser.parseObj(getBody());
-        JSONObject content = jsonParser.parseObj(object.getObj(
-                "filpCardInfo").toString());
-        return new Pocket48Answer(
-                content.getStr("question"),
-                content.getStr("answer"),
-                content.getStr("answerId"),
-                content.getStr("questionId"),
-                getType()
-        );
+        Pocket48MessagePayload p = payload();
+        return p instanceof Pocket48MessagePayload.FlipCard ? ((Pocket48MessagePayload.FlipCard) p).answer : null;
     }
 }
@@ -0,0 +1,191 @@
+package net.luffy.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.luffy.handler.Pocket48Handler;
+import net.luffy.util.UnifiedJsonParser;
+
+/**
+ * 口袋48消息体解码结果
+ * 消息体在第一次访问时按消息类型解码一次，之后各个访问方法和各个群共用同一份结果，
+ * 不再每次调用都重新解析body，嵌套对象也不再经过 toString() -> parseObj 的往返
+ *
+ * 所有子类均不可变；消息体缺失或格式错误时解码为 {@link #EMPTY}，各字段按缺失处理
+ */
+public abstract class Pocket48MessagePayload {
+
+    public static final Pocket48MessagePayload EMPTY = new Pocket48MessagePayload() {
+    };
+
+    private Pocket48MessagePayload() {
+    }
+
+    /**
+     * 图片、语音、视频（网易云信资源）
+     */
+    public static final class Media extends Pocket48MessagePayload {
+        public final String url;
+        public final String ext;
+        public final long duration;
+
+        private Media(String url, String ext, long duration) {
+            this.url = url;
+            this.ext = ext;
+            this.duration = duration;
+        }
+    }
+
+    /**
+     * 口袋表情
+     */
+    public static final class Express extends Pocket48MessagePayload {
+        public final String emotionRemote;
+        public final String emotionName; // 不含方括号，没有时为null
+
+        private Express(String emotionRemote, String emotionName) {
+            this.emotionRemote = emotionRemote;
+            this.emotionName = emotionName;
+        }
+    }
+
+    /**
+     * 礼物文本
+     */
+    public static final class Gift extends Pocket48MessagePayload {
+        public final String text;
+
+        private Gift(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * 回复、礼物回复
+     */
+    public static final class Reply extends Pocket48MessagePayload {
+        public final Pocket48Reply reply;
+
+        private Reply(Pocket48Reply reply) {
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * 直播推送
+     */
+    public static final class LivePush extends Pocket48MessagePayload {
+        public final Pocket48LivePush livePush;
+
+        private LivePush(Pocket48LivePush livePush) {
+            this.livePush = livePush;
+        }
+    }
+
+    /**
+     * 翻牌（文字、语音、视频）
+     */
+    public static final class FlipCard extends Pocket48MessagePayload {
+        public final Pocket48Answer answer;
+
+        private FlipCard(Pocket48Answer answer) {
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * 按消息类型解码消息体，不需要解析的类型（文本、红包等）直接返回EMPTY
+     */
+    public static Pocket48MessagePayload decode(Pocket48MessageType type, String body) {
+        if (body == null || body.isEmpty()) {
+            return EMPTY;
+        }
+        try {
+            switch (type) {
+                case IMAGE:
+                case AUDIO:
+                case VIDEO: {
+                    JsonNode root = mapper().readTree(body);
+                    return new Media(text(root, "url"), text(root, "ext"), root.path("dur").asLong(0));
+                }
+                case EXPRESSIMAGE: {
+                    JsonNode root = mapper().readTree(body);
+                    JsonNode info = object(root, "expressImgInfo");
+                    return new Express(text(info, "emotionRemote"), emotionName(root));
+                }
+                case GIFT_TEXT: {
+                    JsonNode info = object(mapper().readTree(body), "giftInfo");
+                    return new Gift("送给 " + text(info, "userName") + " " + info.path("giftNum").asInt() + "个"
+                            + text(info, "giftName"));
+                }
+                case REPLY:
+                case GIFTREPLY: {
+                    boolean isGift = type == Pocket48MessageType.GIFTREPLY;
+                    JsonNode content = object(mapper().readTree(body), isGift ? "giftReplyInfo" : "replyInfo");
+                    return new Reply(new Pocket48Reply(
+                            text(content, "replyName"),
+                            text(content, "replyText"),
+                            text(content, "text"),
+                            isGift));
+                }
+                case LIVEPUSH: {
+                    JsonNode content = object(mapper().readTree(body), "livePushInfo");
+                    String cover = text(content, "liveCover");
+                    return new LivePush(new Pocket48LivePush(
+                            cover == null ? null : Pocket48Handler.SOURCEROOT + cover.substring(1),
+                            text(content, "liveTitle"),
+                            text(content, "liveId")));
+                }
+                case FLIPCARD:
+                case FLIPCARD_AUDIO:
+                case FLIPCARD_VIDEO: {
+                    JsonNode content = object(mapper().readTree(body), "filpCardInfo");
+                    return new FlipCard(Pocket48Answer.decode(
+                            text(content, "question"),
+                            text(content, "answer"),
+                            text(content, "answerId"),
+                            text(content, "questionId"),
+                            type));
+                }
+                default:
+                    return EMPTY;
+            }
+        } catch (Exception e) {
+            // 静默处理格式错误的消息体，按字段缺失处理
+            return EMPTY;
+        }
+    }
+
+    static ObjectMapper mapper() {
+        return UnifiedJsonParser.getInstance().getObjectMapper();
+    }
+
+    /**
+     * 取嵌套对象，兼容对象和JSON字符串两种形式
+     */
+    static JsonNode object(JsonNode parent, String field) throws Exception {
+        JsonNode node = parent.path(field);
+        if (node.isTextual()) {
+            return mapper().readTree(node.asText());
+        }
+        return node;
+    }
+
+    static String text(JsonNode parent, String field) {
+        JsonNode node = parent.get(field);
+        return node == null || node.isNull() || node.isMissingNode() ? null : node.asText();
+    }
+
+    /**
+     * 表情名称：依次取name、title、text字段中第一个非空的文本
+     */
+    private static String emotionName(JsonNode root) {
+        for (String field : new String[]{"name", "title", "text"}) {
+            for (JsonNode node : root.findValues(field)) {
+                if (node.isTextual() && !node.asText().isEmpty()) {
+                    return node.asText();
+                }
+            }
+        }
+        return null;
+    }
+}
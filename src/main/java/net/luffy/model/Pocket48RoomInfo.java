@@ -3,6 +3,8 @@ package net.luffy.model;
 import cn.hutool.json.JSONObject;
 import net.luffy.Newboy;
 
+import java.util.Map;
+
 public class Pocket48RoomInfo {
     private final static String ROOT_SOURCE = "https://source.48.cn";
     private final String roomName;
@@ -11,6 +13,7 @@ public class Pocket48RoomInfo {
     private final long roomId;
     private long starId = 0;
     private String bgImg;
+    private Map<Long, String> bgImgCache; // 房间信息缓存提供的背景图记录，starId -> bgImg
 
     public Pocket48RoomInfo(JSONObject roomInfo) {
         this.roomName = roomInfo.getStr("channelName");
@@ -19,6 +22,13 @@ public class Pocket48RoomInfo {
         this.roomId = roomInfo.getLong("channelId");
     }
 
+    public Pocket48RoomInfo(String roomName, String ownerName, long severId, long roomId) {
+        this.roomName = roomName;
+        this.ownerName = ownerName;
+        this.severId = severId;
+        this.roomId = roomId;
+    }
+
     private static JSONObject getLockedRoomInfo(String question, long serverId, long roomId) {
         JSONObject roomInfo = new JSONObject();
         roomInfo.set("channelName", "?加密房间?");
@@ -57,9 +67,25 @@ public class Pocket48RoomInfo {
         return this;
     }
 
+    /**
+     * 共享背景图记录，同一房间的各个副本只查询一次成员信息
+     */
+    public Pocket48RoomInfo setBgImgCache(Map<Long, String> bgImgCache) {
+        this.bgImgCache = bgImgCache;
+        return this;
+    }
+
     public String getBgImg() {
         if (this.starId != 0 && this.bgImg == null) {
-            this.bgImg = Newboy.INSTANCE.getHandlerPocket48().getUserInfo(starId).getStr("bgImg");
+            if (bgImgCache != null) {
+                this.bgImg = bgImgCache.get(starId);
+            }
+            if (this.bgImg == null) {
+                this.bgImg = Newboy.INSTANCE.getHandlerPocket48().getUserInfo(starId).getStr("bgImg");
+                if (bgImgCache != null && this.bgImg != null) {
+                    bgImgCache.put(starId, this.bgImg);
+                }
+            }
         }
         return ROOT_SOURCE + this.bgImg;
     }
@@ -5,11 +5,8 @@ import net.luffy.handler.Pocket48Handler;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 
-import static net.luffy.model.EndTime.newTime;
-
 public class Pocket48SenderCache {
 
     public final Pocket48RoomInfo roomInfo;
@@ -23,14 +20,15 @@ public class Pocket48SenderCache {
     }
 
     /**
-     * 创建口袋48发送者缓存（优化版）
+     * 创建口袋48房间快照（优化版）
+     * 快照在同一调度周期内被所有订阅该房间的群共享，因此不按任何群的endTime过滤，
+     * 各群通过{@link #getMessagesAfter(long)}按自己的游标取新消息
      * 静默处理错误，减少控制台噪音
      * 
      * @param roomID 房间ID
-     * @param endTime 结束时间映射
-     * @return 创建的缓存对象，如果关键步骤失败则返回null
+     * @return 创建的快照对象，如果关键步骤失败则返回null
      */
-    public static Pocket48SenderCache create(long roomID, HashMap<Long, Long> endTime) {
+    public static Pocket48SenderCache create(long roomID) {
         Pocket48Handler pocket = Newboy.INSTANCE.getHandlerPocket48();
 
         try {
@@ -43,16 +41,10 @@ public class Pocket48SenderCache {
             // 移除对serverId的检查，允许加密房间（serverId为0或null）正常创建缓存
             // 加密房间现在可以正常处理，只是消息和语音列表会为空
 
-            // 第二步：初始化时间戳 - 回退：使用当前时间避免反复推送最后一条消息
-            if (!endTime.containsKey(roomID)) {
-                // 使用当前时间戳，避免处理历史消息和反复推送最新消息
-                endTime.put(roomID, System.currentTimeMillis());
-            }
-
-            // 第三步：获取消息列表（非关键步骤，失败可使用空数组）
+            // 第二步：增量获取新消息（非关键步骤，失败可使用空数组），按时间倒序
             Pocket48Message[] messages = new Pocket48Message[0]; // 默认为空数组
             try {
-                Pocket48Message[] fetchedMessages = pocket.getMessages(roomInfo, endTime);
+                Pocket48Message[] fetchedMessages = pocket.getNewMessages(roomInfo);
                 if (fetchedMessages != null) {
                     messages = fetchedMessages;
                 }
@@ -60,7 +52,7 @@ public class Pocket48SenderCache {
                 // 静默处理消息获取异常
             }
 
-            // 第四步：获取语音列表（非关键步骤，失败可使用空列表）
+            // 第三步：获取语音列表（非关键步骤，失败可使用空列表）
             List<Long> voiceList = new ArrayList<>(); // 默认为空列表
             try {
                 List<Long> fetchedVoiceList = pocket.getRoomVoiceList(roomID, roomInfo.getSeverId());
@@ -71,7 +63,7 @@ public class Pocket48SenderCache {
                 // 静默处理语音列表获取异常
             }
 
-            // 创建缓存对象
+            // 创建快照对象
             return new Pocket48SenderCache(roomInfo, messages, voiceList);
             
         } catch (Exception e) {
@@ -80,6 +72,24 @@ public class Pocket48SenderCache {
         }
     }
 
+    /**
+     * 按群自己的endTime游标取出快照中的新消息
+     * 不推进游标，群在消息发送成功后再推进，发送失败的消息下个周期仍会被取出
+     *
+     * @param since 群已发送消息的最晚时间
+     * @return 比游标新的消息（按时间倒序）
+     */
+    public Pocket48Message[] getMessagesAfter(long since) {
+        List<Pocket48Message> rs = new ArrayList<>();
+        for (Pocket48Message message : messages) {
+            if (since >= message.getTime())
+                break; //api有时间次序，大于等于避免重复推送最新的一条信息
+
+            rs.add(message);
+        }
+        return rs.toArray(new Pocket48Message[0]);
+    }
+
     public void addMessage(Pocket48Message message) {
         List<Pocket48Message> messages1 = new ArrayList<>(Arrays.asList(this.messages));
         messages1.add(message);
@@ -47,6 +47,27 @@ public class WeidianItemMessage implements WeidianMessage {
 
     }
 
+    /**
+     * 由排行汇总构建，只需要前pickAmount名买家
+     *
+     * @param topBuyers 金额最高的若干买家，按金额从高到低
+     * @param number 买家总人数
+     * @param amountTotal 总金额（分）
+     */
+    public static WeidianItemMessage construct(long itemId, String name, Image image, WeidianBuyer[] topBuyers, int number, long amountTotal, int pickAmount) {
+        if (topBuyers == null) {
+            return new WeidianItemMessage(itemId, name, null, null, 0, 0, 0);
+        }
+        return new WeidianItemMessage(
+                itemId, name,
+                null,
+                topBuyers,
+                number,
+                amountTotal,
+                number == 0 ? 0 : amountTotal / number
+        ).generateMessage(image, pickAmount);
+    }
+
     public static String pickBuyer(WeidianBuyer[] buyers, int amount) {
         if (amount <= 0)
             amount = buyers.length;
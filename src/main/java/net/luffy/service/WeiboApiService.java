@@ -3,6 +3,7 @@ package net.luffy.service;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import net.luffy.handler.AsyncWebHandlerBase;
+import net.luffy.util.UnifiedHttpClient;
 import net.luffy.util.UnifiedJsonParser;
 
 import java.time.LocalDateTime;
@@ -23,6 +24,8 @@ import java.util.Locale;
 public class WeiboApiService extends AsyncWebHandlerBase {
     
     private static final String API_BASE = "https://m.weibo.cn/api/container/getIndex";
+    // 用户信息（lfid、昵称）变化很少，短时间内相同uid的查询复用结果
+    private static final long USER_INFO_FRESH_MS = 60000;
     private final UnifiedJsonParser jsonParser = UnifiedJsonParser.getInstance();
     
     public WeiboApiService() {
@@ -40,7 +43,8 @@ public class WeiboApiService extends AsyncWebHandlerBase {
         params.put("value", uid);
         
         String url = buildUrl(API_BASE, params);
-        String response = get(url, getDefaultHeaders());
+        // 监控轮询、昵称查询和命令可能同时解析同一uid，合并为一次请求
+        String response = getShared(url, getDefaultHeaders(), USER_INFO_FRESH_MS);
         
         if (response != null && !response.isEmpty()) {
             try {
@@ -76,6 +80,26 @@ public class WeiboApiService extends AsyncWebHandlerBase {
         return null;
     }
     
+    /**
+     * 轮询微博容器内容（监控使用）
+     * 内容与上次确认的相同时返回未变化的结果，调用方直接跳过解析和过滤
+     * @param lfid 容器ID
+     * @return 轮询结果，请求失败时返回null
+     */
+    public UnifiedHttpClient.PollResult pollWeiboContainer(String lfid) {
+        Map<String, String> params = new HashMap<>();
+        params.put("containerid", lfid);
+        
+        String url = buildUrl(API_BASE, params);
+        try {
+            // 带重试，偶发网络错误不会让本轮监控直接跳过
+            return withRetry("GET", () -> UnifiedHttpClient.getInstance().poll("weibo:container:" + lfid, url, getDefaultHeaders()));
+        } catch (Exception e) {
+            // 重试后仍失败
+            return null;
+        }
+    }
+    
     /**
      * 获取容器内容（别名方法）
      * @param lfid 容器ID
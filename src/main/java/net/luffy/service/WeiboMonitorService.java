@@ -1,7 +1,9 @@
 package net.luffy.service;
 
-import cn.hutool.json.JSONObject;
+import net.luffy.model.ApiPayloads;
 import net.luffy.model.WeiboData;
+import net.luffy.util.PollCursorStore;
+import net.luffy.util.UnifiedHttpClient;
 import net.luffy.util.WeiboUtils;
 import net.luffy.util.sender.MessageSender;
 import org.slf4j.Logger;
@@ -99,6 +101,7 @@ public class WeiboMonitorService {
         monitoredUsers.remove(uid);
         userGroupMapping.remove(uid);
         userLatestWeiboId.remove(uid);
+        PollCursorStore.getInstance().remove("weibo.user." + uid);
         userLfidCache.remove(uid);
         userNicknameCache.remove(uid);
         
@@ -125,10 +128,41 @@ public class WeiboMonitorService {
         monitoredSuperTopics.remove(lfid);
         superTopicGroupMapping.remove(lfid);
         superTopicLatestWeiboId.remove(lfid);
+        PollCursorStore.getInstance().remove("weibo.topic." + lfid);
         
         logger.info("移除超话监控: {}", lfid);
     }
     
+    /**
+     * 已处理到的最新微博ID，重启后从游标存储恢复停机前的记录
+     */
+    private Long latestId(Map<String, Long> latestIds, String id, String cursorKey) {
+        Long latestId = latestIds.get(id);
+        if (latestId == null) {
+            String restored = PollCursorStore.getInstance().restore(cursorKey);
+            if (restored != null) {
+                try {
+                    latestId = Long.parseLong(restored);
+                    latestIds.putIfAbsent(id, latestId);
+                } catch (NumberFormatException e) {
+                    // 静默处理格式错误的记录
+                }
+            }
+        }
+        return latestId;
+    }
+
+    /**
+     * 重启后第一次追补最多发送CATCH_UP_MAX_ITEMS条（卡片按时间倒序，保留最新的）
+     */
+    private List<WeiboData.WeiboSendData> trimReplay(String cursorKey, List<WeiboData.WeiboSendData> weibos) {
+        if (PollCursorStore.getInstance().consumeReplay(cursorKey) && weibos.size() > PollCursorStore.CATCH_UP_MAX_ITEMS) {
+            logger.info("重启追补：{} 有 {} 条未发送微博，只发送最新 {} 条", cursorKey, weibos.size(), PollCursorStore.CATCH_UP_MAX_ITEMS);
+            return new ArrayList<>(weibos.subList(0, PollCursorStore.CATCH_UP_MAX_ITEMS));
+        }
+        return weibos;
+    }
+
     /**
      * 监控普通微博
      */
@@ -166,25 +200,38 @@ public class WeiboMonitorService {
             return;
         }
         
-        JSONObject containerData = weiboApiService.requestWeiboContainer(lfid);
-        if (containerData == null || containerData.getInt("ok", 0) != 1) {
+        UnifiedHttpClient.PollResult poll = weiboApiService.pollWeiboContainer(lfid);
+        if (poll == null) {
+            logger.warn("获取用户{}微博容器数据失败", uid);
+            return;
+        }
+        if (!poll.isChanged()) {
+            // 与上次轮询内容相同，无需解析
+            return;
+        }
+        
+        ApiPayloads.WeiboContainerResponse containerData = poll.decode(ApiPayloads.WeiboContainerResponse.class);
+        if (containerData == null || containerData.ok != 1) {
             logger.warn("获取用户{}微博容器数据失败", uid);
             return;
         }
         
-        JSONObject data = containerData.getJSONObject("data");
-        if (data == null || !data.containsKey("cards")) {
+        ApiPayloads.WeiboContainerData data = containerData.data;
+        if (data == null || data.cards == null) {
+            poll.commit();
             return;
         }
         
         // 过滤微博卡片
-        List<WeiboData.WeiboCard> cards = WeiboUtils.filterCards(data.getJSONArray("cards"));
+        List<WeiboData.WeiboCard> cards = WeiboUtils.filterCardNodes(data.cards);
         if (cards.isEmpty()) {
+            poll.commit();
             return;
         }
         
         // 检查是否有新微博
-        Long latestId = userLatestWeiboId.get(uid);
+        String cursorKey = "weibo.user." + uid;
+        Long latestId = latestId(userLatestWeiboId, uid, cursorKey);
         List<WeiboData.WeiboSendData> newWeibos = new ArrayList<>();
         
         for (WeiboData.WeiboCard card : cards) {
@@ -195,17 +242,16 @@ public class WeiboMonitorService {
         }
         
         if (!newWeibos.isEmpty()) {
-            // 更新最新微博ID
-            userLatestWeiboId.put(uid, cards.get(0)._id);
-            
-            // 发送新微博
-            Set<String> groupIds = userGroupMapping.get(uid);
-            if (groupIds != null) {
-                for (WeiboData.WeiboSendData weiboData : newWeibos) {
-                    sendWeiboMessage(weiboData, null, groupIds);
-                }
+            newWeibos = trimReplay(cursorKey, newWeibos);
+            if (!sendWeibos(newWeibos, null, userGroupMapping.get(uid))) {
+                // 有发送失败：不推进游标也不确认轮询，下次轮询重新比较并补发
+                return;
             }
+            // 发送成功后再更新最新微博ID
+            userLatestWeiboId.put(uid, cards.get(0)._id);
+            PollCursorStore.getInstance().putLong(cursorKey, cards.get(0)._id);
         }
+        poll.commit();
     }
     
     /**
@@ -213,32 +259,44 @@ public class WeiboMonitorService {
      * @param lfid 超话容器ID
      */
     private void monitorSuperTopicWeibo(String lfid) {
-        JSONObject containerData = weiboApiService.requestWeiboContainer(lfid);
-        if (containerData == null || containerData.getInt("ok", 0) != 1) {
+        UnifiedHttpClient.PollResult poll = weiboApiService.pollWeiboContainer(lfid);
+        if (poll == null) {
+            logger.warn("获取超话{}容器数据失败", lfid);
+            return;
+        }
+        if (!poll.isChanged()) {
+            // 与上次轮询内容相同，无需解析
+            return;
+        }
+        
+        ApiPayloads.WeiboContainerResponse containerData = poll.decode(ApiPayloads.WeiboContainerResponse.class);
+        if (containerData == null || containerData.ok != 1) {
             logger.warn("获取超话{}容器数据失败", lfid);
             return;
         }
         
-        JSONObject data = containerData.getJSONObject("data");
-        if (data == null || !data.containsKey("cards")) {
+        ApiPayloads.WeiboContainerData data = containerData.data;
+        if (data == null || data.cards == null) {
+            poll.commit();
             return;
         }
         
         // 获取超话名称
         String superTopicName = "";
-        if (data.containsKey("pageInfo")) {
-            JSONObject pageInfo = data.getJSONObject("pageInfo");
-            superTopicName = pageInfo.getStr("nick", "");
+        if (data.pageInfo != null && data.pageInfo.nick != null) {
+            superTopicName = data.pageInfo.nick;
         }
         
         // 过滤超话微博卡片
-        List<WeiboData.WeiboCard> cards = WeiboUtils.filterSuperTopicCards(data.getJSONArray("cards"));
+        List<WeiboData.WeiboCard> cards = WeiboUtils.filterSuperTopicCardNodes(data.cards);
         if (cards.isEmpty()) {
+            poll.commit();
             return;
         }
         
         // 检查是否有新微博
-        Long latestId = superTopicLatestWeiboId.get(lfid);
+        String cursorKey = "weibo.topic." + lfid;
+        Long latestId = latestId(superTopicLatestWeiboId, lfid, cursorKey);
         List<WeiboData.WeiboSendData> newWeibos = new ArrayList<>();
         
         for (WeiboData.WeiboCard card : cards) {
@@ -249,17 +307,31 @@ public class WeiboMonitorService {
         }
         
         if (!newWeibos.isEmpty()) {
-            // 更新最新微博ID
-            superTopicLatestWeiboId.put(lfid, cards.get(0)._id);
-            
-            // 发送新微博
-            Set<String> groupIds = superTopicGroupMapping.get(lfid);
-            if (groupIds != null) {
-                for (WeiboData.WeiboSendData weiboData : newWeibos) {
-                    sendWeiboMessage(weiboData, superTopicName, groupIds);
-                }
+            newWeibos = trimReplay(cursorKey, newWeibos);
+            if (!sendWeibos(newWeibos, superTopicName, superTopicGroupMapping.get(lfid))) {
+                // 有发送失败：不推进游标也不确认轮询，下次轮询重新比较并补发
+                return;
             }
+            // 发送成功后再更新最新微博ID
+            superTopicLatestWeiboId.put(lfid, cards.get(0)._id);
+            PollCursorStore.getInstance().putLong(cursorKey, cards.get(0)._id);
+        }
+        poll.commit();
+    }
+    
+    /**
+     * 依次发送新微博
+     * @return 是否全部发送成功（没有订阅群时视为成功）
+     */
+    private boolean sendWeibos(List<WeiboData.WeiboSendData> weibos, String superTopicName, Set<String> groupIds) {
+        if (groupIds == null) {
+            return true;
+        }
+        boolean delivered = true;
+        for (WeiboData.WeiboSendData weiboData : weibos) {
+            delivered &= sendWeiboMessage(weiboData, superTopicName, groupIds);
         }
+        return delivered;
     }
     
     /**
@@ -267,9 +339,11 @@ public class WeiboMonitorService {
      * @param weiboData 微博数据
      * @param superTopicName 超话名称（可选）
      * @param groupIds 群组ID列表
+     * @return 是否所有群都发送成功
      */
-    private void sendWeiboMessage(WeiboData.WeiboSendData weiboData, String superTopicName, Set<String> groupIds) {
+    private boolean sendWeiboMessage(WeiboData.WeiboSendData weiboData, String superTopicName, Set<String> groupIds) {
         String messageText = WeiboUtils.buildWeiboMessage(weiboData, superTopicName);
+        boolean delivered = true;
         
         for (String groupId : groupIds) {
             try {
@@ -287,9 +361,11 @@ public class WeiboMonitorService {
                 
                 logger.info("发送微博消息到群组{}: {}", groupId, weiboData.name);
             } catch (Exception e) {
+                delivered = false;
                 logger.error("发送微博消息到群组{}失败", groupId, e);
             }
         }
+        return delivered;
     }
     
     /**
@@ -0,0 +1,228 @@
+package net.luffy.util;
+
+import net.luffy.Newboy;
+import net.luffy.handler.Xox48Handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线状态自适应轮询调度
+ * 按成员记录活跃情况（各时段状态变化次数、最近的状态变化、当前是否在线），
+ * 活跃成员以最短间隔轮询，长期不活跃的成员逐步放宽到最长间隔；
+ * 新成员在观察期内没有历史可参考，按最短间隔轮询，观察期内一直没有状态变化才放宽；
+ * 所有成员共享每分钟请求预算（令牌桶），Xox48接口失败率升高时预算随之收缩，
+ * 处于失败冷却期的成员本轮跳过
+ */
+public class AdaptivePollScheduler {
+
+    // 最近状态变化保留条数与"刚变化"判定窗口
+    private static final int RECENT_TRANSITIONS = 16;
+    private static final long RECENT_WINDOW_MS = 30 * 60 * 1000L;
+    // 时段统计的衰减系数，每次状态变化时对所有时段衰减一次，旧习惯逐渐淡化
+    private static final double HOUR_DECAY = 0.98;
+    // 新成员的观察期：期间没有任何状态变化记录时按最短间隔轮询
+    private static final long LEARNING_PERIOD_MS = 24 * 60 * 60 * 1000L;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final int requestsPerMinute;
+
+    private final Map<String, MemberActivity> activities = new ConcurrentHashMap<>();
+
+    // 令牌桶
+    private double tokens;
+    private long lastRefill = System.currentTimeMillis();
+
+    // 统计
+    private final AtomicLong polled = new AtomicLong(0);
+    private final AtomicLong deferredByBudget = new AtomicLong(0);
+    private final AtomicLong skippedByCooldown = new AtomicLong(0);
+
+    /**
+     * 单个成员的活跃情况
+     */
+    private static final class MemberActivity {
+        final double[] hourWeights = new double[24];
+        final Deque<Long> recentTransitions = new ArrayDeque<>();
+        final long firstSeenAt = System.currentTimeMillis();
+        volatile boolean online;
+        volatile long lastPolledAt;
+        volatile long nextDueAt;
+    }
+
+    /**
+     * @param minInterval 活跃成员的轮询间隔
+     * @param maxInterval 不活跃成员的轮询间隔
+     * @param requestsPerMinute 每分钟最多请求数
+     */
+    public AdaptivePollScheduler(long minInterval, long maxInterval, int requestsPerMinute) {
+        this.minInterval = Math.max(1000L, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.requestsPerMinute = Math.max(1, requestsPerMinute);
+        this.tokens = this.requestsPerMinute;
+    }
+
+    /**
+     * 选出本轮需要查询的成员
+     * 只返回已到期的成员，按逾期程度从高到低，数量不超过当前可用预算
+     */
+    public List<String> selectDue(Collection<String> members) {
+        long now = System.currentTimeMillis();
+        Xox48Handler xox48 = xox48();
+
+        List<MemberActivity> dueActivities = new ArrayList<>();
+        List<String> dueMembers = new ArrayList<>();
+        for (String member : members) {
+            MemberActivity activity = activities.computeIfAbsent(member, k -> new MemberActivity());
+            if (activity.nextDueAt > now) {
+                continue;
+            }
+            if (xox48 != null && xox48.isInCooldown(member)) {
+                skippedByCooldown.incrementAndGet();
+                activity.nextDueAt = now + minInterval;
+                continue;
+            }
+            dueActivities.add(activity);
+            dueMembers.add(member);
+        }
+        if (dueMembers.isEmpty()) {
+            return dueMembers;
+        }
+
+        // 逾期最久的成员优先
+        List<Integer> order = new ArrayList<>(dueMembers.size());
+        for (int i = 0; i < dueMembers.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(dueActivities.get(a).nextDueAt, dueActivities.get(b).nextDueAt));
+
+        int allowed = acquire(dueMembers.size(), now, xox48);
+        List<String> selected = new ArrayList<>(allowed);
+        for (int i = 0; i < order.size(); i++) {
+            int index = order.get(i);
+            if (i < allowed) {
+                MemberActivity activity = dueActivities.get(index);
+                activity.lastPolledAt = now;
+                // 结果返回前先按当前间隔排期，避免查询期间被重复选中
+                activity.nextDueAt = now + intervalFor(activity, now);
+                selected.add(dueMembers.get(index));
+            } else {
+                deferredByBudget.incrementAndGet();
+            }
+        }
+        polled.addAndGet(selected.size());
+        return selected;
+    }
+
+    /**
+     * 记录一次查询结果并重新计算下次轮询时间
+     *
+     * @param member 成员名称
+     * @param success 查询是否成功
+     * @param online 当前是否在线
+     * @param changed 状态是否发生变化
+     */
+    public void recordResult(String member, boolean success, boolean online, boolean changed) {
+        MemberActivity activity = activities.computeIfAbsent(member, k -> new MemberActivity());
+        long now = System.currentTimeMillis();
+        if (success) {
+            activity.online = online;
+            if (changed) {
+                synchronized (activity) {
+                    for (int i = 0; i < 24; i++) {
+                        activity.hourWeights[i] *= HOUR_DECAY;
+                    }
+                    activity.hourWeights[java.time.LocalTime.now().getHour()] += 1.0;
+                    activity.recentTransitions.addLast(now);
+                    while (activity.recentTransitions.size() > RECENT_TRANSITIONS) {
+                        activity.recentTransitions.removeFirst();
+                    }
+                }
+            }
+        }
+        activity.nextDueAt = now + intervalFor(activity, now);
+    }
+
+    /**
+     * 成员不再被订阅时移除其记录
+     */
+    public void retain(Collection<String> members) {
+        activities.keySet().retainAll(members);
+    }
+
+    /**
+     * 计算成员的轮询间隔
+     * - 当前在线或最近刚变化过状态：最短间隔
+     * - 还没有任何状态变化记录且仍在观察期内：最短间隔，不因缺少历史而按不活跃处理
+     * - 其余按当前时段的历史活跃度在最短与最长间隔之间插值
+     */
+    private long intervalFor(MemberActivity activity, long now) {
+        if (activity.online) {
+            return minInterval;
+        }
+        double hotness;
+        synchronized (activity) {
+            Long last = activity.recentTransitions.peekLast();
+            if (last != null && now - last < RECENT_WINDOW_MS) {
+                return minInterval;
+            }
+            double max = 0;
+            for (double w : activity.hourWeights) {
+                max = Math.max(max, w);
+            }
+            if (max == 0 && now - activity.firstSeenAt < LEARNING_PERIOD_MS) {
+                return minInterval;
+            }
+            int hour = java.time.LocalTime.now().getHour();
+            // 当前时段及前后一小时的活跃度
+            double around = Math.max(activity.hourWeights[hour],
+                    Math.max(activity.hourWeights[(hour + 23) % 24], activity.hourWeights[(hour + 1) % 24]) * 0.5);
+            hotness = max > 0 ? around / max : 0;
+        }
+        return maxInterval - (long) ((maxInterval - minInterval) * hotness);
+    }
+
+    /**
+     * 从令牌桶中取出最多wanted个令牌
+     * 预算按Xox48近期失败率收缩，失败率越高请求越少
+     */
+    private synchronized int acquire(int wanted, long now, Xox48Handler xox48) {
+        double failureRate = xox48 == null ? 0 : xox48.getRecentFailureRate();
+        double budget = requestsPerMinute * Math.max(0.2, 1.0 - failureRate);
+        tokens = Math.min(budget, tokens + (now - lastRefill) * budget / 60000.0);
+        lastRefill = now;
+        int granted = (int) Math.min(wanted, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    private static Xox48Handler xox48() {
+        try {
+            return Newboy.INSTANCE.getHandlerXox48();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        long now = System.currentTimeMillis();
+        int hot = 0;
+        for (MemberActivity activity : activities.values()) {
+            if (intervalFor(activity, now) <= minInterval) {
+                hot++;
+            }
+        }
+        return String.format("自适应轮询 - 成员: %d(活跃%d), 已查询: %d, 预算推迟: %d, 冷却跳过: %d, 预算: %d次/分钟",
+                activities.size(), hot, polled.get(), deferredByBudget.get(), skippedByCooldown.get(), requestsPerMinute);
+    }
+}
@@ -28,6 +28,10 @@ public class AsyncOnlineStatusMonitor {
     private final MonitorConfig config;
     private String batchQueryTaskId;
     private String cacheCleanupTaskId;
+    private String notificationFlushTaskId;
+    
+    // 状态变化通知的合并发送间隔
+    private static final long NOTIFICATION_FLUSH_INTERVAL_MS = 2000;
     
     // 统计字段
     private final AtomicInteger batchQueryCount = new AtomicInteger(0);
@@ -36,6 +40,8 @@ public class AsyncOnlineStatusMonitor {
     private final AtomicLong totalBatchTime = new AtomicLong(0);
     private final AtomicInteger concurrentBatches = new AtomicInteger(0);
     private String scheduledMonitorTaskId;
+    // 自适应轮询调度，未启用时为null，每轮查询全部订阅成员
+    private volatile AdaptivePollScheduler pollScheduler;
     
     // 监控统计字段
     private final long startTime = System.currentTimeMillis();
@@ -54,8 +60,11 @@ public class AsyncOnlineStatusMonitor {
     // 成员状态缓存（异步版本）
     private final ConcurrentHashMap<String, AsyncMemberStatus> memberStatusCache = new ConcurrentHashMap<>();
     
-    // 用于检测状态变化的前一次状态记录
-    private final ConcurrentHashMap<String, String> previousStatusMap = new ConcurrentHashMap<>();
+    // 成员索引：成员 -> 订阅群组和上一次状态，由订阅增删方法维护
+    private final ConcurrentHashMap<String, MemberState> memberIndex = new ConcurrentHashMap<>();
+    
+    // 待发送的状态变化通知（按群组合并）
+    private final ConcurrentHashMap<Long, Queue<String>> pendingNotifications = new ConcurrentHashMap<>();
     
     // 批量查询队列
     private final Set<String> pendingQueries = ConcurrentHashMap.newKeySet();
@@ -71,6 +80,10 @@ public class AsyncOnlineStatusMonitor {
         // 使用统一调度器启动任务
         startBatchQueryScheduler();
         startCacheCleanupScheduler();
+        startNotificationFlushScheduler();
+        
+        // 订阅状态变化事件，按群组合并后发送
+        EventBusManager.getInstance().registerHandler(EventBusManager.StatusChanged.class, this::onStatusChanged);
         
         // 延迟启动定时监控任务，等待Newboy完全初始化
         // startScheduledMonitor(); // 移动到initializeMonitoring()方法中
@@ -147,7 +160,11 @@ public class AsyncOnlineStatusMonitor {
                     int successCount = 0;
                     int failCount = 0;
                     
+                    net.luffy.handler.Xox48Handler xox48 = Newboy.INSTANCE.getHandlerXox48();
                     for (BatchMemberStatusResult result : results) {
+                        if (xox48 != null) {
+                            xox48.recordQueryOutcome(result.getMemberName(), result.isSuccess());
+                        }
                         if (result.isSuccess()) {
                             memberStatusCache.put(result.getMemberName(), 
                                 new AsyncMemberStatus(result.getStatus(), result.getRawResponse()));
@@ -276,6 +293,18 @@ public class AsyncOnlineStatusMonitor {
         }, cleanupInterval, cleanupInterval);
     }
     
+    /**
+     * 启动通知合并发送调度器
+     */
+    private void startNotificationFlushScheduler() {
+        UnifiedSchedulerManager scheduler = UnifiedSchedulerManager.getInstance();
+        this.notificationFlushTaskId = scheduler.scheduleBatchTask(() -> {
+            if (!pendingNotifications.isEmpty()) {
+                flushGroupNotifications();
+            }
+        }, NOTIFICATION_FLUSH_INTERVAL_MS, NOTIFICATION_FLUSH_INTERVAL_MS);
+    }
+    
     /**
      * 初始化监控系统
      * 在Newboy完全初始化后调用此方法来启动监控
@@ -299,12 +328,23 @@ public class AsyncOnlineStatusMonitor {
             
             // 异步监控调度配置已加载
             
+            // 自适应轮询：按成员活跃度决定各自的查询间隔，调度器只需以较短周期检查哪些成员到期
+            long tickInterval = monitorInterval;
+            if (config.isAdaptiveIntervalEnabled()) {
+                long hotInterval = Math.min(monitorInterval, config.getAdaptiveIntervalMin());
+                long coldInterval = Math.max(monitorInterval, config.getAdaptiveIntervalMax());
+                pollScheduler = new AdaptivePollScheduler(hotInterval, coldInterval, config.getAdaptiveRequestsPerMinute());
+                tickInterval = Math.max(1000L, hotInterval / 2);
+            } else {
+                pollScheduler = null;
+            }
+            
             UnifiedSchedulerManager scheduler = UnifiedSchedulerManager.getInstance();
             this.scheduledMonitorTaskId = scheduler.scheduleMonitorTask(() -> {
                 if (!subscribedMembers.isEmpty()) {
                     checkSubscribedMembersStatus();
                 }
-            }, monitorInterval, monitorInterval);
+            }, tickInterval, tickInterval);
         }
     }
     
@@ -325,7 +365,13 @@ public class AsyncOnlineStatusMonitor {
             return;
         }
         
-        List<String> membersList = new ArrayList<>(subscribedMembers);
+        AdaptivePollScheduler poll = pollScheduler;
+        List<String> membersList = poll == null
+                ? new ArrayList<>(subscribedMembers)
+                : poll.selectDue(subscribedMembers);
+        if (membersList.isEmpty()) {
+            return;
+        }
         batchQueryMemberStatus(membersList)
             .thenAccept(results -> {
                 // 处理状态变化通知（通知功能已迁移到MonitorConfig）
@@ -339,56 +385,95 @@ public class AsyncOnlineStatusMonitor {
     
     /**
      * 处理状态变化通知
+     * 检测到变化时向事件总线发布StatusChanged事件，不在此处直接发送消息
      */
     private void processStatusChangeNotifications(List<BatchMemberStatusResult> results) {
+        AdaptivePollScheduler poll = pollScheduler;
         for (BatchMemberStatusResult result : results) {
-            if (result.isSuccess()) {
-                String memberName = result.getMemberName();
-                String currentStatus = result.getStatus();
-                String previousStatus = previousStatusMap.get(memberName);
-                
-                // 检测状态变化
-                if (previousStatus != null && !previousStatus.equals(currentStatus)) {
-                    // 状态发生变化，增加统计
-                    dailyStatusChanges.incrementAndGet();
-                    notificationCount.incrementAndGet();
-                    
-                    // 发送状态变化通知
-                    sendStatusChangeNotification(memberName, previousStatus, currentStatus);
+            if (!result.isSuccess()) {
+                if (poll != null) {
+                    poll.recordResult(result.getMemberName(), false, false, false);
                 }
+                continue;
+            }
+            String memberName = result.getMemberName();
+            String currentStatus = result.getStatus();
+            // 只为有群组订阅的成员记录状态，临时查询的成员不进入索引
+            MemberState state = memberIndex.get(memberName);
+            if (state == null) {
+                continue;
+            }
+            String previousStatus = state.lastStatus;
+            
+            // 检测状态变化
+            if (previousStatus != null && !previousStatus.equals(currentStatus)) {
+                // 状态发生变化，增加统计
+                dailyStatusChanges.incrementAndGet();
+                notificationCount.incrementAndGet();
                 
-                // 更新状态记录
-                previousStatusMap.put(memberName, currentStatus);
+                // 发布状态变化事件，只携带订阅了该成员的群组
+                if (!state.groups.isEmpty()) {
+                    EventBusManager.StatusChanged event = new EventBusManager.StatusChanged(
+                            memberName, previousStatus, currentStatus, state.groups);
+                    if (!EventBusManager.getInstance().publishAsync(event)) {
+                        // 事件队列已满时直接处理，避免丢失通知
+                        onStatusChanged(event);
+                    }
+                }
+            }
+            
+            // 更新状态记录
+            state.lastStatus = currentStatus;
+            if (poll != null) {
+                poll.recordResult(memberName, true, "在线".equals(currentStatus),
+                        previousStatus != null && !previousStatus.equals(currentStatus));
             }
         }
     }
     
     /**
-     * 发送状态变化通知
+     * 状态变化事件处理：按群组放入待发送队列
      */
-    private void sendStatusChangeNotification(String memberName, String previousStatus, String currentStatus) {
+    private void onStatusChanged(EventBusManager.StatusChanged event) {
         try {
-            String notificationMessage = formatStatusChangeMessage(memberName, previousStatus, currentStatus);
-            
-            // 向所有订阅了该成员的群组发送通知
-            for (Map.Entry<Long, SubscriptionConfig> entry : subscriptionConfigs.entrySet()) {
-                Long groupId = entry.getKey();
-                SubscriptionConfig config = entry.getValue();
-                
-                if (config.hasMember(memberName)) {
-                    sendNotificationToGroup(groupId, notificationMessage);
-                }
+            String notificationMessage = formatStatusChangeMessage(event.getMemberName(),
+                    event.getPreviousStatus(), event.getCurrentStatus(), event.getTimestamp());
+            // 仅发送正常状态消息，不发送错误消息
+            if (notificationMessage.contains("错误") || notificationMessage.contains("失败") || notificationMessage.contains("异常")) {
+                return;
+            }
+            for (Long groupId : event.getGroups()) {
+                pendingNotifications.computeIfAbsent(groupId, k -> new java.util.concurrent.ConcurrentLinkedQueue<>())
+                        .add(notificationMessage);
             }
         } catch (Exception e) {
-            // 静默处理通知发送异常，不影响监控主流程
+            // 静默处理通知处理异常，不影响监控主流程
+        }
+    }
+    
+    /**
+     * 将每个群组待发送的通知合并为一条消息发送
+     */
+    private void flushGroupNotifications() {
+        for (Map.Entry<Long, Queue<String>> entry : pendingNotifications.entrySet()) {
+            Queue<String> queue = entry.getValue();
+            List<String> messages = new ArrayList<>();
+            String message;
+            while ((message = queue.poll()) != null) {
+                messages.add(message);
+            }
+            if (!messages.isEmpty()) {
+                sendNotificationToGroup(entry.getKey(), String.join("\n\n", messages));
+            }
         }
     }
     
     /**
      * 格式化状态变化消息
      */
-    private String formatStatusChangeMessage(String memberName, String previousStatus, String currentStatus) {
-        String timestamp = java.time.LocalDateTime.now().format(
+    private String formatStatusChangeMessage(String memberName, String previousStatus, String currentStatus, long changedAt) {
+        String timestamp = java.time.LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(changedAt),
+            java.time.ZoneId.systemDefault()).format(
             java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         
         if ("在线".equals(currentStatus)) {
@@ -412,10 +497,7 @@ public class AsyncOnlineStatusMonitor {
                 java.util.concurrent.CompletableFuture.runAsync(() -> {
                     try {
                         // 发送普通文本消息，不@全体成员
-                        // 仅发送正常状态消息，不发送错误消息
-                        if (!message.contains("错误") && !message.contains("失败") && !message.contains("异常")) {
-                            group.sendMessage(message);
-                        }
+                        group.sendMessage(message);
                     } catch (Exception e) {
                         // 静默处理发送异常
                     }
@@ -456,6 +538,7 @@ public class AsyncOnlineStatusMonitor {
         }
         
         config.addMember(trimmed);
+        indexMember(trimmed, groupId);
         // 同时添加到兼容列表
         subscribedMembers.add(trimmed);
         
@@ -511,11 +594,13 @@ public class AsyncOnlineStatusMonitor {
             subscriptionConfigs.remove(groupId);
         }
         
-        // 从兼容列表中移除（检查是否还有其他群组订阅此成员）
-        boolean stillSubscribed = subscriptionConfigs.values().stream()
-            .anyMatch(c -> c.hasMember(trimmed));
-        if (!stillSubscribed) {
+        // 从兼容列表中移除（索引中已没有其他群组订阅此成员）
+        if (!unindexMember(trimmed, groupId)) {
             subscribedMembers.remove(trimmed);
+            AdaptivePollScheduler poll = pollScheduler;
+            if (poll != null) {
+                poll.retain(subscribedMembers);
+            }
         }
         
         // 自动保存配置
@@ -523,6 +608,30 @@ public class AsyncOnlineStatusMonitor {
         return "✅ 已从群组 " + groupId + " 的监控列表中移除成员 " + trimmed;
     }
     
+    /**
+     * 删除群组的全部订阅（如机器人已退出该群）
+     * @return 是否存在该群组的订阅
+     */
+    public boolean removeSubscriptionConfig(long groupId) {
+        SubscriptionConfig config = subscriptionConfigs.remove(groupId);
+        if (config == null) {
+            return false;
+        }
+        boolean changed = false;
+        for (String member : config.getMemberSubs()) {
+            if (!unindexMember(member, groupId)) {
+                subscribedMembers.remove(member);
+                changed = true;
+            }
+        }
+        AdaptivePollScheduler poll = pollScheduler;
+        if (changed && poll != null) {
+            poll.retain(subscribedMembers);
+        }
+        ConfigOperator.getInstance().saveAsyncMonitorSubscribeConfig();
+        return true;
+    }
+    
     /**
      * 获取成员当前状态
      */
@@ -664,7 +773,18 @@ public class AsyncOnlineStatusMonitor {
      */
     public void addSubscriptionConfig(SubscriptionConfig config) {
         if (config != null) {
-            subscriptionConfigs.put(config.getQqGroup(), config);
+            SubscriptionConfig old = subscriptionConfigs.put(config.getQqGroup(), config);
+            for (String member : config.getMemberSubs()) {
+                indexMember(member, config.getQqGroup());
+            }
+            // 先登记新配置再移除旧配置独有的成员，仍被订阅的成员保留上一次状态
+            if (old != null) {
+                for (String member : old.getMemberSubs()) {
+                    if (!config.hasMember(member)) {
+                        unindexMember(member, old.getQqGroup());
+                    }
+                }
+            }
             // 同步到兼容列表
             subscribedMembers.addAll(config.getMemberSubs());
         }
@@ -675,12 +795,41 @@ public class AsyncOnlineStatusMonitor {
      */
     public Set<String> getAllSubscribedMembers() {
         Set<String> allMembers = new HashSet<>();
-        for (SubscriptionConfig config : subscriptionConfigs.values()) {
-            allMembers.addAll(config.getMemberSubs());
+        for (Map.Entry<String, MemberState> entry : memberIndex.entrySet()) {
+            if (!entry.getValue().groups.isEmpty()) {
+                allMembers.add(entry.getKey());
+            }
         }
         return allMembers;
     }
     
+    /**
+     * 获取订阅了指定成员的群组
+     */
+    public Set<Long> getSubscribedGroups(String memberName) {
+        MemberState state = memberName == null ? null : memberIndex.get(memberName.trim());
+        return state == null ? Collections.emptySet() : new HashSet<>(state.groups);
+    }
+    
+    /**
+     * 在索引中记录群组订阅了成员
+     */
+    private void indexMember(String memberName, long groupId) {
+        memberIndex.computeIfAbsent(memberName, k -> new MemberState()).groups.add(groupId);
+    }
+    
+    /**
+     * 从索引中移除群组对成员的订阅，最后一个群组移除后删除索引条目
+     * @return 是否还有其他群组订阅该成员
+     */
+    private boolean unindexMember(String memberName, long groupId) {
+        MemberState state = memberIndex.computeIfPresent(memberName, (k, s) -> {
+            s.groups.remove(groupId);
+            return s.groups.isEmpty() ? null : s;
+        });
+        return state != null;
+    }
+    
     /**
      * 重新加载配置
      */
@@ -690,7 +839,12 @@ public class AsyncOnlineStatusMonitor {
         // 重新初始化订阅成员列表
         subscribedMembers.clear();
         subscriptionConfigs.clear();
+        // 保留上一次状态用于变化检测，重新加载后仍无群组订阅的成员从索引中移除
+        for (MemberState state : memberIndex.values()) {
+            state.groups.clear();
+        }
         initSubscribedMembers();
+        memberIndex.values().removeIf(state -> state.groups.isEmpty());
         
         // 重启定时监控任务
         if (scheduledMonitorTaskId != null) {
@@ -728,9 +882,14 @@ public class AsyncOnlineStatusMonitor {
                 "当前并发批次: %d\n" +
                 "缓存条目数量: %d\n" +
                 "待查询队列: %d\n" +
+                "订阅群组数: %d\n" +
+                "状态变化通知: %d\n" +
+                "%s\n" +
                 "异步HTTP统计:\n%s",
                 actualSubscribedMembers, batchCount, totalQueriedMembers, avgBatchTime, currentConcurrent, 
-                cacheSize, pendingSize, asyncWebHandler.getPerformanceStats()
+                cacheSize, pendingSize, subscriptionConfigs.size(), notificationCount.get(),
+                pollScheduler != null ? pollScheduler.getStats() : "自适应轮询: 未启用",
+                asyncWebHandler.getPerformanceStats()
         );
     }
     
@@ -808,9 +967,24 @@ public class AsyncOnlineStatusMonitor {
         if (scheduledMonitorTaskId != null) {
             scheduler.cancelTask(scheduledMonitorTaskId);
         }
+        if (notificationFlushTaskId != null) {
+            scheduler.cancelTask(notificationFlushTaskId);
+        }
+        // 发送尚未合并发送的通知
+        flushGroupNotifications();
         asyncWebHandler.shutdown();
     }
     
+    /**
+     * 成员索引条目
+     */
+    private static class MemberState {
+        // 订阅该成员的群组
+        final Set<Long> groups = ConcurrentHashMap.newKeySet();
+        // 上一次查询到的状态，用于检测变化
+        volatile String lastStatus;
+    }
+    
     /**
      * 异步成员状态缓存
      */
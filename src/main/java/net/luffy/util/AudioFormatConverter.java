@@ -3,17 +3,77 @@ package net.luffy.util;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 音频格式转换器
  * 用于将不兼容的音频格式转换为QQ支持的AMR或SILK格式
+ *
+ * 转码通过固定数量的工作线程执行，每个任务一个ffmpeg进程，音频经stdin/stdout管道进出，不落盘
+ * （M4A等需要随机读取的容器除外，这类输入写入临时文件，任务结束即删除）。
+ * 最近的转码结果按内容哈希缓存，同一段语音不会重复转码
  */
 public class AudioFormatConverter {
-    
+
     private static final String FFMPEG_PATH = "ffmpeg"; // 可配置为完整路径
-    
+
+    // 转码工作线程数与排队上限
+    private static final int WORKER_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int MAX_QUEUED_JOBS = 32;
+    // 单个转码任务超时时间（包括排队）
+    private static final long JOB_TIMEOUT_SECONDS = 10;
+    // 转码结果缓存条数
+    private static final int RESULT_CACHE_SIZE = 64;
+
+    private static final AtomicInteger workerIndex = new AtomicInteger(0);
+    private static final ExecutorService workers = new ThreadPoolExecutor(
+            WORKER_COUNT, WORKER_COUNT, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_QUEUED_JOBS),
+            r -> {
+                Thread t = new Thread(r, "FFmpeg-Worker-" + workerIndex.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    // 向ffmpeg的stdin写入数据，与读取stdout并行，避免管道缓冲区写满后互相等待
+    private static final ExecutorService stdinWriters = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "FFmpeg-Stdin-Writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 最近转码结果：内容哈希 -> AMR字节（按访问顺序淘汰）
+    private static final Map<String, byte[]> resultCache = new LinkedHashMap<String, byte[]>(RESULT_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > RESULT_CACHE_SIZE;
+        }
+    };
+
+    // 统计
+    private static final AtomicInteger queueDepth = new AtomicInteger(0);
+    private static final AtomicLong conversions = new AtomicLong(0);
+    private static final AtomicLong cacheHits = new AtomicLong(0);
+    private static final AtomicLong failures = new AtomicLong(0);
+    private static final AtomicLong timeouts = new AtomicLong(0);
+    private static final AtomicLong rejections = new AtomicLong(0);
+    private static final AtomicLong totalConvertMs = new AtomicLong(0);
+
     /**
      * 转换音频格式为AMR
      * @param inputStream 输入音频流
@@ -24,117 +84,189 @@ public class AudioFormatConverter {
         if (inputStream == null) {
             return null;
         }
-        
+
         // 如果已经是兼容格式，直接返回
         if (AudioFormatDetector.isQQCompatible(originalFormat)) {
             return inputStream;
         }
-        
+
         try {
-            // 创建临时文件
-            Path tempInputFile = Files.createTempFile("audio_input_", getFileExtension(originalFormat));
-            Path tempOutputFile = Files.createTempFile("audio_output_", ".amr");
-            
-            try {
-                // 将输入流写入临时文件
-                Files.copy(inputStream, tempInputFile, StandardCopyOption.REPLACE_EXISTING);
-                
-                // 使用FFmpeg进行转换
-                boolean success = convertWithFFmpeg(tempInputFile.toString(), tempOutputFile.toString(), "amr");
-                
-                if (success && Files.exists(tempOutputFile) && Files.size(tempOutputFile) > 0) {
-                    // 转换成功，返回转换后的文件流
-                    // 已禁用控制台输出
-                    // System.out.println("[音频转换] 成功将" + originalFormat + "格式转换为AMR格式");
-                    return Files.newInputStream(tempOutputFile);
-                } else {
-                    // 已禁用控制台输出
-                    // System.err.println("[音频转换] 转换失败，使用原始音频");
-                    // 转换失败，返回原始流（重新读取临时输入文件）
-                    return Files.newInputStream(tempInputFile);
-                }
-            } finally {
-                // 清理临时文件（在JVM退出时删除）
-                tempInputFile.toFile().deleteOnExit();
-                tempOutputFile.toFile().deleteOnExit();
-            }
+            byte[] data = inputStream.readAllBytes();
+            byte[] converted = convertToAMR(data, originalFormat);
+            return new ByteArrayInputStream(converted != null ? converted : data);
         } catch (Exception e) {
-            // 已禁用控制台输出
-            // System.err.println("[音频转换] 转换过程中发生异常: " + e.getMessage());
             return inputStream; // 返回原始流
         }
     }
-    
+
     /**
-     * 使用FFmpeg进行音频格式转换
-     * @param inputPath 输入文件路径
-     * @param outputPath 输出文件路径
-     * @param targetFormat 目标格式
-     * @return 转换是否成功
+     * 转换音频字节为AMR
+     * @param data 原始音频字节
+     * @param originalFormat 原始音频格式
+     * @return AMR字节，转换失败返回null；已是兼容格式时原样返回
      */
-    private static boolean convertWithFFmpeg(String inputPath, String outputPath, String targetFormat) {
+    public static byte[] convertToAMR(byte[] data, String originalFormat) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (AudioFormatDetector.isQQCompatible(originalFormat)) {
+            return data;
+        }
+
+        String hash = sha256(data);
+        synchronized (resultCache) {
+            byte[] cached = resultCache.get(hash);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        TranscodeJob job = new TranscodeJob(data, originalFormat);
+        FutureTask<byte[]> future = new FutureTask<byte[]>(job) {
+            @Override
+            protected void done() {
+                // 完成、失败或取消（包括排队中被取消）时都会调用
+                queueDepth.decrementAndGet();
+            }
+        };
+        queueDepth.incrementAndGet();
         try {
-            ProcessBuilder processBuilder;
-            
-            if ("amr".equalsIgnoreCase(targetFormat)) {
-                // 转换为AMR格式的命令
-                processBuilder = new ProcessBuilder(
-                    FFMPEG_PATH, 
-                    "-i", inputPath,
+            workers.execute(future);
+        } catch (RejectedExecutionException e) {
+            // 排队已满，放弃转码
+            queueDepth.decrementAndGet();
+            rejections.incrementAndGet();
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            byte[] converted = future.get(JOB_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (converted == null || converted.length == 0) {
+                failures.incrementAndGet();
+                return null;
+            }
+            conversions.incrementAndGet();
+            totalConvertMs.addAndGet(System.currentTimeMillis() - start);
+            synchronized (resultCache) {
+                resultCache.put(hash, converted);
+            }
+            return converted;
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            future.cancel(true);
+            job.kill();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            job.kill();
+            return null;
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * 单个转码任务：启动ffmpeg，通过管道输入原始音频并读出AMR
+     */
+    private static class TranscodeJob implements java.util.concurrent.Callable<byte[]> {
+        private final byte[] input;
+        private final String originalFormat;
+        private volatile Process process;
+        private volatile boolean killed;
+
+        TranscodeJob(byte[] input, String originalFormat) {
+            this.input = input;
+            this.originalFormat = originalFormat;
+        }
+
+        @Override
+        public byte[] call() throws Exception {
+            Path tempInput = null;
+            try {
+                if (killed) {
+                    return null;
+                }
+                // 需要随机读取的容器无法从管道解析，写入临时文件
+                boolean seekable = needsSeekableInput(originalFormat);
+                if (seekable) {
+                    tempInput = Files.createTempFile("audio_input_", getFileExtension(originalFormat));
+                    Files.write(tempInput, input);
+                }
+
+                List<String> command = new ArrayList<>(Arrays.asList(FFMPEG_PATH, "-hide_banner", "-loglevel", "error"));
+                command.add("-i");
+                command.add(seekable ? tempInput.toString() : "pipe:0");
+                command.addAll(Arrays.asList(
                     "-ar", "8000",      // 采样率8kHz
                     "-ac", "1",         // 单声道
                     "-ab", "12.2k",     // 比特率12.2kbps
                     "-f", "amr",        // 输出格式AMR
-                    "-y",               // 覆盖输出文件
-                    outputPath
-                );
-            } else {
-                // 其他格式的通用转换命令
-                processBuilder = new ProcessBuilder(
-                    FFMPEG_PATH,
-                    "-i", inputPath,
-                    "-y",
-                    outputPath
-                );
-            }
-            
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-            
-            // 等待转换完成，最多等待10秒（优化超时时间）
-            boolean finished = process.waitFor(10, TimeUnit.SECONDS);
-            
-            if (!finished) {
-                process.destroyForcibly();
-                // 已禁用控制台输出
-                // System.err.println("[音频转换] FFmpeg转换超时");
-                return false;
+                    "pipe:1"));
+
+                ProcessBuilder processBuilder = new ProcessBuilder(command);
+                processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+                process = processBuilder.start();
+                if (killed) {
+                    process.destroyForcibly();
+                    return null;
+                }
+
+                Process p = process;
+                if (seekable) {
+                    p.getOutputStream().close();
+                } else {
+                    stdinWriters.execute(() -> {
+                        try (OutputStream out = p.getOutputStream()) {
+                            out.write(input);
+                        } catch (IOException e) {
+                            // 静默处理：ffmpeg提前退出时管道会被关闭
+                        }
+                    });
+                }
+
+                byte[] output;
+                try (InputStream in = p.getInputStream()) {
+                    output = in.readAllBytes();
+                }
+                if (!p.waitFor(JOB_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    p.destroyForcibly();
+                    return null;
+                }
+                return p.exitValue() == 0 ? output : null;
+            } finally {
+                if (tempInput != null) {
+                    try {
+                        Files.deleteIfExists(tempInput);
+                    } catch (IOException e) {
+                        // 静默处理临时文件删除失败
+                    }
+                }
             }
-            
-            int exitCode = process.exitValue();
-            if (exitCode == 0) {
-                // 已禁用控制台输出
-                // System.out.println("[音频转换] FFmpeg转换成功");
-                return true;
-            } else {
-                // 已禁用控制台输出
-                // System.err.println("[音频转换] FFmpeg转换失败，退出码: " + exitCode);
-                // 读取错误输出
-                // try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                //     String line;
-                //     while ((line = reader.readLine()) != null) {
-                //         System.err.println("[FFmpeg] " + line);
-                //     }
-                // }
-                return false;
+        }
+
+        /**
+         * 超时或中断时结束ffmpeg进程，读取stdout的工作线程随之返回
+         */
+        void kill() {
+            killed = true;
+            Process p = process;
+            if (p != null) {
+                p.destroyForcibly();
             }
-        } catch (Exception e) {
-            // 已禁用控制台输出
-            // System.err.println("[音频转换] FFmpeg执行异常: " + e.getMessage());
-            return false;
         }
     }
-    
+
+    /**
+     * MP4/M4A的索引可能位于文件末尾，ffmpeg需要随机读取
+     */
+    private static boolean needsSeekableInput(String format) {
+        return format != null && "M4A".equalsIgnoreCase(format);
+    }
+
     /**
      * 根据音频格式获取文件扩展名
      * @param format 音频格式
@@ -144,7 +276,7 @@ public class AudioFormatConverter {
         if (format == null) {
             return ".audio";
         }
-        
+
         switch (format.toUpperCase()) {
             case "MP3":
                 return ".mp3";
@@ -164,7 +296,28 @@ public class AudioFormatConverter {
                 return ".audio";
         }
     }
-    
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            // SHA-256总是可用，兜底使用长度和内容哈希
+            return data.length + ":" + Arrays.hashCode(data);
+        }
+    }
+
+    /**
+     * 当前排队和执行中的转码任务数
+     */
+    public static int getQueueDepth() {
+        return queueDepth.get();
+    }
+
     /**
      * 检查FFmpeg是否可用
      * @return true表示FFmpeg可用，false表示不可用
@@ -174,25 +327,32 @@ public class AudioFormatConverter {
             ProcessBuilder processBuilder = new ProcessBuilder(FFMPEG_PATH, "-version");
             processBuilder.redirectErrorStream(true);
             Process process = processBuilder.start();
-            
+
             boolean finished = process.waitFor(5, TimeUnit.SECONDS);
             if (!finished) {
                 process.destroyForcibly();
                 return false;
             }
-            
+
             return process.exitValue() == 0;
         } catch (Exception e) {
             return false;
         }
     }
-    
+
     /**
      * 获取转换器状态信息
      * @return 状态信息字符串
      */
     public static String getConverterStatus() {
         boolean ffmpegAvailable = isFFmpegAvailable();
-        return String.format("[音频转换器状态] FFmpeg可用: %s", ffmpegAvailable ? "是" : "否");
+        long done = conversions.get();
+        int cached;
+        synchronized (resultCache) {
+            cached = resultCache.size();
+        }
+        return String.format("[音频转换器状态] FFmpeg可用: %s, 工作线程: %d, 队列深度: %d, 转码: %d(平均%dms), 缓存命中: %d, 失败: %d, 超时: %d, 拒绝: %d, 缓存条数: %d",
+                ffmpegAvailable ? "是" : "否", WORKER_COUNT, queueDepth.get(), done, done > 0 ? totalConvertMs.get() / done : 0,
+                cacheHits.get(), failures.get(), timeouts.get(), rejections.get(), cached);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,272 @@
+package net.luffy.util;
+
+import net.luffy.Newboy;
+import net.mamoe.mirai.message.data.Message;
+import net.mamoe.mirai.message.data.PlainText;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 命令执行器
+ * 群聊和私聊命令不在Mirai的事件线程上执行，而是提交到有界线程池：
+ * - 同一用户、同一群同时执行的命令数有上限，超出时直接提示稍后再试
+ * - 每条命令有超时时间，超时后中断并回复提示
+ * - 需要多次查询的命令可以通过{@link #fanOut}并行查询
+ * 名额在命令处理真正结束后才归还：超时只是先回复用户，仍在阻塞的处理继续占用名额
+ * 一个群里的慢命令不会拖慢其他群的事件处理
+ */
+public class CommandExecutor {
+
+    private static volatile CommandExecutor instance;
+
+    private static final int CORE_THREADS = 4;
+    private static final int MAX_THREADS = 8;
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int FAN_OUT_THREADS = 8;
+    private static final int PER_USER_LIMIT = 2; // 同一用户同时执行的命令数
+    private static final int PER_GROUP_LIMIT = 3; // 同一群同时执行的命令数
+    private static final long DEFAULT_TIMEOUT_MS = 30000;
+    private static final long FAN_OUT_TIMEOUT_MS = 20000; // 单次并行查询的最长等待时间
+    private static final long PRIVATE_CHAT = 0; // 私聊命令不占用群的名额
+
+    // 需要较长时间的命令（按第一个参数匹配）
+    private static final Map<String, Long> COMMAND_TIMEOUTS = Map.of(
+            "/口袋", 60000L,
+            "/pocket", 60000L,
+            "/在线", 20000L,
+            "/online", 20000L
+    );
+
+    private final long defaultTimeoutMs;
+    private final long fanOutTimeoutMs;
+    private final ThreadPoolExecutor pool;
+    private final ThreadPoolExecutor fanOutPool;
+    private final ScheduledExecutorService watchdog;
+    private final Map<Long, Semaphore> userPermits = new ConcurrentHashMap<>();
+    private final Map<Long, Semaphore> groupPermits = new ConcurrentHashMap<>();
+
+    // 统计
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong completed = new AtomicLong(0);
+    private final AtomicLong limited = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong timeouts = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    private CommandExecutor() {
+        this(DEFAULT_TIMEOUT_MS, FAN_OUT_TIMEOUT_MS);
+    }
+
+    CommandExecutor(long defaultTimeoutMs, long fanOutTimeoutMs) {
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+        this.pool = new ThreadPoolExecutor(CORE_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), daemonFactory("Command-Exec-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.fanOutPool = new ThreadPoolExecutor(FAN_OUT_THREADS, FAN_OUT_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), daemonFactory("Command-Lookup-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.fanOutPool.allowCoreThreadTimeOut(true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemonFactory("Command-Watchdog-"));
+    }
+
+    public static CommandExecutor getInstance() {
+        if (instance == null) {
+            synchronized (CommandExecutor.class) {
+                if (instance == null) {
+                    instance = new CommandExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger index = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 异步执行命令
+     *
+     * @param command 命令名（第一个参数），用于确定超时时间
+     * @param groupId 群号，私聊为0
+     * @param userId  发送者
+     * @param handler 命令处理，返回null表示不回复
+     * @param reply   回复方式
+     */
+    public void submit(String command, long groupId, long userId, Supplier<Message> handler, Consumer<Message> reply) {
+        Semaphore user = userPermits.computeIfAbsent(userId, k -> new Semaphore(PER_USER_LIMIT));
+        Semaphore group = groupId == PRIVATE_CHAT ? null
+                : groupPermits.computeIfAbsent(groupId, k -> new Semaphore(PER_GROUP_LIMIT));
+        if (!user.tryAcquire()) {
+            limited.incrementAndGet();
+            safeReply(reply, new PlainText("⏳ 你的上一条命令还在处理中，请稍后再试"));
+            return;
+        }
+        if (group != null && !group.tryAcquire()) {
+            user.release();
+            limited.incrementAndGet();
+            safeReply(reply, new PlainText("⏳ 本群命令较多，请稍后再试"));
+            return;
+        }
+
+        FutureTask<Message> task = new FutureTask<>(handler::get);
+        Runnable release = () -> {
+            user.release();
+            if (group != null) {
+                group.release();
+            }
+        };
+
+        try {
+            pool.execute(() -> {
+                // 超时取消只会中断线程，不理会中断的阻塞请求仍在运行，处理真正返回后才归还名额
+                try {
+                    task.run();
+                    deliver(task, reply);
+                } finally {
+                    release.run();
+                }
+            });
+            submitted.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            release.run();
+            safeReply(reply, new PlainText("⏳ 命令处理繁忙，请稍后再试"));
+            return;
+        }
+
+        long timeout = COMMAND_TIMEOUTS.getOrDefault(command, defaultTimeoutMs);
+        watchdog.schedule(() -> {
+            if (!task.isDone() && task.cancel(true)) {
+                timeouts.incrementAndGet();
+                safeReply(reply, new PlainText("⌛ 命令执行超时，请稍后再试"));
+                Newboy.INSTANCE.getLogger().warning("命令执行超时(" + timeout + "ms): " + command);
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+    }
+
+    int availableUserPermits(long userId) {
+        Semaphore user = userPermits.get(userId);
+        return user == null ? PER_USER_LIMIT : user.availablePermits();
+    }
+
+    private void deliver(FutureTask<Message> task, Consumer<Message> reply) {
+        if (task.isCancelled()) {
+            return;
+        }
+        try {
+            Message m = task.get();
+            completed.incrementAndGet();
+            if (m != null) {
+                safeReply(reply, m);
+            }
+        } catch (Exception e) {
+            // 静默处理命令异常，不向用户发送错误消息
+            failures.incrementAndGet();
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Newboy.INSTANCE.getLogger().warning("命令执行失败: " + cause.getClass().getSimpleName() + ": " + cause.getMessage());
+        }
+    }
+
+    private static void safeReply(Consumer<Message> reply, Message message) {
+        try {
+            reply.accept(message);
+        } catch (Exception e) {
+            // 静默处理发送失败
+        }
+    }
+
+    /**
+     * 单次查询的结果，区分"查询成功但没有结果"和"查询失败或超时"
+     */
+    public static final class LookupResult<R> {
+        private static final LookupResult<?> FAILED = new LookupResult<>(null, true);
+
+        private final R value;
+        private final boolean failed;
+
+        private LookupResult(R value, boolean failed) {
+            this.value = value;
+            this.failed = failed;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <R> LookupResult<R> failed() {
+            return (LookupResult<R>) FAILED;
+        }
+
+        public R get() {
+            return value;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * 并行执行一组查询，结果与输入顺序一致
+     * 查询抛出异常或超时的位置标记为失败，调用方应显示"获取失败"而不是当作不存在
+     */
+    public <T, R> List<LookupResult<R>> fanOut(Collection<T> inputs, Function<T, R> lookup) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(CompletableFuture.supplyAsync(() -> lookup.apply(input), fanOutPool));
+        }
+
+        long deadline = System.currentTimeMillis() + fanOutTimeoutMs;
+        List<LookupResult<R>> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                results.add(new LookupResult<>(future.get(remaining, TimeUnit.MILLISECONDS), false));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(LookupResult.failed());
+            } catch (Exception e) {
+                results.add(LookupResult.failed());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("命令执行 - 已提交: %d, 完成: %d, 限流: %d, 繁忙拒绝: %d, 超时: %d, 失败: %d, 执行中: %d, 排队: %d",
+                submitted.get(), completed.get(), limited.get(), rejected.get(), timeouts.get(), failures.get(),
+                pool.getActiveCount(), pool.getQueue().size());
+    }
+
+    public void shutdown() {
+        watchdog.shutdownNow();
+        pool.shutdownNow();
+        fanOutPool.shutdownNow();
+    }
+}
@@ -46,6 +46,28 @@ public class CommandOperator extends AsyncWebHandlerBase {
 
     public static CommandOperator INSTANCE;
 
+    // 群聊和私聊支持的命令名，Listener据此判断是否提交到CommandExecutor，新增命令时需同步添加
+    private static final Set<String> PUBLIC_COMMANDS = Set.of(
+            "/version", "/在线", "/online", "/口袋", "/pocket", "/超话", "/微博", "/weibo",
+            "/监控添加", "/monitor_add", "/监控移除", "/monitor_remove", "/抖音", "/douyin",
+            "/监控列表", "/monitor_list", "/监控开关", "/monitor_toggle", "/监控查询", "/monitor_check",
+            "/抖音监控", "/douyin_monitor", "/抖音状态", "/douyin_status", "/抖音用户", "/douyin_users",
+            "/抖音添加", "/douyin_add", "/抖音删除", "/douyin_remove", "/抖音重启", "/douyin_restart",
+            "/帮助", "/help", "/?");
+    private static final Set<String> PRIVATE_COMMANDS = Set.of(
+            "/帮助", "/help", "/?", "/在线", "/online", "/监控", "/monitor", "/口袋", "/pocket",
+            "/微博", "/weibo", "/超话", "/supertopic", "/抖音", "/douyin", "/抖音监控", "/抖音用户",
+            "/抖音状态", "/抖音添加", "/抖音删除", "/抖音重启", "/微店", "/weidian", "/清理",
+            "/清理缓存", "/clearcache");
+
+    public static boolean isPublicCommand(String command) {
+        return PUBLIC_COMMANDS.contains(command);
+    }
+
+    public static boolean isPrivateCommand(String command) {
+        return PRIVATE_COMMANDS.contains(command);
+    }
+
     public CommandOperator() {
         INSTANCE = this;
         //需自行编写指令执行方法
@@ -254,31 +276,29 @@ public class CommandOperator extends AsyncWebHandlerBase {
                                 if (!Newboy.INSTANCE.getProperties().pocket48_subscribe.containsKey(group))
                                     return new PlainText("暂无关注的房间");
 
+                                // 并行查询各房间信息，按关注顺序输出
+                                List<Long> roomIds = new ArrayList<>(Newboy.INSTANCE.getProperties().pocket48_subscribe.get(group).getRoomIDs());
+                                List<CommandExecutor.LookupResult<Pocket48RoomInfo>> roomInfos = CommandExecutor.getInstance().fanOut(roomIds,
+                                        id -> Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(id));
                                 int count = 1;
-                                for (long room_id : Newboy.INSTANCE.getProperties().pocket48_subscribe.get(group).getRoomIDs()) {
-                                    try {
-                                        Pocket48RoomInfo roomInfo = Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(room_id);
-                                        if (roomInfo != null) {
-                                            String roomName = roomInfo.getRoomName();
-                                            String ownerName = roomInfo.getOwnerName();
-                                            out.append(count).append(". ").append(roomName).append("\n");
-                                            out.append("   主播：").append(ownerName).append("\n");
-                                            out.append("   房间ID：").append(room_id).append("\n");
-                                        } else {
-                                            out.append(count).append(". 未知房间\n");
-                                            out.append("   房间ID：").append(room_id).append("\n");
-                                        }
-                                        
-                                        if (count < Newboy.INSTANCE.getProperties().pocket48_subscribe.get(group).getRoomIDs().size()) {
-                                            out.append("\n");
-                                        }
-                                        count++;
-                                    } catch (Exception e) {
-                                        e.printStackTrace();
-                                        out.append(count).append(". 获取信息失败\n");
+                                for (int i = 0; i < roomIds.size(); i++) {
+                                    long room_id = roomIds.get(i);
+                                    Pocket48RoomInfo roomInfo = roomInfos.get(i).get();
+                                    if (roomInfo != null) {
+                                        String roomName = roomInfo.getRoomName();
+                                        String ownerName = roomInfo.getOwnerName();
+                                        out.append(count).append(". ").append(roomName).append("\n");
+                                        out.append("   主播：").append(ownerName).append("\n");
+                                        out.append("   房间ID：").append(room_id).append("\n");
+                                    } else {
+                                        out.append(count).append(roomInfos.get(i).isFailed() ? ". 获取失败\n" : ". 未知房间\n");
                                         out.append("   房间ID：").append(room_id).append("\n");
-                                        count++;
                                     }
+
+                                    if (count < roomIds.size()) {
+                                        out.append("\n");
+                                    }
+                                    count++;
                                 }
                                 return new PlainText(out.toString());
                             }
@@ -1623,21 +1643,19 @@ public class CommandOperator extends AsyncWebHandlerBase {
                 hasSubscription = true;
                 result.append("\n🏠 群组：").append(groupId).append("\n");
                 
-                int count = 1;
-                for (long roomId : properties.pocket48_subscribe.get(groupId).getRoomIDs()) {
-                    try {
-                        Pocket48RoomInfo roomInfo = Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(roomId);
-                        if (roomInfo != null) {
-                            result.append("  ").append(count).append(". ").append(roomInfo.getRoomName());
-                            result.append(" (").append(roomInfo.getOwnerName()).append(")\n");
-                            result.append("     房间ID: ").append(roomId).append("\n");
-                        } else {
-                            result.append("  ").append(count).append(". 未知房间 (ID: ").append(roomId).append(")\n");
-                        }
-                        count++;
-                    } catch (Exception e) {
-                        result.append("  ").append(count).append(". 获取信息失败 (ID: ").append(roomId).append(")\n");
-                        count++;
+                List<Long> roomIds = new ArrayList<>(properties.pocket48_subscribe.get(groupId).getRoomIDs());
+                List<CommandExecutor.LookupResult<Pocket48RoomInfo>> roomInfos = CommandExecutor.getInstance().fanOut(roomIds,
+                        id -> Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(id));
+                for (int i = 0; i < roomIds.size(); i++) {
+                    long roomId = roomIds.get(i);
+                    Pocket48RoomInfo roomInfo = roomInfos.get(i).get();
+                    if (roomInfo != null) {
+                        result.append("  ").append(i + 1).append(". ").append(roomInfo.getRoomName());
+                        result.append(" (").append(roomInfo.getOwnerName()).append(")\n");
+                        result.append("     房间ID: ").append(roomId).append("\n");
+                    } else {
+                        result.append("  ").append(i + 1).append(roomInfos.get(i).isFailed() ? ". 获取失败" : ". 未知房间")
+                                .append(" (ID: ").append(roomId).append(")\n");
                     }
                 }
             }
@@ -2508,13 +2526,20 @@ public class CommandOperator extends AsyncWebHandlerBase {
         }
         //有房间
         else {
+            List<Long> roomIds = new ArrayList<>();
             for (Long i : rooms) {
-                try {
-                    Pocket48RoomInfo info = Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(i);
-                    if (info != null) { //口袋48bug之已删除的房间也会保留，但无法获取信息，见陈琳Server的(3311605)都是小团体
-                        out += (i != null) ? "(" + i + ")" + info.getRoomName() + "\n" : "";
-                    }
-                } catch (Exception e) {
+                if (i != null) {
+                    roomIds.add(i);
+                }
+            }
+            List<CommandExecutor.LookupResult<Pocket48RoomInfo>> infos = CommandExecutor.getInstance().fanOut(roomIds,
+                    id -> Newboy.INSTANCE.getHandlerPocket48().getRoomInfoByChannelID(id));
+            for (int i = 0; i < roomIds.size(); i++) {
+                Pocket48RoomInfo info = infos.get(i).get();
+                if (info != null) { //口袋48bug之已删除的房间也会保留，但无法获取信息，见陈琳Server的(3311605)都是小团体
+                    out += "(" + roomIds.get(i) + ")" + info.getRoomName() + "\n";
+                } else if (infos.get(i).isFailed()) {
+                    out += "(" + roomIds.get(i) + ")获取失败\n";
                 }
             }
             return out;
@@ -9,6 +9,7 @@ import net.luffy.model.Pocket48Subscribe;
 import net.luffy.model.WeidianCookie;
 import net.luffy.util.SubscriptionConfig;
 import net.luffy.util.UnifiedJsonParser;
+import net.luffy.util.sender.Pocket48Sender;
 import net.mamoe.mirai.contact.Group;
 import net.mamoe.mirai.contact.MemberPermission;
 import net.mamoe.mirai.contact.NormalMember;
@@ -368,6 +369,8 @@ public class ConfigOperator {
 
         properties.pocket48_subscribe.get(group).getRoomIDs().add(room_id);
         savePocket48SubscribeConfig();
+        // 新关注的房间重新获取一次房间信息
+        Pocket48RoomInfoCache.getInstance().invalidate(room_id);
         return true;
     }
 
@@ -377,6 +380,15 @@ public class ConfigOperator {
 
         properties.pocket48_subscribe.get(group).getRoomIDs().remove(room_id);
         savePocket48SubscribeConfig();
+        Pocket48RoomInfoCache.getInstance().invalidate(room_id);
+        // 取消订阅的群不再拖住房间的拉取起点
+        if (Newboy.INSTANCE.getHandlerPocket48() != null) {
+            Newboy.INSTANCE.getHandlerPocket48().resetRoomCursor(room_id, group);
+        }
+        // 同时清除持久化和内存中的发送进度，重新订阅时从当前时间开始
+        PollCursorStore.getInstance().remove(Pocket48Sender.endTimeKey(group, room_id));
+        PollCursorStore.getInstance().remove(Pocket48Sender.voiceKey(group, room_id));
+        Newboy.INSTANCE.clearPocket48RoomProgress(group, room_id);
         return true;
     }
 
@@ -386,6 +398,7 @@ public class ConfigOperator {
 
         properties.pocket48_serverID.put(room_id, sever_id);
         savePocket48RoomIDConnectConfig();
+        Pocket48RoomInfoCache.getInstance().invalidate(room_id);
         return true;
     }
 
@@ -395,6 +408,7 @@ public class ConfigOperator {
 
         properties.pocket48_serverID.remove(room_id, sever_id);
         savePocket48RoomIDConnectConfig();
+        Pocket48RoomInfoCache.getInstance().invalidate(room_id);
         return true;
     }
 
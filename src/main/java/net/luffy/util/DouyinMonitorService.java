@@ -1,9 +1,9 @@
 package net.luffy.util;
 
-import cn.hutool.json.JSONArray;
-import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import net.luffy.Newboy;
+import net.luffy.model.ApiPayloads.DouyinAweme;
+import net.luffy.model.ApiPayloads.DouyinAwemePage;
 import net.luffy.util.UnifiedJsonParser;
 import net.luffy.util.UnifiedHttpClient;
 // 移除了对旧DouyinHandler的依赖
@@ -40,12 +40,19 @@ public class DouyinMonitorService {
     private final ScheduledExecutorService scheduler;
     private final Map<String, UserMonitorInfo> monitoredUsers;
     private final AtomicBoolean isRunning;
+    private final AwemeSource awemeSource;
+    private final AwemeNotifier awemeNotifier;
+    private final PollCursorStore cursorStore;
     // 移除了DouyinHandler依赖，现在使用内置的签名生成器
     
     // 限流相关
     private final AtomicLong lastRequestTime = new AtomicLong(0);
     private static final long MIN_REQUEST_INTERVAL = 2000; // 2秒最小间隔
     
+    // 轮询键前缀：请求URL带签名每次都不同，按用户ID记录上次确认的响应
+    private static final String POLL_KEY_PREFIX = "douyin:aweme:";
+    private static final String CURSOR_KEY_PREFIX = "douyin.aweme.";
+    
     // 调试模式
     private static final boolean DEBUG_MODE = Boolean.getBoolean("douyin.debug") || 
         System.getProperty("http.debug", "false").equals("true");
@@ -76,9 +83,35 @@ public class DouyinMonitorService {
         this.scheduler = Executors.newScheduledThreadPool(2);
         this.monitoredUsers = new ConcurrentHashMap<>();
         this.isRunning = new AtomicBoolean(false);
+        this.awemeSource = new AwemeSource() {
+            @Override
+            public AwemeFetch fetch(String secUserId) {
+                return getUserInfo(secUserId);
+            }
+            
+            @Override
+            public void reset(String secUserId) {
+                UnifiedHttpClient.getInstance().resetPoll(POLL_KEY_PREFIX + secUserId);
+            }
+        };
+        this.awemeNotifier = this::handleNewAweme;
+        this.cursorStore = PollCursorStore.getInstance();
         // 不再依赖旧的DouyinHandler
     }
     
+    /**
+     * 测试用：替换作品列表来源、推送和游标存储
+     */
+    DouyinMonitorService(AwemeSource awemeSource, AwemeNotifier awemeNotifier, PollCursorStore cursorStore) {
+        this.signatureGenerator = null;
+        this.scheduler = Executors.newScheduledThreadPool(2);
+        this.monitoredUsers = new ConcurrentHashMap<>();
+        this.isRunning = new AtomicBoolean(false);
+        this.awemeSource = awemeSource;
+        this.awemeNotifier = awemeNotifier;
+        this.cursorStore = cursorStore;
+    }
+    
     /**
      * 获取单例实例
      * @return DouyinMonitorService实例
@@ -160,32 +193,43 @@ public class DouyinMonitorService {
         }
         
         UserMonitorInfo userInfo = new UserMonitorInfo(secUserId);
+        // 有停机前的游标时以它为基准，本次拉取不确认，下次检查时与它比较并补发停机期间的作品
+        boolean restored = restoreCursor(userInfo);
         
         // 初始化用户信息
         try {
-            JSONObject userDetail = getUserInfo(secUserId);
-            if (userDetail != null) {
+            // 新加入的用户需要完整的作品列表作为基准
+            awemeSource.reset(secUserId);
+            AwemeFetch fetch = awemeSource.fetch(secUserId);
+            if (fetch != null && fetch.isChanged()) {
+                DouyinAwemePage userDetail = fetch.page;
                 // 获取最新作品ID作为基准
-                JSONArray awemeList = userDetail.getJSONArray("aweme_list");
+                List<DouyinAweme> awemeList = userDetail.awemeList;
                 if (awemeList != null && !awemeList.isEmpty()) {
-                    JSONObject latestAweme = awemeList.getJSONObject(0);
-                    userInfo.lastAwemeId = latestAweme.getStr("aweme_id");
-                    
-                    // 设置最后更新时间为最新作品的创建时间
-                    long createTime = latestAweme.getLong("create_time", 0L) * 1000;
-                    if (createTime > 0) {
-                        userInfo.lastUpdateTime = createTime;
+                    DouyinAweme latestAweme = awemeList.get(0);
+                    if (!restored) {
+                        userInfo.lastAwemeId = latestAweme.awemeId;
+                        
+                        // 设置最后更新时间为最新作品的创建时间
+                        long createTime = latestAweme.createTime * 1000;
+                        if (createTime > 0) {
+                            userInfo.lastUpdateTime = createTime;
+                        }
                     }
                     
                     // 从作品信息中获取用户昵称
-                    JSONObject author = latestAweme.getJSONObject("author");
-                    if (author != null) {
-                        userInfo.nickname = author.getStr("nickname", "未知用户");
+                    if (latestAweme.author != null) {
+                        userInfo.nickname = latestAweme.author.nickname != null ? latestAweme.author.nickname : "未知用户";
                     }
-                } else {
+                } else if (!restored) {
                     // 用户没有作品，设置lastUpdateTime为0表示无作品
                     userInfo.lastUpdateTime = 0;
                 }
+                if (!restored) {
+                    // 作为基准的作品列表无需推送，直接确认，并记录游标供重启后追补
+                    fetch.commit();
+                    saveCursor(userInfo);
+                }
             }
         } catch (Exception e) {
             // 初始化用户信息失败
@@ -196,6 +240,38 @@ public class DouyinMonitorService {
         return true;
     }
     
+    /**
+     * 重启后恢复停机前最后看到的作品，停机期间发布的最新作品会在下次检查时补发
+     * 停机超过追补窗口时不恢复，以当前最新作品为基准
+     * @return 是否恢复了游标
+     */
+    private boolean restoreCursor(UserMonitorInfo userInfo) {
+        String value = cursorStore.restore(CURSOR_KEY_PREFIX + userInfo.secUserId);
+        if (value == null) {
+            return false;
+        }
+        int comma = value.lastIndexOf(',');
+        try {
+            String awemeId = value.substring(0, comma);
+            long updateTime = Long.parseLong(value.substring(comma + 1));
+            if (!awemeId.isEmpty() && !"null".equals(awemeId)) {
+                userInfo.lastAwemeId = awemeId;
+                userInfo.lastUpdateTime = updateTime;
+                return true;
+            }
+        } catch (Exception e) {
+            // 静默处理格式错误的记录，以当前最新作品为基准
+        }
+        return false;
+    }
+    
+    private void saveCursor(UserMonitorInfo userInfo) {
+        if (userInfo.lastAwemeId != null) {
+            cursorStore.put(CURSOR_KEY_PREFIX + userInfo.secUserId,
+                    userInfo.lastAwemeId + "," + userInfo.lastUpdateTime);
+        }
+    }
+    
     /**
      * 移除监控用户
      * @param secUserId 用户ID
@@ -203,6 +279,8 @@ public class DouyinMonitorService {
      */
     public boolean removeMonitorUser(String secUserId) {
         UserMonitorInfo removed = monitoredUsers.remove(secUserId);
+        awemeSource.reset(secUserId);
+        cursorStore.remove(CURSOR_KEY_PREFIX + secUserId);
         if (removed != null) {
             // 移除抖音监控用户
             return true;
@@ -289,28 +367,39 @@ public class DouyinMonitorService {
      * 检查单个用户的更新
      * @param userInfo 用户信息
      */
-    private void checkUserUpdate(UserMonitorInfo userInfo) {
-        JSONObject userDetail = getUserInfo(userInfo.secUserId);
-        if (userDetail == null) {
+    void checkUserUpdate(UserMonitorInfo userInfo) {
+        AwemeFetch fetch = awemeSource.fetch(userInfo.secUserId);
+        if (fetch == null) {
+            return;
+        }
+        if (!fetch.isChanged()) {
+            // 作品列表与上次相同，跳过比较
+            fetch.commit();
+            userInfo.lastCheckTime = System.currentTimeMillis();
+            userInfo.failureCount = 0;
             return;
         }
         
-        JSONArray awemeList = userDetail.getJSONArray("aweme_list");
+        List<DouyinAweme> awemeList = fetch.page.awemeList;
         if (awemeList == null || awemeList.isEmpty()) {
+            fetch.commit();
             return;
         }
         
-        JSONObject latestAweme = awemeList.getJSONObject(0);
-        String latestAwemeId = latestAweme.getStr("aweme_id");
+        DouyinAweme latestAweme = awemeList.get(0);
+        String latestAwemeId = latestAweme.awemeId;
         
         // 检查是否有新作品
         if (userInfo.lastAwemeId != null && !userInfo.lastAwemeId.equals(latestAwemeId)) {
             // 发现新作品
-            long createTime = latestAweme.getLong("create_time", 0L) * 1000;
+            long createTime = latestAweme.createTime * 1000;
             
             // 确保新作品的时间晚于上次检查时间
             if (createTime > userInfo.lastUpdateTime) {
-                handleNewAweme(userInfo, latestAweme);
+                if (!awemeNotifier.push(userInfo, latestAweme)) {
+                    // 发送失败：不推进基准也不确认轮询，下次检查重新推送
+                    return;
+                }
                 userInfo.lastUpdateTime = createTime;
             }
         }
@@ -319,12 +408,13 @@ public class DouyinMonitorService {
         userInfo.lastAwemeId = latestAwemeId;
         userInfo.lastCheckTime = System.currentTimeMillis();
         userInfo.failureCount = 0; // 重置失败计数
+        saveCursor(userInfo);
+        fetch.commit();
         
         // 更新昵称（可能会变化）
         if (awemeList != null && !awemeList.isEmpty()) {
-            JSONObject author = latestAweme.getJSONObject("author");
-            if (author != null) {
-                String currentNickname = author.getStr("nickname");
+            if (latestAweme.author != null) {
+                String currentNickname = latestAweme.author.nickname;
                 if (currentNickname != null && !currentNickname.equals(userInfo.nickname)) {
                     // 用户昵称变更
                     userInfo.nickname = currentNickname;
@@ -337,18 +427,18 @@ public class DouyinMonitorService {
      * 处理新作品
      * @param userInfo 用户信息
      * @param aweme 作品信息
+     * @return 是否已送达订阅群
      */
-    private void handleNewAweme(UserMonitorInfo userInfo, JSONObject aweme) {
+    private boolean handleNewAweme(UserMonitorInfo userInfo, DouyinAweme aweme) {
         try {
             String message = formatAwemeMessage(userInfo, aweme);
             
             // 通过内置服务发送消息到相关群组
             // 这里需要根据实际的群组订阅关系来发送
-            notifySubscribedGroups(userInfo.secUserId, message);
-            
-            // 检测到用户新作品
+            return notifySubscribedGroups(userInfo.secUserId, message);
         } catch (Exception e) {
             Newboy.INSTANCE.getLogger().error("处理新作品失败: " + e.getMessage());
+            return false;
         }
     }
     
@@ -358,22 +448,21 @@ public class DouyinMonitorService {
      * @param aweme 作品信息
      * @return 格式化的消息
      */
-    private String formatAwemeMessage(UserMonitorInfo userInfo, JSONObject aweme) {
+    private String formatAwemeMessage(UserMonitorInfo userInfo, DouyinAweme aweme) {
         StringBuilder message = new StringBuilder();
         message.append("🎵 抖音新作品推送\n\n");
         message.append("👤 用户: ").append(userInfo.nickname).append("\n");
         
-        String desc = aweme.getStr("desc", "");
+        String desc = aweme.desc != null ? aweme.desc : "";
         if (!desc.isEmpty()) {
             message.append("📝 描述: ").append(desc).append("\n");
         }
         
         // 获取作品统计信息
-        JSONObject statistics = aweme.getJSONObject("statistics");
-        if (statistics != null) {
-            int diggCount = statistics.getInt("digg_count", 0);
-            int commentCount = statistics.getInt("comment_count", 0);
-            int shareCount = statistics.getInt("share_count", 0);
+        if (aweme.statistics != null) {
+            int diggCount = aweme.statistics.diggCount;
+            int commentCount = aweme.statistics.commentCount;
+            int shareCount = aweme.statistics.shareCount;
             
             message.append("❤️ 点赞: ").append(formatCount(diggCount));
             message.append(" 💬 评论: ").append(formatCount(commentCount));
@@ -381,7 +470,7 @@ public class DouyinMonitorService {
         }
         
         // 作品链接
-        String awemeId = aweme.getStr("aweme_id");
+        String awemeId = aweme.awemeId;
         if (awemeId != null) {
             message.append("🔗 链接: https://www.douyin.com/video/").append(awemeId);
         }
@@ -403,19 +492,25 @@ public class DouyinMonitorService {
      * 通知订阅的群组
      * @param secUserId 用户ID
      * @param message 消息内容
+     * @return 是否已送达：Bot离线或所有群都发送失败时返回false，部分群失败只记录日志，避免成功的群重复收到
      */
-    private void notifySubscribedGroups(String secUserId, String message) {
+    private boolean notifySubscribedGroups(String secUserId, String message) {
         // 获取订阅该用户的群组列表
         Map<Long, List<String>> subscriptions = Newboy.INSTANCE.getProperties().douyin_user_subscribe;
+        int attempted = 0;
+        int failed = 0;
         
         for (Map.Entry<Long, List<String>> entry : subscriptions.entrySet()) {
             if (entry.getValue().contains(secUserId)) {
                 long groupId = entry.getKey();
                 
                 // 发送消息到群组
+                attempted++;
                 try {
                     Bot bot = Newboy.getBot();
-                    if (bot != null) {
+                    if (bot == null) {
+                        failed++;
+                    } else {
                         Group group = bot.getGroup(groupId);
                         if (group != null) {
                             // 检查机器人是否拥有管理员权限，如果有则@全体成员
@@ -429,6 +524,7 @@ public class DouyinMonitorService {
                         }
                     }
                 } catch (Exception e) {
+                    failed++;
                     // 静默处理发送失败，不推送错误消息到群组
                     Newboy.INSTANCE.getLogger().error(
                         String.format("发送抖音消息到群 %d 失败: %s", groupId, e.getMessage())
@@ -436,14 +532,15 @@ public class DouyinMonitorService {
                 }
             }
         }
+        return attempted == 0 || failed < attempted;
     }
     
     /**
      * 获取用户信息
      * @param secUserId 用户ID
-     * @return 用户信息JSON
+     * @return 作品列表拉取结果，失败时返回null
      */
-    private JSONObject getUserInfo(String secUserId) {
+    private AwemeFetch getUserInfo(String secUserId) {
         return getUserInfoWithRetry(secUserId, 3);
     }
     
@@ -451,9 +548,9 @@ public class DouyinMonitorService {
      * 获取用户信息（带重试机制）
      * @param secUserId 用户ID
      * @param maxRetries 最大重试次数
-     * @return 用户信息JSON
+     * @return 作品列表拉取结果，失败时返回null
      */
-    private JSONObject getUserInfoWithRetry(String secUserId, int maxRetries) {
+    private AwemeFetch getUserInfoWithRetry(String secUserId, int maxRetries) {
         Exception lastException = null;
         
         for (int attempt = 0; attempt < maxRetries; attempt++) {
@@ -466,7 +563,7 @@ public class DouyinMonitorService {
                     );
                 }
                 
-                JSONObject result = performGetUserInfo(secUserId);
+                AwemeFetch result = performGetUserInfo(secUserId);
                 if (result != null) {
                     if (attempt > 0) {
                         Newboy.INSTANCE.getLogger().info(
@@ -495,9 +592,9 @@ public class DouyinMonitorService {
     /**
      * 执行获取用户信息的实际请求
      * @param secUserId 用户ID
-     * @return 用户信息JSON
+     * @return 作品列表拉取结果，失败时返回null
      */
-    private JSONObject performGetUserInfo(String secUserId) {
+    private AwemeFetch performGetUserInfo(String secUserId) {
         try {
             Map<String, String> params = signatureGenerator.buildAwemePostQuery(secUserId, null, 18);
             String queryString = signatureGenerator.buildQueryString(params);
@@ -538,7 +635,11 @@ public class DouyinMonitorService {
                 Newboy.INSTANCE.getLogger().info("抖音API请求头: " + headers.toString());
             }
             
-            String responseBody = UnifiedHttpClient.getInstance().get(url, headers);
+            UnifiedHttpClient.PollResult poll = UnifiedHttpClient.getInstance().poll(POLL_KEY_PREFIX + secUserId, url, headers);
+            if (!poll.isChanged()) {
+                return AwemeFetch.of(poll, null, null);
+            }
+            String responseBody = poll.bodyAsString();
             
             // 调试模式下输出响应信息
             if (DEBUG_MODE) {
@@ -566,14 +667,23 @@ public class DouyinMonitorService {
             String trimmedResponse = responseBody.trim();
             if (trimmedResponse.startsWith("{")) {
                 try {
-                    JSONObject result = UnifiedJsonParser.getInstance().parseObj(responseBody);
+                    // 直接解码为作品列表，跳过与推送无关的大量字段
+                    DouyinAwemePage result = UnifiedJsonParser.getInstance().decode(responseBody, DouyinAwemePage.class);
+                    if (result == null) {
+                        throw new IllegalStateException("作品列表结构不符");
+                    }
                     
-                    if (result.getInt("status_code", -1) == 0) {
-                        return result;
+                    if (result.statusCode == 0) {
+                        // 响应体带有每次都不同的日志字段，按作品ID列表判断内容是否变化
+                        String fingerprint = awemeFingerprint(result);
+                        if (poll.matchesFingerprint(fingerprint)) {
+                            return AwemeFetch.of(poll, null, fingerprint);
+                        }
+                        return AwemeFetch.of(poll, result, fingerprint);
                     } else {
                         Newboy.INSTANCE.getLogger().error(
-                            "抖音API返回错误状态: " + result.getInt("status_code", -1) + 
-                            ", 消息: " + result.getStr("status_msg", "未知错误")
+                            "抖音API返回错误状态: " + result.statusCode + 
+                            ", 消息: " + (result.statusMsg != null ? result.statusMsg : "未知错误")
                         );
                     }
                 } catch (Exception parseException) {
@@ -591,6 +701,77 @@ public class DouyinMonitorService {
         return null;
     }
     
+    /**
+     * 作品列表的内容指纹：按顺序排列的作品ID
+     */
+    private static String awemeFingerprint(DouyinAwemePage page) {
+        if (page.awemeList == null || page.awemeList.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (DouyinAweme aweme : page.awemeList) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(aweme.awemeId);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 一次作品列表拉取的结果
+     * page为null表示作品列表与上次确认的相同；处理成功后调用commit()确认
+     */
+    static final class AwemeFetch {
+        final DouyinAwemePage page;
+        private final Runnable commit;
+        
+        AwemeFetch(DouyinAwemePage page, Runnable commit) {
+            this.page = page;
+            this.commit = commit;
+        }
+        
+        static AwemeFetch of(UnifiedHttpClient.PollResult poll, DouyinAwemePage page, String fingerprint) {
+            return new AwemeFetch(page, () -> {
+                if (fingerprint != null) {
+                    poll.commit(fingerprint);
+                } else {
+                    poll.commit();
+                }
+            });
+        }
+        
+        boolean isChanged() {
+            return page != null;
+        }
+        
+        void commit() {
+            commit.run();
+        }
+    }
+    
+    /**
+     * 作品列表来源
+     */
+    interface AwemeSource {
+        /**
+         * 拉取用户作品列表，失败时返回null
+         */
+        AwemeFetch fetch(String secUserId);
+        
+        /**
+         * 清除已确认的轮询基准
+         */
+        void reset(String secUserId);
+    }
+    
+    /**
+     * 新作品推送，返回是否已送达
+     */
+    interface AwemeNotifier {
+        boolean push(UserMonitorInfo userInfo, DouyinAweme aweme);
+    }
+    
     /**
      * 限流等待
      */
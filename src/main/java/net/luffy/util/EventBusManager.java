@@ -303,4 +303,30 @@ public class EventBusManager {
         public int getCleanedCount() { return cleanedCount; }
         public long getFreedMemory() { return freedMemory; }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 成员在线状态变化事件
+     * groups为发布时订阅该成员的群组快照，处理器只需遍历这些群组
+     */
+    public static class StatusChanged {
+        private final String memberName;
+        private final String previousStatus;
+        private final String currentStatus;
+        private final Set<Long> groups;
+        private final long timestamp;
+        
+        public StatusChanged(String memberName, String previousStatus, String currentStatus, Set<Long> groups) {
+            this.memberName = memberName;
+            this.previousStatus = previousStatus;
+            this.currentStatus = currentStatus;
+            this.groups = Collections.unmodifiableSet(new HashSet<>(groups));
+            this.timestamp = System.currentTimeMillis();
+        }
+        
+        public String getMemberName() { return memberName; }
+        public String getPreviousStatus() { return previousStatus; }
+        public String getCurrentStatus() { return currentStatus; }
+        public Set<Long> getGroups() { return groups; }
+        public long getTimestamp() { return timestamp; }
+    }
+}
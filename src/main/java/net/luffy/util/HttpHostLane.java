@@ -0,0 +1,301 @@
+package net.luffy.util;
+
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HTTP主机通道
+ * 每个平台（按主机名划分）一条通道，拥有独立的：
+ * - 调度器并发上限（只约束异步请求，同步请求在调用线程上执行）
+ * - 连接池，避免某个平台的慢连接占满共享连接池
+ * - HTTP/2协商（TLS下通过ALPN自动协商，服务端不支持时回退到HTTP/1.1）
+ * - 令牌桶限流，每次发出的调用消耗一个令牌：同步请求在调用线程上等待（throttle），
+ *   异步请求按欠下的令牌延迟入队（enqueue），不会在OkHttp调度器线程上等待
+ * - 延迟直方图
+ * 通道客户端由基础客户端派生，共用其拦截器（重试、日志、全局统计）
+ */
+public class HttpHostLane {
+
+    // 直方图桶上界（毫秒），最后一个桶为溢出桶
+    private static final long[] BUCKET_BOUNDS_MS = {50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final String name;
+    private final List<String> hostSuffixes;
+    private final OkHttpClient client;
+    private final TokenBucket limiter;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final AtomicLong http2Responses = new AtomicLong(0);
+    private final AtomicLong http1Responses = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+    private final AtomicLong throttledNanos = new AtomicLong(0);
+
+    /**
+     * @param name 通道名称
+     * @param base 基础客户端
+     * @param maxRequests 异步请求总并发上限
+     * @param maxRequestsPerHost 异步请求单主机并发上限
+     * @param maxIdleConnections 连接池最大空闲连接数
+     * @param permitsPerSecond 限流速率（每秒请求数）
+     * @param burst 令牌桶容量（允许的突发请求数）
+     * @param hostSuffixes 归属该通道的主机名（精确匹配或后缀匹配）
+     */
+    public HttpHostLane(String name, OkHttpClient base, int maxRequests, int maxRequestsPerHost,
+                        int maxIdleConnections, double permitsPerSecond, int burst, String... hostSuffixes) {
+        this.name = name;
+        this.hostSuffixes = Arrays.asList(hostSuffixes);
+        this.limiter = new TokenBucket(permitsPerSecond, burst);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        this.client = base.newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, 5, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .addInterceptor(new LaneInterceptor())
+                .build();
+    }
+
+    /**
+     * 主机是否归属该通道
+     */
+    public boolean matches(String host) {
+        for (String suffix : hostSuffixes) {
+            if (host.equals(suffix) || host.endsWith("." + suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * 同步请求限流：在调用线程上等待令牌
+     */
+    public void throttle() throws InterruptedIOException {
+        try {
+            long waited = limiter.acquire();
+            if (waited > 0) {
+                throttledNanos.addAndGet(waited);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("限流等待被中断");
+        }
+    }
+
+    /**
+     * 异步请求：预支令牌，令牌不足时延迟到可用时间再交给调度器，等待期间不占用任何线程
+     */
+    public void enqueue(Request request, Callback callback) {
+        long wait = limiter.reserve();
+        if (wait <= 0) {
+            client.newCall(request).enqueue(callback);
+            return;
+        }
+        throttledNanos.addAndGet(wait);
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS)
+                .execute(() -> client.newCall(request).enqueue(callback));
+    }
+
+    /**
+     * 获取通道统计信息
+     */
+    public String getStats() {
+        return String.format("%s - 请求: %d, 失败: %d, HTTP/2: %d, HTTP/1.1: %d, 限流等待: %dms, 平均: %dms, P50: %s, P95: %s, P99: %s, 最大: %dms, 异步运行/排队: %d/%d",
+                name, histogram.count(), failures.get(), http2Responses.get(), http1Responses.get(),
+                TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()), histogram.mean(),
+                histogram.percentileLabel(0.50), histogram.percentileLabel(0.95), histogram.percentileLabel(0.99),
+                histogram.max(), client.dispatcher().runningCallsCount(), client.dispatcher().queuedCallsCount());
+    }
+
+    /**
+     * 获取延迟直方图（各桶计数）
+     */
+    public String getHistogram() {
+        return name + " 延迟分布: " + histogram.describe();
+    }
+
+    public void resetStats() {
+        histogram.reset();
+        http2Responses.set(0);
+        http1Responses.set(0);
+        failures.set(0);
+        throttledNanos.set(0);
+    }
+
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * 通道拦截器：记录延迟和协商协议
+     * 不在这里限流：异步调用的拦截器运行在调度器线程上，等待会占住并发名额
+     */
+    private class LaneInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            long start = System.nanoTime();
+            try {
+                Response response = chain.proceed(chain.request());
+                histogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (response.protocol() == Protocol.HTTP_2) {
+                    http2Responses.incrementAndGet();
+                } else {
+                    http1Responses.incrementAndGet();
+                }
+                if (!response.isSuccessful()) {
+                    failures.incrementAndGet();
+                }
+                return response;
+            } catch (IOException e) {
+                histogram.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                failures.incrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 令牌桶限流器
+     */
+    static final class TokenBucket {
+        private final double permitsPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double permitsPerSecond, int burst) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, burst);
+            this.tokens = this.capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * 预支一个令牌，不等待
+         * 等待时间按欠下的令牌数计算，保证并发请求按到达顺序排队
+         *
+         * @return 令牌可用前还需等待的纳秒数，0表示立即可用
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / permitsPerNano);
+        }
+
+        /**
+         * 获取一个令牌，令牌不足时在当前线程等待
+         *
+         * @return 等待的纳秒数
+         */
+        long acquire() throws InterruptedException {
+            long waitNanos = reserve();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            return waitNanos;
+        }
+    }
+
+    /**
+     * 固定桶延迟直方图
+     */
+    static final class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong(0);
+        private final AtomicLong sum = new AtomicLong(0);
+        private final AtomicLong max = new AtomicLong(0);
+
+        void record(long millis) {
+            int i = 0;
+            while (i < BUCKET_BOUNDS_MS.length && millis > BUCKET_BOUNDS_MS[i]) {
+                i++;
+            }
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            sum.addAndGet(millis);
+            max.accumulateAndGet(millis, Math::max);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long mean() {
+            long c = count.get();
+            return c > 0 ? sum.get() / c : 0;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * 估算分位数所在的桶，返回其上界（如"≤200ms"）
+         */
+        String percentileLabel(double p) {
+            long c = count.get();
+            if (c == 0) {
+                return "-";
+            }
+            long target = (long) Math.ceil(c * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return i < BUCKET_BOUNDS_MS.length ? "≤" + BUCKET_BOUNDS_MS[i] + "ms" : ">" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + "ms";
+                }
+            }
+            return ">" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + "ms";
+        }
+
+        String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < buckets.length(); i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(i < BUCKET_BOUNDS_MS.length ? "≤" + BUCKET_BOUNDS_MS[i] : ">" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1])
+                        .append("ms: ").append(buckets.get(i));
+            }
+            return sb.toString();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
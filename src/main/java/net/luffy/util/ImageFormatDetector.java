@@ -232,17 +232,44 @@ public class ImageFormatDetector {
     
     /**
      * 验证图片文件的完整性
+     * 只按文件结构校验（魔数、段/块长度、PNG的CRC、结束标记），不解码像素；
+     * 没有结构校验实现的格式回退到ImageIO完整解码
      * @param file 图片文件
      * @return true表示文件完整，false表示文件可能损坏
      */
     public static boolean validateImageIntegrity(File file) {
+        return validateImageIntegrity(file, false);
+    }
+    
+    /**
+     * 验证图片文件的完整性
+     * @param file 图片文件
+     * @param fullDecode 结构校验通过后是否再用ImageIO完整解码一次（分配整张图片的像素内存，仅在需要时开启）
+     * @return true表示文件完整，false表示文件可能损坏
+     */
+    public static boolean validateImageIntegrity(File file, boolean fullDecode) {
         if (file == null || !file.exists() || file.length() == 0) {
             logger.warning("文件不存在或为空: " + (file != null ? file.getAbsolutePath() : "null"));
             return false;
         }
         
+        ImageHeaderInfo info = readHeaderInfo(file);
+        if (info == null) {
+            logger.warning("图片结构校验失败: " + file.getAbsolutePath());
+            return false;
+        }
+        if (info.isStructureChecked() && !fullDecode) {
+            logger.info("图片结构校验通过: " + file.getAbsolutePath() + ", 格式: " + info.getFormat() + ", 尺寸: " + info.getWidth() + "x" + info.getHeight());
+            return true;
+        }
+        return validateByDecode(file);
+    }
+    
+    /**
+     * 使用ImageIO完整解码验证图片
+     */
+    private static boolean validateByDecode(File file) {
         try {
-            // 尝试读取图片以验证完整性
             java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(file);
             if (image != null) {
                 logger.info("图片完整性验证通过: " + file.getAbsolutePath() + ", 尺寸: " + image.getWidth() + "x" + image.getHeight());
@@ -257,6 +284,344 @@ public class ImageFormatDetector {
         }
     }
     
+    /**
+     * 图片头信息
+     */
+    public static class ImageHeaderInfo {
+        private final String format;
+        private final int width;
+        private final int height;
+        private final boolean structureChecked;
+        
+        ImageHeaderInfo(String format, int width, int height, boolean structureChecked) {
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.structureChecked = structureChecked;
+        }
+        
+        public String getFormat() {
+            return format;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+        
+        public int getHeight() {
+            return height;
+        }
+        
+        /**
+         * 是否经过了结构校验；为false时表示该格式没有结构校验实现，尺寸未知
+         */
+        public boolean isStructureChecked() {
+            return structureChecked;
+        }
+    }
+    
+    /**
+     * 流式读取图片结构并从文件头获取尺寸，不解码像素
+     * 支持JPEG、PNG、GIF、WEBP的结构校验，其他格式只识别格式
+     * @param file 图片文件
+     * @return 头信息，结构损坏（截断、长度越界、CRC错误、缺少结束标记）时返回null
+     */
+    public static ImageHeaderInfo readHeaderInfo(File file) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 8192)) {
+            in.mark(32);
+            byte[] header = new byte[32];
+            int bytesRead = in.readNBytes(header, 0, header.length);
+            in.reset();
+            
+            String format = detectFormatByHeader(header, bytesRead);
+            StructReader reader = new StructReader(in);
+            switch (format) {
+                case "JPEG":
+                    return checkJpeg(reader);
+                case "PNG":
+                    return checkPng(reader);
+                case "GIF":
+                    return checkGif(reader);
+                case "WEBP":
+                    return checkWebp(reader);
+                default:
+                    return new ImageHeaderInfo(format, -1, -1, false);
+            }
+        } catch (IOException e) {
+            // 截断或读取失败
+            logger.warning("图片结构读取失败: " + e.getMessage() + ", 文件: " + file.getAbsolutePath());
+            return null;
+        }
+    }
+    
+    /**
+     * JPEG：SOI后逐段读取标记和段长度，跳过熵编码数据，直到EOI
+     */
+    private static ImageHeaderInfo checkJpeg(StructReader r) throws IOException {
+        if (r.u8() != 0xFF || r.u8() != 0xD8) {
+            return null;
+        }
+        int width = -1;
+        int height = -1;
+        int marker = nextJpegMarker(r);
+        while (true) {
+            if (marker == 0xD9) {
+                // EOI
+                return width > 0 && height > 0 ? new ImageHeaderInfo("JPEG", width, height, true) : null;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // 无长度的独立标记
+                marker = nextJpegMarker(r);
+                continue;
+            }
+            int length = r.u16be();
+            if (length < 2) {
+                return null;
+            }
+            boolean sof = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (sof) {
+                if (length < 7) {
+                    return null;
+                }
+                r.u8(); // 采样精度
+                height = r.u16be();
+                width = r.u16be();
+                r.skip(length - 7);
+            } else {
+                r.skip(length - 2);
+            }
+            if (marker == 0xDA) {
+                // SOS之后是熵编码数据，扫描到下一个非RST标记
+                marker = skipEntropyData(r);
+            } else {
+                marker = nextJpegMarker(r);
+            }
+        }
+    }
+    
+    private static int nextJpegMarker(StructReader r) throws IOException {
+        if (r.u8() != 0xFF) {
+            throw new IOException("JPEG段之间缺少标记");
+        }
+        int marker = r.u8();
+        while (marker == 0xFF) {
+            // 填充字节
+            marker = r.u8();
+        }
+        return marker;
+    }
+    
+    private static int skipEntropyData(StructReader r) throws IOException {
+        while (true) {
+            if (r.u8() != 0xFF) {
+                continue;
+            }
+            int next = r.u8();
+            while (next == 0xFF) {
+                next = r.u8();
+            }
+            if (next != 0x00 && (next < 0xD0 || next > 0xD7)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * PNG：签名后逐块读取长度、类型、数据和CRC，第一个块必须是IHDR，最后必须是IEND
+     */
+    private static ImageHeaderInfo checkPng(StructReader r) throws IOException {
+        r.skip(8); // 签名已由文件头检测确认
+        int width = -1;
+        int height = -1;
+        boolean first = true;
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        byte[] type = new byte[4];
+        while (true) {
+            long length = r.u32be();
+            if (length > Integer.MAX_VALUE) {
+                return null;
+            }
+            r.readFully(type);
+            crc.reset();
+            crc.update(type, 0, 4);
+            String chunk = new String(type, java.nio.charset.StandardCharsets.US_ASCII);
+            if (first) {
+                if (!"IHDR".equals(chunk) || length != 13) {
+                    return null;
+                }
+                byte[] ihdr = new byte[13];
+                r.readFully(ihdr);
+                crc.update(ihdr, 0, ihdr.length);
+                width = ((ihdr[0] & 0xFF) << 24) | ((ihdr[1] & 0xFF) << 16) | ((ihdr[2] & 0xFF) << 8) | (ihdr[3] & 0xFF);
+                height = ((ihdr[4] & 0xFF) << 24) | ((ihdr[5] & 0xFF) << 16) | ((ihdr[6] & 0xFF) << 8) | (ihdr[7] & 0xFF);
+                first = false;
+            } else {
+                r.skip(length, crc);
+            }
+            if (r.u32be() != crc.getValue()) {
+                return null;
+            }
+            if ("IEND".equals(chunk)) {
+                return width > 0 && height > 0 ? new ImageHeaderInfo("PNG", width, height, true) : null;
+            }
+        }
+    }
+    
+    /**
+     * GIF：读取逻辑屏幕描述符和颜色表，逐个跳过扩展块和图像块，直到结尾标记
+     */
+    private static ImageHeaderInfo checkGif(StructReader r) throws IOException {
+        r.skip(6); // GIF87a/GIF89a
+        int width = r.u16le();
+        int height = r.u16le();
+        int packed = r.u8();
+        r.skip(2); // 背景色索引、像素宽高比
+        if ((packed & 0x80) != 0) {
+            r.skip(3L * (1 << ((packed & 0x07) + 1)));
+        }
+        boolean hasImage = false;
+        while (true) {
+            int block = r.u8();
+            if (block == 0x3B) {
+                // 结尾标记
+                return hasImage && width > 0 && height > 0 ? new ImageHeaderInfo("GIF", width, height, true) : null;
+            } else if (block == 0x21) {
+                r.u8(); // 扩展标签
+                skipGifSubBlocks(r);
+            } else if (block == 0x2C) {
+                r.skip(8); // 图像位置和尺寸
+                int imagePacked = r.u8();
+                if ((imagePacked & 0x80) != 0) {
+                    r.skip(3L * (1 << ((imagePacked & 0x07) + 1)));
+                }
+                r.u8(); // LZW最小码长
+                skipGifSubBlocks(r);
+                hasImage = true;
+            } else {
+                return null;
+            }
+        }
+    }
+    
+    private static void skipGifSubBlocks(StructReader r) throws IOException {
+        int size;
+        while ((size = r.u8()) != 0) {
+            r.skip(size);
+        }
+    }
+    
+    /**
+     * WEBP：RIFF容器，逐块读取直到RIFF声明的长度，尺寸取自VP8X/VP8/VP8L块头
+     */
+    private static ImageHeaderInfo checkWebp(StructReader r) throws IOException {
+        r.skip(4); // RIFF
+        long riffSize = r.u32le();
+        r.skip(4); // WEBP
+        long remaining = riffSize - 4;
+        int width = -1;
+        int height = -1;
+        byte[] fourCC = new byte[4];
+        while (remaining > 0) {
+            if (remaining < 8) {
+                return null;
+            }
+            r.readFully(fourCC);
+            long size = r.u32le();
+            long padded = size + (size & 1);
+            if (8 + padded > remaining) {
+                return null;
+            }
+            String chunk = new String(fourCC, java.nio.charset.StandardCharsets.US_ASCII);
+            int headerBytes = (int) Math.min(size, 10);
+            byte[] head = new byte[headerBytes];
+            r.readFully(head);
+            if (width < 0) {
+                if ("VP8X".equals(chunk) && headerBytes >= 10) {
+                    width = 1 + ((head[4] & 0xFF) | ((head[5] & 0xFF) << 8) | ((head[6] & 0xFF) << 16));
+                    height = 1 + ((head[7] & 0xFF) | ((head[8] & 0xFF) << 8) | ((head[9] & 0xFF) << 16));
+                } else if ("VP8 ".equals(chunk) && headerBytes >= 10) {
+                    if ((head[3] & 0xFF) != 0x9D || (head[4] & 0xFF) != 0x01 || (head[5] & 0xFF) != 0x2A) {
+                        return null;
+                    }
+                    width = ((head[6] & 0xFF) | ((head[7] & 0xFF) << 8)) & 0x3FFF;
+                    height = ((head[8] & 0xFF) | ((head[9] & 0xFF) << 8)) & 0x3FFF;
+                } else if ("VP8L".equals(chunk) && headerBytes >= 5) {
+                    if ((head[0] & 0xFF) != 0x2F) {
+                        return null;
+                    }
+                    int bits = (head[1] & 0xFF) | ((head[2] & 0xFF) << 8) | ((head[3] & 0xFF) << 16) | ((head[4] & 0xFF) << 24);
+                    width = 1 + (bits & 0x3FFF);
+                    height = 1 + ((bits >>> 14) & 0x3FFF);
+                }
+            }
+            r.skip(padded - headerBytes);
+            remaining -= 8 + padded;
+        }
+        return width > 0 && height > 0 ? new ImageHeaderInfo("WEBP", width, height, true) : null;
+    }
+    
+    /**
+     * 结构读取辅助：读到文件末尾时抛出EOFException（即文件被截断）
+     */
+    private static final class StructReader {
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        
+        StructReader(InputStream in) {
+            this.in = in;
+        }
+        
+        int u8() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new java.io.EOFException("文件被截断");
+            }
+            return b;
+        }
+        
+        int u16be() throws IOException {
+            return (u8() << 8) | u8();
+        }
+        
+        int u16le() throws IOException {
+            return u8() | (u8() << 8);
+        }
+        
+        long u32be() throws IOException {
+            return ((long) u16be() << 16) | u16be();
+        }
+        
+        long u32le() throws IOException {
+            return u16le() | ((long) u16le() << 16);
+        }
+        
+        void readFully(byte[] target) throws IOException {
+            if (in.readNBytes(target, 0, target.length) < target.length) {
+                throw new java.io.EOFException("文件被截断");
+            }
+        }
+        
+        void skip(long n) throws IOException {
+            skip(n, null);
+        }
+        
+        /**
+         * 跳过n个字节，需要时同时计算CRC
+         */
+        void skip(long n, java.util.zip.CRC32 crc) throws IOException {
+            while (n > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, n));
+                if (read < 0) {
+                    throw new java.io.EOFException("文件被截断");
+                }
+                if (crc != null) {
+                    crc.update(buffer, 0, read);
+                }
+                n -= read;
+            }
+        }
+    }
+    
     /**
      * 将字节数组转换为十六进制字符串（用于调试）
      * @param bytes 字节数组
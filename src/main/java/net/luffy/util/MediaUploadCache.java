@@ -0,0 +1,368 @@
+package net.luffy.util;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import net.luffy.Newboy;
+import net.mamoe.mirai.Bot;
+import net.mamoe.mirai.contact.Contact;
+import net.mamoe.mirai.contact.Group;
+import net.mamoe.mirai.message.data.Audio;
+import net.mamoe.mirai.message.data.AudioCodec;
+import net.mamoe.mirai.message.data.Image;
+import net.mamoe.mirai.message.data.OfflineAudio;
+import net.mamoe.mirai.utils.ExternalResource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 媒体上传缓存
+ * 按 Bot + 内容MD5 记录已上传图片的imageId和语音的元数据，相同内容再次发送时直接复用，
+ * 不再经过富媒体传输。映射定期写入插件数据目录，重启后继续有效
+ *
+ * - 图片：通过Image.fromId重建，距上次确认超过VERIFY_INTERVAL_MS时先向服务器确认图片仍然存在
+ * - 语音：通过OfflineAudio.Factory重建，超过AUDIO_TTL_MS的记录视为失效
+ *
+ * 同一Bot的相同内容同时只上传一次：多个群同时转发同一条消息时，第一个线程上传，其余线程等待并复用其结果
+ */
+public class MediaUploadCache {
+
+    private static volatile MediaUploadCache instance;
+
+    private static final String DATA_FILE_NAME = "media_upload_cache.json";
+    private static final long VERIFY_INTERVAL_MS = 6 * 60 * 60 * 1000L; // 6小时重新确认一次图片
+    private static final long AUDIO_TTL_MS = 3 * 24 * 60 * 60 * 1000L; // 语音记录保留3天
+    private static final int MAX_ENTRIES = 5000; // 每类最多保留的记录数
+    private static final long SAVE_INTERVAL_MS = 60 * 1000L; // 1分钟检查一次是否需要写盘
+    private static final long UPLOAD_WAIT_TIMEOUT_MS = 60 * 1000L; // 等待其他线程上传的最长时间
+
+    private final Map<String, ImageEntry> images = new ConcurrentHashMap<>();
+    private final Map<String, AudioEntry> audios = new ConcurrentHashMap<>();
+    // 进行中的上传
+    private final ConcurrentHashMap<String, CompletableFuture<Image>> pendingImages = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Audio>> pendingAudios = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final File dataFile;
+    private String saveTaskId;
+
+    // 统计
+    private final AtomicLong imageHits = new AtomicLong(0);
+    private final AtomicLong imageUploads = new AtomicLong(0);
+    private final AtomicLong audioHits = new AtomicLong(0);
+    private final AtomicLong audioUploads = new AtomicLong(0);
+    private final AtomicLong staleEntries = new AtomicLong(0);
+    private final AtomicLong sharedUploads = new AtomicLong(0);
+
+    private static final class ImageEntry {
+        final String imageId;
+        volatile long verifiedAt;
+
+        ImageEntry(String imageId, long verifiedAt) {
+            this.imageId = imageId;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    private static final class AudioEntry {
+        final String filename;
+        final byte[] fileMd5;
+        final long fileSize;
+        final int codec;
+        final byte[] extraData;
+        final long uploadedAt;
+
+        AudioEntry(String filename, byte[] fileMd5, long fileSize, int codec, byte[] extraData, long uploadedAt) {
+            this.filename = filename;
+            this.fileMd5 = fileMd5;
+            this.fileSize = fileSize;
+            this.codec = codec;
+            this.extraData = extraData;
+            this.uploadedAt = uploadedAt;
+        }
+    }
+
+    private MediaUploadCache() {
+        this.dataFile = resolveDataFile();
+        load();
+        this.saveTaskId = UnifiedSchedulerManager.getInstance().scheduleCleanupTask(
+                this::saveIfDirty, SAVE_INTERVAL_MS, SAVE_INTERVAL_MS);
+    }
+
+    public static MediaUploadCache getInstance() {
+        if (instance == null) {
+            synchronized (MediaUploadCache.class) {
+                if (instance == null) {
+                    instance = new MediaUploadCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 上传图片，内容相同且该Bot已上传过时直接复用
+     *
+     * @param contact 上传目标
+     * @param resource 图片资源（由调用方关闭）
+     * @return 图片消息
+     */
+    public Image uploadImage(Contact contact, ExternalResource resource) {
+        Bot bot = contact.getBot();
+        String key = key(bot, resource);
+        ImageEntry entry = images.get(key);
+
+        if (entry != null) {
+            Image cached = Image.fromId(entry.imageId);
+            long now = System.currentTimeMillis();
+            if (now - entry.verifiedAt < VERIFY_INTERVAL_MS) {
+                imageHits.incrementAndGet();
+                return cached;
+            }
+            try {
+                if (Image.isUploaded(cached, bot)) {
+                    entry.verifiedAt = now;
+                    dirty.set(true);
+                    imageHits.incrementAndGet();
+                    return cached;
+                }
+            } catch (Exception e) {
+                // 确认失败时按未上传处理
+            }
+            staleEntries.incrementAndGet();
+            images.remove(key, entry);
+        }
+
+        return uploadOnce(pendingImages, key, () -> {
+            Image image = contact.uploadImage(resource);
+            imageUploads.incrementAndGet();
+            images.put(key, new ImageEntry(image.getImageId(), System.currentTimeMillis()));
+            dirty.set(true);
+            return image;
+        });
+    }
+
+    /**
+     * 上传语音，内容相同且该Bot近期已上传过时直接复用
+     *
+     * @param group 上传目标
+     * @param resource 语音资源（由调用方关闭）
+     * @return 语音消息
+     */
+    public Audio uploadAudio(Group group, ExternalResource resource) {
+        String key = key(group.getBot(), resource);
+        AudioEntry entry = audios.get(key);
+
+        if (entry != null) {
+            if (System.currentTimeMillis() - entry.uploadedAt < AUDIO_TTL_MS) {
+                try {
+                    OfflineAudio cached = OfflineAudio.Factory.INSTANCE.create(entry.filename, entry.fileMd5,
+                            entry.fileSize, AudioCodec.fromId(entry.codec), entry.extraData);
+                    audioHits.incrementAndGet();
+                    return cached;
+                } catch (Exception e) {
+                    // 记录无法重建时重新上传
+                }
+            }
+            staleEntries.incrementAndGet();
+            audios.remove(key, entry);
+        }
+
+        return uploadOnce(pendingAudios, key, () -> {
+            OfflineAudio audio = group.uploadAudio(resource);
+            audioUploads.incrementAndGet();
+            audios.put(key, new AudioEntry(audio.getFilename(), audio.getFileMd5(), audio.getFileSize(),
+                    audio.getCodec().getId(), audio.getExtraData(), System.currentTimeMillis()));
+            dirty.set(true);
+            return audio;
+        });
+    }
+
+    /**
+     * 相同内容同时只上传一次
+     * 第一个线程执行上传，其余线程等待同一个结果；失败时所有等待者都收到同一个异常，且不保留失败结果
+     */
+    private <T> T uploadOnce(ConcurrentHashMap<String, CompletableFuture<T>> pending, String key, Supplier<T> upload) {
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> existing = pending.putIfAbsent(key, created);
+
+        if (existing == null) {
+            // 当前线程负责上传，结果写入缓存后再移除进行中的记录
+            try {
+                T result = upload.get();
+                created.complete(result);
+                return result;
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                pending.remove(key, created);
+            }
+        }
+
+        sharedUploads.incrementAndGet();
+        try {
+            return existing.get(UPLOAD_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待媒体上传被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("等待媒体上传超时");
+        }
+    }
+
+    private static String key(Bot bot, ExternalResource resource) {
+        return bot.getId() + ":" + toHex(resource.getMd5());
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("媒体上传缓存 - 图片: 复用%d/上传%d, 语音: 复用%d/上传%d, 合并上传: %d, 失效: %d, 记录数: %d/%d",
+                imageHits.get(), imageUploads.get(), audioHits.get(), audioUploads.get(),
+                sharedUploads.get(), staleEntries.get(), images.size(), audios.size());
+    }
+
+    // ==================== 持久化 ====================
+
+    private static File resolveDataFile() {
+        try {
+            return Newboy.INSTANCE.resolveDataFile(DATA_FILE_NAME);
+        } catch (Exception e) {
+            return new File(System.getProperty("java.io.tmpdir"), DATA_FILE_NAME);
+        }
+    }
+
+    private void load() {
+        if (dataFile == null || !dataFile.exists()) {
+            return;
+        }
+        try {
+            JSONObject root = JSONUtil.parseObj(FileUtil.readString(dataFile, StandardCharsets.UTF_8));
+            JSONObject imageData = root.getJSONObject("images");
+            if (imageData != null) {
+                for (String key : imageData.keySet()) {
+                    JSONObject o = imageData.getJSONObject(key);
+                    images.put(key, new ImageEntry(o.getStr("imageId"), o.getLong("verifiedAt", 0L)));
+                }
+            }
+            long now = System.currentTimeMillis();
+            JSONObject audioData = root.getJSONObject("audios");
+            if (audioData != null) {
+                for (String key : audioData.keySet()) {
+                    JSONObject o = audioData.getJSONObject(key);
+                    long uploadedAt = o.getLong("uploadedAt", 0L);
+                    if (now - uploadedAt >= AUDIO_TTL_MS) {
+                        continue;
+                    }
+                    String extra = o.getStr("extraData");
+                    audios.put(key, new AudioEntry(o.getStr("filename"),
+                            Base64.getDecoder().decode(o.getStr("fileMd5")), o.getLong("fileSize", 0L),
+                            o.getInt("codec", 0), extra == null ? null : Base64.getDecoder().decode(extra), uploadedAt));
+                }
+            }
+        } catch (Exception e) {
+            // 静默处理损坏的缓存文件，重新开始记录
+            images.clear();
+            audios.clear();
+        }
+    }
+
+    private void saveIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            save();
+        }
+    }
+
+    /**
+     * 写盘，超过上限时先淘汰最久未确认的图片和最早上传的语音
+     */
+    public synchronized void save() {
+        if (dataFile == null) {
+            return;
+        }
+        trim();
+        try {
+            JSONObject imageData = new JSONObject();
+            for (Map.Entry<String, ImageEntry> e : images.entrySet()) {
+                imageData.set(e.getKey(), new JSONObject()
+                        .set("imageId", e.getValue().imageId)
+                        .set("verifiedAt", e.getValue().verifiedAt));
+            }
+            JSONObject audioData = new JSONObject();
+            for (Map.Entry<String, AudioEntry> e : audios.entrySet()) {
+                AudioEntry a = e.getValue();
+                audioData.set(e.getKey(), new JSONObject()
+                        .set("filename", a.filename)
+                        .set("fileMd5", Base64.getEncoder().encodeToString(a.fileMd5))
+                        .set("fileSize", a.fileSize)
+                        .set("codec", a.codec)
+                        .set("extraData", a.extraData == null ? null : Base64.getEncoder().encodeToString(a.extraData))
+                        .set("uploadedAt", a.uploadedAt));
+            }
+            JSONObject root = new JSONObject().set("images", imageData).set("audios", audioData);
+
+            // 先写临时文件再替换，避免写到一半时插件被关闭导致文件损坏
+            File temp = new File(dataFile.getPath() + ".tmp");
+            FileUtil.writeString(root.toString(), temp, StandardCharsets.UTF_8);
+            FileUtil.move(temp, dataFile, true);
+        } catch (Exception e) {
+            dirty.set(true);
+            Newboy.INSTANCE.getLogger().warning("媒体上传缓存写盘失败: " + e.getMessage());
+        }
+    }
+
+    private void trim() {
+        if (images.size() > MAX_ENTRIES) {
+            List<Map.Entry<String, ImageEntry>> entries = new ArrayList<>(images.entrySet());
+            entries.sort((a, b) -> Long.compare(a.getValue().verifiedAt, b.getValue().verifiedAt));
+            for (int i = 0; i < entries.size() - MAX_ENTRIES; i++) {
+                images.remove(entries.get(i).getKey());
+            }
+        }
+        long now = System.currentTimeMillis();
+        audios.entrySet().removeIf(e -> now - e.getValue().uploadedAt >= AUDIO_TTL_MS);
+        if (audios.size() > MAX_ENTRIES) {
+            List<Map.Entry<String, AudioEntry>> entries = new ArrayList<>(audios.entrySet());
+            entries.sort((a, b) -> Long.compare(a.getValue().uploadedAt, b.getValue().uploadedAt));
+            for (int i = 0; i < entries.size() - MAX_ENTRIES; i++) {
+                audios.remove(entries.get(i).getKey());
+            }
+        }
+    }
+
+    /**
+     * 关闭时写盘并取消定时任务
+     */
+    public void shutdown() {
+        if (saveTaskId != null) {
+            UnifiedSchedulerManager.getInstance().cancelTask(saveTaskId);
+            saveTaskId = null;
+        }
+        save();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
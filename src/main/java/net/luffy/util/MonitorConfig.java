@@ -49,6 +49,7 @@ public class MonitorConfig {
     private final boolean adaptiveIntervalEnabled;
     private final long adaptiveIntervalMin;
     private final long adaptiveIntervalMax;
+    private final int adaptiveRequestsPerMinute;
     private final boolean batchQueryEnabled;
     private final int batchQuerySize;
     private final boolean asyncProcessingEnabled;
@@ -104,6 +105,7 @@ public class MonitorConfig {
         adaptiveIntervalEnabled = getBooleanProperty("monitor.adaptive.interval.enabled", true);
         adaptiveIntervalMin = getLongProperty("monitor.adaptive.interval.min", 10000L);
         adaptiveIntervalMax = getLongProperty("monitor.adaptive.interval.max", 120000L);
+        adaptiveRequestsPerMinute = getIntProperty("monitor.adaptive.requests.per.minute", 60);
         batchQueryEnabled = getBooleanProperty("monitor.batch.query.enabled", true);
         batchQuerySize = getIntProperty("monitor.batch.query.size", 5);
         asyncProcessingEnabled = getBooleanProperty("monitor.async.processing.enabled", true);
@@ -234,6 +236,7 @@ public class MonitorConfig {
     public boolean isAdaptiveIntervalEnabled() { return adaptiveIntervalEnabled; }
     public long getAdaptiveIntervalMin() { return adaptiveIntervalMin; }
     public long getAdaptiveIntervalMax() { return adaptiveIntervalMax; }
+    public int getAdaptiveRequestsPerMinute() { return adaptiveRequestsPerMinute; }
     public boolean isBatchQueryEnabled() { return batchQueryEnabled; }
     public boolean isAsyncProcessingEnabled() { return asyncProcessingEnabled; }
     public int getAsyncThreadPoolSize() { return asyncThreadPoolSize; }
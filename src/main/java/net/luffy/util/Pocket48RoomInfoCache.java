@@ -0,0 +1,334 @@
+package net.luffy.util;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import net.luffy.Newboy;
+import net.luffy.model.Pocket48RoomInfo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 口袋48房间信息缓存
+ * 房间名、主播和serverId几乎不会变化，按TTL缓存，接近过期时先返回旧值并在后台刷新；
+ * 加密房间和不存在的房间也会缓存（较短TTL），避免每个周期重复请求；
+ * 鉴权失败、限流等接口错误不写入缓存，继续使用旧值。
+ * 缓存定期写入插件数据目录，重启后直接使用
+ *
+ * 调用方每次得到的是新的副本，修改（如setStarId）不会影响缓存，
+ * 背景图由各副本共享记录，刷新房间信息时保留
+ */
+public class Pocket48RoomInfoCache {
+
+    private static volatile Pocket48RoomInfoCache instance;
+
+    private static final String DATA_FILE_NAME = "pocket48_room_info.json";
+    private static final long ROOM_TTL_MS = 6 * 60 * 60 * 1000L; // 普通房间6小时
+    private static final long LOCKED_TTL_MS = 30 * 60 * 1000L; // 加密房间30分钟
+    private static final long UNKNOWN_TTL_MS = 5 * 60 * 1000L; // 不存在的房间5分钟
+    private static final double REFRESH_AHEAD_RATIO = 0.8; // 超过TTL的80%时后台刷新
+    private static final long SAVE_INTERVAL_MS = 60 * 1000L;
+
+    /**
+     * 从口袋48接口加载房间信息
+     * 返回null表示房间不存在；抛出异常表示网络或接口错误，不写入缓存
+     */
+    public interface Loader {
+        Pocket48RoomInfo load(long roomId) throws Exception;
+    }
+
+    private enum Kind { ROOM, LOCKED, UNKNOWN }
+
+    private static final class Entry {
+        final Kind kind;
+        final String roomName;
+        final String ownerName;
+        final long serverId;
+        final long fetchedAt;
+        final long ttl;
+        final Map<Long, String> bgImgs; // starId -> bgImg，刷新时沿用
+
+        Entry(Kind kind, String roomName, String ownerName, long serverId, long fetchedAt, long ttl,
+              Map<Long, String> bgImgs) {
+            this.kind = kind;
+            this.roomName = roomName;
+            this.ownerName = ownerName;
+            this.serverId = serverId;
+            this.fetchedAt = fetchedAt;
+            this.ttl = ttl;
+            this.bgImgs = bgImgs;
+        }
+
+        long age(long now) {
+            return now - fetchedAt;
+        }
+    }
+
+    private static long ttlOf(Kind kind) {
+        switch (kind) {
+            case ROOM:
+                return ROOM_TTL_MS;
+            case LOCKED:
+                return LOCKED_TTL_MS;
+            default:
+                return UNKNOWN_TTL_MS;
+        }
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final File dataFile;
+    private final LongSupplier clock;
+    private String saveTaskId;
+
+    // 统计
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong negativeHits = new AtomicLong(0);
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong backgroundRefreshes = new AtomicLong(0);
+    private final AtomicLong staleServed = new AtomicLong(0);
+
+    private Pocket48RoomInfoCache() {
+        this(resolveDataFile(), System::currentTimeMillis);
+        this.saveTaskId = UnifiedSchedulerManager.getInstance().scheduleCleanupTask(
+                this::saveIfDirty, SAVE_INTERVAL_MS, SAVE_INTERVAL_MS);
+    }
+
+    Pocket48RoomInfoCache(File dataFile, LongSupplier clock) {
+        this.dataFile = dataFile;
+        this.clock = clock;
+        load();
+    }
+
+    public static Pocket48RoomInfoCache getInstance() {
+        if (instance == null) {
+            synchronized (Pocket48RoomInfoCache.class) {
+                if (instance == null) {
+                    instance = new Pocket48RoomInfoCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取房间信息
+     *
+     * @param roomId 房间ID
+     * @param loader 缓存未命中或过期时的加载方法
+     * @return 房间信息副本，房间不存在时返回null
+     */
+    public Pocket48RoomInfo get(long roomId, Loader loader) {
+        long now = clock.getAsLong();
+        Entry entry = entries.get(roomId);
+
+        if (entry != null) {
+            long age = entry.age(now);
+            if (age < entry.ttl) {
+                if (age > entry.ttl * REFRESH_AHEAD_RATIO) {
+                    refreshAsync(roomId, loader);
+                }
+                if (entry.kind == Kind.UNKNOWN) {
+                    negativeHits.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
+                }
+                return toRoomInfo(roomId, entry);
+            }
+            // 普通房间过期后仍先返回旧值，由后台刷新，避免阻塞发送周期
+            if (entry.kind == Kind.ROOM) {
+                staleServed.incrementAndGet();
+                refreshAsync(roomId, loader);
+                return toRoomInfo(roomId, entry);
+            }
+        }
+
+        try {
+            Entry loaded = loadEntry(roomId, loader);
+            return toRoomInfo(roomId, loaded);
+        } catch (Exception e) {
+            // 网络错误时使用旧值（如果有）
+            return entry == null ? null : toRoomInfo(roomId, entry);
+        }
+    }
+
+    /**
+     * 使单个房间的缓存失效（关注、取消关注或加密房间连接变化时调用）
+     */
+    public void invalidate(long roomId) {
+        if (entries.remove(roomId) != null) {
+            dirty.set(true);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        dirty.set(true);
+    }
+
+    private void refreshAsync(long roomId, Loader loader) {
+        if (!refreshing.add(roomId)) {
+            return;
+        }
+        backgroundRefreshes.incrementAndGet();
+        try {
+            UnifiedSchedulerManager.getInstance().executeTask(() -> {
+                try {
+                    loadEntry(roomId, loader);
+                } catch (Exception e) {
+                    // 静默处理，保留旧值，下次访问时再刷新
+                } finally {
+                    refreshing.remove(roomId);
+                }
+            });
+        } catch (Exception e) {
+            refreshing.remove(roomId);
+        }
+    }
+
+    Entry loadEntry(long roomId, Loader loader) throws Exception {
+        loads.incrementAndGet();
+        Pocket48RoomInfo info = loader.load(roomId);
+        long now = clock.getAsLong();
+        Entry previous = entries.get(roomId);
+        Map<Long, String> bgImgs = previous != null ? previous.bgImgs : new ConcurrentHashMap<>();
+        Entry entry;
+        if (info == null) {
+            if (previous != null && previous.kind == Kind.ROOM) {
+                // 已知房间偶尔查询为"不存在"时不覆盖，保留旧值并在较短时间后重试
+                entry = new Entry(Kind.ROOM, previous.roomName, previous.ownerName, previous.serverId,
+                        now, UNKNOWN_TTL_MS, bgImgs);
+            } else {
+                entry = new Entry(Kind.UNKNOWN, null, null, 0, now, UNKNOWN_TTL_MS, bgImgs);
+            }
+        } else {
+            Kind kind = info instanceof Pocket48RoomInfo.LockedRoomInfo ? Kind.LOCKED : Kind.ROOM;
+            entry = new Entry(kind, info.getRoomName(), info.getOwnerName(), info.getSeverId(),
+                    now, ttlOf(kind), bgImgs);
+        }
+        entries.put(roomId, entry);
+        dirty.set(true);
+        return entry;
+    }
+
+    private static Pocket48RoomInfo toRoomInfo(long roomId, Entry entry) {
+        switch (entry.kind) {
+            case ROOM:
+                return new Pocket48RoomInfo(entry.roomName, entry.ownerName, entry.serverId, roomId)
+                        .setBgImgCache(entry.bgImgs);
+            case LOCKED:
+                return new Pocket48RoomInfo.LockedRoomInfo(entry.ownerName, entry.serverId, roomId)
+                        .setBgImgCache(entry.bgImgs);
+            default:
+                return null;
+        }
+    }
+
+    long getBackgroundRefreshes() {
+        return backgroundRefreshes.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("房间信息缓存 - 命中: %d, 不存在命中: %d, 过期先用: %d, 请求: %d, 后台刷新: %d, 条目: %d",
+                hits.get(), negativeHits.get(), staleServed.get(), loads.get(), backgroundRefreshes.get(), entries.size());
+    }
+
+    // ==================== 持久化 ====================
+
+    private static File resolveDataFile() {
+        try {
+            return Newboy.INSTANCE.resolveDataFile(DATA_FILE_NAME);
+        } catch (Exception e) {
+            return new File(System.getProperty("java.io.tmpdir"), DATA_FILE_NAME);
+        }
+    }
+
+    private void load() {
+        if (dataFile == null || !dataFile.exists()) {
+            return;
+        }
+        try {
+            JSONObject root = JSONUtil.parseObj(FileUtil.readString(dataFile, StandardCharsets.UTF_8));
+            for (String key : root.keySet()) {
+                JSONObject o = root.getJSONObject(key);
+                Kind kind = Kind.valueOf(o.getStr("kind"));
+                // 不存在的房间不跨重启保留
+                if (kind == Kind.UNKNOWN) {
+                    continue;
+                }
+                Map<Long, String> bgImgs = new ConcurrentHashMap<>();
+                JSONObject savedBgImgs = o.getJSONObject("bgImgs");
+                if (savedBgImgs != null) {
+                    for (String starId : savedBgImgs.keySet()) {
+                        bgImgs.put(Long.parseLong(starId), savedBgImgs.getStr(starId));
+                    }
+                }
+                entries.put(Long.parseLong(key), new Entry(kind, o.getStr("roomName"), o.getStr("ownerName"),
+                        o.getLong("serverId", 0L), o.getLong("fetchedAt", 0L), o.getLong("ttl", ttlOf(kind)),
+                        bgImgs));
+            }
+        } catch (Exception e) {
+            // 静默处理损坏的缓存文件，重新开始记录
+            entries.clear();
+        }
+    }
+
+    private void saveIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            save();
+        }
+    }
+
+    public synchronized void save() {
+        if (dataFile == null) {
+            return;
+        }
+        try {
+            JSONObject root = new JSONObject();
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.kind == Kind.UNKNOWN) {
+                    continue;
+                }
+                root.set(String.valueOf(e.getKey()), new JSONObject()
+                        .set("kind", entry.kind.name())
+                        .set("roomName", entry.roomName)
+                        .set("ownerName", entry.ownerName)
+                        .set("serverId", entry.serverId)
+                        .set("fetchedAt", entry.fetchedAt)
+                        .set("ttl", entry.ttl)
+                        .set("bgImgs", new JSONObject(entry.bgImgs)));
+            }
+
+            // 先写临时文件再替换，避免写到一半时插件被关闭导致文件损坏
+            File temp = new File(dataFile.getPath() + ".tmp");
+            FileUtil.writeString(root.toString(), temp, StandardCharsets.UTF_8);
+            FileUtil.move(temp, dataFile, true);
+        } catch (Exception e) {
+            dirty.set(true);
+            Newboy.INSTANCE.getLogger().warning("房间信息缓存写盘失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭时写盘并取消定时任务
+     */
+    public void shutdown() {
+        if (saveTaskId != null) {
+            UnifiedSchedulerManager.getInstance().cancelTask(saveTaskId);
+            saveTaskId = null;
+        }
+        save();
+    }
+}
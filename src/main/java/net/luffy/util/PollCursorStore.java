@@ -0,0 +1,311 @@
+package net.luffy.util;
+
+import cn.hutool.core.io.FileUtil;
+import net.luffy.Newboy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 轮询游标存储
+ * 各监控（口袋48房间与群游标、语音状态、微店订单、微博、抖音）把"已处理到哪里"写到这里，
+ * 重启后从上次的位置继续，而不是从当前时间重新开始（丢消息）或从头开始（刷屏、请求风暴）
+ *
+ * 存储格式为追加写入的日志文件，每次变化追加一行（key=value，删除为-key），
+ * 写入先进入缓冲区，由定时任务批量写盘并fsync；日志过长时重写为快照
+ *
+ * 重启追补的限制：
+ * - 停机超过CATCH_UP_WINDOW_MS时不恢复任何游标，按首次启动处理
+ * - 时间游标最多回退到CATCH_UP_WINDOW_MS之前
+ * - 每个恢复的游标第一次追补最多CATCH_UP_MAX_ITEMS条（保留最新的）
+ * - 追补阶段额外的翻页请求受每分钟次数限制
+ */
+public class PollCursorStore {
+
+    private static volatile PollCursorStore instance;
+
+    private static final String DATA_FILE_NAME = "poll_cursors.log";
+    private static final long FLUSH_INTERVAL_MS = 5000; // 批量写盘间隔
+    private static final int COMPACT_THRESHOLD = 5000; // 日志行数超过该值（且超过条目数的4倍）时重写
+    private static final long HEARTBEAT_INTERVAL_MS = 60 * 1000L; // 游标长时间无变化时也定期记录写盘时间
+    private static final String SAVED_AT_KEY = "_savedAt";
+    public static final long CATCH_UP_WINDOW_MS = 2 * 60 * 60 * 1000L; // 最多追补2小时
+    public static final long CATCH_UP_PHASE_MS = 10 * 60 * 1000L; // 启动后10分钟内视为追补阶段
+    public static final int CATCH_UP_MAX_ITEMS = 10;
+    private static final int CATCH_UP_PAGES_PER_MINUTE = 30;
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    // 已恢复但还未追补过的游标
+    private final Set<String> replaying = ConcurrentHashMap.newKeySet();
+    private final StringBuilder journal = new StringBuilder();
+    private final File dataFile;
+    private final long startedAt = System.currentTimeMillis();
+    // 上次停机前最后一次写盘的时间，0表示没有历史数据
+    private long lastWrittenAt;
+    private long lastHeartbeat;
+    private int journalLines;
+    private String flushTaskId;
+
+    // 追补翻页令牌桶
+    private double pageTokens = CATCH_UP_PAGES_PER_MINUTE;
+    private long lastRefill = System.currentTimeMillis();
+
+    // 统计
+    private final AtomicLong restored = new AtomicLong(0);
+    private final AtomicLong trimmed = new AtomicLong(0);
+    private final AtomicLong flushes = new AtomicLong(0);
+    private final AtomicLong throttledPages = new AtomicLong(0);
+
+    private PollCursorStore() {
+        this(resolveDataFile());
+        this.flushTaskId = UnifiedSchedulerManager.getInstance().scheduleCleanupTask(
+                this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS);
+    }
+
+    PollCursorStore(File dataFile) {
+        this.dataFile = dataFile;
+        load();
+    }
+
+    public static PollCursorStore getInstance() {
+        if (instance == null) {
+            synchronized (PollCursorStore.class) {
+                if (instance == null) {
+                    instance = new PollCursorStore();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // ==================== 读写 ====================
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public Long getLong(String key) {
+        String value = values.get(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 记录游标，值未变化时不写日志
+     * 内存中的值和日志在同一把锁内更新，保证日志顺序与最终的值一致
+     */
+    public synchronized void put(String key, String value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        String previous = values.put(key, value);
+        if (!value.equals(previous)) {
+            append(key + "=" + value);
+        }
+    }
+
+    public void putLong(String key, long value) {
+        put(key, String.valueOf(value));
+    }
+
+    public synchronized void remove(String key) {
+        replaying.remove(key);
+        if (values.remove(key) != null) {
+            append("-" + key);
+        }
+    }
+
+    // ==================== 重启追补 ====================
+
+    /**
+     * 恢复上次停机前的游标
+     *
+     * @return 游标值；没有记录或停机时间超过追补窗口时返回null
+     */
+    public String restore(String key) {
+        if (lastWrittenAt == 0 || startedAt - lastWrittenAt > CATCH_UP_WINDOW_MS) {
+            return null;
+        }
+        String value = values.get(key);
+        if (value != null && replaying.add(key)) {
+            restored.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 恢复时间游标（13位时间戳），最多回退到追补窗口的起点
+     */
+    public Long restoreTime(String key) {
+        String value = restore(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Math.max(Long.parseLong(value), System.currentTimeMillis() - CATCH_UP_WINDOW_MS);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 游标恢复后的第一次追补：返回true时调用方应只保留最新的CATCH_UP_MAX_ITEMS条
+     */
+    public boolean consumeReplay(String key) {
+        return replaying.remove(key);
+    }
+
+    /**
+     * 按追补上限截取（数组按时间倒序，保留前面最新的部分）
+     */
+    public <T> T[] trimReplay(String key, T[] items) {
+        if (consumeReplay(key) && items.length > CATCH_UP_MAX_ITEMS) {
+            trimmed.addAndGet(items.length - CATCH_UP_MAX_ITEMS);
+            return Arrays.copyOf(items, CATCH_UP_MAX_ITEMS);
+        }
+        return items;
+    }
+
+    public boolean inCatchUp() {
+        return System.currentTimeMillis() - startedAt < CATCH_UP_PHASE_MS;
+    }
+
+    /**
+     * 追补阶段额外翻页前申请令牌，令牌不足时本次不再翻页
+     */
+    public synchronized boolean tryAcquireCatchUpPage() {
+        long now = System.currentTimeMillis();
+        pageTokens = Math.min(CATCH_UP_PAGES_PER_MINUTE,
+                pageTokens + (now - lastRefill) * CATCH_UP_PAGES_PER_MINUTE / 60000.0);
+        lastRefill = now;
+        if (pageTokens >= 1) {
+            pageTokens -= 1;
+            return true;
+        }
+        throttledPages.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("轮询游标 - 条目: %d, 已恢复: %d, 追补截断: %d, 追补限流: %d, 写盘: %d, 追补阶段: %s",
+                values.size(), restored.get(), trimmed.get(), throttledPages.get(), flushes.get(),
+                inCatchUp() ? "是" : "否");
+    }
+
+    // ==================== 持久化 ====================
+
+    private static File resolveDataFile() {
+        try {
+            return Newboy.INSTANCE.resolveDataFile(DATA_FILE_NAME);
+        } catch (Exception e) {
+            return new File(System.getProperty("java.io.tmpdir"), DATA_FILE_NAME);
+        }
+    }
+
+    private void load() {
+        if (dataFile == null || !dataFile.exists()) {
+            return;
+        }
+        try {
+            for (String line : FileUtil.readLines(dataFile, StandardCharsets.UTF_8)) {
+                journalLines++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.charAt(0) == '-') {
+                    values.remove(line.substring(1));
+                    continue;
+                }
+                int eq = line.indexOf('=');
+                if (eq > 0) {
+                    values.put(line.substring(0, eq), line.substring(eq + 1));
+                }
+            }
+            Long savedAt = getLong(SAVED_AT_KEY);
+            lastWrittenAt = savedAt != null ? savedAt : dataFile.lastModified();
+        } catch (Exception e) {
+            // 静默处理损坏的游标文件，按首次启动处理
+            values.clear();
+        }
+    }
+
+    private synchronized void append(String line) {
+        journal.append(line).append('\n');
+        journalLines++;
+    }
+
+    /**
+     * 把缓冲的变化追加到日志并fsync，日志过长时重写为快照
+     */
+    public synchronized void flush() {
+        if (dataFile == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastHeartbeat >= HEARTBEAT_INTERVAL_MS) {
+            lastHeartbeat = now;
+            putLong(SAVED_AT_KEY, now);
+        }
+        if (journal.length() == 0) {
+            return;
+        }
+        try {
+            if (journalLines > Math.max(COMPACT_THRESHOLD, values.size() * 4)) {
+                compact();
+            } else {
+                try (FileOutputStream out = new FileOutputStream(dataFile, true)) {
+                    out.write(journal.toString().getBytes(StandardCharsets.UTF_8));
+                    out.getChannel().force(false);
+                }
+            }
+            journal.setLength(0);
+            flushes.incrementAndGet();
+        } catch (IOException e) {
+            // 保留缓冲区，下次再写
+            Newboy.INSTANCE.getLogger().warning("轮询游标写盘失败: " + e.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        StringBuilder snapshot = new StringBuilder();
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            snapshot.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        // 先写临时文件再替换，避免写到一半时插件被关闭导致文件损坏
+        File temp = new File(dataFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp, false)) {
+            out.write(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+        FileUtil.move(temp, dataFile, true);
+        journalLines = values.size();
+    }
+
+    /**
+     * 关闭时写盘并取消定时任务
+     */
+    public void shutdown() {
+        if (flushTaskId != null) {
+            UnifiedSchedulerManager.getInstance().cancelTask(flushTaskId);
+            flushTaskId = null;
+        }
+        flush();
+    }
+}
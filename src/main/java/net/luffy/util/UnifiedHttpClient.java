@@ -3,6 +3,16 @@ package net.luffy.util;
 import okhttp3.*;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -13,12 +23,36 @@ import java.util.concurrent.atomic.AtomicLong;
  * 统一HTTP客户端
  * 基于OkHttp实现，提供同步和异步请求功能
  * 支持连接池管理、重试机制、性能监控
+ * 
+ * 请求按主机名分配到各平台通道（HttpHostLane），每条通道有独立的调度器、连接池、
+ * 令牌桶限流和延迟直方图，某个平台变慢或被限流时不会拖累口袋48轮询；
+ * 不属于任何通道的主机使用基础客户端
+ * 
+ * 相同请求（方法+URL+请求体哈希）的并发调用可以通过*Shared方法合并为一次实际请求，
+ * 可选的新鲜窗口内直接复用上一次的结果
+ * 
+ * 轮询接口使用poll/pollPost：按轮询键记录ETag/Last-Modified和响应体哈希，
+ * 服务端返回304或响应体与上次确认的一致时直接返回"未变化"，调用方无需解析
  */
 public class UnifiedHttpClient {
     
     private static volatile UnifiedHttpClient instance;
     private final OkHttpClient client;
     private final Executor asyncExecutor;
+    private final List<HttpHostLane> lanes = new ArrayList<>();
+    
+    // 请求合并：进行中的请求与新鲜窗口内的结果
+    private static final int MAX_FRESH_ENTRIES = 512;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FreshResult> freshResults = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRequests = new AtomicLong(0);
+    private final AtomicLong freshHits = new AtomicLong(0);
+    
+    // 轮询状态：每个轮询键上次确认的验证器与响应体哈希
+    private final ConcurrentHashMap<String, PollState> pollStates = new ConcurrentHashMap<>();
+    private final AtomicLong pollCount = new AtomicLong(0);
+    private final AtomicLong pollNotModified = new AtomicLong(0);
+    private final AtomicLong pollSameBody = new AtomicLong(0);
     
     // 性能统计 - 使用AtomicLong确保线程安全
     private final AtomicLong totalRequests = new AtomicLong(0);
@@ -28,6 +62,7 @@ public class UnifiedHttpClient {
     
     private UnifiedHttpClient() {
         this.client = createOptimizedClient();
+        createHostLanes();
         this.asyncExecutor = Executors.newCachedThreadPool(r -> {
             Thread t = new Thread(r, "UnifiedHttpClient-Async");
             t.setDaemon(true);
@@ -65,6 +100,58 @@ public class UnifiedHttpClient {
                 .build();
     }
     
+    /**
+     * 创建各平台通道
+     * 参数依次为：异步总并发、单主机异步并发、空闲连接数、每秒请求数、突发容量
+     */
+    private void createHostLanes() {
+        // 口袋48接口：轮询热路径，并发和速率给足
+        lanes.add(new HttpHostLane("pocket48", client, 64, 32, 16, 20, 40, "pocketapi.48.cn"));
+        // 口袋48媒体下载：大文件，与接口分开，避免下载占满接口连接
+        lanes.add(new HttpHostLane("pocket48-media", client, 16, 8, 8, 10, 20, "source.48.cn", "mp4.48.cn"));
+        lanes.add(new HttpHostLane("weibo", client, 8, 4, 4, 2, 5, "weibo.cn", "weibo.com", "sinaimg.cn"));
+        lanes.add(new HttpHostLane("douyin", client, 4, 2, 4, 1, 3, "douyin.com", "bytedance.com"));
+        lanes.add(new HttpHostLane("weidian", client, 8, 4, 4, 5, 10, "weidian.com"));
+        lanes.add(new HttpHostLane("xox48", client, 8, 4, 4, 5, 10, "xox48.top"));
+    }
+    
+    /**
+     * 根据请求主机选择通道，不属于任何通道时返回null（使用基础客户端，不限流）
+     */
+    private HttpHostLane laneFor(HttpUrl url) {
+        String host = url.host();
+        for (HttpHostLane lane : lanes) {
+            if (lane.matches(host)) {
+                return lane;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 同步执行：在调用线程上限流等待后发出请求
+     */
+    private Response execute(Request request) throws IOException {
+        HttpHostLane lane = laneFor(request.url());
+        if (lane == null) {
+            return client.newCall(request).execute();
+        }
+        lane.throttle();
+        return lane.getClient().newCall(request).execute();
+    }
+    
+    /**
+     * 异步执行：令牌不足时延迟入队，不占用调度器线程等待
+     */
+    private void dispatch(Request request, Callback callback) {
+        HttpHostLane lane = laneFor(request.url());
+        if (lane == null) {
+            client.newCall(request).enqueue(callback);
+        } else {
+            lane.enqueue(request, callback);
+        }
+    }
+    
     /**
      * 同步GET请求
      */
@@ -77,7 +164,7 @@ public class UnifiedHttpClient {
                 .addHeader("Connection", "keep-alive")
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = execute(request)) {
             if (!response.isSuccessful()) {
                 throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
             }
@@ -107,7 +194,7 @@ public class UnifiedHttpClient {
         
         Request request = builder.build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = execute(request)) {
             if (!response.isSuccessful()) {
                 throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
             }
@@ -129,7 +216,7 @@ public class UnifiedHttpClient {
                 .addHeader("Content-Type", "application/json")
                 .build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = execute(request)) {
             if (!response.isSuccessful()) {
                 throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
             }
@@ -166,7 +253,7 @@ public class UnifiedHttpClient {
         
         Request request = builder.build();
         
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = execute(request)) {
             if (!response.isSuccessful()) {
                 throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
             }
@@ -187,7 +274,7 @@ public class UnifiedHttpClient {
                 .addHeader("Accept", "application/json, text/plain, */*")
                 .build();
         
-        client.newCall(request).enqueue(new Callback() {
+        dispatch(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -234,7 +321,7 @@ public class UnifiedHttpClient {
         
         Request request = builder.build();
         
-        client.newCall(request).enqueue(new Callback() {
+        dispatch(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -275,7 +362,7 @@ public class UnifiedHttpClient {
                 .addHeader("Content-Type", "application/json")
                 .build();
         
-        client.newCall(request).enqueue(new Callback() {
+        dispatch(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -326,7 +413,7 @@ public class UnifiedHttpClient {
         
         Request request = builder.build();
         
-        client.newCall(request).enqueue(new Callback() {
+        dispatch(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 future.completeExceptionally(e);
@@ -353,6 +440,461 @@ public class UnifiedHttpClient {
         return future;
     }
     
+    /**
+     * 响应体处理器
+     * 直接读取响应体字节流（不先转成String），处理器返回后响应即被关闭。
+     * 处理器可以只读取需要的部分后提前返回；HTTP/1.1下未读完的连接不会被复用，
+     * 因此只有在剩余内容明显大于一次建连开销时才值得提前结束
+     */
+    @FunctionalInterface
+    public interface BodyHandler<T> {
+        T handle(InputStream body) throws IOException;
+    }
+    
+    /**
+     * 把响应体直接解码为类型化对象的处理器
+     */
+    public static <T> BodyHandler<T> jsonBody(Class<T> type) {
+        return in -> UnifiedJsonParser.getInstance().decode(in, type);
+    }
+    
+    /**
+     * 同步GET请求，响应体交给处理器流式读取
+     */
+    public <T> T get(String url, java.util.Map<String, String> headers, BodyHandler<T> handler) throws IOException {
+        return execute(buildGetRequest(url, headers), handler);
+    }
+    
+    /**
+     * 同步POST请求，响应体交给处理器流式读取
+     */
+    public <T> T post(String url, String body, java.util.Map<String, String> headers, BodyHandler<T> handler) throws IOException {
+        return execute(buildPostRequest(url, body, headers), handler);
+    }
+    
+    /**
+     * 异步GET请求，响应体在OkHttp回调线程上交给处理器流式读取
+     */
+    public <T> CompletableFuture<T> getAsync(String url, java.util.Map<String, String> headers, BodyHandler<T> handler) {
+        return enqueue(buildGetRequest(url, headers), handler);
+    }
+    
+    /**
+     * 异步POST请求，响应体在OkHttp回调线程上交给处理器流式读取
+     */
+    public <T> CompletableFuture<T> postAsync(String url, String body, java.util.Map<String, String> headers, BodyHandler<T> handler) {
+        return enqueue(buildPostRequest(url, body, headers), handler);
+    }
+    
+    /**
+     * 同步GET请求，返回原始字节（避免二进制或非UTF-8内容经过String中转）
+     */
+    public byte[] getBytes(String url, java.util.Map<String, String> headers) throws IOException {
+        return get(url, headers, InputStream::readAllBytes);
+    }
+    
+    private Request buildGetRequest(String url, java.util.Map<String, String> headers) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36")
+                .addHeader("Accept", "application/json, text/plain, */*");
+        addHeaders(builder, headers);
+        return builder.build();
+    }
+    
+    private Request buildPostRequest(String url, String body, java.util.Map<String, String> headers) {
+        // 根据Content-Type决定MediaType
+        String contentType = "application/json; charset=utf-8";
+        if (headers != null && headers.containsKey("Content-Type")) {
+            contentType = headers.get("Content-Type");
+        }
+        
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(body, MediaType.get(contentType)))
+                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36")
+                .addHeader("Accept", "application/json, text/plain, */*");
+        addHeaders(builder, headers);
+        return builder.build();
+    }
+    
+    private void addHeaders(Request.Builder builder, java.util.Map<String, String> headers) {
+        if (headers != null) {
+            for (java.util.Map.Entry<String, String> header : headers.entrySet()) {
+                builder.addHeader(header.getKey(), header.getValue());
+            }
+        }
+    }
+    
+    private <T> T execute(Request request, BodyHandler<T> handler) throws IOException {
+        try (Response response = execute(request)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                throw new IOException("响应体为空");
+            }
+            return handler.handle(body.byteStream());
+        }
+    }
+    
+    private <T> CompletableFuture<T> enqueue(Request request, BodyHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        
+        dispatch(request, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (!r.isSuccessful()) {
+                        future.completeExceptionally(new IOException("HTTP请求失败: " + r.code()));
+                        return;
+                    }
+                    ResponseBody body = r.body();
+                    if (body == null) {
+                        future.completeExceptionally(new IOException("响应体为空"));
+                        return;
+                    }
+                    future.complete(handler.handle(body.byteStream()));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        
+        return future;
+    }
+    
+    /**
+     * 实际发出请求的调用
+     */
+    @FunctionalInterface
+    public interface HttpCall {
+        String execute() throws IOException;
+    }
+    
+    /**
+     * 合并的同步GET请求
+     * 
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求、不复用已完成的结果
+     */
+    public String getShared(String url, java.util.Map<String, String> headers, long freshMs) throws IOException {
+        return singleFlight("GET", url, null, freshMs, () -> get(url, headers));
+    }
+    
+    /**
+     * 合并的同步POST请求
+     * 
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求、不复用已完成的结果
+     */
+    public String postShared(String url, String body, java.util.Map<String, String> headers, long freshMs) throws IOException {
+        return singleFlight("POST", url, body, freshMs, () -> post(url, body, headers));
+    }
+    
+    /**
+     * 合并的异步POST请求，返回的Future彼此独立，取消或完成其中一个不影响其他调用方
+     * 
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求、不复用已完成的结果
+     */
+    public CompletableFuture<String> postAsyncShared(String url, String body, java.util.Map<String, String> headers, long freshMs) {
+        String key = requestKey("POST", url, body);
+        String cached = freshResult(key, freshMs);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            return existing.copy();
+        }
+        
+        postAsync(url, body, headers).whenComplete((result, throwable) -> {
+            if (throwable == null && freshMs > 0) {
+                putFreshResult(key, result, freshMs);
+            }
+            inFlight.remove(key, created);
+            if (throwable != null) {
+                created.completeExceptionally(throwable);
+            } else {
+                created.complete(result);
+            }
+        });
+        return created.copy();
+    }
+    
+    /**
+     * 请求合并：同一个键同时只有一个调用真正执行，其余调用等待并共享结果
+     * 调用方需保证同一键下的请求头等价（同一账号、同一令牌）
+     * 
+     * @param method 请求方法
+     * @param url 请求地址
+     * @param body 请求体，可为null
+     * @param freshMs 新鲜窗口（毫秒），0表示只合并并发请求
+     * @param call 实际请求（可以自带重试）
+     */
+    public String singleFlight(String method, String url, String body, long freshMs, HttpCall call) throws IOException {
+        String key = requestKey(method, url, body);
+        String cached = freshResult(key, freshMs);
+        if (cached != null) {
+            return cached;
+        }
+        
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            return awaitShared(existing);
+        }
+        
+        try {
+            String result = call.execute();
+            if (freshMs > 0) {
+                putFreshResult(key, result, freshMs);
+            }
+            created.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+    
+    private String awaitShared(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待合并请求被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("合并请求失败: " + cause, cause);
+        }
+    }
+    
+    private String freshResult(String key, long freshMs) {
+        if (freshMs <= 0) {
+            return null;
+        }
+        FreshResult entry = freshResults.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            freshResults.remove(key, entry);
+            return null;
+        }
+        freshHits.incrementAndGet();
+        return entry.value;
+    }
+    
+    private void putFreshResult(String key, String value, long freshMs) {
+        long now = System.currentTimeMillis();
+        if (freshResults.size() >= MAX_FRESH_ENTRIES) {
+            // 先清理过期结果，仍然过多时放弃缓存本次结果
+            Iterator<Map.Entry<String, FreshResult>> it = freshResults.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().expiresAt < now) {
+                    it.remove();
+                }
+            }
+            if (freshResults.size() >= MAX_FRESH_ENTRIES) {
+                return;
+            }
+        }
+        freshResults.put(key, new FreshResult(value, now + freshMs));
+    }
+    
+    /**
+     * 合并键：方法 + URL + 请求体SHA-256（避免把大请求体直接作为键）
+     */
+    private static String requestKey(String method, String url, String body) {
+        if (body == null || body.isEmpty()) {
+            return method + " " + url;
+        }
+        return method + " " + url + "#" + sha256(body.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // 所有JVM都必须支持SHA-256，不会发生
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static final class FreshResult {
+        final String value;
+        final long expiresAt;
+        
+        FreshResult(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * 轮询GET请求
+     * 带上该轮询键上次确认的ETag/Last-Modified发起条件请求；服务端不支持时比较响应体哈希。
+     * 结果需要调用方在成功处理后commit()，否则下次轮询仍按上次确认的状态比较，
+     * 保证处理失败的内容不会因为"未变化"而被跳过
+     * 
+     * @param pollKey 轮询键（如平台+用户ID），与URL无关，URL中带签名等变化参数时也能比较
+     */
+    public PollResult poll(String pollKey, String url, java.util.Map<String, String> headers) throws IOException {
+        PollState last = pollStates.get(pollKey);
+        Request.Builder builder = buildGetRequest(url, headers).newBuilder();
+        if (last != null) {
+            if (last.etag != null) {
+                builder.header("If-None-Match", last.etag);
+            }
+            if (last.lastModified != null) {
+                builder.header("If-Modified-Since", last.lastModified);
+            }
+        }
+        return executePoll(pollKey, last, builder.build());
+    }
+    
+    /**
+     * 轮询POST请求，只比较响应体哈希（POST接口通常不支持条件请求）
+     */
+    public PollResult pollPost(String pollKey, String url, String body, java.util.Map<String, String> headers) throws IOException {
+        return executePoll(pollKey, pollStates.get(pollKey), buildPostRequest(url, body, headers));
+    }
+    
+    /**
+     * 清除轮询键的状态，下次轮询一定返回"已变化"
+     */
+    public void resetPoll(String pollKey) {
+        pollStates.remove(pollKey);
+    }
+    
+    private PollResult executePoll(String pollKey, PollState last, Request request) throws IOException {
+        pollCount.incrementAndGet();
+        try (Response response = execute(request)) {
+            if (response.code() == 304 && last != null) {
+                pollNotModified.incrementAndGet();
+                return new PollResult(pollKey, null, null, last, last);
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
+            }
+            ResponseBody body = response.body();
+            byte[] bytes = body != null ? body.bytes() : new byte[0];
+            MediaType type = body != null ? body.contentType() : null;
+            Charset charset = type != null ? type.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+            
+            PollState current = new PollState(response.header("ETag"), response.header("Last-Modified"), sha256(bytes), null);
+            if (last != null && last.bodyHash.equals(current.bodyHash)) {
+                pollSameBody.incrementAndGet();
+                return new PollResult(pollKey, null, null, current.withFingerprint(last.fingerprint), last);
+            }
+            return new PollResult(pollKey, bytes, charset, current, last);
+        }
+    }
+    
+    /**
+     * 轮询结果
+     * 响应体中带有每次都变化的字段（时间戳、日志ID等）时，原始哈希无法判断内容是否变化，
+     * 调用方可以在解码后用内容指纹（如作品ID列表）比较：matchesFingerprint判断，commit(fingerprint)确认
+     */
+    public final class PollResult {
+        private final String pollKey;
+        private final byte[] body;
+        private final Charset charset;
+        private final PollState state;
+        private final PollState previous;
+        
+        private PollResult(String pollKey, byte[] body, Charset charset, PollState state, PollState previous) {
+            this.pollKey = pollKey;
+            this.body = body;
+            this.charset = charset;
+            this.state = state;
+            this.previous = previous;
+        }
+        
+        /**
+         * 内容是否与上次确认的不同；未变化时没有响应体
+         */
+        public boolean isChanged() {
+            return body != null;
+        }
+        
+        public byte[] body() {
+            return body;
+        }
+        
+        public String bodyAsString() {
+            return body == null ? null : new String(body, charset);
+        }
+        
+        /**
+         * 直接把响应体解码为类型化对象，未变化或解码失败时返回null
+         */
+        public <T> T decode(Class<T> type) {
+            return body == null ? null : UnifiedJsonParser.getInstance().decode(body, type);
+        }
+        
+        /**
+         * 内容指纹是否与上次确认的相同
+         */
+        public boolean matchesFingerprint(String fingerprint) {
+            return previous != null && fingerprint != null && fingerprint.equals(previous.fingerprint);
+        }
+        
+        /**
+         * 确认本次内容已处理，后续轮询以它为比较基准
+         */
+        public void commit() {
+            pollStates.put(pollKey, state);
+        }
+        
+        /**
+         * 确认本次内容已处理，并记录其内容指纹
+         */
+        public void commit(String fingerprint) {
+            pollStates.put(pollKey, state.withFingerprint(fingerprint));
+        }
+    }
+    
+    private static final class PollState {
+        final String etag;
+        final String lastModified;
+        final String bodyHash;
+        final String fingerprint;
+        
+        PollState(String etag, String lastModified, String bodyHash, String fingerprint) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.bodyHash = bodyHash;
+            this.fingerprint = fingerprint;
+        }
+        
+        PollState withFingerprint(String fingerprint) {
+            return new PollState(etag, lastModified, bodyHash, fingerprint);
+        }
+    }
+    
     /**
      * 获取输入流（用于下载文件等）
      */
@@ -362,7 +904,7 @@ public class UnifiedHttpClient {
                 .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36")
                 .build();
         
-        Response response = client.newCall(request).execute();
+        Response response = execute(request);
         if (!response.isSuccessful()) {
             response.close();
             throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
@@ -393,7 +935,7 @@ public class UnifiedHttpClient {
         }
         
         Request request = builder.build();
-        Response response = client.newCall(request).execute();
+        Response response = execute(request);
         if (!response.isSuccessful()) {
             response.close();
             throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
@@ -426,8 +968,31 @@ public class UnifiedHttpClient {
         long avgResponseTime = total > 0 ? totalTime / total : 0;
         double successRate = total > 0 ? (double) successful / total * 100 : 0;
         
-        return String.format("HTTP性能统计 - 总请求: %d, 成功: %d, 失败: %d, 成功率: %.1f%%, 平均响应时间: %dms",
-                total, successful, failed, successRate, avgResponseTime);
+        return String.format("HTTP性能统计 - 总请求: %d, 成功: %d, 失败: %d, 成功率: %.1f%%, 平均响应时间: %dms, 合并请求: %d, 新鲜窗口命中: %d, 轮询: %d (304: %d, 内容未变: %d)",
+                total, successful, failed, successRate, avgResponseTime, coalescedRequests.get(), freshHits.get(),
+                pollCount.get(), pollNotModified.get(), pollSameBody.get());
+    }
+    
+    /**
+     * 获取各平台通道统计信息（延迟分位数按直方图桶估算）
+     */
+    public String getLaneStats() {
+        StringBuilder sb = new StringBuilder("HTTP通道统计:");
+        for (HttpHostLane lane : lanes) {
+            sb.append("\n").append(lane.getStats());
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 获取各平台通道的延迟直方图
+     */
+    public String getLaneHistograms() {
+        StringBuilder sb = new StringBuilder("HTTP通道延迟分布:");
+        for (HttpHostLane lane : lanes) {
+            sb.append("\n").append(lane.getHistogram());
+        }
+        return sb.toString();
     }
     
     /**
@@ -438,6 +1003,14 @@ public class UnifiedHttpClient {
         successfulRequests.set(0);
         failedRequests.set(0);
         totalResponseTime.set(0);
+        coalescedRequests.set(0);
+        freshHits.set(0);
+        pollCount.set(0);
+        pollNotModified.set(0);
+        pollSameBody.set(0);
+        for (HttpHostLane lane : lanes) {
+            lane.resetStats();
+        }
     }
     
     /**
@@ -625,5 +1198,8 @@ public class UnifiedHttpClient {
             client.dispatcher().executorService().shutdown();
             client.connectionPool().evictAll();
         }
+        for (HttpHostLane lane : lanes) {
+            lane.shutdown();
+        }
     }
 }
\ No newline at end of file
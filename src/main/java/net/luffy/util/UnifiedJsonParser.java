@@ -6,9 +6,15 @@ import cn.hutool.json.JSONUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -16,13 +22,26 @@ import java.util.concurrent.atomic.AtomicLong;
  * 统一JSON解析器
  * 整合Jackson和Hutool，提供高性能JSON解析功能
  * 兼容现有的JSONUtil接口，支持缓存和性能监控
+ * 
+ * 解析缓存为按调用点显式启用（parseObjCached）：
+ * 以完整JSON文本为键（不会因哈希碰撞返回错误结果），按条目数和文本总长度做LRU淘汰，
+ * 缓存的是Jackson树，每次命中都转换出新的JSONObject，调用方之间互不影响
+ * 
+ * 高频响应（抖音作品列表、微博卡片、微店订单、Xox48在线状态等）使用decode直接解码为类型化对象，
+ * 每种类型共享一个ObjectReader，不再先构建Jackson树再整体转换为Hutool JSONObject
  */
 public class UnifiedJsonParser {
     
     private static volatile UnifiedJsonParser instance;
     private final ObjectMapper objectMapper;
-    private final ConcurrentHashMap<String, Object> parseCache;
-    private final int maxCacheSize;
+    private final ParseCache parseCache;
+    private final ConcurrentHashMap<String, CallSiteStats> callSiteStats = new ConcurrentHashMap<>();
+    // 每种目标类型共享一个ObjectReader（线程安全，可复用反序列化器查找结果）
+    private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    
+    // 缓存上限：条目数与文本总长度（字符数）
+    private static final int MAX_CACHE_ENTRIES = 1000;
+    private static final long MAX_CACHE_WEIGHT = 2 * 1024 * 1024;
     
     // 性能统计
     private final AtomicLong totalParseCount = new AtomicLong(0);
@@ -30,11 +49,12 @@ public class UnifiedJsonParser {
     private final AtomicLong jacksonParseCount = new AtomicLong(0);
     private final AtomicLong hutoolParseCount = new AtomicLong(0);
     private final AtomicLong totalParseTime = new AtomicLong(0);
+    private final AtomicLong typedDecodeCount = new AtomicLong(0);
+    private final AtomicLong typedDecodeFailCount = new AtomicLong(0);
     
     private UnifiedJsonParser() {
         this.objectMapper = createOptimizedObjectMapper();
-        this.maxCacheSize = 1000; // 缓存最大1000个解析结果
-        this.parseCache = new ConcurrentHashMap<>(maxCacheSize);
+        this.parseCache = new ParseCache(MAX_CACHE_ENTRIES, MAX_CACHE_WEIGHT);
     }
     
     /**
@@ -65,7 +85,7 @@ public class UnifiedJsonParser {
     
     /**
      * 解析JSON字符串为JSONObject（兼容JSONUtil.parseObj）
-     * 优先使用Jackson，失败时回退到Hutool
+     * 优先使用Jackson，失败时回退到Hutool，不使用缓存
      */
     public JSONObject parseObj(String jsonStr) {
         if (jsonStr == null || jsonStr.trim().isEmpty()) {
@@ -76,39 +96,55 @@ public class UnifiedJsonParser {
         totalParseCount.incrementAndGet();
         
         try {
-            // 检查缓存
-            String cacheKey = "obj_" + jsonStr.hashCode();
-            Object cached = parseCache.get(cacheKey);
-            if (cached instanceof JSONObject) {
-                cacheHitCount.incrementAndGet();
-                return (JSONObject) cached;
+            JsonNode jsonNode = readTree(jsonStr);
+            if (jsonNode != null && jsonNode.isObject()) {
+                jacksonParseCount.incrementAndGet();
+                return convertJsonNodeToJSONObject(jsonNode);
             }
+            // 不是对象或Jackson解析失败，回退到Hutool
+            hutoolParseCount.incrementAndGet();
+            return JSONUtil.parseObj(jsonStr);
             
-            JSONObject result;
-            
-            // 优先使用Jackson解析
-            try {
-                JsonNode jsonNode = objectMapper.readTree(jsonStr);
-                if (jsonNode.isObject()) {
-                    result = convertJsonNodeToJSONObject(jsonNode);
-                    jacksonParseCount.incrementAndGet();
-                } else {
-                    // 不是对象，回退到Hutool
-                    result = JSONUtil.parseObj(jsonStr);
-                    hutoolParseCount.incrementAndGet();
-                }
-            } catch (Exception e) {
-                // Jackson解析失败，回退到Hutool
-                result = JSONUtil.parseObj(jsonStr);
-                hutoolParseCount.incrementAndGet();
+        } finally {
+            long parseTime = System.nanoTime() - startTime;
+            totalParseTime.addAndGet(parseTime);
+        }
+    }
+    
+    /**
+     * 解析JSON字符串为JSONObject，并对该调用点启用解析缓存
+     * 只适合同一内容会被反复解析的场景（如配置、轮询时大多不变的接口响应），每次都不同的API响应不要使用
+     * 
+     * @param callSite 调用点名称，用于统计该调用点的命中率
+     * @param jsonStr JSON字符串
+     * @return 新的JSONObject，修改它不会影响缓存或其他调用方
+     */
+    public JSONObject parseObjCached(String callSite, String jsonStr) {
+        if (jsonStr == null || jsonStr.trim().isEmpty()) {
+            return new JSONObject();
+        }
+        
+        long startTime = System.nanoTime();
+        totalParseCount.incrementAndGet();
+        CallSiteStats stats = callSiteStats.computeIfAbsent(callSite, k -> new CallSiteStats());
+        
+        try {
+            JsonNode cached = parseCache.get(jsonStr);
+            if (cached != null && cached.isObject()) {
+                cacheHitCount.incrementAndGet();
+                stats.hits.incrementAndGet();
+                return convertJsonNodeToJSONObject(cached);
             }
+            stats.misses.incrementAndGet();
             
-            // 缓存结果（如果缓存未满）
-            if (parseCache.size() < maxCacheSize) {
-                parseCache.put(cacheKey, result);
+            JsonNode jsonNode = readTree(jsonStr);
+            if (jsonNode != null && jsonNode.isObject()) {
+                jacksonParseCount.incrementAndGet();
+                parseCache.put(jsonStr, jsonNode);
+                return convertJsonNodeToJSONObject(jsonNode);
             }
-            
-            return result;
+            hutoolParseCount.incrementAndGet();
+            return JSONUtil.parseObj(jsonStr);
             
         } finally {
             long parseTime = System.nanoTime() - startTime;
@@ -118,7 +154,7 @@ public class UnifiedJsonParser {
     
     /**
      * 解析JSON字符串为JSONArray（兼容JSONUtil.parseArray）
-     * 优先使用Jackson，失败时回退到Hutool
+     * 优先使用Jackson，失败时回退到Hutool，不使用缓存
      */
     public JSONArray parseArray(String jsonStr) {
         if (jsonStr == null || jsonStr.trim().isEmpty()) {
@@ -129,39 +165,14 @@ public class UnifiedJsonParser {
         totalParseCount.incrementAndGet();
         
         try {
-            // 检查缓存
-            String cacheKey = "arr_" + jsonStr.hashCode();
-            Object cached = parseCache.get(cacheKey);
-            if (cached instanceof JSONArray) {
-                cacheHitCount.incrementAndGet();
-                return (JSONArray) cached;
+            JsonNode jsonNode = readTree(jsonStr);
+            if (jsonNode != null && jsonNode.isArray()) {
+                jacksonParseCount.incrementAndGet();
+                return convertJsonNodeToJSONArray(jsonNode);
             }
-            
-            JSONArray result;
-            
-            // 优先使用Jackson解析
-            try {
-                JsonNode jsonNode = objectMapper.readTree(jsonStr);
-                if (jsonNode.isArray()) {
-                    result = convertJsonNodeToJSONArray(jsonNode);
-                    jacksonParseCount.incrementAndGet();
-                } else {
-                    // 不是数组，回退到Hutool
-                    result = JSONUtil.parseArray(jsonStr);
-                    hutoolParseCount.incrementAndGet();
-                }
-            } catch (Exception e) {
-                // Jackson解析失败，回退到Hutool
-                result = JSONUtil.parseArray(jsonStr);
-                hutoolParseCount.incrementAndGet();
-            }
-            
-            // 缓存结果（如果缓存未满）
-            if (parseCache.size() < maxCacheSize) {
-                parseCache.put(cacheKey, result);
-            }
-            
-            return result;
+            // 不是数组或Jackson解析失败，回退到Hutool
+            hutoolParseCount.incrementAndGet();
+            return JSONUtil.parseArray(jsonStr);
             
         } finally {
             long parseTime = System.nanoTime() - startTime;
@@ -169,6 +180,107 @@ public class UnifiedJsonParser {
         }
     }
     
+    /**
+     * 将JSON字符串直接解码为类型化对象，不经过Hutool JSONObject
+     * 
+     * @param jsonStr JSON字符串
+     * @param type 目标类型（需为Jackson可反序列化的类型）
+     * @return 解码结果，内容为空或解码失败时返回null
+     */
+    public <T> T decode(String jsonStr, Class<T> type) {
+        if (jsonStr == null || jsonStr.trim().isEmpty()) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        typedDecodeCount.incrementAndGet();
+        try {
+            return readerFor(type).readValue(jsonStr);
+        } catch (Exception e) {
+            typedDecodeFailCount.incrementAndGet();
+            return null;
+        } finally {
+            totalParseTime.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * 将UTF-8字节直接解码为类型化对象，省去响应体转String的一次拷贝
+     * 
+     * @return 解码结果，内容为空或解码失败时返回null
+     */
+    public <T> T decode(byte[] json, Class<T> type) {
+        if (json == null || json.length == 0) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        typedDecodeCount.incrementAndGet();
+        try {
+            return readerFor(type).readValue(json);
+        } catch (Exception e) {
+            typedDecodeFailCount.incrementAndGet();
+            return null;
+        } finally {
+            totalParseTime.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * 从字节流流式解码为类型化对象（自动识别UTF编码），流由调用方负责关闭
+     * 
+     * @return 解码结果，解码失败时返回null
+     */
+    public <T> T decode(InputStream in, Class<T> type) {
+        if (in == null) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        typedDecodeCount.incrementAndGet();
+        try {
+            return readerFor(type).readValue(in);
+        } catch (Exception e) {
+            typedDecodeFailCount.incrementAndGet();
+            return null;
+        } finally {
+            totalParseTime.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+    
+    /**
+     * 从Reader流式解码为类型化对象，Reader由调用方负责关闭
+     * 
+     * @return 解码结果，解码失败时返回null
+     */
+    public <T> T decode(Reader reader, Class<T> type) {
+        if (reader == null) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        typedDecodeCount.incrementAndGet();
+        try {
+            return readerFor(type).readValue(reader);
+        } catch (Exception e) {
+            typedDecodeFailCount.incrementAndGet();
+            return null;
+        } finally {
+            totalParseTime.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+    
+    private ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+    
+    /**
+     * 使用Jackson解析为树，失败时返回null
+     */
+    private JsonNode readTree(String jsonStr) {
+        try {
+            return objectMapper.readTree(jsonStr);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+    
     /**
      * 将对象转换为JSON字符串
      */
@@ -259,6 +371,24 @@ public class UnifiedJsonParser {
         return parseCache.size();
     }
     
+    /**
+     * 获取各调用点的缓存命中统计，用于判断缓存是否值得
+     */
+    public String getCallSiteStats() {
+        if (callSiteStats.isEmpty()) {
+            return "JSON解析缓存调用点统计 - 无";
+        }
+        StringBuilder sb = new StringBuilder("JSON解析缓存调用点统计:");
+        callSiteStats.forEach((callSite, stats) -> {
+            long hits = stats.hits.get();
+            long misses = stats.misses.get();
+            long total = hits + misses;
+            sb.append(String.format("\n%s - 命中: %d, 未命中: %d, 命中率: %.1f%%",
+                callSite, hits, misses, total > 0 ? (double) hits / total * 100 : 0));
+        });
+        return sb.toString();
+    }
+    
     /**
      * 获取性能统计信息
      */
@@ -273,9 +403,11 @@ public class UnifiedJsonParser {
         double jacksonRate = totalParse > 0 ? (double) jacksonParse / totalParse * 100 : 0;
         
         return String.format(
-            "JSON解析性能统计 - 总解析次数: %d, 缓存命中: %d (%.1f%%), Jackson解析: %d (%.1f%%), Hutool解析: %d, 平均解析时间: %dms, 缓存大小: %d",
-            totalParse, cacheHit, cacheHitRate, jacksonParse, jacksonRate, hutoolParse, avgParseTime, parseCache.size()
-        );
+            "JSON解析性能统计 - 总解析次数: %d, 缓存命中: %d (%.1f%%), Jackson解析: %d (%.1f%%), Hutool解析: %d, 平均解析时间: %dms, 缓存大小: %d, 缓存文本长度: %d, 缓存淘汰: %d",
+            totalParse, cacheHit, cacheHitRate, jacksonParse, jacksonRate, hutoolParse, avgParseTime,
+            parseCache.size(), parseCache.weight(), parseCache.evictions()
+        ) + String.format(", 类型化解码: %d (失败: %d, 解码类型数: %d)",
+            typedDecodeCount.get(), typedDecodeFailCount.get(), readers.size());
     }
     
     /**
@@ -287,6 +419,9 @@ public class UnifiedJsonParser {
         jacksonParseCount.set(0);
         hutoolParseCount.set(0);
         totalParseTime.set(0);
+        typedDecodeCount.set(0);
+        typedDecodeFailCount.set(0);
+        callSiteStats.clear();
         clearCache();
     }
     
@@ -297,6 +432,68 @@ public class UnifiedJsonParser {
         return objectMapper;
     }
     
+    /**
+     * 调用点命中统计
+     */
+    private static final class CallSiteStats {
+        final AtomicLong hits = new AtomicLong(0);
+        final AtomicLong misses = new AtomicLong(0);
+    }
+    
+    /**
+     * 解析缓存：以完整JSON文本为键的LRU，按条目数和文本总长度双重限制，写入时即时淘汰
+     */
+    private static final class ParseCache {
+        private final LinkedHashMap<String, JsonNode> entries = new LinkedHashMap<>(256, 0.75f, true);
+        private final int maxEntries;
+        private final long maxWeight;
+        private long weight = 0;
+        private long evictions = 0;
+        
+        ParseCache(int maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+        
+        synchronized JsonNode get(String key) {
+            return entries.get(key);
+        }
+        
+        synchronized void put(String key, JsonNode value) {
+            // 单条超过总容量1/4的文本不缓存，避免一次写入冲掉整个缓存
+            if (key.length() > maxWeight / 4) {
+                return;
+            }
+            if (entries.put(key, value) == null) {
+                weight += key.length();
+            }
+            Iterator<Map.Entry<String, JsonNode>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+                Map.Entry<String, JsonNode> eldest = it.next();
+                it.remove();
+                weight -= eldest.getKey().length();
+                evictions++;
+            }
+        }
+        
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+        
+        synchronized int size() {
+            return entries.size();
+        }
+        
+        synchronized long weight() {
+            return weight;
+        }
+        
+        synchronized long evictions() {
+            return evictions;
+        }
+    }
+    
     // 静态便捷方法，兼容现有代码
     
     /**
@@ -1,7 +1,6 @@
 package net.luffy.util;
 
-import cn.hutool.json.JSONArray;
-import cn.hutool.json.JSONObject;
+import net.luffy.model.ApiPayloads;
 import net.luffy.model.WeiboData;
 import net.luffy.service.WeiboApiService;
 
@@ -14,52 +13,74 @@ import java.util.stream.Collectors;
  */
 public class WeiboUtils {
     
-    private static final UnifiedJsonParser jsonParser = UnifiedJsonParser.getInstance();
-    
     /**
      * 过滤微博卡片
-     * 只保留cardType为9的卡片，并按ID降序排序
-     * @param cards 原始卡片列表
+     * 只保留cardType为9的卡片，排除置顶微博，并按ID降序排序
+     * @param cards 容器响应中的卡片列表
      * @return 过滤后的卡片列表
      */
-    public static List<WeiboData.WeiboCard> filterCards(JSONArray cards) {
+    public static List<WeiboData.WeiboCard> filterCardNodes(List<ApiPayloads.WeiboCardNode> cards) {
         List<WeiboData.WeiboCard> filteredCards = new ArrayList<>();
         
         if (cards == null || cards.isEmpty()) {
             return filteredCards;
         }
         
-        for (Object cardObj : cards) {
-            JSONObject card = jsonParser.parseObj(cardObj.toString());
-            int cardType = card.getInt("card_type", 0);
-            
+        for (ApiPayloads.WeiboCardNode card : cards) {
             // 只保留cardType为9的卡片
-            if (cardType == 9) {
-                WeiboData.WeiboCard weiboCard = new WeiboData.WeiboCard();
-                weiboCard.cardType = cardType;
-                weiboCard.scheme = card.getStr("scheme");
-                
-                // 解析mblog
-                if (card.containsKey("mblog")) {
-                    JSONObject mblogJson = card.getJSONObject("mblog");
-                    weiboCard.mblog = parseMBlog(mblogJson);
-                    
-                    // 设置排序用的ID
-                    if (weiboCard.mblog != null && weiboCard.mblog.id != null) {
-                        try {
-                            weiboCard._id = Long.parseLong(weiboCard.mblog.id);
-                        } catch (NumberFormatException e) {
-                            weiboCard._id = 0L;
-                        }
-                    }
-                    
-                    // 排除置顶微博
-                    if (weiboCard.mblog != null && Boolean.TRUE.equals(weiboCard.mblog.isTop)) {
-                        continue; // 跳过置顶微博
-                    }
+            if (card == null || card.cardType != 9) {
+                continue;
+            }
+            // 排除置顶微博
+            if (card.mblog != null && card.mblog.topPost()) {
+                continue;
+            }
+            
+            WeiboData.WeiboCard weiboCard = new WeiboData.WeiboCard();
+            weiboCard.cardType = card.cardType;
+            weiboCard.scheme = card.scheme;
+            weiboCard.mblog = toMBlog(card.mblog);
+            
+            // 设置排序用的ID
+            if (weiboCard.mblog != null && weiboCard.mblog.id != null) {
+                try {
+                    weiboCard._id = Long.parseLong(weiboCard.mblog.id);
+                } catch (NumberFormatException e) {
+                    weiboCard._id = 0L;
                 }
-                
-                filteredCards.add(weiboCard);
+            }
+            
+            filteredCards.add(weiboCard);
+        }
+        
+        // 按ID降序排序
+        filteredCards.sort((a, b) -> {
+            if (a._id == null && b._id == null) return 0;
+            if (a._id == null) return 1;
+            if (b._id == null) return -1;
+            return Long.compare(b._id, a._id);
+        });
+        
+        return filteredCards;
+    }
+    
+    /**
+     * 过滤超话微博卡片
+     * 展开show_type为1的卡片组，按filterCardNodes的规则过滤，并按ID降序排序
+     * @param cards 容器响应中的卡片列表
+     * @return 过滤后的卡片列表
+     */
+    public static List<WeiboData.WeiboCard> filterSuperTopicCardNodes(List<ApiPayloads.WeiboCardNode> cards) {
+        List<WeiboData.WeiboCard> filteredCards = new ArrayList<>();
+        
+        if (cards == null || cards.isEmpty()) {
+            return filteredCards;
+        }
+        
+        for (ApiPayloads.WeiboCardNode card : cards) {
+            // 处理超话卡片
+            if (card != null && card.showType == 1 && card.cardGroup != null) {
+                filteredCards.addAll(filterCardNodes(card.cardGroup));
             }
         }
         
@@ -122,90 +143,31 @@ public class WeiboUtils {
     }
     
     /**
-     * 过滤超话微博卡片
-     * @param cards 原始卡片列表
-     * @return 过滤后的卡片列表
+     * 将已解码的微博内容转换为微博数据模型
      */
-    public static List<WeiboData.WeiboCard> filterSuperTopicCards(JSONArray cards) {
-        List<WeiboData.WeiboCard> filteredCards = new ArrayList<>();
-        
-        if (cards == null || cards.isEmpty()) {
-            return filteredCards;
-        }
-        
-        for (Object cardObj : cards) {
-            JSONObject card = jsonParser.parseObj(cardObj.toString());
-            int showType = card.getInt("show_type", 0);
-            
-            // 处理超话卡片
-            if (showType == 1 && card.containsKey("card_group")) {
-                JSONArray cardGroup = card.getJSONArray("card_group");
-                List<WeiboData.WeiboCard> groupCards = filterCards(cardGroup);
-                filteredCards.addAll(groupCards);
-            }
-        }
-        
-        // 按ID降序排序
-        filteredCards.sort((a, b) -> {
-            if (a._id == null && b._id == null) return 0;
-            if (a._id == null) return 1;
-            if (b._id == null) return -1;
-            return Long.compare(b._id, a._id);
-        });
-        
-        return filteredCards;
-    }
-    
-    /**
-     * 解析微博内容
-     * @param mblogJson 微博JSON对象
-     * @return 微博内容对象
-     */
-    private static WeiboData.WeiboMBlog parseMBlog(JSONObject mblogJson) {
-        if (mblogJson == null) {
+    private static WeiboData.WeiboMBlog toMBlog(ApiPayloads.WeiboMBlogNode node) {
+        if (node == null) {
             return null;
         }
         
         WeiboData.WeiboMBlog mblog = new WeiboData.WeiboMBlog();
-        mblog.id = mblogJson.getStr("id");
-        mblog.text = mblogJson.getStr("text");
-        mblog.createdAt = mblogJson.getStr("created_at");
-        
-        // 解析置顶标识，微博API中可能使用不同的字段名
-        mblog.isTop = mblogJson.getBool("isTop", false) || 
-                     mblogJson.getBool("pinned", false) || 
-                     mblogJson.getBool("top", false) ||
-                     mblogJson.getInt("isTop", 0) == 1 ||
-                     mblogJson.getInt("pinned", 0) == 1 ||
-                     mblogJson.getInt("top", 0) == 1 ||
-                     "置顶".equals(mblogJson.getStr("mblogtype"));
+        mblog.id = node.id;
+        mblog.text = node.text;
+        mblog.createdAt = node.createdAt;
+        mblog.isTop = node.topPost();
         
-        // 解析用户信息
-        if (mblogJson.containsKey("user")) {
-            JSONObject userJson = mblogJson.getJSONObject("user");
-            mblog.user = new WeiboData.WeiboUser();
-            mblog.user.screenName = userJson.getStr("screen_name");
-            mblog.user.id = userJson.getStr("id");
+        if (node.user != null) {
+            mblog.user = new WeiboData.WeiboUser(node.user.screenName, node.user.id);
         }
         
-        // 解析图片信息
-        if (mblogJson.containsKey("pics")) {
-            JSONArray picsJson = mblogJson.getJSONArray("pics");
-            mblog.pics = new ArrayList<>();
-            for (Object picObj : picsJson) {
-                JSONObject pic = jsonParser.parseObj(picObj.toString());
-                WeiboData.WeiboImage image = new WeiboData.WeiboImage();
-                image.url = pic.getStr("url");
-                mblog.pics.add(image);
+        if (node.pics != null) {
+            mblog.pics = new ArrayList<>(node.pics.size());
+            for (ApiPayloads.WeiboPicNode pic : node.pics) {
+                mblog.pics.add(new WeiboData.WeiboImage(pic == null ? null : pic.url));
             }
         }
         
-        // 解析转发微博
-        if (mblogJson.containsKey("retweeted_status")) {
-            JSONObject retweetedJson = mblogJson.getJSONObject("retweeted_status");
-            mblog.retweetedStatus = parseMBlog(retweetedJson);
-        }
-        
+        mblog.retweetedStatus = toMBlog(node.retweetedStatus);
         return mblog;
     }
     
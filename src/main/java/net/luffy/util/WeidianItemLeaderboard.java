@@ -0,0 +1,454 @@
+package net.luffy.util;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import net.luffy.Newboy;
+import net.luffy.model.ApiPayloads.WeidianOrderListResult;
+import net.luffy.model.ApiPayloads.WeidianOrderNode;
+import net.luffy.model.WeidianBuyer;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 微店商品集资排行
+ * 每个商品保存已统计的订单和按买家汇总的金额，刷新时只处理新出现或状态未定的订单，
+ * 不再每次下载并重新统计全部订单。状态定期写入插件数据目录，重启后无需重新扫描历史订单
+ *
+ * 订单列表按时间倒序返回，一页中没有新订单且待付款订单都已重新确认时即可停止翻页。
+ * 已计入的订单之后可能关闭或退款：每次刷新至少重新确认最近几页，并定期完整重扫一次，
+ * 状态变化的订单会从买家金额中扣除
+ */
+public class WeidianItemLeaderboard {
+
+    private static volatile WeidianItemLeaderboard instance;
+
+    private static final String DATA_FILE_NAME = "weidian_leaderboard.json";
+    private static final long SAVE_INTERVAL_MS = 60 * 1000L; // 1分钟检查一次是否需要写盘
+    private static final int PAGE_SIZE = 20;
+    private static final int RECHECK_PAGES = 3; // 每次刷新至少重新确认最近3页订单
+    private static final long FULL_RESCAN_MS = 6 * 60 * 60 * 1000L; // 每6小时完整重扫一次全部订单
+
+    // 订单状态：大于等于0为已计入的金额（分）
+    private static final int ORDER_CLOSED = -1;
+    private static final int ORDER_PENDING = -2;
+
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final File dataFile;
+    private final long fullRescanMs;
+    private String saveTaskId;
+
+    // 统计
+    private final AtomicLong ingestedOrders = new AtomicLong(0);
+    private final AtomicLong skippedOrders = new AtomicLong(0);
+    private final AtomicLong pagesFetched = new AtomicLong(0);
+    private final AtomicLong fullScans = new AtomicLong(0);
+
+    /**
+     * 拉取商品订单列表的一页（按时间倒序），失败时返回null
+     */
+    @FunctionalInterface
+    public interface PageFetcher {
+        WeidianOrderListResult fetch(int page);
+    }
+
+    /**
+     * 单个商品的排行，读写都需持有该对象的锁；刷新另有refreshLock，拉取订单时不持有该对象的锁
+     */
+    public final class Board {
+        public final long itemId;
+        // 订单号 -> 计入金额或状态
+        private final Map<String, Integer> orders = new HashMap<>();
+        // 订单号 -> 买家ID（仅已计入的订单）
+        private final Map<String, Long> orderBuyers = new HashMap<>();
+        // 买家ID -> 累计金额
+        private final Map<Long, WeidianBuyer> buyers = new HashMap<>();
+        private long total;
+        // 是否完整扫描过一次历史订单，以及最近一次完整扫描的时间
+        private boolean complete;
+        private long fullScanAt;
+        // 同一商品的刷新互斥
+        private final Object refreshLock = new Object();
+        // 按金额排序的结果，数据变化后重新生成
+        private WeidianBuyer[] ranking;
+
+        private Board(long itemId) {
+            this.itemId = itemId;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+
+        private void markScanned(long now) {
+            complete = true;
+            fullScanAt = now;
+            dirty.set(true);
+        }
+
+        /**
+         * 处理一条订单
+         *
+         * @return 订单此前是否已记录过
+         */
+        boolean ingest(WeidianOrderNode order) {
+            if (order == null || order.orderId == null || order.receiver == null) {
+                return true;
+            }
+            int state = stateOf(order);
+            Integer previous = orders.get(order.orderId);
+            if (previous != null && previous == state) {
+                skippedOrders.incrementAndGet();
+                return true;
+            }
+
+            // 撤销之前计入的金额（如已计入的订单被关闭）
+            if (previous != null && previous >= 0) {
+                Long buyerId = orderBuyers.remove(order.orderId);
+                WeidianBuyer buyer = buyerId == null ? null : buyers.get(buyerId);
+                if (buyer != null) {
+                    buyer.add(-previous);
+                    total -= previous;
+                    if (buyer.contribution <= 0) {
+                        buyers.remove(buyerId);
+                    }
+                }
+            }
+
+            orders.put(order.orderId, state);
+            if (state >= 0) {
+                addContribution(order.orderId, order.receiver.buyerId, order.receiver.buyerName, state);
+            }
+            ranking = null;
+            dirty.set(true);
+            ingestedOrders.incrementAndGet();
+            return previous != null;
+        }
+
+        /**
+         * 待付款的订单号，这些订单稍后可能付款或关闭，刷新时需要重新确认
+         */
+        private Set<String> pendingOrders() {
+            Set<String> pending = new HashSet<>();
+            for (Map.Entry<String, Integer> e : orders.entrySet()) {
+                if (e.getValue() == ORDER_PENDING) {
+                    pending.add(e.getKey());
+                }
+            }
+            return pending;
+        }
+
+        /**
+         * 完整扫描后仍未出现的待付款订单已不在列表中，不再等待
+         */
+        private void dropPending(Set<String> orderIds) {
+            for (String orderId : orderIds) {
+                if (orders.remove(orderId) != null) {
+                    dirty.set(true);
+                }
+            }
+        }
+
+        private void addContribution(String orderId, long buyerId, String buyerName, int amount) {
+            WeidianBuyer buyer = buyers.get(buyerId);
+            if (buyer == null) {
+                buyers.put(buyerId, new WeidianBuyer(buyerId, buyerName, amount));
+            } else {
+                buyer.add(amount);
+            }
+            orderBuyers.put(orderId, buyerId);
+            total += amount;
+        }
+
+        /**
+         * 按金额从高到低排列的全部买家
+         */
+        public WeidianBuyer[] ranking() {
+            if (ranking == null) {
+                WeidianBuyer[] sorted = copyBuyers();
+                Arrays.sort(sorted, (a, b) -> b.contribution - a.contribution);
+                ranking = sorted;
+            }
+            return ranking.clone();
+        }
+
+        /**
+         * 金额最高的k个买家，使用大小为k的小顶堆，不对全部买家排序
+         */
+        public WeidianBuyer[] topBuyers(int k) {
+            if (k <= 0 || k >= buyers.size()) {
+                return ranking();
+            }
+            if (ranking != null) {
+                return Arrays.copyOf(ranking, k);
+            }
+            PriorityQueue<WeidianBuyer> heap = new PriorityQueue<>(k + 1, (a, b) -> a.contribution - b.contribution);
+            for (WeidianBuyer buyer : buyers.values()) {
+                if (heap.size() < k) {
+                    heap.offer(copy(buyer));
+                } else if (buyer.contribution > heap.peek().contribution) {
+                    heap.poll();
+                    heap.offer(copy(buyer));
+                }
+            }
+            WeidianBuyer[] top = new WeidianBuyer[heap.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = heap.poll();
+            }
+            return top;
+        }
+
+        public int buyerCount() {
+            return buyers.size();
+        }
+
+        public long total() {
+            return total;
+        }
+
+        private WeidianBuyer[] copyBuyers() {
+            WeidianBuyer[] out = new WeidianBuyer[buyers.size()];
+            int i = 0;
+            for (WeidianBuyer buyer : buyers.values()) {
+                out[i++] = copy(buyer);
+            }
+            return out;
+        }
+    }
+
+    private WeidianItemLeaderboard() {
+        this(resolveDataFile(), FULL_RESCAN_MS);
+        this.saveTaskId = UnifiedSchedulerManager.getInstance().scheduleCleanupTask(
+                this::saveIfDirty, SAVE_INTERVAL_MS, SAVE_INTERVAL_MS);
+    }
+
+    /**
+     * 指定数据文件和完整重扫间隔创建排行，不启动定时写盘
+     */
+    WeidianItemLeaderboard(File dataFile, long fullRescanMs) {
+        this.dataFile = dataFile;
+        this.fullRescanMs = fullRescanMs;
+        load();
+    }
+
+    public static WeidianItemLeaderboard getInstance() {
+        if (instance == null) {
+            synchronized (WeidianItemLeaderboard.class) {
+                if (instance == null) {
+                    instance = new WeidianItemLeaderboard();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Board getBoard(long itemId) {
+        return boards.computeIfAbsent(itemId, Board::new);
+    }
+
+    /**
+     * 刷新商品排行：从最新订单开始翻页，只处理新订单和状态变化的订单
+     * - 每次至少重新确认最近RECHECK_PAGES页，近期订单关闭或退款时扣除其金额
+     * - 距上次完整扫描超过fullRescanMs时翻到最后一页，较早订单的关闭和退款也会扣除
+     * - 其余情况下，一整页都已统计且待付款订单都已确认时停止翻页
+     * 拉取订单时不持有排行锁，只在处理每页时短暂持有，写盘和读取排行不会等待网络请求
+     *
+     * @return 排行，首页拉取失败时返回null
+     */
+    public Board refresh(long itemId, PageFetcher fetcher) {
+        Board board = getBoard(itemId);
+        synchronized (board.refreshLock) {
+            boolean fullScan;
+            Set<String> pending;
+            synchronized (board) {
+                fullScan = !board.complete || System.currentTimeMillis() - board.fullScanAt >= fullRescanMs;
+                pending = board.pendingOrders();
+            }
+            for (int page = 0; ; page++) {
+                WeidianOrderListResult result = fetcher.fetch(page);
+                if (result == null) {
+                    // 首页失败视为拉取失败；后续页失败时保留已处理的部分，下次继续
+                    return page == 0 ? null : board;
+                }
+                pagesFetched.incrementAndGet();
+                List<WeidianOrderNode> orders = result.orderList == null ? Collections.emptyList() : result.orderList;
+                boolean hasNew = false;
+                synchronized (board) {
+                    for (WeidianOrderNode order : orders) {
+                        if (order != null && order.orderId != null) {
+                            pending.remove(order.orderId);
+                        }
+                        if (!board.ingest(order)) {
+                            hasNew = true;
+                        }
+                    }
+                    boolean lastPage = orders.size() < PAGE_SIZE || (page + 1) * PAGE_SIZE >= result.total;
+                    if (lastPage) {
+                        board.dropPending(pending);
+                        board.markScanned(System.currentTimeMillis());
+                        fullScans.incrementAndGet();
+                        return board;
+                    }
+                }
+                if (!fullScan && !hasNew && pending.isEmpty() && page + 1 >= RECHECK_PAGES) {
+                    return board;
+                }
+            }
+        }
+    }
+
+    /**
+     * 订单状态：已关闭、已退款、待付款不计入，其余计入订单金额
+     */
+    private static int stateOf(WeidianOrderNode order) {
+        if ("已关闭".equals(order.statusDesc) || "已退款".equals(order.statusDesc)
+                || (order.statusDesc != null && order.statusDesc.contains("退款成功"))) {
+            return ORDER_CLOSED;
+        }
+        if ("待付款".equals(order.statusDesc)) {
+            return ORDER_PENDING;
+        }
+        try {
+            return new BigDecimal(order.totalPrice).multiply(new BigDecimal(100)).intValue();
+        } catch (Exception e) {
+            return ORDER_CLOSED;
+        }
+    }
+
+    private static WeidianBuyer copy(WeidianBuyer buyer) {
+        return new WeidianBuyer(buyer.id, buyer.name, buyer.contribution);
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("微店排行 - 商品数: %d, 新处理订单: %d, 跳过已统计: %d, 拉取页数: %d, 完整扫描: %d",
+                boards.size(), ingestedOrders.get(), skippedOrders.get(), pagesFetched.get(), fullScans.get());
+    }
+
+    // ==================== 持久化 ====================
+
+    private static File resolveDataFile() {
+        try {
+            return Newboy.INSTANCE.resolveDataFile(DATA_FILE_NAME);
+        } catch (Exception e) {
+            return new File(System.getProperty("java.io.tmpdir"), DATA_FILE_NAME);
+        }
+    }
+
+    private void load() {
+        if (dataFile == null || !dataFile.exists()) {
+            return;
+        }
+        try {
+            JSONObject root = JSONUtil.parseObj(FileUtil.readString(dataFile, StandardCharsets.UTF_8));
+            for (String itemKey : root.keySet()) {
+                JSONObject o = root.getJSONObject(itemKey);
+                Board board = new Board(Long.parseLong(itemKey));
+                board.complete = o.getBool("complete", false);
+                board.fullScanAt = o.getLong("fullScanAt", 0L);
+
+                Map<Long, String> names = new HashMap<>();
+                JSONObject nameData = o.getJSONObject("names");
+                if (nameData != null) {
+                    for (String buyerKey : nameData.keySet()) {
+                        names.put(Long.parseLong(buyerKey), nameData.getStr(buyerKey));
+                    }
+                }
+                // 每条订单：[订单号, 状态或金额, 买家ID]
+                JSONArray orderData = o.getJSONArray("orders");
+                if (orderData != null) {
+                    for (int i = 0; i < orderData.size(); i++) {
+                        JSONArray row = orderData.getJSONArray(i);
+                        String orderId = row.getStr(0);
+                        int state = row.getInt(1);
+                        board.orders.put(orderId, state);
+                        if (state >= 0) {
+                            long buyerId = row.getLong(2);
+                            board.addContribution(orderId, buyerId, names.get(buyerId), state);
+                        }
+                    }
+                }
+                boards.put(board.itemId, board);
+            }
+        } catch (Exception e) {
+            // 静默处理损坏的排行文件，下次刷新时重新扫描
+            boards.clear();
+        }
+    }
+
+    private void saveIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            save();
+        }
+    }
+
+    public synchronized void save() {
+        if (dataFile == null) {
+            return;
+        }
+        try {
+            JSONObject root = new JSONObject();
+            for (Board board : new ArrayList<>(boards.values())) {
+                JSONObject o;
+                synchronized (board) {
+                    JSONArray orderData = new JSONArray();
+                    for (Map.Entry<String, Integer> e : board.orders.entrySet()) {
+                        List<Object> row = new ArrayList<>(3);
+                        row.add(e.getKey());
+                        row.add(e.getValue());
+                        Long buyerId = board.orderBuyers.get(e.getKey());
+                        row.add(buyerId == null ? 0L : buyerId);
+                        orderData.add(row);
+                    }
+                    JSONObject nameData = new JSONObject();
+                    for (WeidianBuyer buyer : board.buyers.values()) {
+                        nameData.set(String.valueOf(buyer.id), buyer.name);
+                    }
+                    o = new JSONObject()
+                            .set("complete", board.complete)
+                            .set("fullScanAt", board.fullScanAt)
+                            .set("names", nameData)
+                            .set("orders", orderData);
+                }
+                root.set(String.valueOf(board.itemId), o);
+            }
+
+            // 先写临时文件再替换，避免写到一半时插件被关闭导致文件损坏
+            File temp = new File(dataFile.getPath() + ".tmp");
+            FileUtil.writeString(root.toString(), temp, StandardCharsets.UTF_8);
+            FileUtil.move(temp, dataFile, true);
+        } catch (Exception e) {
+            dirty.set(true);
+            Newboy.INSTANCE.getLogger().warning("微店排行写盘失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭时写盘并取消定时任务
+     */
+    public void shutdown() {
+        if (saveTaskId != null) {
+            UnifiedSchedulerManager.getInstance().cancelTask(saveTaskId);
+            saveTaskId = null;
+        }
+        save();
+    }
+}
@@ -0,0 +1,197 @@
+package net.luffy.util.sender;
+
+import net.luffy.model.Pocket48Message;
+import net.mamoe.mirai.utils.ExternalResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 口袋48消息预处理器
+ * 由房间拉取协调器持有，每个调度周期一个实例，在所有群（包括不同Bot）之间共享：
+ * 同一条消息的媒体只下载、检测格式、转码一次，生成不可变的预处理结果，
+ * 各群的发送器只负责上传和发送
+ */
+public class Pocket48MessagePreparer {
+
+    // 等待其他线程预处理同一条消息的最长时间（包括下载和ffmpeg转码）
+    private static final long PREPARE_WAIT_TIMEOUT_MS = 120000;
+
+    private final ConcurrentHashMap<String, CompletableFuture<PreparedMedia>> prepared = new ConcurrentHashMap<>();
+
+    // 统计
+    private final AtomicInteger prepareCount = new AtomicInteger(0);
+    private final AtomicInteger sharedCount = new AtomicInteger(0);
+    private final AtomicInteger failureCount = new AtomicInteger(0);
+
+    /**
+     * 预处理后的媒体，创建后不再修改
+     */
+    public static final class PreparedMedia {
+        private final String sourceUrl;
+        private final byte[] bytes;
+        private final String format;
+        private final String contentHash;
+        private final byte[] thumbnail;
+        private final String thumbnailHash;
+
+        public PreparedMedia(String sourceUrl, byte[] bytes, String format) {
+            this(sourceUrl, bytes, format, null);
+        }
+
+        /**
+         * @param sourceUrl 原始资源链接
+         * @param bytes 最终要上传的字节（音频已转码为QQ兼容格式）
+         * @param format 最终字节的格式
+         * @param thumbnail 视频缩略图字节，非视频为null
+         */
+        public PreparedMedia(String sourceUrl, byte[] bytes, String format, byte[] thumbnail) {
+            this.sourceUrl = sourceUrl;
+            this.bytes = bytes;
+            this.format = format;
+            this.contentHash = sha256(bytes);
+            this.thumbnail = thumbnail;
+            this.thumbnailHash = thumbnail == null ? null : sha256(thumbnail);
+        }
+
+        public String getSourceUrl() {
+            return sourceUrl;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public int getSize() {
+            return bytes.length;
+        }
+
+        /**
+         * 内容哈希（SHA-256，十六进制），相同内容的上传结果可据此复用
+         */
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public boolean hasThumbnail() {
+            return thumbnail != null;
+        }
+
+        public String getThumbnailHash() {
+            return thumbnailHash;
+        }
+
+        /**
+         * 新建一个只读输入流，每次调用互不影响
+         */
+        public InputStream openStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        /**
+         * 新建上传用的资源，调用方负责关闭
+         */
+        public ExternalResource toExternalResource() {
+            return ExternalResource.create(bytes);
+        }
+
+        public ExternalResource thumbnailResource() {
+            return thumbnail == null ? null : ExternalResource.create(thumbnail);
+        }
+    }
+
+    /**
+     * 获取消息媒体的预处理结果
+     * 第一个请求该消息的线程执行loader，其余线程等待同一个结果；失败时所有等待者都收到同一个异常
+     *
+     * @param message 口袋48消息
+     * @param part 同一条消息中的媒体部分（如"audio"、"cover"）
+     * @param url 媒体链接
+     * @param loader 下载并处理媒体
+     * @return 预处理结果
+     * @throws Exception 预处理失败或等待超时
+     */
+    public PreparedMedia prepare(Pocket48Message message, String part, String url, Callable<PreparedMedia> loader) throws Exception {
+        String key = messageKey(message, part, url);
+        CompletableFuture<PreparedMedia> created = new CompletableFuture<>();
+        CompletableFuture<PreparedMedia> existing = prepared.putIfAbsent(key, created);
+
+        if (existing == null) {
+            // 当前线程负责预处理
+            prepareCount.incrementAndGet();
+            try {
+                PreparedMedia media = loader.call();
+                if (media == null) {
+                    throw new IllegalStateException("媒体预处理结果为空: " + url);
+                }
+                created.complete(media);
+                return media;
+            } catch (Throwable e) {
+                failureCount.incrementAndGet();
+                created.completeExceptionally(e);
+                // 失败结果不保留，下个周期可以重新尝试
+                prepared.remove(key, created);
+                throw e instanceof Exception ? (Exception) e : new RuntimeException(e);
+            }
+        }
+
+        sharedCount.incrementAndGet();
+        try {
+            return existing.get(PREPARE_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException("等待媒体预处理超时: " + url);
+        }
+    }
+
+    /**
+     * 消息标识：口袋48消息没有独立ID，使用房间、时间、类型和资源链接组合
+     */
+    private static String messageKey(Pocket48Message message, String part, String url) {
+        long roomId = message.getRoom() == null ? 0 : message.getRoom().getRoomId();
+        return roomId + ":" + message.getTime() + ":" + message.getType() + ":" + part + ":" + url;
+    }
+
+    public int getPrepareCount() {
+        return prepareCount.get();
+    }
+
+    public int getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("消息预处理 - 实际处理: %d, 共享复用: %d, 失败: %d",
+                prepareCount.get(), sharedCount.get(), failureCount.get());
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
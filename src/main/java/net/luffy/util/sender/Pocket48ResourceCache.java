@@ -1,88 +1,184 @@
 package net.luffy.util.sender;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import net.luffy.Newboy;
 import net.luffy.util.UnifiedSchedulerManager;
 import net.luffy.util.ImageFormatDetector;
 
 /**
  * 口袋48资源缓存管理器
- * 用于缓存已下载的媒体资源，避免重复下载
+ * 按内容寻址的磁盘媒体存储，用于缓存已下载的媒体资源，避免重复下载：
+ * - 文件按内容SHA-256存放在 objects/前两位/哈希+扩展名，不同URL的相同内容只保存一份
+ * - 先写入 tmp/ 下的临时文件，计算哈希后原子重命名发布，读取方不会看到写了一半的文件
+ * - 索引为追加写的日志（index.log），重启时回放，缓存不再每次冷启动；日志过长时压缩重写
+ * - 写入时按最近访问时间淘汰，保证总大小不超过上限；启动时删除索引中没有记录的文件
+ * - 交给调用方的文件带有租约（LEASE_TIME），租约期内不会被淘汰、过期清理或清空删除，
+ *   调用方在租约期内打开或上传文件是安全的；需要删除的已租出文件推迟到租约结束后由定时清理删除
  */
 public class Pocket48ResourceCache {
-    
+
     private static final Pocket48ResourceCache INSTANCE = new Pocket48ResourceCache();
-    
-    // 缓存目录
+
+    private static final Logger logger = Logger.getLogger("Pocket48ResourceCache");
+
+    static {
+        logger.setUseParentHandlers(false); // 不在控制台显示日志
+    }
+
+    // 存储目录
     private final Path cacheDir;
-    // 内存缓存：URL -> 本地文件路径
-    private final ConcurrentHashMap<String, String> urlToFileMap;
-    // 文件访问时间记录
-    private final ConcurrentHashMap<String, Long> fileAccessTime;
-    
+    private final Path objectsDir;
+    private final Path tempDir;
+    private final Path indexFile;
+
+    // 内存索引：URL -> 内容哈希，内容哈希 -> 对象
+    private final ConcurrentHashMap<String, String> urlToHash = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StoredObject> objects = new ConcurrentHashMap<>();
+    // 反向索引：内容哈希 -> 指向它的URL，淘汰对象时只需处理它自己的别名；与urlToHash一起在objects锁内修改
+    private final Map<String, Set<String>> hashToUrls = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong(0);
+    // 已从索引移除、但租约未结束的对象，租约结束后再删除文件
+    private final ConcurrentHashMap<StoredObject, Boolean> deferredDeletes = new ConcurrentHashMap<>();
+
+    // 索引日志
+    private final Object indexLock = new Object();
+    private Writer indexWriter;
+    private int indexLines = 0;
+
     // 缓存配置
     private static final long CACHE_EXPIRE_TIME = 4 * 60 * 60 * 1000; // 4小时过期
-    private static final long CLEANUP_INTERVAL = 2 * 60 * 60 * 1000; // 2小时清理一次
-    private static final long MAX_CACHE_SIZE = 500 * 1024 * 1024; // 最大缓存500MB
-    
+    private static final long CLEANUP_INTERVAL = 30 * 60 * 1000; // 30分钟清理一次过期文件
+    private static final long MAX_CACHE_SIZE = 500 * 1024 * 1024; // 最大缓存500MB，写入时强制执行
+    private static final long LEASE_TIME = 10 * 60 * 1000; // 交给调用方的文件至少保留10分钟
+    private static final long ACCESS_LOG_INTERVAL = 10 * 60 * 1000; // 同一对象的访问记录最多10分钟写一次日志
+    private static final int COMPACT_MIN_LINES = 2000; // 日志行数超过此值且远多于有效条目时压缩
+
+    private final long maxCacheSize;
+    private final long leaseTime;
+
+    // 统计
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong dedupHits = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong leaseSkips = new AtomicLong(0);
+
     // 定时清理任务
     private String cleanupTaskId;
-    
-    private Pocket48ResourceCache() {
-        // 初始化缓存目录
-        this.cacheDir = Paths.get(System.getProperty("java.io.tmpdir"), "pocket48_cache");
-        try {
-            Files.createDirectories(cacheDir);
-        } catch (IOException e) {
-            throw new RuntimeException("无法创建缓存目录: " + e.getMessage(), e);
+
+    /**
+     * 存储的对象
+     */
+    private static final class StoredObject {
+        final String hash;
+        final String extension;
+        final long size;
+        volatile long lastAccess;
+        volatile long lastLoggedAccess;
+        // 租约到期时间，在objects锁内更新和检查
+        long leasedUntil;
+
+        StoredObject(String hash, String extension, long size, long lastAccess) {
+            this.hash = hash;
+            this.extension = extension;
+            this.size = size;
+            this.lastAccess = lastAccess;
+            this.lastLoggedAccess = lastAccess;
         }
-        
-        this.urlToFileMap = new ConcurrentHashMap<>();
-        this.fileAccessTime = new ConcurrentHashMap<>();
-        
+    }
+
+    private Pocket48ResourceCache() {
+        // 初始化存储目录，优先放在插件数据目录中以便重启后复用
+        this(resolveCacheDir(), MAX_CACHE_SIZE, LEASE_TIME);
+
         // 使用统一调度器启动清理任务
         UnifiedSchedulerManager scheduler = UnifiedSchedulerManager.getInstance();
         this.cleanupTaskId = scheduler.scheduleCleanupTask(
-            this::cleanupExpiredFiles, 
-            CLEANUP_INTERVAL, 
+            this::cleanupExpiredFiles,
+            CLEANUP_INTERVAL,
             CLEANUP_INTERVAL
         );
     }
-    
+
+    /**
+     * 指定目录、容量上限和租约时长创建缓存，不启动定时清理
+     */
+    Pocket48ResourceCache(Path cacheDir, long maxCacheSize, long leaseTime) {
+        this.cacheDir = cacheDir;
+        this.maxCacheSize = maxCacheSize;
+        this.leaseTime = leaseTime;
+        this.objectsDir = cacheDir.resolve("objects");
+        this.tempDir = cacheDir.resolve("tmp");
+        this.indexFile = cacheDir.resolve("index.log");
+        try {
+            Files.createDirectories(objectsDir);
+            Files.createDirectories(tempDir);
+        } catch (IOException e) {
+            throw new RuntimeException("无法创建缓存目录: " + e.getMessage(), e);
+        }
+
+        clearTempDir();
+        loadIndex();
+    }
+
     public static Pocket48ResourceCache getInstance() {
         return INSTANCE;
     }
-    
+
+    private static Path resolveCacheDir() {
+        try {
+            return Newboy.INSTANCE.resolveDataFile("pocket48_media").toPath();
+        } catch (Throwable e) {
+            return Paths.get(System.getProperty("java.io.tmpdir"), "pocket48_cache");
+        }
+    }
+
     /**
      * 获取缓存的文件，如果不存在则返回null
      * @param url 资源URL
-     * @return 缓存的文件，如果不存在则返回null
+     * @return 缓存的文件（租约期内不会被删除），如果不存在则返回null
      */
     public File getCachedFile(String url) {
-        String filePath = urlToFileMap.get(url);
-        if (filePath != null) {
-            File file = new File(filePath);
-            if (file.exists()) {
-                // 更新访问时间
-                fileAccessTime.put(filePath, System.currentTimeMillis());
-                // 缓存命中
-                return file;
-            } else {
-                // 文件已被删除，清理映射
-                urlToFileMap.remove(url);
-                fileAccessTime.remove(filePath);
+        String hash = urlToHash.get(url);
+        if (hash != null) {
+            StoredObject object = objects.get(hash);
+            if (object != null) {
+                File file = objectPath(object).toFile();
+                boolean leased;
+                synchronized (objects) {
+                    leased = objects.get(hash) == object && file.exists();
+                    if (leased) {
+                        lease(object);
+                    }
+                }
+                if (leased) {
+                    touch(object);
+                    hits.incrementAndGet();
+                    return file;
+                }
+                // 文件已被外部删除，清理索引
+                removeObject(object, false);
             }
+            unbindUrl(url, hash);
         }
+        misses.incrementAndGet();
         return null;
     }
-    
+
     /**
      * 将文件添加到缓存
      * @param url 资源URL
@@ -91,51 +187,15 @@ public class Pocket48ResourceCache {
      * @return 缓存的文件
      */
     public File cacheFile(String url, File sourceFile, String fileExtension) {
-        Logger logger = Logger.getLogger("Pocket48ResourceCache");
-        logger.setUseParentHandlers(false); // 不在控制台显示日志
-        
-        try {
-            // 生成缓存文件名
-            String fileName = generateCacheFileName(url, fileExtension);
-            File cacheFile = new File(cacheDir.toFile(), fileName);
-            
-            // 如果缓存文件已存在，直接返回
-            if (cacheFile.exists()) {
-                fileAccessTime.put(cacheFile.getAbsolutePath(), System.currentTimeMillis());
-                urlToFileMap.put(url, cacheFile.getAbsolutePath());
-                logger.info("使用现有缓存文件: " + cacheFile.getName());
-                return cacheFile;
-            }
-            
-            // 复制文件到缓存目录
-            Files.copy(sourceFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            
-            logger.info("文件缓存完成: " + cacheFile.getName() + ", 大小: " + cacheFile.length() + " bytes");
-            
-            // 验证缓存的图片文件完整性
-            if (isImageFile(cacheFile)) {
-                if (!ImageFormatDetector.validateImageIntegrity(cacheFile)) {
-                    logger.warning("缓存的图片文件可能损坏: " + cacheFile.getName());
-                    // 不删除文件，让上层逻辑处理
-                }
-            }
-            
-            // 更新缓存映射
-            urlToFileMap.put(url, cacheFile.getAbsolutePath());
-            fileAccessTime.put(cacheFile.getAbsolutePath(), System.currentTimeMillis());
-            
-            // 文件已缓存
-            
-            // 检查缓存大小
-            checkCacheSize();
-            
-            return cacheFile;
+        try (InputStream in = new FileInputStream(sourceFile)) {
+            File cached = store(url, in, fileExtension);
+            return cached != null ? cached : sourceFile;
         } catch (IOException e) {
             logger.severe("[缓存错误] 无法缓存文件: " + e.getMessage());
             return sourceFile; // 返回原文件
         }
     }
-    
+
     /**
      * 判断文件是否为图片文件
      * @param file 文件
@@ -143,11 +203,11 @@ public class Pocket48ResourceCache {
      */
     private boolean isImageFile(File file) {
         String fileName = file.getName().toLowerCase();
-        return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") || 
-               fileName.endsWith(".png") || fileName.endsWith(".gif") || 
+        return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") ||
+               fileName.endsWith(".png") || fileName.endsWith(".gif") ||
                fileName.endsWith(".bmp") || fileName.endsWith(".webp");
     }
-    
+
     /**
      * 直接缓存下载的文件
      * @param url 资源URL
@@ -156,53 +216,14 @@ public class Pocket48ResourceCache {
      * @return 缓存的文件
      */
     public File cacheFromStream(String url, InputStream inputStream, String fileExtension) {
-        Logger logger = Logger.getLogger("Pocket48ResourceCache");
-        logger.setUseParentHandlers(false); // 不在控制台显示日志
-        
         try {
             // 检查是否已有缓存
             File existingCache = getCachedFile(url);
             if (existingCache != null) {
-                inputStream.close();
                 logger.info("使用现有缓存文件: " + existingCache.getName());
                 return existingCache;
             }
-            
-            // 生成缓存文件名
-            String fileName = generateCacheFileName(url, fileExtension);
-            File cacheFile = new File(cacheDir.toFile(), fileName);
-            
-            // 写入缓存文件
-            long totalBytes = 0;
-            try (FileOutputStream outputStream = new FileOutputStream(cacheFile)) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    totalBytes += bytesRead;
-                }
-            }
-            
-            logger.info("缓存文件写入完成: " + cacheFile.getName() + ", 大小: " + totalBytes + " bytes");
-            
-            // 验证缓存的图片文件完整性
-            if (isImageFile(cacheFile)) {
-                if (!ImageFormatDetector.validateImageIntegrity(cacheFile)) {
-                    logger.warning("缓存的图片文件可能损坏: " + cacheFile.getName());
-                    // 不删除文件，让上层逻辑处理
-                }
-            }
-            
-            // 更新缓存映射
-            urlToFileMap.put(url, cacheFile.getAbsolutePath());
-            fileAccessTime.put(cacheFile.getAbsolutePath(), System.currentTimeMillis());
-            
-            // 文件已缓存
-            
-            // 检查缓存大小
-            checkCacheSize();
-            
-            return cacheFile;
+            return store(url, inputStream, fileExtension);
         } catch (IOException e) {
             logger.severe("[缓存错误] 无法缓存文件: " + e.getMessage());
             return null; // 缓存失败
@@ -214,151 +235,458 @@ public class Pocket48ResourceCache {
             }
         }
     }
-    
+
     /**
-     * 生成缓存文件名
-     * @param url 资源URL
-     * @param fileExtension 文件扩展名
-     * @return 缓存文件名
+     * 写入临时文件并计算内容哈希，再原子发布到对象目录
      */
-    private String generateCacheFileName(String url, String fileExtension) {
+    private File store(String url, InputStream inputStream, String fileExtension) throws IOException {
+        String extension = normalizeExtension(fileExtension);
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".part");
+        MessageDigest digest = sha256();
+        long size;
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(url.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+            try (DigestInputStream in = new DigestInputStream(inputStream, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                size = in.transferTo(out);
             }
-            return "pocket48_" + sb.toString() + fileExtension;
-        } catch (NoSuchAlgorithmException e) {
-            // 如果MD5不可用，使用hashCode
-            return "pocket48_" + Math.abs(url.hashCode()) + fileExtension;
+            if (size == 0) {
+                throw new IOException("资源内容为空: " + url);
+            }
+
+            String hash = toHex(digest.digest());
+            StoredObject object;
+            boolean created = false;
+            synchronized (objects) {
+                object = objects.get(hash);
+                if (object != null && Files.exists(objectPath(object))) {
+                    // 相同内容已存在，丢弃临时文件
+                    dedupHits.incrementAndGet();
+                    lease(object);
+                } else {
+                    object = new StoredObject(hash, extension, size, System.currentTimeMillis());
+                    Path target = objectPath(object);
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    StoredObject previous = objects.put(hash, object);
+                    if (previous != null) {
+                        totalBytes.addAndGet(-previous.size);
+                        deferredDeletes.remove(previous);
+                    }
+                    totalBytes.addAndGet(size);
+                    lease(object);
+                    created = true;
+                }
+            }
+
+            File file = objectPath(object).toFile();
+            if (!file.exists()) {
+                // 去重命中后文件被外部删除：清理索引，由调用方重新下载
+                removeObject(object, false);
+                throw new IOException("缓存对象已丢失: " + file.getName());
+            }
+            if (created) {
+                appendIndex("O\t" + hash + "\t" + extension + "\t" + size + "\t" + object.lastAccess);
+                logger.info("缓存文件写入完成: " + file.getName() + ", 大小: " + size + " bytes");
+
+                // 验证缓存的图片文件完整性
+                if (isImageFile(file) && !ImageFormatDetector.validateImageIntegrity(file)) {
+                    logger.warning("缓存的图片文件可能损坏: " + file.getName());
+                    // 不删除文件，让上层逻辑处理
+                }
+            } else {
+                touch(object);
+            }
+
+            if (bindUrl(url, hash)) {
+                appendIndex("U\t" + hash + "\t" + url);
+            }
+
+            // 写入时执行容量上限
+            enforceSizeLimit(hash);
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
-    
+
     /**
-     * 清理过期文件
+     * 记录URL指向的内容哈希
+     * @return 映射是否发生变化
      */
-    private void cleanupExpiredFiles() {
-        try {
-            long currentTime = System.currentTimeMillis();
-            int cleanedCount = 0;
-            
-            // 清理过期文件
-            for (String filePath : fileAccessTime.keySet()) {
-                Long accessTime = fileAccessTime.get(filePath);
-                if (accessTime != null && (currentTime - accessTime) > CACHE_EXPIRE_TIME) {
-                    File file = new File(filePath);
-                    if (file.exists() && file.delete()) {
-                        fileAccessTime.remove(filePath);
-                        // 从URL映射中移除
-                        urlToFileMap.entrySet().removeIf(entry -> entry.getValue().equals(filePath));
-                        cleanedCount++;
+    private boolean bindUrl(String url, String hash) {
+        synchronized (objects) {
+            String previous = urlToHash.put(url, hash);
+            if (hash.equals(previous)) {
+                return false;
+            }
+            if (previous != null) {
+                Set<String> aliases = hashToUrls.get(previous);
+                if (aliases != null) {
+                    aliases.remove(url);
+                    if (aliases.isEmpty()) {
+                        hashToUrls.remove(previous);
                     }
                 }
             }
-            
-            if (cleanedCount > 0) {
-                // 缓存清理完成
+            hashToUrls.computeIfAbsent(hash, k -> new HashSet<>()).add(url);
+            return true;
+        }
+    }
+
+    private void unbindUrl(String url, String hash) {
+        synchronized (objects) {
+            if (urlToHash.remove(url, hash)) {
+                Set<String> aliases = hashToUrls.get(hash);
+                if (aliases != null) {
+                    aliases.remove(url);
+                    if (aliases.isEmpty()) {
+                        hashToUrls.remove(hash);
+                    }
+                }
+            }
+        }
+    }
+
+    private Path objectPath(StoredObject object) {
+        return objectsDir.resolve(object.hash.substring(0, 2)).resolve(object.hash + object.extension);
+    }
+
+    private static String normalizeExtension(String fileExtension) {
+        if (fileExtension == null || fileExtension.isEmpty()) {
+            return ".dat";
+        }
+        String ext = fileExtension.startsWith(".") ? fileExtension : "." + fileExtension;
+        // 扩展名会出现在文件名和索引中，只保留安全字符
+        return ext.matches("\\.[A-Za-z0-9]{1,10}") ? ext.toLowerCase() : ".dat";
+    }
+
+    private void touch(StoredObject object) {
+        long now = System.currentTimeMillis();
+        object.lastAccess = now;
+        if (now - object.lastLoggedAccess > ACCESS_LOG_INTERVAL) {
+            object.lastLoggedAccess = now;
+            appendIndex("A\t" + object.hash + "\t" + now);
+        }
+    }
+
+    /**
+     * 延长对象的租约，调用方需持有objects锁
+     */
+    private void lease(StoredObject object) {
+        object.leasedUntil = Math.max(object.leasedUntil, System.currentTimeMillis() + leaseTime);
+    }
+
+    /**
+     * 按最近访问时间淘汰对象，直到总大小不超过上限
+     * 租约期内的对象不淘汰，此时总大小可能暂时超过上限
+     * @param keepHash 刚写入的对象，不参与淘汰
+     */
+    private void enforceSizeLimit(String keepHash) {
+        if (totalBytes.get() <= maxCacheSize) {
+            return;
+        }
+        List<StoredObject> candidates = new ArrayList<>(objects.values());
+        candidates.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+        long now = System.currentTimeMillis();
+        for (StoredObject object : candidates) {
+            if (totalBytes.get() <= maxCacheSize) {
+                break;
+            }
+            if (object.hash.equals(keepHash)) {
+                continue;
+            }
+            synchronized (objects) {
+                if (object.leasedUntil > now) {
+                    leaseSkips.incrementAndGet();
+                    continue;
+                }
+                if (objects.get(object.hash) == object) {
+                    removeObject(object, true);
+                    evictions.incrementAndGet();
+                }
             }
-        } catch (Exception e) {
-            // 静默处理缓存清理错误
         }
     }
-    
+
     /**
-     * 检查缓存大小，如果超过限制则清理最旧的文件
+     * 从索引移除对象；删除文件时，租约未结束的文件推迟到租约结束后删除
      */
-    private void checkCacheSize() {
+    private void removeObject(StoredObject object, boolean deleteFile) {
+        synchronized (objects) {
+            if (!objects.remove(object.hash, object)) {
+                return;
+            }
+            totalBytes.addAndGet(-object.size);
+            Set<String> aliases = hashToUrls.remove(object.hash);
+            if (aliases != null) {
+                for (String url : aliases) {
+                    urlToHash.remove(url, object.hash);
+                }
+            }
+            if (deleteFile) {
+                if (object.leasedUntil > System.currentTimeMillis()) {
+                    deferredDeletes.put(object, Boolean.TRUE);
+                } else {
+                    deleteFile(object);
+                }
+            }
+        }
+        appendIndex("D\t" + object.hash);
+    }
+
+    private void deleteFile(StoredObject object) {
         try {
-            long totalSize = Files.walk(cacheDir)
-                .filter(Files::isRegularFile)
-                .mapToLong(path -> {
+            Files.deleteIfExists(objectPath(object));
+        } catch (IOException e) {
+            // 静默处理文件删除失败
+        }
+    }
+
+    /**
+     * 删除租约已结束的推迟对象；相同内容已重新写入时保留文件
+     * @param force 是否忽略租约（关闭时调用，关闭后不再有调用方使用这些文件）
+     */
+    private void deleteDeferred(boolean force) {
+        long now = System.currentTimeMillis();
+        synchronized (objects) {
+            deferredDeletes.keySet().removeIf(object -> {
+                if (!force && object.leasedUntil > now) {
+                    return false;
+                }
+                StoredObject current = objects.get(object.hash);
+                if (current == null || !objectPath(current).equals(objectPath(object))) {
+                    deleteFile(object);
+                }
+                return true;
+            });
+        }
+    }
+
+    // ==================== 索引日志 ====================
+
+    /**
+     * 回放索引日志，丢弃文件已不存在或已过期的对象，然后压缩重写
+     */
+    private void loadIndex() {
+        if (Files.exists(indexFile)) {
+            Map<String, String> urls = new ConcurrentHashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", 3);
+                    try {
+                        switch (parts[0]) {
+                            case "O": {
+                                String[] o = line.split("\t");
+                                objects.put(o[1], new StoredObject(o[1], o[2], Long.parseLong(o[3]), Long.parseLong(o[4])));
+                                break;
+                            }
+                            case "U":
+                                urls.put(parts[2], parts[1]);
+                                break;
+                            case "A": {
+                                StoredObject object = objects.get(parts[1]);
+                                if (object != null) {
+                                    object.lastAccess = Long.parseLong(parts[2]);
+                                    object.lastLoggedAccess = object.lastAccess;
+                                }
+                                break;
+                            }
+                            case "D":
+                                objects.remove(parts[1]);
+                                break;
+                            default:
+                                break;
+                        }
+                    } catch (RuntimeException e) {
+                        // 静默处理损坏的日志行（如写到一半时进程退出）
+                    }
+                }
+            } catch (IOException e) {
+                // 静默处理索引读取失败，按空缓存启动
+            }
+
+            long now = System.currentTimeMillis();
+            objects.values().removeIf(object -> {
+                Path path = objectPath(object);
+                boolean stale = now - object.lastAccess > CACHE_EXPIRE_TIME;
+                if (stale || !Files.exists(path)) {
                     try {
-                        return Files.size(path);
+                        Files.deleteIfExists(path);
                     } catch (IOException e) {
-                        return 0;
+                        // 静默处理文件删除失败
+                    }
+                    return true;
+                }
+                return false;
+            });
+            for (Map.Entry<String, String> entry : urls.entrySet()) {
+                if (objects.containsKey(entry.getValue())) {
+                    bindUrl(entry.getKey(), entry.getValue());
+                }
+            }
+            for (StoredObject object : objects.values()) {
+                totalBytes.addAndGet(object.size);
+            }
+        }
+        deleteUnindexedFiles();
+        compactIndex();
+    }
+
+    /**
+     * 删除对象目录中索引没有记录的文件：关闭时仍在推迟删除的对象，
+     * 或刚移入对象目录、索引行还没写入时进程退出留下的文件；否则它们永远不会被回收，磁盘占用超过上限
+     */
+    private void deleteUnindexedFiles() {
+        Set<Path> indexed = new HashSet<>();
+        for (StoredObject object : objects.values()) {
+            indexed.add(objectPath(object));
+        }
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(objectsDir)) {
+            for (Path prefix : prefixes) {
+                if (!Files.isDirectory(prefix)) {
+                    Files.deleteIfExists(prefix);
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix)) {
+                    for (Path file : files) {
+                        if (!indexed.contains(file)) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 静默处理孤立文件清理失败，下次启动再试
+        }
+    }
+
+    private void appendIndex(String line) {
+        synchronized (indexLock) {
+            try {
+                if (indexWriter == null) {
+                    indexWriter = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                indexWriter.write(line);
+                indexWriter.write('\n');
+                indexWriter.flush();
+                indexLines++;
+            } catch (IOException e) {
+                // 静默处理索引写入失败，内存索引仍然有效
+            }
+        }
+        if (indexLines > COMPACT_MIN_LINES && indexLines > 4 * (objects.size() + urlToHash.size())) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * 用当前内存索引重写日志：先写临时文件，再原子替换
+     */
+    private void compactIndex() {
+        synchronized (indexLock) {
+            Path temp = cacheDir.resolve("index.log.tmp");
+            try {
+                if (indexWriter != null) {
+                    indexWriter.close();
+                    indexWriter = null;
+                }
+                int lines = 0;
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    for (StoredObject object : objects.values()) {
+                        writer.write("O\t" + object.hash + "\t" + object.extension + "\t" + object.size + "\t" + object.lastAccess + "\n");
+                        lines++;
+                    }
+                    for (Map.Entry<String, String> entry : urlToHash.entrySet()) {
+                        writer.write("U\t" + entry.getValue() + "\t" + entry.getKey() + "\n");
+                        lines++;
                     }
-                })
-                .sum();
-                
-            if (totalSize > MAX_CACHE_SIZE) {
-                // 缓存大小超限，开始清理最旧文件
-                cleanOldestFiles(totalSize - MAX_CACHE_SIZE / 2); // 清理到一半大小
+                }
+                try {
+                    Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                indexLines = lines;
+            } catch (IOException e) {
+                // 静默处理压缩失败，继续追加旧日志
+            }
+        }
+    }
+
+    private void clearTempDir() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir)) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
             }
         } catch (IOException e) {
-            // 静默处理缓存大小检查错误
+            // 静默处理临时文件清理失败
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
         }
+        return sb.toString();
     }
-    
+
     /**
-     * 清理最旧的文件
-     * @param targetCleanSize 目标清理大小
+     * 清理过期文件，并删除租约已结束的推迟对象
      */
-    private void cleanOldestFiles(long targetCleanSize) {
-        fileAccessTime.entrySet().stream()
-            .sorted((e1, e2) -> Long.compare(e1.getValue(), e2.getValue()))
-            .limit(20) // 最多清理20个文件
-            .forEach(entry -> {
-                String filePath = entry.getKey();
-                File file = new File(filePath);
-                if (file.exists() && file.delete()) {
-                    fileAccessTime.remove(filePath);
-                    urlToFileMap.entrySet().removeIf(urlEntry -> urlEntry.getValue().equals(filePath));
+    void cleanupExpiredFiles() {
+        try {
+            long currentTime = System.currentTimeMillis();
+            for (StoredObject object : new ArrayList<>(objects.values())) {
+                if (currentTime - object.lastAccess > CACHE_EXPIRE_TIME) {
+                    removeObject(object, true);
                 }
-            });
+            }
+            deleteDeferred(false);
+        } catch (Exception e) {
+            // 静默处理缓存清理错误
+        }
     }
-    
+
     /**
      * 获取缓存统计信息
      * @return 缓存统计信息
      */
     public String getCacheStats() {
-        try {
-            long fileCount = Files.walk(cacheDir)
-                .filter(Files::isRegularFile)
-                .count();
-                
-            long totalSize = Files.walk(cacheDir)
-                .filter(Files::isRegularFile)
-                .mapToLong(path -> {
-                    try {
-                        return Files.size(path);
-                    } catch (IOException e) {
-                        return 0;
-                    }
-                })
-                .sum();
-                
-            return String.format("缓存统计: %d 个文件, %.2f MB", 
-                fileCount, totalSize / 1024.0 / 1024.0);
-        } catch (IOException e) {
-            return "缓存统计获取失败: " + e.getMessage();
-        }
+        return String.format("缓存统计: %d 个文件, %d 个URL, %.2f MB, 命中: %d, 未命中: %d, 内容去重: %d, 淘汰: %d, 租约中跳过: %d, 待删除: %d",
+            objects.size(), urlToHash.size(), totalBytes.get() / 1024.0 / 1024.0,
+            hits.get(), misses.get(), dedupHits.get(), evictions.get(), leaseSkips.get(), deferredDeletes.size());
     }
-    
+
     /**
      * 清空所有缓存
      */
     public void clearAll() {
-        try {
-            Files.walk(cacheDir)
-                .filter(Files::isRegularFile)
-                .forEach(path -> {
-                    try {
-                        Files.delete(path);
-                    } catch (IOException e) {
-                        // 忽略删除失败
-                    }
-                });
-            urlToFileMap.clear();
-            fileAccessTime.clear();
-            // 所有缓存已清空
-        } catch (IOException e) {
-            // 静默处理缓存清空错误
+        for (StoredObject object : new ArrayList<>(objects.values())) {
+            removeObject(object, true);
+        }
+        synchronized (objects) {
+            urlToHash.clear();
+            hashToUrls.clear();
         }
+        compactIndex();
+        // 所有缓存已清空
     }
-    
+
     /**
      * 关闭缓存管理器
      */
@@ -366,5 +694,8 @@ public class Pocket48ResourceCache {
         if (cleanupTaskId != null) {
             UnifiedSchedulerManager.getInstance().cancelTask(cleanupTaskId);
         }
+        // 推迟删除的对象已不在索引中，关闭时一并删除，不留到磁盘上
+        deleteDeferred(true);
+        compactIndex();
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,12 @@ import java.io.FileOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 口袋48资源处理器
@@ -20,6 +26,14 @@ import java.nio.file.Paths;
  */
 public class Pocket48ResourceHandler extends AsyncWebHandlerBase {
     
+    // 等待其他线程下载同一URL的最长时间
+    private static final long DOWNLOAD_WAIT_TIMEOUT_MS = 120000;
+    
+    // 进行中的下载：URL -> 下载结果（媒体存储中的已发布文件），同一URL同时只下载一次
+    private static final ConcurrentHashMap<String, CompletableFuture<File>> inFlightDownloads = new ConcurrentHashMap<>();
+    private static final AtomicLong downloadCount = new AtomicLong(0);
+    private static final AtomicLong coalescedCount = new AtomicLong(0);
+    
     /**
      * 获取口袋48资源的输入流（带缓存支持）
      * 添加必要的请求头以确保资源能够正常访问
@@ -41,7 +55,8 @@ public class Pocket48ResourceHandler extends AsyncWebHandlerBase {
             // 为了避免资源泄漏，我们下载到临时文件然后返回文件流
             // 根据URL推断文件扩展名，避免使用.tmp后缀
             String fileExtension = getFileExtensionFromUrl(url);
-            File tempFile = downloadToTempFileInternal(url, fileExtension);
+            File tempFile = downloadShared(url, fileExtension);
+            // 每个调用方拿到独立的只读流
             return new FileInputStream(tempFile);
         } catch (IOException e) {
             throw new RuntimeException("获取口袋48资源流失败: " + e.getMessage(), e);
@@ -202,7 +217,7 @@ public class Pocket48ResourceHandler extends AsyncWebHandlerBase {
         
         for (int i = 0; i <= maxRetries; i++) {
             try {
-                return downloadToTempFileInternal(url, fileExtension);
+                return downloadShared(url, fileExtension);
             } catch (Exception e) {
                 lastException = e;
                 if (i < maxRetries) {
@@ -248,6 +263,60 @@ public class Pocket48ResourceHandler extends AsyncWebHandlerBase {
         }
     }
     
+    /**
+     * 按URL合并并发下载
+     * 第一个调用方负责下载，其余调用方等待同一个结果；
+     * 结果是媒体存储中已原子发布的文件，不会读到写了一半的内容
+     * 
+     * @param url 资源URL
+     * @param fileExtension 文件扩展名
+     * @return 本地文件
+     * @throws IOException 下载失败或等待超时
+     */
+    private File downloadShared(String url, String fileExtension) throws IOException {
+        CompletableFuture<File> created = new CompletableFuture<>();
+        CompletableFuture<File> existing = inFlightDownloads.putIfAbsent(url, created);
+        
+        if (existing == null) {
+            try {
+                // 其他线程可能刚刚下载完成
+                File file = Pocket48ResourceCache.getInstance().getCachedFile(url);
+                if (file == null) {
+                    downloadCount.incrementAndGet();
+                    file = downloadToTempFileInternal(url, fileExtension);
+                }
+                created.complete(file);
+                return file;
+            } catch (IOException | RuntimeException e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightDownloads.remove(url, created);
+            }
+        }
+        
+        coalescedCount.incrementAndGet();
+        try {
+            return existing.get(DOWNLOAD_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待下载被中断: " + url, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("下载失败: " + url, cause);
+        } catch (TimeoutException e) {
+            throw new IOException("等待下载超时: " + url, e);
+        }
+    }
+    
+    /**
+     * 获取下载合并统计
+     */
+    public static String getDownloadStats() {
+        return String.format("资源下载 - 实际下载: %d, 合并等待: %d, 进行中: %d",
+                downloadCount.get(), coalescedCount.get(), inFlightDownloads.size());
+    }
+    
     /**
      * 内部下载方法（集成缓存，增强版）
      * 
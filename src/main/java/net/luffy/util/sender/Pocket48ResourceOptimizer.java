@@ -184,7 +184,8 @@ public class Pocket48ResourceOptimizer {
     }
     
     /**
-     * 清理过期的缓存文件
+     * 清理过期的缓存映射
+     * 文件本身由Pocket48ResourceCache按访问时间和容量管理，这里只移除映射，不删除文件
      * @param maxAgeMinutes 最大缓存时间（分钟）
      */
     public void cleanupExpiredCache(int maxAgeMinutes) {
@@ -192,18 +193,7 @@ public class Pocket48ResourceOptimizer {
         
         resourceCache.entrySet().removeIf(entry -> {
             File file = entry.getValue();
-            if (file == null || !file.exists() || file.lastModified() < maxAge) {
-                if (file != null && file.exists()) {
-                    try {
-                        file.delete();
-                        // 删除过期文件
-                    } catch (Exception e) {
-                        // 静默处理缓存清理失败
-                    }
-                }
-                return true;
-            }
-            return false;
+            return file == null || !file.exists() || file.lastModified() < maxAge;
         });
     }
     
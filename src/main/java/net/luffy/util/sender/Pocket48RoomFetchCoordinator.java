@@ -0,0 +1,111 @@
+package net.luffy.util.sender;
+
+import net.luffy.model.Pocket48SenderCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 口袋48房间拉取协调器
+ * 每个调度周期创建一个实例，在所有群之间共享：
+ * 同一房间在一个周期内只拉取一次（每个roomID一个进行中的CompletableFuture），
+ * 结果分发给所有订阅该房间的群，各群仍按自己的endTime游标过滤消息；
+ * 同时持有本周期的消息预处理器，同一条消息的媒体在各群之间只处理一次
+ */
+public class Pocket48RoomFetchCoordinator {
+
+    // 等待其他线程拉取同一房间的最长时间
+    private static final long FETCH_WAIT_TIMEOUT_MS = 30000;
+    // 拉取失败时的快速重试延迟：0.5秒、1.5秒
+    private static final long[] RETRY_DELAYS = {500, 1500};
+
+    private final ConcurrentHashMap<Long, CompletableFuture<Pocket48SenderCache>> rooms = new ConcurrentHashMap<>();
+    private final Pocket48MessagePreparer preparer = new Pocket48MessagePreparer();
+
+    // 统计
+    private final AtomicInteger fetchCount = new AtomicInteger(0);
+    private final AtomicInteger sharedCount = new AtomicInteger(0);
+
+    /**
+     * 获取房间快照
+     * 第一个请求该房间的线程负责拉取，其余线程等待同一个结果
+     *
+     * @param roomID 房间ID
+     * @return 房间快照，拉取失败时返回null
+     */
+    public Pocket48SenderCache get(long roomID) {
+        CompletableFuture<Pocket48SenderCache> created = new CompletableFuture<>();
+        CompletableFuture<Pocket48SenderCache> existing = rooms.putIfAbsent(roomID, created);
+
+        if (existing == null) {
+            // 当前线程负责拉取
+            fetchCount.incrementAndGet();
+            try {
+                created.complete(fetchWithRetry(roomID));
+            } catch (Throwable e) {
+                created.complete(null);
+            }
+            return created.getNow(null);
+        }
+
+        sharedCount.incrementAndGet();
+        try {
+            return existing.get(FETCH_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 拉取房间快照，失败时进行快速重试
+     */
+    private Pocket48SenderCache fetchWithRetry(long roomID) {
+        Pocket48SenderCache snapshot = Pocket48SenderCache.create(roomID);
+        for (int attempt = 0; snapshot == null && attempt < RETRY_DELAYS.length; attempt++) {
+            try {
+                Thread.sleep(RETRY_DELAYS[attempt]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            snapshot = Pocket48SenderCache.create(roomID);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 本周期共享的消息预处理器
+     */
+    public Pocket48MessagePreparer getPreparer() {
+        return preparer;
+    }
+
+    /**
+     * 本周期实际拉取的房间数
+     */
+    public int getFetchCount() {
+        return fetchCount.get();
+    }
+
+    /**
+     * 本周期复用已有拉取结果的次数
+     */
+    public int getSharedCount() {
+        return sharedCount.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("房间拉取协调 - 实际拉取: %d, 共享复用: %d; %s",
+                fetchCount.get(), sharedCount.get(), preparer.getStats());
+    }
+}
@@ -6,6 +6,7 @@ import net.luffy.handler.Pocket48Handler;
 import net.luffy.util.sender.Pocket48UnifiedResourceManager;
 import net.luffy.util.sender.Pocket48ActivityMonitor;
 import net.luffy.util.PerformanceMonitor;
+import net.luffy.util.PollCursorStore;
 import net.luffy.util.MessageDelayConfig;
 import net.luffy.model.*;
 import net.mamoe.mirai.Bot;
@@ -14,9 +15,8 @@ import net.mamoe.mirai.message.data.*;
 import net.mamoe.mirai.message.data.ShortVideo;
 import net.mamoe.mirai.utils.ExternalResource;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -24,19 +24,22 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Pocket48Sender extends Sender {
 
-    //endTime是一个关于roomID的HashMap
-    private final HashMap<Long, Long> endTime;
-    private final HashMap<Long, List<Long>> voiceStatus;
-    private final HashMap<Long, Pocket48SenderCache> cache;
+    //endTime是一个关于roomID的Map，取消订阅时会被命令线程修改
+    private final Map<Long, Long> endTime;
+    private final Map<Long, List<Long>> voiceStatus;
+    private final Pocket48RoomFetchCoordinator coordinator;
     private final Pocket48UnifiedResourceManager unifiedResourceManager;
     private final Pocket48AsyncMessageProcessor asyncProcessor;
     private final MessageDelayConfig delayConfig;
@@ -44,12 +47,15 @@ public class Pocket48Sender extends Sender {
     private final Pocket48MediaQueue mediaQueue;
     private final Pocket48ActivityMonitor activityMonitor;
     private final ScheduledExecutorService delayExecutor;
+    // 媒体下载/上传失败的消息已重试的周期数（群:房间:消息时间 -> 次数），发送器每周期重建，放在静态表中
+    private static final ConcurrentHashMap<String, Integer> mediaFailures = new ConcurrentHashMap<>();
+    private static final int MAX_MEDIA_RETRY_ROUNDS = 3;
 
-    public Pocket48Sender(Bot bot, long group, HashMap<Long, Long> endTime, HashMap<Long, List<Long>> voiceStatus, HashMap<Long, Pocket48SenderCache> cache) {
+    public Pocket48Sender(Bot bot, long group, Map<Long, Long> endTime, Map<Long, List<Long>> voiceStatus, Pocket48RoomFetchCoordinator coordinator) {
         super(bot, group);
         this.endTime = endTime;
         this.voiceStatus = voiceStatus;
-        this.cache = cache;
+        this.coordinator = coordinator;
         this.unifiedResourceManager = Pocket48UnifiedResourceManager.getInstance();
         this.asyncProcessor = new Pocket48AsyncMessageProcessor(this);
         this.delayConfig = MessageDelayConfig.getInstance();
@@ -61,6 +67,46 @@ public class Pocket48Sender extends Sender {
             t.setDaemon(true);
             return t;
         });
+        seedCursors();
+    }
+
+    /**
+     * 为本群订阅的房间建立游标：优先恢复上次停机前已发送到的位置，否则从当前时间开始，
+     * 并登记到房间的增量拉取游标，使房间的拉取起点覆盖本群
+     * 在构造时（提交到发送线程之前）执行，保证本周期任何群开始拉取前所有群都已登记
+     */
+    private void seedCursors() {
+        Pocket48Subscribe subscribe = Newboy.INSTANCE.getProperties().pocket48_subscribe.get(group_id);
+        if (subscribe == null) {
+            return;
+        }
+        Pocket48Handler pocket = Newboy.INSTANCE.getHandlerPocket48();
+        PollCursorStore cursors = PollCursorStore.getInstance();
+        for (long roomID : subscribe.getRoomIDs()) {
+            if (!endTime.containsKey(roomID)) {
+                Long restored = cursors.restoreTime(endTimeKey(roomID));
+                endTime.put(roomID, restored != null ? restored : EndTime.newTime());
+            }
+            pocket.seedRoomCursor(roomID, group_id, endTime.get(roomID));
+        }
+    }
+
+    private String endTimeKey(long roomID) {
+        return endTimeKey(group_id, roomID);
+    }
+
+    /**
+     * 群在房间上已发送到的位置在游标存储中的键
+     */
+    public static String endTimeKey(long group, long roomID) {
+        return "pocket48.group." + group + "." + roomID;
+    }
+
+    /**
+     * 群在房间上的语音状态在游标存储中的键
+     */
+    public static String voiceKey(long group, long roomID) {
+        return "pocket48.voice." + group + "." + roomID;
     }
 
     @Override
@@ -68,47 +114,31 @@ public class Pocket48Sender extends Sender {
         try {
             Pocket48Subscribe subscribe = Newboy.INSTANCE.getProperties().pocket48_subscribe.get(group_id);
             Pocket48Handler pocket = Newboy.INSTANCE.getHandlerPocket48();
+            PollCursorStore cursors = PollCursorStore.getInstance();
 
-            //房间消息获取 - 改进的重试机制（优化：减少重试延迟）
+            //房间消息获取 - 同一周期内同一房间只拉取一次，由协调器在各群之间共享
+            Map<Long, Pocket48SenderCache> rooms = new HashMap<>();
             for (long roomID : subscribe.getRoomIDs()) {
-                if (!cache.containsKey(roomID)) {
-                    cache.put(roomID, Pocket48SenderCache.create(roomID, endTime));
-                }
-                
-                // 智能重试机制：如果创建失败，进行快速重试
-                if (cache.get(roomID) == null) {
-                    boolean retrySuccess = false;
-                    int maxRetries = 2; // 减少重试次数
-                    long[] retryDelays = {500, 1500}; // 减少延迟：0.5秒、1.5秒
-                    
-                    for (int attempt = 1; attempt <= maxRetries && !retrySuccess; attempt++) {
-                        try {
-                            Thread.sleep(retryDelays[attempt-1]);
-                            
-                            Pocket48SenderCache newCache = Pocket48SenderCache.create(roomID, endTime);
-                            cache.put(roomID, newCache);
-                            retrySuccess = true;
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        } catch (RuntimeException e) {
-                            // 静默处理缓存创建失败，继续重试
-                        }
-                    }
-                }
+                rooms.put(roomID, coordinator.get(roomID));
             }
 
             List<Pocket48Message[]> totalMessages = new ArrayList<>();
 
             for (long roomID : subscribe.getRoomIDs()) {
-                if (cache.get(roomID) == null) {
+                Pocket48SenderCache room = rooms.get(roomID);
+                if (room == null) {
                     continue;
                 }
 
-                Pocket48RoomInfo roomInfo = cache.get(roomID).roomInfo;
+                Pocket48RoomInfo roomInfo = room.roomInfo;
 
-                //房间消息预处理
-                Pocket48Message[] a = cache.get(roomID).messages;
+                //房间消息预处理：按本群游标过滤，重启后的第一次追补条数有上限；游标在发送成功后才推进
+                if (!endTime.containsKey(roomID)) {
+                    // 本周期内新增的订阅
+                    endTime.put(roomID, EndTime.newTime());
+                    pocket.seedRoomCursor(roomID, group_id, endTime.get(roomID));
+                }
+                Pocket48Message[] a = cursors.trimReplay(endTimeKey(roomID), room.getMessagesAfter(endTime.get(roomID)));
                 if (a.length > 0) {
                     // 记录消息活跃度
                     activityMonitor.recordBatchMessageActivity(roomID, java.util.Arrays.asList(a));
@@ -116,7 +146,14 @@ public class Pocket48Sender extends Sender {
                 }
 
                 //房间语音
-                List<Long> n = cache.get(roomID).voiceList;
+                List<Long> n = room.voiceList;
+                String voiceKey = voiceKey(group_id, roomID);
+                if (!voiceStatus.containsKey(roomID)) {
+                    List<Long> restored = decodeVoiceList(cursors.restore(voiceKey));
+                    if (restored != null) {
+                        voiceStatus.put(roomID, restored);
+                    }
+                }
                 if (voiceStatus.containsKey(roomID)) {
                     String[] r = handleVoiceList(voiceStatus.get(roomID), n);
                     if (r[0] != null || r[1] != null) {
@@ -152,6 +189,7 @@ public class Pocket48Sender extends Sender {
                     }
                 }
                 voiceStatus.put(roomID, n);
+                cursors.put(voiceKey, encodeVoiceList(n));
             }
 
             //房间消息 - 优化：快速发送模式，减少延迟
@@ -167,8 +205,15 @@ public class Pocket48Sender extends Sender {
                 // 按消息时间戳排序（从旧到新）
                 allMessages.sort((a, b) -> Long.compare(a.getTime(), b.getTime()));
                 
-                // 使用现有的消息发送方法
-                sendMessages(allMessages, group);
+                // 使用现有的消息发送方法，按各房间实际发送成功的位置推进游标
+                Map<Long, Long> delivered = sendMessages(allMessages, group);
+                for (Map.Entry<Long, Long> e : delivered.entrySet()) {
+                    long roomID = e.getKey();
+                    long time = Math.max(e.getValue(), endTime.getOrDefault(roomID, 0L));
+                    endTime.put(roomID, time);
+                    pocket.ackRoomCursor(roomID, group_id, time);
+                    cursors.putLong(endTimeKey(roomID), time);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -196,6 +241,32 @@ public class Pocket48Sender extends Sender {
                 (jianshao.length() > 0 ? jianshao.substring(1) : null)};
     }
 
+    //语音状态写入游标存储的格式：逗号分隔的成员ID
+    private static String encodeVoiceList(List<Long> list) {
+        StringBuilder sb = new StringBuilder();
+        for (Long id : list) {
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    private static List<Long> decodeVoiceList(String value) {
+        if (value == null)
+            return null;
+        List<Long> list = new ArrayList<>();
+        try {
+            for (String id : value.split(",")) {
+                if (!id.isEmpty())
+                    list.add(Long.parseLong(id));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return list;
+    }
+
     /**
      * 快速解析消息（优先处理文本类消息，媒体消息返回占位符）
      * 解决同步阻塞问题：文本消息立即处理，媒体消息异步处理
@@ -281,70 +352,16 @@ public class Pocket48Sender extends Sender {
                     return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(errorContent)});
                 }
                 
-                File audioFile = null;
-                
                 try {
-                    // 智能获取音频文件（优先使用缓存）
+                    // 下载、格式检测和转码在各群之间只做一次
                     String audioExt = message.getExt() != null && !message.getExt().isEmpty() ? "." + message.getExt() : ".amr";
-                    audioFile = unifiedResourceManager.getResourceSmart(audioUrl);
-                    
-                    // 如果缓存未命中，使用传统下载方式
-                    if (audioFile == null) {
-                        audioFile = unifiedResourceManager.downloadToTempFile(audioUrl, audioExt);
-                    }
-                    
-                    if (audioFile == null || !audioFile.exists()) {
-                        throw new RuntimeException("音频文件获取失败");
-                    }
-                    
-                    // 读取文件头进行格式检测
-                    byte[] header = new byte[16];
-                    try (InputStream fileStream = java.nio.file.Files.newInputStream(audioFile.toPath())) {
-                        int bytesRead = fileStream.read(header);
-                        
-                        if (bytesRead > 0) {
-                            String format = net.luffy.util.AudioFormatDetector.detectFormat(header);
-                            String compatibility = net.luffy.util.AudioFormatDetector.getCompatibilityDescription(format);
-                            
-                            // 记录音频格式信息（仅在调试时使用）
-                            
-                            if (!net.luffy.util.AudioFormatDetector.isQQCompatible(format)) {
-                                // 检测到不兼容格式，尝试转换为AMR格式
-                                // 尝试转换音频格式
-                                try (InputStream audioInputStream = java.nio.file.Files.newInputStream(audioFile.toPath());
-                                     BufferedInputStream bufferedAudioStream = new BufferedInputStream(audioInputStream)) {
-                                    InputStream convertedStream = net.luffy.util.AudioFormatConverter.convertToAMR(bufferedAudioStream, format);
-                                    if (convertedStream != null) {
-                                        // 将转换后的音频保存到新的临时文件
-                                        File convertedFile = new File(audioFile.getParent(), "converted_" + audioFile.getName().replaceAll("\\.[^.]+$", ".amr"));
-                                        try (FileOutputStream fos = new FileOutputStream(convertedFile)) {
-                                            byte[] buffer = new byte[8192];
-                                            int bytesReadConv;
-                                            while ((bytesReadConv = convertedStream.read(buffer)) != -1) {
-                                                fos.write(buffer, 0, bytesReadConv);
-                                            }
-                                        }
-                                        convertedFile.deleteOnExit();
-                                        
-                                        // 删除原文件，使用转换后的文件
-                                        audioFile.delete();
-                                        audioFile = convertedFile;
-                                        // 音频格式转换完成
-                                    } else {
-                                        System.err.println("[音频转换] 音频格式转换失败，使用原始音频");
-                                    }
-                                }
-                            }
-                        } else {
-                            System.err.println("[警告] 无法读取音频文件头，可能是空文件或损坏的文件");
-                        }
-                    }
+                    Pocket48MessagePreparer.PreparedMedia media = prepareAudio(message, "audio", audioUrl, audioExt);
                     
                     // 上传音频
-                    try (ExternalResource audioResource = ExternalResource.create(audioFile)) {
-                        Audio audio = group.uploadAudio(audioResource);
+                    try (ExternalResource audioResource = media.toExternalResource()) {
+                        Audio audio = net.luffy.util.MediaUploadCache.getInstance().uploadAudio(group, audioResource);
                         // 音频上传成功
-                        String audioContent = "【" + n + "】: 发送了一条语音\n查看链接: " + (audioUrl != null ? audioUrl : "[链接获取失败]") + "\n频道：" + r + "\n时间: " + timeStr;
+                        String audioContent = "【" + n + "】: 发送了一条语音\n查看链接: " + audioUrl + "\n频道：" + r + "\n时间: " + timeStr;
                         return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(audioContent), audio});
                     }
                 } catch (Exception e) {
@@ -353,21 +370,12 @@ public class Pocket48Sender extends Sender {
                     String errorContent = "【" + n + "】: 语音消息处理失败(" + e.getMessage() + ")\n频道：" + r + "\n时间: " + timeStr;
                     return new Pocket48SenderMessage(false, null,
                             new Message[]{new PlainText(errorContent)});
-                } finally {
-                    // 清理临时文件
-                    if (audioFile != null && audioFile.exists()) {
-                        try {
-                            audioFile.delete();
-                            // 删除临时音频文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时音频文件失败: " + e.getMessage());
-                        }
-                    }
                 }
             }
             case IMAGE: {
-                try (ExternalResource imageResource = ExternalResource.create(getRes(message.getResLoc()))) {
-                    Image image = group.uploadImage(imageResource);
+                Pocket48MessagePreparer.PreparedMedia media = prepareImage(message, "image", message.getResLoc(), false);
+                try (ExternalResource imageResource = media.toExternalResource()) {
+                    Image image = net.luffy.util.MediaUploadCache.getInstance().uploadImage(group, imageResource);
                     // 创建包含图片的消息链，图片嵌入到消息中
                     MessageChain messageChain = new PlainText("【" + n + "】: 发送了一张图片\n").plus(image).plus("\n频道：" + r + "\n时间: " + timeStr);
                     return new Pocket48SenderMessage(false, null, new Message[]{messageChain});
@@ -381,29 +389,17 @@ public class Pocket48Sender extends Sender {
                     
                     // 尝试获取表情图片资源
                     if (resUrl != null && !resUrl.trim().isEmpty()) {
-                        Newboy.INSTANCE.getLogger().info("开始处理口袋48表情图片: " + resUrl);
-                        
                         try {
-                            // 首先验证资源可用性
-                             Pocket48ResourceHandler.Pocket48ResourceInfo resourceInfo = 
-                                 unifiedResourceManager.checkResourceAvailability(resUrl);
-                            
-                            if (!resourceInfo.isAvailable()) {
-                                Newboy.INSTANCE.getLogger().warning("口袋48表情资源不可用: " + resUrl + 
-                                    ", 状态码: " + resourceInfo.getStatusCode() + 
-                                    ", 错误: " + resourceInfo.getErrorMessage());
-                                throw new RuntimeException("资源不可用: " + resourceInfo.getErrorMessage());
-                            }
+                            // 资源可用性检查和下载在各群之间只做一次
+                            Pocket48MessagePreparer.PreparedMedia media = prepareImage(message, "emotion", resUrl, true);
                             
-                            // 获取资源流
-                            try (ExternalResource emotionResource = ExternalResource.create(getRes(resUrl))) {
+                            try (ExternalResource emotionResource = media.toExternalResource()) {
                                 // 使用带重试机制的图片上传方法
                                 Image emotionImage = uploadImageWithRetry(emotionResource, 3);
                                 // 创建包含表情图片的消息链
                                 MessageChain messageChain = new PlainText("【" + n + "】: " + emotionName + "\n")
                                         .plus(emotionImage)
                                         .plus("\n频道：" + r + "\n时间: " + timeStr);
-                                Newboy.INSTANCE.getLogger().info("口袋48表情图片处理成功: " + resUrl);
                                 return new Pocket48SenderMessage(false, null, new Message[]{messageChain});
                             }
                         } catch (Exception imageEx) {
@@ -447,71 +443,20 @@ public class Pocket48Sender extends Sender {
                     return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(errorContent)});
                 }
                 
-                File videoFile = null;
-                File thumbnailFile = null;
-                
                 try {
-                    // 开始处理视频
-                    
-                    // 智能获取视频文件（优先使用缓存）
+                    // 视频下载和缩略图生成在各群之间只做一次
                     String videoExt = message.getExt() != null && !message.getExt().isEmpty() ? "." + message.getExt() : ".mp4";
-                    videoFile = unifiedResourceManager.getResourceSmart(videoUrl);
-                    
-                    // 如果缓存未命中，使用传统下载方式
-                    if (videoFile == null) {
-                        videoFile = unifiedResourceManager.downloadToTempFile(videoUrl, videoExt);
-                    }
-                    
-                    if (videoFile == null || !videoFile.exists()) {
-                        throw new RuntimeException("视频文件获取失败");
-                    }
-                    
-                    // 视频下载完成
-                    
-                    // 生成缩略图
-                    try (InputStream videoInputStream = java.nio.file.Files.newInputStream(videoFile.toPath())) {
-                        InputStream thumbnailStream = getVideoThumbnail(videoInputStream, message.getRoom().getBgImg());
-                        
-                        // 如果缩略图是从视频生成的，保存到临时文件
-                        if (thumbnailStream != null) {
-                            thumbnailFile = new File(videoFile.getParent(), "thumb_" + videoFile.getName().replaceAll("\\.[^.]+$", ".jpg"));
-                            try (FileOutputStream fos = new FileOutputStream(thumbnailFile)) {
-                                byte[] buffer = new byte[8192];
-                                int bytesRead;
-                                while ((bytesRead = thumbnailStream.read(buffer)) != -1) {
-                                    fos.write(buffer, 0, bytesRead);
-                                }
-                            }
-                            thumbnailFile.deleteOnExit();
-                            // 缩略图生成完成
-                        }
-                    }
+                    Pocket48MessagePreparer.PreparedMedia media = prepareVideo(message, videoUrl, videoExt);
                     
                     // 上传视频
-                    try (ExternalResource videoResource = ExternalResource.create(videoFile)) {
+                    try (ExternalResource videoResource = media.toExternalResource();
+                         ExternalResource thumbnailResource = media.thumbnailResource()) {
+                        ShortVideo video = group.uploadShortVideo(thumbnailResource, videoResource,
+                            message.getOwnerName() + "房间视频(" + DateUtil.format(new Date(message.getTime()), "yyyy-MM-dd HH-mm-ss") + ")." + message.getExt());
+                        // 视频上传成功
                         
-                        if (thumbnailFile != null && thumbnailFile.exists()) {
-                            try (ExternalResource thumbnailResource = ExternalResource.create(thumbnailFile)) {
-                                ShortVideo video = group.uploadShortVideo(thumbnailResource, videoResource,
-                                    message.getOwnerName() + "房间视频(" + DateUtil.format(new Date(message.getTime()), "yyyy-MM-dd HH-mm-ss") + ")." + message.getExt());
-                                // 视频上传成功
-                                
-                                String videoContent = "【" + n + "】: 发送了一个视频\n查看链接: " + videoUrl + "\n频道：" + r + "\n时间: " + timeStr;
-                                return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(videoContent), video});
-                            }
-                        } else {
-                            // 如果缩略图生成失败，使用默认图片
-                            try (InputStream defaultThumb = getRes(message.getRoom().getBgImg());
-                                 ExternalResource thumbnailResource = ExternalResource.create(defaultThumb)) {
-                                
-                                ShortVideo video = group.uploadShortVideo(thumbnailResource, videoResource,
-                                    message.getOwnerName() + "房间视频(" + DateUtil.format(new Date(message.getTime()), "yyyy-MM-dd HH-mm-ss") + ")." + message.getExt());
-                                // 视频上传成功
-                                
-                                String videoContent = "【" + n + "】: 发送了一个视频\n查看链接: " + videoUrl + "\n频道：" + r + "\n时间: " + timeStr;
-                                return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(videoContent), video});
-                            }
-                        }
+                        String videoContent = "【" + n + "】: 发送了一个视频\n查看链接: " + videoUrl + "\n频道：" + r + "\n时间: " + timeStr;
+                        return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(videoContent), video});
                     }
                 } catch (Exception e) {
                     System.err.println("[错误] 处理视频消息失败: " + e.getMessage());
@@ -519,24 +464,6 @@ public class Pocket48Sender extends Sender {
                     String errorContent = "【" + n + "】: 视频消息处理失败(" + e.getMessage() + ")\n频道：" + r + "\n时间: " + timeStr;
                     return new Pocket48SenderMessage(false, null,
                             new Message[]{new PlainText(errorContent)});
-                } finally {
-                    // 清理临时文件
-                    if (videoFile != null && videoFile.exists()) {
-                        try {
-                            videoFile.delete();
-                            // 删除临时视频文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时视频文件失败: " + e.getMessage());
-                        }
-                    }
-                    if (thumbnailFile != null && thumbnailFile.exists()) {
-                        try {
-                            thumbnailFile.delete();
-                            // 删除临时缩略图文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时缩略图文件失败: " + e.getMessage());
-                        }
-                    }
                 }
             }
             case REPLY:
@@ -552,32 +479,16 @@ public class Pocket48Sender extends Sender {
                 return new Pocket48SenderMessage(false, null,
                         new Message[]{new PlainText(replyContent)});
             case LIVEPUSH:
-                // 直播封面处理：优化版本，修复无法发送封面的问题
-                File coverFile = null;
-                File convertedCoverFile = null;
-                
+                // 直播封面处理：封面下载和格式转换在各群之间只做一次
                 try {
                     String coverUrl = message.getLivePush().getCover();
                     if (coverUrl == null || coverUrl.trim().isEmpty()) {
                         throw new RuntimeException("直播封面URL为空");
                     }
                     
-                    // 优先使用缓存，缓存未命中时下载
-                    coverFile = unifiedResourceManager.getResourceSmart(coverUrl);
-                    
-                    // 如果智能获取失败，使用带重试的下载方式
-                    if (coverFile == null || !coverFile.exists()) {
-                        // 根据URL推断文件扩展名
-                        String inferredExt = inferImageExtensionFromUrl(coverUrl);
-                        coverFile = unifiedResourceManager.downloadToTempFileWithRetry(coverUrl, inferredExt, 3);
-                    }
-                    
-                    if (coverFile == null || !coverFile.exists()) {
-                        throw new RuntimeException("直播封面下载失败");
-                    }
+                    Pocket48MessagePreparer.PreparedMedia media = prepareLiveCover(message, coverUrl);
                     
-                    // 简化的图片处理：直接尝试上传，失败时进行格式转换
-                    try (ExternalResource coverResource = ExternalResource.create(coverFile)) {
+                    try (ExternalResource coverResource = media.toExternalResource()) {
                         Image cover = uploadImageWithRetry(coverResource, 2);
                         String livePushContent = "【" + n + "】: 直播中快来~\n直播标题：" + message.getLivePush().getTitle();
                         
@@ -589,36 +500,6 @@ public class Pocket48Sender extends Sender {
                         // 直播推送自动@全体成员
                         Message finalMessage = toNotification(messageChain);
                         return new Pocket48SenderMessage(false, null, new Message[]{finalMessage});
-                    } catch (Exception uploadException) {
-                        // 上传失败，尝试格式转换
-                        try {
-                            java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(coverFile);
-                            if (image != null) {
-                                // 创建转换后的文件
-                                convertedCoverFile = new File(coverFile.getParent(), "converted_" + 
-                                    System.currentTimeMillis() + "_cover.jpg");
-                                
-                                // 保存为JPEG格式
-                                javax.imageio.ImageIO.write(image, "JPEG", convertedCoverFile);
-                                
-                                // 重新尝试上传转换后的图片
-                                try (ExternalResource convertedResource = ExternalResource.create(convertedCoverFile)) {
-                                    Image cover = uploadImageWithRetry(convertedResource, 2);
-                                    String livePushContent = "【" + n + "】: 直播中快来~\n直播标题：" + message.getLivePush().getTitle();
-                                    
-                                    MessageChain messageChain = new PlainText(livePushContent + "\n")
-                                            .plus(cover)
-                                            .plus("\n频道：" + r + "\n时间: " + timeStr);
-                                    
-                                    Message finalMessage = toNotification(messageChain);
-                                    return new Pocket48SenderMessage(false, null, new Message[]{finalMessage});
-                                }
-                            } else {
-                                throw new RuntimeException("图片无法读取");
-                            }
-                        } catch (Exception conversionException) {
-                            throw new RuntimeException("图片格式转换失败: " + conversionException.getMessage());
-                        }
                     }
                 } catch (Exception e) {
                     
@@ -626,24 +507,6 @@ public class Pocket48Sender extends Sender {
                     String fallbackContent = "【" + n + "】: 直播中快来~\n直播标题：" + message.getLivePush().getTitle() + "\n频道：" + r + "\n时间: " + timeStr;
                     Message fallbackMessage = toNotification(new PlainText(fallbackContent));
                     return new Pocket48SenderMessage(false, null, new Message[]{fallbackMessage});
-                } finally {
-                    // 清理临时文件（如果不是缓存文件）
-                    if (coverFile != null && coverFile.exists() && !coverFile.getAbsolutePath().contains("cache")) {
-                        try {
-                            coverFile.delete();
-                        } catch (Exception e) {
-                            // 静默处理文件删除失败
-                        }
-                    }
-                    
-                    // 清理转换后的临时文件
-                    if (convertedCoverFile != null && convertedCoverFile.exists()) {
-                        try {
-                            convertedCoverFile.delete();
-                        } catch (Exception e) {
-                            // 静默处理文件删除失败
-                        }
-                    }
                 }
             case FLIPCARD:
                 String flipContent = "【" + n + "】: 翻牌回复消息\n" + pocket.getAnswerNameTo(message.getAnswer().getAnswerID(), message.getAnswer().getQuestionID()) + ": " + message.getAnswer().getMsgTo() + "\n------\n" + message.getAnswer().getAnswer() + "\n频道：" + r + "\n时间: " + timeStr;
@@ -656,72 +519,14 @@ public class Pocket48Sender extends Sender {
                     return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(errorContent)});
                 }
                 
-                File audioFile = null;
-                
                 try {
-                    // 开始处理翻牌音频
-                    
-                    // 智能获取翻牌音频文件（优先使用缓存）
+                    // 下载、格式检测和转码在各群之间只做一次
                     String audioExt = message.getAnswer().getExt() != null && !message.getAnswer().getExt().isEmpty() ? "." + message.getAnswer().getExt() : ".amr";
-                    audioFile = unifiedResourceManager.getResourceSmart(flipcardAudioUrl);
-                    
-                    // 如果缓存未命中，使用传统下载方式
-                    if (audioFile == null) {
-                        audioFile = unifiedResourceManager.downloadToTempFile(flipcardAudioUrl, audioExt);
-                    }
-                    
-                    if (audioFile == null || !audioFile.exists()) {
-                        throw new RuntimeException("翻牌音频文件获取失败");
-                    }
-                    
-                    // 翻牌音频下载完成
-                    
-                    // 读取文件头进行格式检测
-                    byte[] header = new byte[16];
-                    try (InputStream fileStream = java.nio.file.Files.newInputStream(audioFile.toPath())) {
-                        int bytesRead = fileStream.read(header);
-                        
-                        if (bytesRead > 0) {
-                            String format = net.luffy.util.AudioFormatDetector.detectFormat(header);
-                            String compatibility = net.luffy.util.AudioFormatDetector.getCompatibilityDescription(format);
-                            
-                            // 记录音频格式信息（仅在调试时使用）
-                            
-                            if (!net.luffy.util.AudioFormatDetector.isQQCompatible(format)) {
-                                // 检测到不兼容格式，尝试转换为AMR格式
-                                // 尝试转换音频格式
-                                try (InputStream audioInputStream = java.nio.file.Files.newInputStream(audioFile.toPath());
-                                     BufferedInputStream bufferedAudioStream = new BufferedInputStream(audioInputStream)) {
-                                    InputStream convertedStream = net.luffy.util.AudioFormatConverter.convertToAMR(bufferedAudioStream, format);
-                                    if (convertedStream != null) {
-                                        // 将转换后的音频保存到新的临时文件
-                                        File convertedFile = new File(audioFile.getParent(), "converted_" + audioFile.getName().replaceAll("\\.[^.]+$", ".amr"));
-                                        try (FileOutputStream fos = new FileOutputStream(convertedFile)) {
-                                            byte[] buffer = new byte[8192];
-                                            int bytesReadConv;
-                                            while ((bytesReadConv = convertedStream.read(buffer)) != -1) {
-                                                fos.write(buffer, 0, bytesReadConv);
-                                            }
-                                        }
-                                        convertedFile.deleteOnExit();
-                                        
-                                        // 删除原文件，使用转换后的文件
-                                        audioFile.delete();
-                                        audioFile = convertedFile;
-                                        // 翻牌音频格式转换完成
-                                    } else {
-                                        System.err.println("[翻牌音频转换] 音频格式转换失败，使用原始音频");
-                                    }
-                                }
-                            }
-                        } else {
-                            System.err.println("[警告] 无法读取翻牌音频文件头，可能是空文件或损坏的文件");
-                        }
-                    }
+                    Pocket48MessagePreparer.PreparedMedia media = prepareAudio(message, "answer-audio", flipcardAudioUrl, audioExt);
                     
                     // 上传音频
-                    try (ExternalResource audioResource = ExternalResource.create(audioFile)) {
-                        Audio audio = group.uploadAudio(audioResource);
+                    try (ExternalResource audioResource = media.toExternalResource()) {
+                        Audio audio = net.luffy.util.MediaUploadCache.getInstance().uploadAudio(group, audioResource);
                         // 翻牌音频上传成功
                         String flipAudioContent = "【" + n + "】: 翻牌回复语音\n" + pocket.getAnswerNameTo(message.getAnswer().getAnswerID(), message.getAnswer().getQuestionID()) + ": " + message.getAnswer().getMsgTo() + "\n------\n频道：" + r + "\n时间: " + timeStr;
                         return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(flipAudioContent), audio});
@@ -732,16 +537,6 @@ public class Pocket48Sender extends Sender {
                     String errorContent = "【" + n + "】: 翻牌语音消息处理失败(" + e.getMessage() + ")\n" + pocket.getAnswerNameTo(message.getAnswer().getAnswerID(), message.getAnswer().getQuestionID()) + ": " + message.getAnswer().getMsgTo() + "\n------\n频道：" + r + "\n时间: " + timeStr;
                     return new Pocket48SenderMessage(false, null,
                             new Message[]{new PlainText(errorContent)});
-                } finally {
-                    // 清理临时文件
-                    if (audioFile != null && audioFile.exists()) {
-                        try {
-                            audioFile.delete();
-                            // 删除临时翻牌音频文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时翻牌音频文件失败: " + e.getMessage());
-                        }
-                    }
                 }
             }
             case FLIPCARD_VIDEO: {
@@ -760,34 +555,17 @@ public class Pocket48Sender extends Sender {
                     return new Pocket48SenderMessage(false, null, new Message[]{new PlainText(errorContent)});
                 }
                 
-                File videoFile = null;
-                File previewFile = null;
-                
                 try {
-                    // 开始处理翻牌视频
-                    
-                    // 下载视频文件到本地
+                    // 视频和预览图下载在各群之间只做一次
                     String videoExt = message.getAnswer().getExt() != null && !message.getAnswer().getExt().isEmpty() ? "." + message.getAnswer().getExt() : ".mp4";
-                    videoFile = unifiedResourceManager.downloadToTempFile(videoUrl, videoExt);
-                    
-                    if (videoFile == null || !videoFile.exists()) {
-                        throw new RuntimeException("翻牌视频文件下载失败");
-                    }
-                    
-                    // 翻牌视频下载完成
-                    
-                    // 下载预览图到本地
-                    previewFile = unifiedResourceManager.downloadToTempFile(previewUrl, ".jpg");
-                    
-                    if (previewFile == null || !previewFile.exists()) {
-                        throw new RuntimeException("翻牌视频预览图下载失败");
-                    }
-                    
-                    // 翻牌预览图下载完成
+                    Pocket48MessagePreparer.PreparedMedia media = prepareMedia(message, "answer-video", videoUrl,
+                            () -> new Pocket48MessagePreparer.PreparedMedia(videoUrl,
+                                    downloadBytes(videoUrl, videoExt, 1), videoExt.substring(1).toUpperCase(),
+                                    downloadBytes(previewUrl, ".jpg", 1)));
                     
                     // 上传视频
-                    try (ExternalResource previewResource = ExternalResource.create(previewFile);
-                         ExternalResource videoResource = ExternalResource.create(videoFile)) {
+                    try (ExternalResource previewResource = media.thumbnailResource();
+                         ExternalResource videoResource = media.toExternalResource()) {
                         
                         ShortVideo video = group.uploadShortVideo(previewResource, videoResource,
                                 message.getOwnerName() + "翻牌回复视频(" + DateUtil.format(new Date(message.getTime()), "yyyy-MM-dd HH-mm-ss") + ")." + message.getAnswer().getExt());
@@ -802,24 +580,6 @@ public class Pocket48Sender extends Sender {
                     String errorContent = "【" + n + "】: 翻牌视频消息处理失败(" + e.getMessage() + ")\n" + pocket.getAnswerNameTo(message.getAnswer().getAnswerID(), message.getAnswer().getQuestionID()) + ": " + message.getAnswer().getMsgTo() + "\n------\n频道：" + r + "\n时间: " + timeStr;
                     return new Pocket48SenderMessage(false, null,
                             new Message[]{new PlainText(errorContent)});
-                } finally {
-                    // 清理临时文件
-                    if (videoFile != null && videoFile.exists()) {
-                        try {
-                            videoFile.delete();
-                            // 删除临时翻牌视频文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时翻牌视频文件失败: " + e.getMessage());
-                        }
-                    }
-                    if (previewFile != null && previewFile.exists()) {
-                        try {
-                            previewFile.delete();
-                            // 删除临时翻牌预览图文件
-                        } catch (Exception e) {
-                            System.err.println("[警告] 删除临时翻牌预览图文件失败: " + e.getMessage());
-                        }
-                    }
                 }
             }
             case PASSWORD_REDPACKAGE:
@@ -838,6 +598,128 @@ public class Pocket48Sender extends Sender {
                 new Message[]{});
     }
 
+    /**
+     * 获取消息媒体的预处理结果，同一周期内各群共享
+     */
+    private Pocket48MessagePreparer.PreparedMedia prepareMedia(Pocket48Message message, String part, String url,
+                                                               java.util.concurrent.Callable<Pocket48MessagePreparer.PreparedMedia> loader) throws IOException {
+        try {
+            return coordinator.getPreparer().prepare(message, part, url, loader);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 预处理音频：下载、检测格式，不兼容QQ的格式转码为AMR
+     */
+    private Pocket48MessagePreparer.PreparedMedia prepareAudio(Pocket48Message message, String part, String url, String ext) throws IOException {
+        return prepareMedia(message, part, url, () -> {
+            byte[] data = downloadBytes(url, ext, 1);
+            if (data.length == 0) {
+                throw new IOException("音频文件为空");
+            }
+            String format = net.luffy.util.AudioFormatDetector.detectFormat(java.util.Arrays.copyOf(data, Math.min(16, data.length)));
+            if (!net.luffy.util.AudioFormatDetector.isQQCompatible(format)) {
+                // 检测到不兼容格式，尝试转换为AMR格式
+                byte[] converted = net.luffy.util.AudioFormatConverter.convertToAMR(data, format);
+                if (converted != null) {
+                    data = converted;
+                    format = "AMR";
+                } else {
+                    System.err.println("[音频转换] 音频格式转换失败，使用原始音频");
+                }
+            }
+            return new Pocket48MessagePreparer.PreparedMedia(url, data, format);
+        });
+    }
+
+    /**
+     * 预处理图片：下载并检测格式
+     * @param checkAvailability 下载前是否先检查资源可用性
+     */
+    private Pocket48MessagePreparer.PreparedMedia prepareImage(Pocket48Message message, String part, String url,
+                                                               boolean checkAvailability) throws IOException {
+        return prepareMedia(message, part, url, () -> {
+            if (checkAvailability) {
+                Pocket48ResourceHandler.Pocket48ResourceInfo resourceInfo = unifiedResourceManager.checkResourceAvailability(url);
+                if (!resourceInfo.isAvailable()) {
+                    Newboy.INSTANCE.getLogger().warning("口袋48资源不可用: " + url +
+                        ", 状态码: " + resourceInfo.getStatusCode() +
+                        ", 错误: " + resourceInfo.getErrorMessage());
+                    throw new RuntimeException("资源不可用: " + resourceInfo.getErrorMessage());
+                }
+            }
+            byte[] data;
+            try (InputStream in = getRes(url)) {
+                data = in.readAllBytes();
+            }
+            String format = net.luffy.util.ImageFormatDetector.detectFormat(new ByteArrayInputStream(data));
+            return new Pocket48MessagePreparer.PreparedMedia(url, data, format);
+        });
+    }
+
+    /**
+     * 预处理视频：下载视频并生成缩略图，缩略图生成失败时使用房间背景图
+     */
+    private Pocket48MessagePreparer.PreparedMedia prepareVideo(Pocket48Message message, String url, String ext) throws IOException {
+        return prepareMedia(message, "video", url, () -> {
+            byte[] data = downloadBytes(url, ext, 1);
+            byte[] thumbnail = null;
+            InputStream thumbnailStream = getVideoThumbnail(new ByteArrayInputStream(data), message.getRoom().getBgImg());
+            if (thumbnailStream != null) {
+                try (InputStream in = thumbnailStream) {
+                    thumbnail = in.readAllBytes();
+                }
+            }
+            if (thumbnail == null || thumbnail.length == 0) {
+                try (InputStream in = getRes(message.getRoom().getBgImg())) {
+                    thumbnail = in.readAllBytes();
+                }
+            }
+            return new Pocket48MessagePreparer.PreparedMedia(url, data, ext.substring(1).toUpperCase(), thumbnail);
+        });
+    }
+
+    /**
+     * 预处理直播封面：下载并检测格式，QQ不支持的格式用ImageIO转为JPEG
+     */
+    private Pocket48MessagePreparer.PreparedMedia prepareLiveCover(Pocket48Message message, String url) throws IOException {
+        return prepareMedia(message, "cover", url, () -> {
+            byte[] data = downloadBytes(url, inferImageExtensionFromUrl(url), 3);
+            String format = net.luffy.util.ImageFormatDetector.detectFormat(new ByteArrayInputStream(data));
+            if (!net.luffy.util.ImageFormatDetector.isQQCompatible(format)) {
+                java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(new ByteArrayInputStream(data));
+                if (image == null) {
+                    throw new RuntimeException("图片无法读取");
+                }
+                java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+                javax.imageio.ImageIO.write(image, "JPEG", out);
+                data = out.toByteArray();
+                format = "JPEG";
+            }
+            return new Pocket48MessagePreparer.PreparedMedia(url, data, format);
+        });
+    }
+
+    /**
+     * 下载资源为字节数组，优先使用资源缓存；下载结果由媒体存储管理，读取后不删除
+     */
+    private byte[] downloadBytes(String url, String ext, int maxRetries) throws IOException {
+        File file = unifiedResourceManager.getResourceSmart(url);
+        if (file == null || !file.exists()) {
+            file = maxRetries > 1
+                    ? unifiedResourceManager.downloadToTempFileWithRetry(url, ext, maxRetries)
+                    : unifiedResourceManager.downloadToTempFile(url, ext);
+        }
+        if (file == null || !file.exists()) {
+            throw new IOException("资源下载失败: " + url);
+        }
+        return java.nio.file.Files.readAllBytes(file.toPath());
+    }
+
     public Message pharsePocketTextWithFace(String body) {
         if (body == null) {
             return new PlainText("[消息内容为空]");
@@ -885,9 +767,10 @@ public class Pocket48Sender extends Sender {
             // 尝试从消息体中解析表情信息
             String body = message.getBody();
             if (body != null && !body.trim().isEmpty()) {
-                // 如果body包含JSON格式的表情信息，尝试解析
+                // 如果body包含JSON格式的表情信息，使用消息已解码的表情名称
                 if (body.startsWith("{") && body.endsWith("}")) {
-                    return parseJsonEmotionName(body);
+                    String name = message.getEmotionName();
+                    return name != null ? "[" + name + "]" : "[表情]";
                 }
                 // 如果body本身就是表情名称格式
                 if (body.startsWith("[") && body.endsWith("]")) {
@@ -907,17 +790,6 @@ public class Pocket48Sender extends Sender {
         }
     }
     
-    /**
-     * 从JSON格式的body中解析表情名称
-     * 使用优化的JSON解析器提高性能
-     * @param jsonBody JSON格式的消息体
-     * @return 表情名称
-     */
-    private String parseJsonEmotionName(String jsonBody) {
-        // 使用优化的表情名称解析方法
-        return net.luffy.util.JsonOptimizer.parseEmotionNameOptimized(jsonBody);
-    }
-    
     /**
      * 获取表情的备用名称
      * @param message 消息对象
@@ -970,15 +842,20 @@ public class Pocket48Sender extends Sender {
      * @param messages 消息列表
      * @param group 目标群组
      */
-    public void sendMessages(List<Pocket48Message> messages, Group group) {
+    /**
+     * 发送消息
+     *
+     * @return 各房间按时间顺序连续发送成功的最晚消息时间（房间ID -> 时间）
+     */
+    public Map<Long, Long> sendMessages(List<Pocket48Message> messages, Group group) {
         if (messages == null || messages.isEmpty()) {
-            return;
+            return new HashMap<>();
         }
         
         long startTime = System.currentTimeMillis();
         
         // 按时间戳严格排序，确保消息顺序
-        sendMessagesInOrder(messages, group);
+        Map<Long, Long> delivered = sendMessagesInOrder(messages, group);
         
         long endTime = System.currentTimeMillis();
         PerformanceMonitor.getInstance().recordQuery(endTime - startTime);
@@ -1008,6 +885,7 @@ public class Pocket48Sender extends Sender {
                 }
             }
         }
+        return delivered;
     }
     
     // 已移除preprocessMessages及相关方法
@@ -1016,16 +894,22 @@ public class Pocket48Sender extends Sender {
     /**
      * 按时间顺序发送消息，确保顺序的同时维持实时性
      * 核心策略：严格按时间戳排序，异步处理避免排队延迟累积
+     * 某个房间的消息发送失败后，该房间后面的消息本周期不再发送，下个周期从失败的位置重试
      * @param messages 消息列表
      * @param group 群组
+     * @return 各房间按时间顺序连续发送成功的最晚消息时间
      */
-    private void sendMessagesInOrder(List<Pocket48Message> messages, Group group) {
+    private Map<Long, Long> sendMessagesInOrder(List<Pocket48Message> messages, Group group) {
+        Map<Long, Long> delivered = new ConcurrentHashMap<>();
         if (messages == null || messages.isEmpty()) {
-            return;
+            return delivered;
         }
         
         // 按时间戳严格排序，确保消息顺序
         messages.sort((m1, m2) -> Long.compare(m1.getTime(), m2.getTime()));
+        Set<Long> failedRooms = ConcurrentHashMap.newKeySet();
+        // 等待超时后尚未开始的消息不再发送，留到下个周期
+        AtomicBoolean abandoned = new AtomicBoolean(false);
         
         // 异步处理机制：避免消息过多时排队延迟累积
         CompletableFuture<Void> previousTask = CompletableFuture.completedFuture(null);
@@ -1038,6 +922,10 @@ public class Pocket48Sender extends Sender {
             // 链式异步处理：每条消息处理完立即发送，避免排队累积
             previousTask = previousTask.thenCompose(v -> 
                 CompletableFuture.supplyAsync(() -> {
+                    long roomID = message.getRoom().getRoomId();
+                    if (abandoned.get() || failedRooms.contains(roomID)) {
+                        return null;
+                    }
                     try {
                         // 根据消息类型选择处理策略
                         Pocket48SenderMessage senderMessage;
@@ -1050,19 +938,37 @@ public class Pocket48Sender extends Sender {
                         }
                         
                         // 立即发送处理完的消息
-                        if (senderMessage != null) {
-                            sendSingleMessage(senderMessage, group);
+                        if (senderMessage != null && !sendSingleMessage(senderMessage, group)) {
+                            failedRooms.add(roomID);
+                            return senderMessage;
                         }
                         
+                        mediaFailures.remove(group_id + ":" + roomID + ":" + message.getTime());
+                        delivered.merge(roomID, message.getTime(), Math::max);
                         return senderMessage;
+                    } catch (IOException e) {
+                        // 媒体下载/上传失败多为暂时性问题：本房间停在这条消息，下个周期重试；连续多个周期失败才跳过
+                        String failureKey = group_id + ":" + roomID + ":" + message.getTime();
+                        int rounds = mediaFailures.merge(failureKey, 1, Integer::sum);
+                        if (rounds < MAX_MEDIA_RETRY_ROUNDS) {
+                            System.err.println("[警告] 消息媒体处理失败，下个周期重试: " + e.getMessage());
+                            failedRooms.add(roomID);
+                        } else {
+                            System.err.println("[警告] 消息媒体处理连续失败" + rounds + "次，跳过: " + e.getMessage());
+                            mediaFailures.remove(failureKey);
+                            delivered.merge(roomID, message.getTime(), Math::max);
+                        }
+                        return null;
                     } catch (Exception e) {
+                        // 无法解析的消息重试也不会成功，跳过
                         System.err.println("[警告] 消息处理失败: " + e.getMessage());
+                        delivered.merge(roomID, message.getTime(), Math::max);
                         return null;
                     }
                 })
             ).thenCompose(senderMessage -> {
-                // 智能延迟：仅在需要时添加延迟，避免阻塞后续消息处理
-                 if (nextMessage != null) {
+                // 智能延迟：仅在需要时添加延迟，避免阻塞后续消息处理；已放弃等待时不再延迟
+                 if (nextMessage != null && !abandoned.get()) {
                      int delay = calculateOrderedSendDelay(message, nextMessage, messages.size(), index);
                      if (delay > 0) {
                         return CompletableFuture.runAsync(() -> {
@@ -1082,13 +988,22 @@ public class Pocket48Sender extends Sender {
         try {
             previousTask.get(30, TimeUnit.SECONDS); // 最多等待30秒
         } catch (Exception e) {
+            abandoned.set(true);
             System.err.println("[警告] 消息发送超时或异常: " + e.getMessage());
+            // 尚未开始的消息会直接跳过，只需等正在发送的那一条结束，
+            // 否则它发出后才记入delivered，游标停在它之前，下个周期会重复发送
+            try {
+                previousTask.join();
+            } catch (Exception ignored) {
+                // 静默处理，各条消息的结果已记录在delivered中
+            }
         }
         
         // 清理缓存
         if (messages.size() > 10) {
             unifiedResourceManager.cleanupExpiredCache(60);
         }
+        return new HashMap<>(delivered);
     }
     
     /**
@@ -1291,16 +1206,23 @@ public class Pocket48Sender extends Sender {
      * @param senderMessage 处理后的消息
      * @param group 目标群组
      */
-    public void sendSingleMessage(Pocket48SenderMessage senderMessage, Group group) {
+    /**
+     * 发送一条消息的各个部分
+     * @return 所有部分都发送成功时返回true
+     */
+    public boolean sendSingleMessage(Pocket48SenderMessage senderMessage, Group group) {
         Message[] unjointMessages = senderMessage.getUnjointMessage();
         for (int i = 0; i < unjointMessages.length; i++) {
-            sendMessageWithRetry(unjointMessages[i], group, 3);
+            if (!sendMessageWithRetry(unjointMessages[i], group, 3)) {
+                return false;
+            }
             // 同一消息的多个部分之间无延迟，实现最快发送
             if (i < unjointMessages.length - 1) {
                 // 完全去除延迟，实现真正的无延迟发送
                 // delayAsync(0); // 不再需要任何延迟
             }
         }
+        return true;
     }
     
     /**
@@ -1308,12 +1230,13 @@ public class Pocket48Sender extends Sender {
      * @param message 要发送的消息
      * @param group 目标群组
      * @param maxRetries 最大重试次数
+     * @return 是否发送成功
      */
-    private void sendMessageWithRetry(Message message, Group group, int maxRetries) {
+    private boolean sendMessageWithRetry(Message message, Group group, int maxRetries) {
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             try {
                 group.sendMessage(message);
-                return; // 发送成功，直接返回
+                return true; // 发送成功，直接返回
             } catch (Exception e) {
                 String errorMsg = e.getMessage();
                 boolean isRetryableError = errorMsg != null && (
@@ -1326,7 +1249,7 @@ public class Pocket48Sender extends Sender {
                 if (attempt == maxRetries || !isRetryableError) {
                     // 静默处理发送失败，不推送错误消息到群组
                     System.err.println("[错误] 发送消息失败（已重试" + attempt + "次）: " + errorMsg);
-                    return; // 达到最大重试次数或不可重试的错误，停止重试
+                    return false; // 达到最大重试次数或不可重试的错误，停止重试
                 }
                 
                 // 指数退避重试
@@ -1337,10 +1260,11 @@ public class Pocket48Sender extends Sender {
                     Thread.currentThread().interrupt();
                     // 静默处理中断异常，不推送错误消息到群组
                     System.err.println("[错误] 消息发送重试被中断: " + errorMsg);
-                    return;
+                    return false;
                 }
             }
         }
+        return false;
     }
 
     /**
@@ -1410,7 +1334,8 @@ public class Pocket48Sender extends Sender {
             try {
                 // 尝试上传图片
                 uploadLogger.info("尝试上传图片，第" + (retryCount + 1) + "次");
-                Image result = group.uploadImage(resource);
+                // 相同内容已上传过时直接复用，不再经过富媒体传输
+                Image result = net.luffy.util.MediaUploadCache.getInstance().uploadImage(group, resource);
                 uploadLogger.info("图片上传成功");
                 return result;
             } catch (Exception e) {
@@ -299,7 +299,8 @@ public class Pocket48UnifiedResourceManager {
     }
     
     public String getCacheStats() {
-        return optimizer.getCacheStats();
+        return optimizer.getCacheStats() + "\n" + Pocket48ResourceCache.getInstance().getCacheStats()
+                + "\n" + Pocket48ResourceHandler.getDownloadStats();
     }
     
     public List<CompletableFuture<Void>> preloadMessageResources(List<Pocket48Message> messages) {
@@ -0,0 +1,244 @@
+package net.luffy.util.sender;
+
+import net.luffy.Newboy;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发送器执行层
+ * 替代每个调度周期为每个群 new Thread(sender).start() 的做法：
+ * - 每个平台一条独立通道，带并发上限
+ * - 运行时支持虚拟线程（Java 21+）时使用虚拟线程，否则回退到有界的命名平台线程池
+ * - 上一个周期的任务仍在运行时跳过本周期（周期超时检测）
+ * - 插件关闭时等待进行中的任务完成
+ */
+public class SenderExecutor {
+
+    public static final String POCKET48 = "pocket48";
+    public static final String WEIDIAN_ORDER = "weidian-order";
+    public static final String WEIDIAN_ITEM = "weidian-item";
+
+    private static final SenderExecutor INSTANCE = new SenderExecutor();
+
+    // 各平台默认并发上限
+    private static final int POCKET48_CONCURRENCY = 16;
+    private static final int WEIDIAN_ORDER_CONCURRENCY = 4;
+    private static final int WEIDIAN_ITEM_CONCURRENCY = 4;
+    private static final int DEFAULT_CONCURRENCY = 4;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final boolean virtualThreads;
+
+    private SenderExecutor() {
+        this.virtualThreads = createVirtualThreadFactory("probe") != null;
+        lanes.put(POCKET48, new Lane(POCKET48, POCKET48_CONCURRENCY));
+        lanes.put(WEIDIAN_ORDER, new Lane(WEIDIAN_ORDER, WEIDIAN_ORDER_CONCURRENCY));
+        lanes.put(WEIDIAN_ITEM, new Lane(WEIDIAN_ITEM, WEIDIAN_ITEM_CONCURRENCY));
+    }
+
+    public static SenderExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 开始一个调度周期
+     * 如果该平台上一个周期的任务尚未全部完成，则跳过本周期，调用方不应再构造和提交发送器
+     *
+     * @param platform 平台通道名
+     * @return 是否可以开始本周期（false表示本周期被跳过或执行层已关闭）
+     */
+    public boolean beginTick(String platform) {
+        if (shutdown.get()) {
+            return false;
+        }
+
+        Lane lane = lane(platform);
+        int running = lane.inFlight.get();
+        if (running > 0) {
+            long skipped = lane.skippedTicks.incrementAndGet();
+            Newboy.INSTANCE.getLogger().warning("[发送执行层] " + platform + " 上一周期仍有 " + running
+                    + " 个任务在运行，跳过本周期（累计跳过 " + skipped + " 次）");
+            return false;
+        }
+
+        lane.ticks.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 在平台通道上执行发送器
+     *
+     * @param platform 平台通道名
+     * @param sender 发送器
+     */
+    public void submit(String platform, Sender sender) {
+        if (shutdown.get()) {
+            return;
+        }
+        lane(platform).submit(sender);
+    }
+
+    private Lane lane(String platform) {
+        return lanes.computeIfAbsent(platform, name -> new Lane(name, DEFAULT_CONCURRENCY));
+    }
+
+    /**
+     * 优雅关闭：停止接收新周期，等待进行中的任务完成
+     *
+     * @param timeoutMs 最长等待时间
+     */
+    public void shutdown(long timeoutMs) {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdown();
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        for (Lane lane : lanes.values()) {
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (!lane.executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                lane.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 获取执行层状态信息
+     */
+    public String getStatus() {
+        StringBuilder sb = new StringBuilder("发送执行层状态 (")
+                .append(virtualThreads ? "虚拟线程" : "平台线程").append("):");
+        for (Lane lane : lanes.values()) {
+            sb.append(String.format("\n%s - 并发上限: %d, 运行中: %d, 已完成: %d, 失败: %d, 周期: %d, 跳过周期: %d",
+                    lane.name, lane.limit, lane.inFlight.get(), lane.completed.get(), lane.failed.get(),
+                    lane.ticks.get(), lane.skippedTicks.get()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 通过反射创建虚拟线程工厂，运行时不支持时返回null
+     * 编译目标仍为Java 18，因此不能直接引用Thread.ofVirtual()
+     */
+    private static ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器，运行时不支持时返回null
+     */
+    private static ExecutorService createVirtualThreadExecutor(String prefix) {
+        ThreadFactory factory = createVirtualThreadFactory(prefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 平台通道：独立的执行器与并发上限
+     */
+    private static class Lane {
+        final String name;
+        final int limit;
+        final ExecutorService executor;
+        // 虚拟线程执行器本身无界，用信号量限制并发
+        final Semaphore permits;
+
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        final AtomicLong completed = new AtomicLong(0);
+        final AtomicLong failed = new AtomicLong(0);
+        final AtomicLong ticks = new AtomicLong(0);
+        final AtomicLong skippedTicks = new AtomicLong(0);
+
+        Lane(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+
+            ExecutorService virtual = createVirtualThreadExecutor("Sender-" + name + "-");
+            if (virtual != null) {
+                this.executor = virtual;
+            } else {
+                AtomicInteger counter = new AtomicInteger(0);
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                        limit, limit,
+                        60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(),
+                        r -> {
+                            Thread t = new Thread(r, "Sender-" + name + "-" + counter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+                pool.allowCoreThreadTimeOut(true);
+                this.executor = pool;
+            }
+        }
+
+        void submit(Sender sender) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    boolean acquired = false;
+                    try {
+                        permits.acquire();
+                        acquired = true;
+                        sender.run();
+                        completed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Throwable e) {
+                        failed.incrementAndGet();
+                        Newboy.INSTANCE.getLogger().error("[发送执行层] " + name + " 群 " + sender.group_id + " 发送任务异常", e);
+                    } finally {
+                        if (acquired) {
+                            permits.release();
+                        }
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
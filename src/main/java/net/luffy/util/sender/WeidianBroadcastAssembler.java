@@ -0,0 +1,324 @@
+package net.luffy.util.sender;
+
+import net.luffy.Newboy;
+import net.luffy.handler.WeidianHandler;
+import net.luffy.model.WeidianCookie;
+import net.luffy.model.WeidianItem;
+import net.luffy.util.UnifiedHttpClient;
+import net.luffy.util.UnifiedSchedulerManager;
+import net.luffy.util.WeidianItemLeaderboard;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 微店播报组装器
+ * 在订单播报和商品播报之间共享：
+ * - 商品列表按Cookie短时缓存，同一时刻只请求一次
+ * - 多个商品的排行并行刷新，同一Cookie的并发数受限，整体耗时取决于最慢的单个商品
+ * - 超出并发数的刷新在Cookie队列中排队，不占用线程池线程；同一商品正在刷新时直接复用
+ * - 商品图片按商品缓存原始字节，TTL内只下载一次，上传由MediaUploadCache按Bot复用
+ */
+public class WeidianBroadcastAssembler {
+
+    private static volatile WeidianBroadcastAssembler instance;
+
+    private static final long ITEM_LIST_TTL_MS = 30 * 1000L; // 商品列表缓存30秒
+    private static final long IMAGE_TTL_MS = 10 * 60 * 1000L; // 商品图片缓存10分钟
+    private static final int PER_COOKIE_CONCURRENCY = 3; // 同一Cookie同时刷新的商品数
+    private static final int FETCH_THREADS = 8;
+    private static final long FETCH_WAIT_TIMEOUT_MS = 60000; // 等待单次组装的最长时间
+    private static final long CLEANUP_INTERVAL_MS = 5 * 60 * 1000L;
+
+    private final ExecutorService fetchPool;
+    private final Map<String, Timed<CompletableFuture<WeidianItem[]>>> itemLists = new ConcurrentHashMap<>();
+    private final Map<Long, Timed<CompletableFuture<byte[]>>> images = new ConcurrentHashMap<>();
+    private final Map<String, CookieQueue> cookieQueues = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<WeidianItemLeaderboard.Board>> boardRefreshing = new ConcurrentHashMap<>();
+    private String cleanupTaskId;
+
+    // 统计
+    private final AtomicLong itemListFetches = new AtomicLong(0);
+    private final AtomicLong itemListHits = new AtomicLong(0);
+    private final AtomicLong imageFetches = new AtomicLong(0);
+    private final AtomicLong imageHits = new AtomicLong(0);
+    private final AtomicLong boardRefreshes = new AtomicLong(0);
+    private final AtomicLong boardTimeouts = new AtomicLong(0);
+    private final AtomicLong boardShared = new AtomicLong(0);
+
+    private static final class Timed<T> {
+        final T value;
+        final long createdAt;
+        final String source;
+
+        Timed(T value, String source) {
+            this.value = value;
+            this.createdAt = System.currentTimeMillis();
+            this.source = source;
+        }
+
+        boolean isFresh(long ttl) {
+            return System.currentTimeMillis() - createdAt < ttl;
+        }
+    }
+
+    /**
+     * 同一Cookie的刷新队列
+     * 最多PER_COOKIE_CONCURRENCY个任务同时在线程池中运行，其余任务排队，
+     * 由结束的任务接着提交，避免线程池线程阻塞等待许可而饿死图片预取
+     */
+    private final class CookieQueue {
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+        private int running;
+
+        void submit(Runnable task) {
+            synchronized (this) {
+                if (running >= PER_COOKIE_CONCURRENCY) {
+                    waiting.add(task);
+                    return;
+                }
+                running++;
+            }
+            start(task);
+        }
+
+        private void start(Runnable task) {
+            try {
+                fetchPool.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        next();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 线程池已关闭，释放名额
+                next();
+                throw e;
+            }
+        }
+
+        private void next() {
+            Runnable task;
+            synchronized (this) {
+                task = waiting.poll();
+                if (task == null) {
+                    running--;
+                    return;
+                }
+            }
+            start(task);
+        }
+    }
+
+    private WeidianBroadcastAssembler() {
+        AtomicInteger index = new AtomicInteger(0);
+        this.fetchPool = Executors.newFixedThreadPool(FETCH_THREADS, r -> {
+            Thread t = new Thread(r, "Weidian-Fetch-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.cleanupTaskId = UnifiedSchedulerManager.getInstance().scheduleCleanupTask(
+                this::cleanupExpired, CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS);
+    }
+
+    public static WeidianBroadcastAssembler getInstance() {
+        if (instance == null) {
+            synchronized (WeidianBroadcastAssembler.class) {
+                if (instance == null) {
+                    instance = new WeidianBroadcastAssembler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取出售中的商品列表，ITEM_LIST_TTL_MS内复用上一次的结果
+     *
+     * @return 商品列表，获取失败时返回null（失败结果不缓存）
+     */
+    public WeidianItem[] getItems(WeidianCookie cookie) {
+        if (cookie == null) {
+            return null;
+        }
+        String key = cookie.wdtoken;
+        Timed<CompletableFuture<WeidianItem[]>> created = new Timed<>(new CompletableFuture<>(), null);
+        Timed<CompletableFuture<WeidianItem[]>> current = itemLists.compute(key,
+                (k, old) -> old != null && old.isFresh(ITEM_LIST_TTL_MS) ? old : created);
+
+        if (current == created) {
+            itemListFetches.incrementAndGet();
+            WeidianItem[] items = null;
+            try {
+                items = Newboy.INSTANCE.getHandlerWeidian().getItems(cookie);
+            } catch (Exception e) {
+                // 静默处理，按获取失败返回
+            }
+            created.value.complete(items);
+            if (items == null) {
+                itemLists.remove(key, created);
+            }
+            return items;
+        }
+
+        itemListHits.incrementAndGet();
+        return await(current.value);
+    }
+
+    /**
+     * 并行刷新多个商品的排行
+     * 每个商品一个任务，同一Cookie最多PER_COOKIE_CONCURRENCY个同时访问微店
+     *
+     * @return 商品ID -> 排行；刷新失败或超时的商品不在结果中
+     */
+    public Map<Long, WeidianItemLeaderboard.Board> refreshLeaderboards(WeidianCookie cookie, Collection<Long> itemIds) {
+        Map<Long, WeidianItemLeaderboard.Board> boards = new HashMap<>();
+        if (cookie == null || itemIds.isEmpty()) {
+            return boards;
+        }
+
+        WeidianHandler weidian = Newboy.INSTANCE.getHandlerWeidian();
+        CookieQueue queue = cookieQueues.computeIfAbsent(cookie.wdtoken, k -> new CookieQueue());
+        Map<Long, CompletableFuture<WeidianItemLeaderboard.Board>> futures = new LinkedHashMap<>();
+        for (Long id : itemIds) {
+            // 同一Cookie同一商品正在刷新时共用同一个结果
+            String key = cookie.wdtoken + ":" + id;
+            CompletableFuture<WeidianItemLeaderboard.Board> created = new CompletableFuture<>();
+            CompletableFuture<WeidianItemLeaderboard.Board> existing = boardRefreshing.putIfAbsent(key, created);
+            if (existing != null) {
+                boardShared.incrementAndGet();
+                futures.put(id, existing);
+                continue;
+            }
+            futures.put(id, created);
+            try {
+                queue.submit(() -> {
+                    try {
+                        boardRefreshes.incrementAndGet();
+                        created.complete(weidian.refreshItemLeaderboard(cookie, id));
+                    } catch (Throwable e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        boardRefreshing.remove(key, created);
+                    }
+                });
+            } catch (RuntimeException e) {
+                boardRefreshing.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        }
+
+        // 所有商品共用一个截止时间
+        long deadline = System.currentTimeMillis() + FETCH_WAIT_TIMEOUT_MS;
+        for (Map.Entry<Long, CompletableFuture<WeidianItemLeaderboard.Board>> e : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                WeidianItemLeaderboard.Board board = e.getValue().get(remaining, TimeUnit.MILLISECONDS);
+                if (board != null) {
+                    boards.put(e.getKey(), board);
+                }
+            } catch (TimeoutException ex) {
+                boardTimeouts.incrementAndGet();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                // 静默处理单个商品刷新失败，不影响其他商品
+            }
+        }
+        return boards;
+    }
+
+    /**
+     * 预先下载多个商品的图片，与排行刷新同时进行
+     */
+    public void prefetchImages(Collection<WeidianItem> items) {
+        for (WeidianItem item : items) {
+            if (item != null && item.pic != null && !item.pic.isEmpty()) {
+                fetchPool.execute(() -> getItemImage(item));
+            }
+        }
+    }
+
+    /**
+     * 获取商品图片的原始字节，IMAGE_TTL_MS内且图片链接未变化时复用
+     *
+     * @return 图片字节，无图片或下载失败时返回null
+     */
+    public byte[] getItemImage(WeidianItem item) {
+        if (item == null || item.pic == null || item.pic.isEmpty()) {
+            return null;
+        }
+        Timed<CompletableFuture<byte[]>> created = new Timed<>(new CompletableFuture<>(), item.pic);
+        Timed<CompletableFuture<byte[]>> current = images.compute(item.id,
+                (k, old) -> old != null && old.isFresh(IMAGE_TTL_MS) && item.pic.equals(old.source) ? old : created);
+
+        if (current == created) {
+            imageFetches.incrementAndGet();
+            byte[] bytes = null;
+            try {
+                bytes = UnifiedHttpClient.getInstance().getBytes(item.pic, null);
+            } catch (Exception e) {
+                // 静默处理，本次播报不带图片
+            }
+            created.value.complete(bytes);
+            if (bytes == null || bytes.length == 0) {
+                images.remove(item.id, created);
+            }
+            return bytes;
+        }
+
+        imageHits.incrementAndGet();
+        return await(current.value);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(FETCH_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 清理过期的商品列表和图片
+     */
+    public void cleanupExpired() {
+        itemLists.entrySet().removeIf(e -> !e.getValue().isFresh(ITEM_LIST_TTL_MS) && e.getValue().value.isDone());
+        images.entrySet().removeIf(e -> !e.getValue().isFresh(IMAGE_TTL_MS) && e.getValue().value.isDone());
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStats() {
+        return String.format("微店播报组装 - 商品列表: 请求%d/复用%d, 图片: 下载%d/复用%d, 排行刷新: %d/复用%d, 超时: %d",
+                itemListFetches.get(), itemListHits.get(), imageFetches.get(), imageHits.get(),
+                boardRefreshes.get(), boardShared.get(), boardTimeouts.get());
+    }
+
+    public void shutdown() {
+        if (cleanupTaskId != null) {
+            UnifiedSchedulerManager.getInstance().cancelTask(cleanupTaskId);
+            cleanupTaskId = null;
+        }
+        fetchPool.shutdownNow();
+    }
+}
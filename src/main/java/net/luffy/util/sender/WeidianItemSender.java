@@ -1,15 +1,16 @@
 package net.luffy.util.sender;
 
 import net.luffy.Newboy;
-import net.luffy.handler.WeidianHandler;
 import net.luffy.handler.WeidianSenderHandler;
 import net.luffy.model.WeidianCookie;
 import net.luffy.model.WeidianItem;
+import net.luffy.util.WeidianItemLeaderboard;
 import net.mamoe.mirai.Bot;
 import net.mamoe.mirai.message.data.Message;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class WeidianItemSender extends SyncSender {
 
@@ -23,7 +24,6 @@ public class WeidianItemSender extends SyncSender {
 
     @Override
     public void run() {
-        WeidianHandler weidian = Newboy.INSTANCE.getHandlerWeidian();
         WeidianCookie cookie = Newboy.INSTANCE.getProperties().weidian_cookie.get(group_id);
         
         if (cookie == null) {
@@ -31,7 +31,8 @@ public class WeidianItemSender extends SyncSender {
             return;
         }
 
-        WeidianItem[] items = weidian.getItems(cookie);
+        WeidianBroadcastAssembler assembler = WeidianBroadcastAssembler.getInstance();
+        WeidianItem[] items = assembler.getItems(cookie);
         if (items == null) {
             if (!cookie.invalid) {
                 // 发送详细的错误提示
@@ -57,13 +58,22 @@ public class WeidianItemSender extends SyncSender {
             cookie.invalid = false;
         }
 
-        //合并发送（仅特殊链）
-        List<Message> messages = new ArrayList<>();
+        //合并发送（仅特殊链），各商品排行并行刷新
+        List<WeidianItem> highlighted = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
         for (WeidianItem item : items) {
             if (cookie.highlightItem.contains(item.id) && !cookie.shieldedItem.contains(item.id)) {
-                messages.add(handler.executeItemMessages(item, group, 10).getMessage());
+                highlighted.add(item);
+                ids.add(item.id);
             }
         }
+        assembler.prefetchImages(highlighted);
+        Map<Long, WeidianItemLeaderboard.Board> boards = assembler.refreshLeaderboards(cookie, ids);
+
+        List<Message> messages = new ArrayList<>();
+        for (WeidianItem item : highlighted) {
+            messages.add(handler.executeItemMessages(item, group, 10, boards.get(item.id)).getMessage());
+        }
         Message t = combine(messages);
         if (t != null)
             group.sendMessage(t);
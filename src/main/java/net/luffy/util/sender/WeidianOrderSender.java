@@ -4,25 +4,41 @@ import net.luffy.Newboy;
 import net.luffy.handler.WeidianHandler;
 import net.luffy.handler.WeidianSenderHandler;
 import net.luffy.model.*;
+import net.luffy.util.PollCursorStore;
+import net.luffy.util.WeidianItemLeaderboard;
 import net.mamoe.mirai.Bot;
 import net.mamoe.mirai.message.data.Message;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class WeidianOrderSender extends SyncSender {
+    // 等待其他群拉取同一Cookie订单的最长时间
+    private static final long ORDER_WAIT_TIMEOUT_MS = 30000;
+
     private final EndTime endTime;
     private final WeidianSenderHandler handler;
-    private final HashMap<WeidianCookie, WeidianOrder[]> cache;
+    private final ConcurrentHashMap<WeidianCookie, CompletableFuture<WeidianOrder[]>> cache;
 
-    public WeidianOrderSender(Bot bot, long group, EndTime endTime, WeidianSenderHandler handler, HashMap<WeidianCookie, WeidianOrder[]> cache) {
+    public WeidianOrderSender(Bot bot, long group, EndTime endTime, WeidianSenderHandler handler, ConcurrentHashMap<WeidianCookie, CompletableFuture<WeidianOrder[]>> cache) {
         super(bot, group);
         this.endTime = endTime;
         this.handler = handler;
         this.cache = cache;
     }
 
+    public static String cursorKey(long group) {
+        return "weidian.order." + group;
+    }
+
     public static WeidianItem search(WeidianItem[] items, long id) {
         for (WeidianItem item : items) {
             if (item.id == id)
@@ -38,17 +54,31 @@ public class WeidianOrderSender extends SyncSender {
         
         // Newboy.INSTANCE.getLogger().info("[微店订单播报] 群组 " + group_id + " 开始检查订单");
 
-        if (!cache.containsKey(cookie)) {
-            cache.put(cookie, weidian.getOrderList(cookie, endTime));
+        // 同一Cookie本周期只拉取一次订单，其余群等待同一个结果
+        CompletableFuture<WeidianOrder[]> created = new CompletableFuture<>();
+        CompletableFuture<WeidianOrder[]> existing = cache.putIfAbsent(cookie, created);
+        WeidianOrder[] orders;
+        if (existing == null) {
+            try {
+                created.complete(weidian.getOrderList(cookie, endTime));
+            } catch (Throwable e) {
+                created.complete(null);
+            }
+            orders = created.getNow(null);
+        } else {
+            orders = awaitOrders(existing);
         }
-
-        WeidianOrder[] orders = cache.get(cookie);
         if (orders == null) {
             // Newboy.INSTANCE.getLogger().warning("[微店订单播报] 群组 " + group_id + " 获取订单失败");
             return;
         }
+        // 游标在播报成功后才写入，播报前停机的订单重启后在追补窗口内补发
+        long checkpoint = Math.max(endTime.time, newestPayTime(orders));
+        // 重启后第一次追补只播报最新的几笔订单（自动发货不受影响）
+        orders = PollCursorStore.getInstance().trimReplay(cursorKey(group_id), orders);
         if (bot == null) {
             // Newboy.INSTANCE.getLogger().info("[微店订单播报] 群组 " + group_id + " 仅执行自动发货，不播报消息");
+            saveCursor(checkpoint);
             return;
         }
         
@@ -69,19 +99,35 @@ public class WeidianOrderSender extends SyncSender {
             messages.add(handler.executeOrderMessage(orders[i], group));
         }
 
-        //处理排名
+        //处理排名：商品列表走短时缓存，各商品排行并行刷新，图片同时预取
+        WeidianBroadcastAssembler assembler = WeidianBroadcastAssembler.getInstance();
+        WeidianItem[] items = assembler.getItems(cookie);
+        Map<Long, WeidianItem> matched = new LinkedHashMap<>();
+        if (items != null) {
+            for (Long id : itemIDs) {
+                WeidianItem item = search(items, id);
+                if (item != null)
+                    matched.put(id, item);
+            }
+        }
+        List<WeidianItem> normalItems = new ArrayList<>();
+        for (WeidianItem item : matched.values()) {
+            if (!cookie.highlightItem.contains(item.id))
+                normalItems.add(item);
+        }
+        assembler.prefetchImages(normalItems);
+        Map<Long, WeidianItemLeaderboard.Board> boards = assembler.refreshLeaderboards(cookie, matched.keySet());
 
         HashMap<Long, WeidianBuyer[]> itemBuyers = new HashMap<>();
-        WeidianItem[] items = weidian.getItems(cookie);
-        for (Long id : itemIDs) {
-            WeidianItem item = search(items, id);
-            if (item != null) {
-                if (cookie.highlightItem.contains(id)) {//特殊链
-                    itemBuyers.put(id, weidian.getItemBuyer(cookie, id));
-                } else { //普链
-                    WeidianItemMessage itemMessage = handler.executeItemMessages(item, group); //内包含weidian.getItemBuyer(cookie, id)
-                    messages.add(itemMessage); //普链商品信息附在最后
-                    itemBuyers.put(id, itemMessage.buyers);
+        for (WeidianItem item : matched.values()) {
+            long id = item.id;
+            WeidianItemLeaderboard.Board board = boards.get(id);
+            if (!cookie.highlightItem.contains(id)) { //普链
+                messages.add(handler.executeItemMessages(item, group, 5, board)); //普链商品信息附在最后
+            }
+            if (board != null) {
+                synchronized (board) {
+                    itemBuyers.put(id, board.ranking()); //播报只含前几名，订单排名需要完整排行
                 }
             }
         }
@@ -90,7 +136,8 @@ public class WeidianOrderSender extends SyncSender {
         for (WeidianMessage message : messages) {
             if (message instanceof WeidianOrderMessage) {
                 long id = ((WeidianOrderMessage) message).itemId;
-                messages1.add(((WeidianOrderMessage) message).getMessage(itemBuyers.get(id)));
+                WeidianBuyer[] buyers = itemBuyers.getOrDefault(id, new WeidianBuyer[0]); //排行刷新失败时不显示排名
+                messages1.add(((WeidianOrderMessage) message).getMessage(buyers));
             } else {
                 messages1.add(message.getMessage());
             }
@@ -103,6 +150,38 @@ public class WeidianOrderSender extends SyncSender {
         } else {
             // Newboy.INSTANCE.getLogger().info("[微店订单播报] 群组 " + group_id + " 没有新订单需要播报");
         }
+        saveCursor(checkpoint);
+    }
+
+    private void saveCursor(long time) {
+        PollCursorStore cursors = PollCursorStore.getInstance();
+        Long saved = cursors.getLong(cursorKey(group_id));
+        if (time > 0 && (saved == null || saved < time)) {
+            cursors.putLong(cursorKey(group_id), time);
+        }
+    }
+
+    private static long newestPayTime(WeidianOrder[] orders) {
+        long newest = 0;
+        for (WeidianOrder order : orders) {
+            try {
+                newest = Math.max(newest, order.getPayTime().getTime());
+            } catch (Exception e) {
+                // 静默处理无法解析的付款时间
+            }
+        }
+        return newest;
+    }
+
+    private static WeidianOrder[] awaitOrders(CompletableFuture<WeidianOrder[]> future) {
+        try {
+            return future.get(ORDER_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
     }
 
 }
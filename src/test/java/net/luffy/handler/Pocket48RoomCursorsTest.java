@@ -0,0 +1,97 @@
+package net.luffy.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Pocket48RoomCursorsTest {
+
+    private static final long ROOM = 1001L;
+    private static final long GROUP_A = 1L;
+    private static final long GROUP_B = 2L;
+    private static final long NOW = 10_000_000L;
+    private static final long MAX_LAG = 1_000_000L;
+
+    private static Pocket48ResponseDecoder.MessageEntry entry(long time) {
+        return new Pocket48ResponseDecoder.MessageEntry(time, "TEXT", "{}", 0L, "n");
+    }
+
+    @Test
+    void floorIsEarliestGroupCursor() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 20);
+        assertNull(cursors.floor(ROOM, NOW));
+
+        cursors.seed(ROOM, GROUP_A, NOW - 100);
+        cursors.seed(ROOM, GROUP_B, NOW - 500);
+        assertEquals(NOW - 500, cursors.floor(ROOM, NOW));
+    }
+
+    @Test
+    void laggingGroupHoldsFloorAfterOtherGroupDelivers() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 20);
+        cursors.seed(ROOM, GROUP_A, NOW - 500);
+        cursors.seed(ROOM, GROUP_B, NOW - 500);
+
+        // A发送成功，B发送失败（未推进）
+        cursors.ack(ROOM, GROUP_A, NOW - 10);
+        assertEquals(NOW - 500, cursors.floor(ROOM, NOW));
+
+        cursors.ack(ROOM, GROUP_B, NOW - 10);
+        assertEquals(NOW - 10, cursors.floor(ROOM, NOW));
+    }
+
+    @Test
+    void seedDoesNotOverwriteAndAckNeverMovesBackward() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 20);
+        cursors.seed(ROOM, GROUP_A, NOW - 100);
+        cursors.seed(ROOM, GROUP_A, NOW - 900);
+        assertEquals(NOW - 100, cursors.cursor(ROOM, GROUP_A));
+
+        cursors.ack(ROOM, GROUP_A, NOW - 300);
+        assertEquals(NOW - 100, cursors.cursor(ROOM, GROUP_A));
+    }
+
+    @Test
+    void floorIsClampedToMaxLag() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 20);
+        cursors.seed(ROOM, GROUP_A, 0L);
+        assertEquals(NOW - MAX_LAG, cursors.floor(ROOM, NOW));
+    }
+
+    @Test
+    void removedGroupNoLongerHoldsFloor() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 20);
+        cursors.seed(ROOM, GROUP_A, NOW - 100);
+        cursors.seed(ROOM, GROUP_B, NOW - 900);
+        cursors.remove(ROOM, GROUP_B);
+        assertEquals(NOW - 100, cursors.floor(ROOM, NOW));
+
+        cursors.startBackfill(ROOM, NOW - 100, List.of(entry(NOW - 1)), NOW - 1, 5);
+        cursors.remove(ROOM, GROUP_A);
+        assertNull(cursors.floor(ROOM, NOW));
+        assertNull(cursors.backfill(ROOM));
+    }
+
+    @Test
+    void backfillAccumulatesOlderPagesUntilExhausted() {
+        Pocket48RoomCursors cursors = new Pocket48RoomCursors(MAX_LAG, 10);
+        Pocket48RoomCursors.Backfill backfill = cursors.startBackfill(ROOM, NOW - 1000,
+                List.of(entry(NOW - 1), entry(NOW - 2)), NOW - 2, 5);
+        assertEquals(NOW - 2, backfill.nextTime());
+        assertFalse(backfill.exhausted());
+
+        backfill.append(List.of(entry(NOW - 3), entry(NOW - 4)), NOW - 4, 5);
+        assertTrue(backfill.exhausted());
+        assertEquals(4, backfill.messages().size());
+        assertEquals(NOW - 4, backfill.oldestTime());
+        assertEquals(NOW - 1, backfill.messages().get(0).msgTime);
+
+        cursors.finishBackfill(ROOM);
+        assertNull(cursors.backfill(ROOM));
+    }
+}
@@ -0,0 +1,124 @@
+package net.luffy.util;
+
+import net.mamoe.mirai.message.data.Message;
+import net.mamoe.mirai.message.data.PlainText;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandExecutorTest {
+
+    private static final long USER = 10001L;
+    private static final long GROUP = 20001L;
+
+    private final CommandExecutor executor = new CommandExecutor(100, 200);
+    private final List<String> replies = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void reply(Message message) {
+        replies.add(message.contentToString());
+    }
+
+    /**
+     * 模拟不理会中断的阻塞请求，直到release被放开
+     */
+    private static Message blockUninterruptibly(CountDownLatch release, CountDownLatch finished) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                release.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        finished.countDown();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return new PlainText("done");
+    }
+
+    private boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    @Test
+    void permitIsHeldUntilTimedOutHandlerReturns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        executor.submit("/慢命令", GROUP, USER, () -> blockUninterruptibly(release, finished), this::reply);
+
+        // 超时后先回复用户，但处理仍在运行，名额不能归还
+        assertTrue(waitFor(() -> replies.stream().anyMatch(r -> r.contains("超时"))));
+        assertEquals(1, executor.availableUserPermits(USER));
+
+        release.countDown();
+        assertTrue(finished.await(3, TimeUnit.SECONDS));
+        assertTrue(waitFor(() -> executor.availableUserPermits(USER) == 2));
+        // 已超时的命令不再发送结果
+        assertFalse(replies.contains("done"));
+    }
+
+    @Test
+    void stuckHandlersKeepUserLimited() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        executor.submit("/慢命令", GROUP, USER, () -> blockUninterruptibly(release, finished), this::reply);
+        executor.submit("/慢命令", GROUP, USER, () -> blockUninterruptibly(release, finished), this::reply);
+        assertTrue(waitFor(() -> replies.stream().filter(r -> r.contains("超时")).count() == 2));
+
+        executor.submit("/快命令", GROUP, USER, () -> new PlainText("fast"), this::reply);
+        assertTrue(replies.stream().anyMatch(r -> r.contains("上一条命令还在处理中")));
+        assertFalse(replies.contains("fast"));
+
+        release.countDown();
+        assertTrue(finished.await(3, TimeUnit.SECONDS));
+        assertTrue(waitFor(() -> executor.availableUserPermits(USER) == 2));
+        executor.submit("/快命令", GROUP, USER, () -> new PlainText("fast"), this::reply);
+        assertTrue(waitFor(() -> replies.contains("fast")));
+    }
+
+    @Test
+    void fanOutMarksTimeoutAsFailedAndKeepsNullAsMissing() {
+        CountDownLatch never = new CountDownLatch(1);
+        List<CommandExecutor.LookupResult<String>> results = executor.fanOut(List.of(1, 2, 3), id -> {
+            if (id == 2) {
+                try {
+                    never.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return id == 3 ? null : "room" + id;
+        });
+
+        assertEquals("room1", results.get(0).get());
+        assertFalse(results.get(0).isFailed());
+        assertTrue(results.get(1).isFailed());
+        assertNull(results.get(2).get());
+        assertFalse(results.get(2).isFailed());
+        never.countDown();
+    }
+}
@@ -0,0 +1,100 @@
+package net.luffy.util;
+
+import net.luffy.model.ApiPayloads.DouyinAweme;
+import net.luffy.model.ApiPayloads.DouyinAwemePage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DouyinMonitorServiceTest {
+
+    private static final String USER = "MS4wLjABAAAA";
+
+    @TempDir
+    Path dir;
+
+    private final List<String> pushed = new ArrayList<>();
+    // 模拟轮询基准：已确认的作品列表再次拉取时视为未变化
+    private final AtomicReference<String> committed = new AtomicReference<>();
+    private volatile List<DouyinAweme> awemes = new ArrayList<>();
+
+    private static DouyinAweme aweme(String id, long createTimeSeconds) {
+        DouyinAweme aweme = new DouyinAweme();
+        aweme.awemeId = id;
+        aweme.createTime = createTimeSeconds;
+        return aweme;
+    }
+
+    private DouyinMonitorService service(PollCursorStore cursors) {
+        DouyinMonitorService.AwemeSource source = new DouyinMonitorService.AwemeSource() {
+            @Override
+            public DouyinMonitorService.AwemeFetch fetch(String secUserId) {
+                String fingerprint = awemes.isEmpty() ? "" : awemes.get(0).awemeId;
+                if (fingerprint.equals(committed.get())) {
+                    return new DouyinMonitorService.AwemeFetch(null, () -> committed.set(fingerprint));
+                }
+                DouyinAwemePage page = new DouyinAwemePage();
+                page.statusCode = 0;
+                page.awemeList = new ArrayList<>(awemes);
+                return new DouyinMonitorService.AwemeFetch(page, () -> committed.set(fingerprint));
+            }
+
+            @Override
+            public void reset(String secUserId) {
+                committed.set(null);
+            }
+        };
+        return new DouyinMonitorService(source, (userInfo, aweme) -> pushed.add(aweme.awemeId), cursors);
+    }
+
+    @Test
+    void videoPostedWhileDownIsPushedAfterRestart() {
+        File file = dir.resolve("cursors.log").toFile();
+        long now = System.currentTimeMillis() / 1000;
+        awemes.add(aweme("v1", now - 600));
+
+        PollCursorStore cursors = new PollCursorStore(file);
+        DouyinMonitorService before = service(cursors);
+        // 上线时以v1为基准并写入游标
+        before.addMonitorUser(USER);
+        before.checkUserUpdate(before.getMonitoredUserInfo(USER));
+        assertTrue(pushed.isEmpty());
+        cursors.flush();
+
+        // 停机期间发布了v2
+        awemes.add(0, aweme("v2", now - 60));
+        committed.set(null);
+
+        DouyinMonitorService after = service(new PollCursorStore(file));
+        after.addMonitorUser(USER);
+        after.checkUserUpdate(after.getMonitoredUserInfo(USER));
+        assertEquals(List.of("v2"), pushed);
+
+        // 补发后确认，不再重复推送
+        after.checkUserUpdate(after.getMonitoredUserInfo(USER));
+        assertEquals(List.of("v2"), pushed);
+    }
+
+    @Test
+    void newUserWithoutCursorUsesLatestAsBaseline() {
+        long now = System.currentTimeMillis() / 1000;
+        awemes.add(aweme("v1", now - 600));
+
+        DouyinMonitorService service = service(new PollCursorStore(dir.resolve("empty.log").toFile()));
+        service.addMonitorUser(USER);
+        service.checkUserUpdate(service.getMonitoredUserInfo(USER));
+        assertTrue(pushed.isEmpty());
+
+        awemes.add(0, aweme("v2", now));
+        service.checkUserUpdate(service.getMonitoredUserInfo(USER));
+        assertEquals(List.of("v2"), pushed);
+    }
+}
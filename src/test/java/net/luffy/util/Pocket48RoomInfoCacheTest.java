@@ -0,0 +1,112 @@
+package net.luffy.util;
+
+import net.luffy.model.Pocket48RoomInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Pocket48RoomInfoCacheTest {
+
+    private static final long ROOM = 1001L;
+    private static final long MINUTE = 60 * 1000L;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Pocket48RoomInfoCache cache() {
+        return new Pocket48RoomInfoCache(dir.resolve("rooms.json").toFile(), now::get);
+    }
+
+    private Pocket48RoomInfoCache.Loader returning(Pocket48RoomInfo info) {
+        return roomId -> {
+            loads.incrementAndGet();
+            return info;
+        };
+    }
+
+    private Pocket48RoomInfoCache.Loader failing() {
+        return roomId -> {
+            loads.incrementAndGet();
+            throw new IOException("401 token失效");
+        };
+    }
+
+    @Test
+    void unknownRoomIsCachedForNegativeTtl() {
+        Pocket48RoomInfoCache cache = cache();
+        assertNull(cache.get(ROOM, returning(null)));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(5 * MINUTE - 1);
+        assertNull(cache.get(ROOM, returning(null)));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(1);
+        assertNull(cache.get(ROOM, returning(null)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void apiErrorIsNotNegativelyCached() {
+        Pocket48RoomInfoCache cache = cache();
+        assertNull(cache.get(ROOM, failing()));
+        assertNull(cache.get(ROOM, failing()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void apiErrorKeepsStaleEntry() {
+        Pocket48RoomInfoCache cache = cache();
+        cache.get(ROOM, returning(new Pocket48RoomInfo.LockedRoomInfo("问题？", 7L, ROOM)));
+
+        // 加密房间过期后同步刷新，刷新失败时继续使用旧值
+        now.addAndGet(31 * MINUTE);
+        Pocket48RoomInfo info = cache.get(ROOM, failing());
+        assertNotNull(info);
+        assertTrue(info instanceof Pocket48RoomInfo.LockedRoomInfo);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void keptRoomDoesNotRefreshOnEveryGet() throws Exception {
+        Pocket48RoomInfoCache cache = cache();
+        cache.get(ROOM, returning(new Pocket48RoomInfo("房间", "成员", 7L, ROOM)));
+
+        // 已知房间偶尔查询为不存在：保留旧值，短TTL从此刻重新计算，不应每次访问都触发后台刷新
+        now.addAndGet(MINUTE);
+        cache.loadEntry(ROOM, returning(null));
+        now.addAndGet(1);
+        Pocket48RoomInfo info = cache.get(ROOM, returning(null));
+        assertNotNull(info);
+        assertEquals("房间", info.getRoomName());
+        assertEquals(0, cache.getBackgroundRefreshes());
+    }
+
+    @Test
+    void bgImgSurvivesRefresh() throws Exception {
+        Files.writeString(dir.resolve("rooms.json"), "{\"" + ROOM + "\":{\"kind\":\"ROOM\",\"roomName\":\"房间\","
+                + "\"ownerName\":\"成员\",\"serverId\":7,\"fetchedAt\":" + now.get() + ","
+                + "\"bgImgs\":{\"5\":\"/bg.jpg\"}}}", StandardCharsets.UTF_8);
+        Pocket48RoomInfoCache cache = cache();
+
+        cache.loadEntry(ROOM, returning(new Pocket48RoomInfo("新房间名", "成员", 7L, ROOM)));
+        Pocket48RoomInfo refreshed = cache.get(ROOM, returning(null));
+        assertEquals("新房间名", refreshed.getRoomName());
+        // 背景图记录随刷新保留，不需要重新查询成员信息
+        assertEquals("https://source.48.cn/bg.jpg", refreshed.setStarId(5).getBgImg());
+    }
+}
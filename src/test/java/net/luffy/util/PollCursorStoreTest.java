@@ -0,0 +1,108 @@
+package net.luffy.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PollCursorStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private File file() {
+        return dir.resolve("cursors.log").toFile();
+    }
+
+    @Test
+    void flushedCursorsAreReplayedAfterCrash() {
+        PollCursorStore store = new PollCursorStore(file());
+        store.putLong("weidian.order.1", 100L);
+        store.put("weibo.user.2", "abc");
+        store.remove("weibo.user.2");
+        store.flush();
+
+        // 不调用shutdown，模拟进程被直接结束
+        PollCursorStore reopened = new PollCursorStore(file());
+        assertEquals("100", reopened.restore("weidian.order.1"));
+        assertNull(reopened.restore("weibo.user.2"));
+    }
+
+    @Test
+    void unflushedChangeIsLostButFlushedValueSurvives() {
+        PollCursorStore store = new PollCursorStore(file());
+        store.put("douyin.user.1", "1");
+        store.flush();
+        store.put("douyin.user.1", "2");
+
+        PollCursorStore reopened = new PollCursorStore(file());
+        assertEquals("1", reopened.restore("douyin.user.1"));
+    }
+
+    @Test
+    void concurrentPutsReplayToFinalValue() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            File file = dir.resolve("concurrent-" + round + ".log").toFile();
+            PollCursorStore store = new PollCursorStore(file);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int base = t * 10000;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        store.putLong("pocket48.room.1", base + i);
+                        if (i % 7 == 0) {
+                            store.remove("pocket48.room.1");
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            store.flush();
+
+            // 日志重放的结果必须与内存中的最终值一致
+            PollCursorStore reopened = new PollCursorStore(file);
+            assertEquals(store.get("pocket48.room.1"), reopened.get("pocket48.room.1"));
+        }
+    }
+
+    @Test
+    void cursorsOlderThanCatchUpWindowAreNotRestored() throws Exception {
+        long savedAt = System.currentTimeMillis() - PollCursorStore.CATCH_UP_WINDOW_MS - 60_000;
+        Files.writeString(file().toPath(), "_savedAt=" + savedAt + "\nweibo.topic.1=5\n", StandardCharsets.UTF_8);
+
+        PollCursorStore store = new PollCursorStore(file());
+        assertEquals("5", store.get("weibo.topic.1"));
+        assertNull(store.restore("weibo.topic.1"));
+    }
+
+    @Test
+    void firstReplayIsTrimmedOnce() {
+        PollCursorStore store = new PollCursorStore(file());
+        store.putLong("weidian.order.1", 1L);
+        store.flush();
+
+        PollCursorStore reopened = new PollCursorStore(file());
+        reopened.restore("weidian.order.1");
+        Integer[] items = new Integer[PollCursorStore.CATCH_UP_MAX_ITEMS + 5];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        Integer[] trimmed = reopened.trimReplay("weidian.order.1", items);
+        assertEquals(PollCursorStore.CATCH_UP_MAX_ITEMS, trimmed.length);
+        assertEquals(Integer.valueOf(0), trimmed[0]);
+        assertArrayEquals(items, reopened.trimReplay("weidian.order.1", items));
+    }
+}
@@ -0,0 +1,114 @@
+package net.luffy.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnifiedHttpClientPollTest {
+
+    private HttpServer server;
+    private String url;
+    private final AtomicReference<String> body = new AtomicReference<>("{\"items\":[1,2]}");
+    private final AtomicReference<String> etag = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private String pollKey;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/poll", exchange -> {
+            requests.incrementAndGet();
+            String tag = etag.get();
+            if (tag != null && tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            if (tag != null) {
+                exchange.getResponseHeaders().add("ETag", tag);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/poll";
+        pollKey = "test:" + System.nanoTime();
+    }
+
+    @AfterEach
+    void stopServer() {
+        UnifiedHttpClient.getInstance().resetPoll(pollKey);
+        server.stop(0);
+    }
+
+    @Test
+    void uncommittedResultIsReportedAgain() throws Exception {
+        UnifiedHttpClient client = UnifiedHttpClient.getInstance();
+
+        UnifiedHttpClient.PollResult first = client.poll(pollKey, url, null);
+        assertTrue(first.isChanged());
+
+        // 处理失败未确认：同样的内容下次仍然算作变化
+        UnifiedHttpClient.PollResult retry = client.poll(pollKey, url, null);
+        assertTrue(retry.isChanged());
+        retry.commit();
+
+        assertFalse(client.poll(pollKey, url, null).isChanged());
+    }
+
+    @Test
+    void notModifiedOnlyAfterCommit() throws Exception {
+        UnifiedHttpClient client = UnifiedHttpClient.getInstance();
+        etag.set("\"v1\"");
+
+        UnifiedHttpClient.PollResult first = client.poll(pollKey, url, null);
+        assertTrue(first.isChanged());
+        first.commit();
+
+        UnifiedHttpClient.PollResult second = client.poll(pollKey, url, null);
+        assertFalse(second.isChanged());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void fingerprintComparesContentAcrossVolatileBodies() throws Exception {
+        UnifiedHttpClient client = UnifiedHttpClient.getInstance();
+
+        body.set("{\"log_id\":\"a\",\"items\":[1,2]}");
+        UnifiedHttpClient.PollResult first = client.poll(pollKey, url, null);
+        assertTrue(first.isChanged());
+        assertFalse(first.matchesFingerprint("1,2"));
+        first.commit("1,2");
+
+        // 响应体只有日志字段不同：原始哈希判断为变化，内容指纹相同
+        body.set("{\"log_id\":\"b\",\"items\":[1,2]}");
+        UnifiedHttpClient.PollResult second = client.poll(pollKey, url, null);
+        assertTrue(second.isChanged());
+        assertTrue(second.matchesFingerprint("1,2"));
+        assertFalse(second.matchesFingerprint("3,1,2"));
+        second.commit("1,2");
+
+        // 完全相同的响应体：指纹随状态保留
+        UnifiedHttpClient.PollResult third = client.poll(pollKey, url, null);
+        assertFalse(third.isChanged());
+        third.commit();
+
+        body.set("{\"log_id\":\"c\",\"items\":[1,2]}");
+        assertTrue(client.poll(pollKey, url, null).matchesFingerprint("1,2"));
+    }
+}
@@ -0,0 +1,137 @@
+package net.luffy.util;
+
+import net.luffy.model.ApiPayloads.WeidianOrderListResult;
+import net.luffy.model.ApiPayloads.WeidianOrderNode;
+import net.luffy.model.ApiPayloads.WeidianReceiverNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeidianItemLeaderboardTest {
+
+    private static final long ITEM = 42L;
+    private static final int ORDER_COUNT = 100;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 按时间倒序的订单列表，每单1元，可修改单个订单的状态
+     */
+    private static final class FakeOrders implements WeidianItemLeaderboard.PageFetcher {
+        final List<WeidianOrderNode> orders = new ArrayList<>();
+        final AtomicInteger fetched = new AtomicInteger();
+        Runnable onFetch = () -> { };
+
+        FakeOrders() {
+            for (int i = ORDER_COUNT - 1; i >= 0; i--) {
+                WeidianOrderNode order = new WeidianOrderNode();
+                order.orderId = "o" + i;
+                order.statusDesc = "已付款";
+                order.totalPrice = "1.00";
+                order.receiver = new WeidianReceiverNode();
+                order.receiver.buyerId = i % 5;
+                order.receiver.buyerName = "b" + (i % 5);
+                orders.add(order);
+            }
+        }
+
+        void close(int index) {
+            orders.get(index).statusDesc = "已关闭";
+        }
+
+        @Override
+        public WeidianOrderListResult fetch(int page) {
+            fetched.incrementAndGet();
+            onFetch.run();
+            WeidianOrderListResult result = new WeidianOrderListResult();
+            result.total = orders.size();
+            int from = Math.min(page * 20, orders.size());
+            result.orderList = new ArrayList<>(orders.subList(from, Math.min(from + 20, orders.size())));
+            return result;
+        }
+    }
+
+    private WeidianItemLeaderboard leaderboard(long fullRescanMs) {
+        return new WeidianItemLeaderboard(dir.resolve("board.json").toFile(), fullRescanMs);
+    }
+
+    @Test
+    void firstRefreshScansEveryPage() {
+        FakeOrders orders = new FakeOrders();
+        WeidianItemLeaderboard.Board board = leaderboard(Long.MAX_VALUE).refresh(ITEM, orders);
+
+        assertNotNull(board);
+        assertTrue(board.isComplete());
+        assertEquals(5, orders.fetched.get());
+        assertEquals(ORDER_COUNT * 100L, board.total());
+    }
+
+    @Test
+    void recentCloseIsSubtractedWithinRecheckWindow() {
+        FakeOrders orders = new FakeOrders();
+        WeidianItemLeaderboard leaderboard = leaderboard(Long.MAX_VALUE);
+        leaderboard.refresh(ITEM, orders);
+
+        // 第2页的订单关闭：不在待付款中也没有新订单，但仍在重新确认的最近几页内
+        orders.close(25);
+        orders.fetched.set(0);
+        WeidianItemLeaderboard.Board board = leaderboard.refresh(ITEM, orders);
+
+        assertEquals(3, orders.fetched.get());
+        assertEquals((ORDER_COUNT - 1) * 100L, board.total());
+    }
+
+    @Test
+    void oldCloseIsSubtractedOnFullRescan() {
+        FakeOrders orders = new FakeOrders();
+        WeidianItemLeaderboard leaderboard = leaderboard(0);
+        leaderboard.refresh(ITEM, orders);
+
+        // 最后一页的订单关闭，只有完整重扫才能看到
+        orders.close(ORDER_COUNT - 1);
+        orders.fetched.set(0);
+        WeidianItemLeaderboard.Board board = leaderboard.refresh(ITEM, orders);
+
+        assertEquals(5, orders.fetched.get());
+        assertEquals((ORDER_COUNT - 1) * 100L, board.total());
+    }
+
+    @Test
+    void boardLockIsNotHeldWhileFetching() throws Exception {
+        FakeOrders orders = new FakeOrders();
+        WeidianItemLeaderboard leaderboard = leaderboard(Long.MAX_VALUE);
+        WeidianItemLeaderboard.Board board = leaderboard.getBoard(ITEM);
+        AtomicBoolean blocked = new AtomicBoolean(false);
+
+        orders.onFetch = () -> {
+            // 模拟拉取期间写盘或读取排行的线程
+            Thread reader = new Thread(() -> {
+                synchronized (board) {
+                    board.total();
+                }
+            });
+            reader.start();
+            try {
+                reader.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (reader.isAlive()) {
+                blocked.set(true);
+            }
+        };
+        leaderboard.refresh(ITEM, orders);
+
+        assertTrue(!blocked.get(), "拉取订单时不应持有排行锁");
+    }
+}
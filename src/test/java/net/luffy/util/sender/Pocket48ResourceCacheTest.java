@@ -0,0 +1,131 @@
+package net.luffy.util.sender;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Pocket48ResourceCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private static ByteArrayInputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void leasedFileSurvivesEviction() {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 10, 60_000);
+        File first = cache.cacheFromStream("https://a/1", content("12345678"), ".dat");
+        assertNotNull(first);
+
+        // 写入第二个对象超过上限，第一个仍在租约期内，不能被删除
+        File second = cache.cacheFromStream("https://a/2", content("abcdefgh"), ".dat");
+        assertNotNull(second);
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+    }
+
+    @Test
+    void unleasedFileIsEvicted() {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 10, 0);
+        File first = cache.cacheFromStream("https://a/1", content("12345678"), ".dat");
+        cache.cacheFromStream("https://a/2", content("abcdefgh"), ".dat");
+
+        assertFalse(first.exists());
+        assertNull(cache.getCachedFile("https://a/1"));
+    }
+
+    @Test
+    void clearAllDefersDeletionUntilLeaseEnds() throws Exception {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 1024, 200);
+        File file = cache.cacheFromStream("https://a/1", content("payload"), ".dat");
+
+        cache.clearAll();
+        assertNull(cache.getCachedFile("https://a/1"));
+        assertTrue(file.exists());
+
+        Thread.sleep(300);
+        cache.cleanupExpiredFiles();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    void deferredDeleteKeepsRewrittenContent() throws Exception {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 1024, 200);
+        File file = cache.cacheFromStream("https://a/1", content("payload"), ".dat");
+        cache.clearAll();
+
+        // 同样的内容在推迟删除前重新写入，文件路径相同，不能被推迟删除误删
+        File again = cache.cacheFromStream("https://a/2", content("payload"), ".dat");
+        assertEquals(file, again);
+
+        Thread.sleep(300);
+        cache.cleanupExpiredFiles();
+        assertTrue(again.exists());
+        assertEquals(again, cache.getCachedFile("https://a/2"));
+    }
+
+    @Test
+    void dedupHitRecreatesMissingObject() throws Exception {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 1024, 60_000);
+        File file = cache.cacheFromStream("https://a/1", content("payload"), ".dat");
+        Files.delete(file.toPath());
+
+        // 文件被外部删除后，相同内容重新写入对象，而不是返回不存在的文件
+        File again = cache.cacheFromStream("https://a/2", content("payload"), ".dat");
+        assertNotNull(again);
+        assertTrue(again.exists());
+    }
+
+    @Test
+    void unindexedObjectsAreDeletedOnRestart() throws Exception {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 1024, 60_000);
+        File kept = cache.cacheFromStream("https://a/1", content("payload"), ".dat");
+        cache.shutdown();
+
+        // 模拟移入对象目录后、写索引前进程退出留下的文件
+        Path orphan = dir.resolve("objects").resolve("ab").resolve("ab" + "0".repeat(62) + ".dat");
+        Files.createDirectories(orphan.getParent());
+        Files.writeString(orphan, "orphan");
+
+        Pocket48ResourceCache reopened = new Pocket48ResourceCache(dir, 1024, 60_000);
+        assertFalse(Files.exists(orphan));
+        assertTrue(kept.exists());
+        assertEquals(kept, reopened.getCachedFile("https://a/1"));
+    }
+
+    @Test
+    void shutdownDeletesDeferredFiles() {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 1024, 60_000);
+        File file = cache.cacheFromStream("https://a/1", content("payload"), ".dat");
+        cache.clearAll();
+        assertTrue(file.exists());
+
+        cache.shutdown();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    void evictionDropsAllAliases() {
+        Pocket48ResourceCache cache = new Pocket48ResourceCache(dir, 10, 0);
+        cache.cacheFromStream("https://a/1", content("12345678"), ".dat");
+        cache.cacheFromStream("https://a/1-mirror", content("12345678"), ".dat");
+        cache.cacheFromStream("https://a/2", content("abcdefgh"), ".dat");
+
+        assertNull(cache.getCachedFile("https://a/1"));
+        assertNull(cache.getCachedFile("https://a/1-mirror"));
+        assertNotNull(cache.getCachedFile("https://a/2"));
+    }
+}